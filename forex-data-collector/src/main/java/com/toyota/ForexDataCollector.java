@@ -2,7 +2,10 @@ package com.toyota;
 
 import com.toyota.cache.CacheService;
 import com.toyota.cache.Impl.RedisServiceImpl;
+import com.toyota.calculation.CalculationEngine;
 import com.toyota.calculation.CalculationService;
+import com.toyota.calculation.Impl.ExpressionCalculator;
+import com.toyota.calculation.Impl.JavaCalculator;
 import com.toyota.calculation.Impl.PythonCalculator;
 import com.toyota.config.ApplicationConfig;
 import com.toyota.publisher.Impl.KafkaServiceImpl;
@@ -27,13 +30,18 @@ public class ForexDataCollector {
             ApplicationConfig appConfig = ApplicationConfig.getInstance();
 
             CacheService redisService = new RedisServiceImpl(appConfig);
-            CalculationService calculationService = new PythonCalculator();
+            CalculationService calculationService = switch (CalculationEngine.valueOf(appConfig.getValue("calculation.engine").trim().toUpperCase())) {
+                case PYTHON -> new PythonCalculator();
+                case JAVA -> new JavaCalculator();
+                case EXPRESSION -> new ExpressionCalculator(appConfig);
+            };
             KafkaService kafkaService = new KafkaServiceImpl(appConfig);
 
             RateManager rateManager = new RateManagerImpl(
                     kafkaService,
                     redisService,
-                    calculationService
+                    calculationService,
+                    appConfig.getIntValue("rate.table.max.age.seconds") * 1000L
             );
 
             MailSender mailSender = new EmailSenderImpl(appConfig);
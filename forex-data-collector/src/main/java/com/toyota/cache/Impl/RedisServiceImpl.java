@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.toyota.cache.CacheService;
+import com.toyota.cache.RedisLayout;
 import com.toyota.config.ApplicationConfig;
 import com.toyota.entity.CalculatedRate;
 import com.toyota.entity.Rate;
@@ -14,68 +15,199 @@ import org.apache.logging.log4j.Logger;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.jedis.params.ScanParams;
 import redis.clients.jedis.resps.ScanResult;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Stores the rates in Redis with a TTL of {@value #TTL_IN_SECONDS} seconds. Raw rates are kept in the
+ * {@link RedisLayout} of {@code redis.layout}; calculated rates and the USD/TRY mid value always have a key each.
+ * <p>
+ * Writes return immediately: a {@link RedisWriteBehind} coalesces them per key and sends them in pipelines,
+ * so a read may not see a write of the last few milliseconds yet.
+ * </p>
+ */
 public class RedisServiceImpl implements CacheService {
 
     private static final Logger logger = LogManager.getLogger(RedisServiceImpl.class);
 
     private static final long TTL_IN_SECONDS = 300L;
     private static final String RAW_RATES_KEY_PREFIX = "RAW_RATES";
+    private static final String RAW_RATE_HASH_KEY_PREFIX = "LATEST_RAW_RATES";     // MUST NOT MATCH THE RAW_RATES*::rate SCAN PATTERN.
+    private static final String STORED_AT_FIELD_SUFFIX = "::storedAt";
     private static final String CALCULATED_RATES_KEY_PREFIX = "CALCULATED_RATES";
     public static final String USD_TRY_MID_KEY = "USD_TRY_MID";
 
     private final JedisPool jedisPool;
     private final ObjectMapper objectMapper;
-    private final ApplicationConfig appConfig;
+    private final RedisLayout layout;
+    private final RedisWriteBehind writeBehind;
 
     public RedisServiceImpl(ApplicationConfig appConfig) {
-        this.appConfig = appConfig;
-        this.jedisPool = configureJedisPool();
+        this(
+                appConfig.getValue("redis.host"),
+                appConfig.getIntValue("redis.port"),
+                RedisLayout.valueOf(appConfig.getValue("redis.layout").trim().toUpperCase()),
+                appConfig.getIntValue("redis.write.queue.capacity"),
+                appConfig.getIntValue("redis.write.batch.size"),
+                appConfig.getIntValue("redis.write.flush.interval.ms")
+        );
+    }
+
+    /**
+     * @param writeQueueCapacity    Writes of distinct keys that may wait for Redis. Further writes are dropped.
+     * @param writeBatchSize        Pending writes that trigger a flush, and the maximum commands per pipeline.
+     * @param writeFlushIntervalMs  Longest time a write waits for its batch to fill up.
+     */
+    public RedisServiceImpl(String redisHost, int redisPort, RedisLayout layout,
+                            int writeQueueCapacity, int writeBatchSize, long writeFlushIntervalMs) {
+        this.layout = layout;
+        this.jedisPool = configureJedisPool(redisHost, redisPort);
         this.objectMapper = configureObjectMapper();
         testRedisConnection();
+        if (layout != RedisLayout.KEYS) {
+            migrateKeysToHashes();
+        }
+        this.writeBehind = new RedisWriteBehind(jedisPool, writeQueueCapacity, writeBatchSize, writeFlushIntervalMs);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeBehind.close(2000), "redis-write-behind-shutdown"));
     }
 
     @Override
     public void saveRawRate(String platformName, String rateName, Rate rate) {
 
-        String redisKey = RAW_RATES_KEY_PREFIX + "::" + platformName + "::" + rateName;
-        try (Jedis jedis = jedisPool.getResource()) {
-
-            String rateInJson = objectMapper.writeValueAsString(rate);
-
-            jedis.setex(redisKey, TTL_IN_SECONDS, rateInJson);
-            logger.debug("saveRawRate: Successfully saved raw rate for key: {} with TTL: {} seconds", redisKey, TTL_IN_SECONDS);
-
-        } catch (JedisConnectionException | JsonProcessingException e) {
-            logger.error("saveRawRate: Error when save raw rates to the redis. Exception Message: {}.", e.getMessage(), e);
+        if (layout != RedisLayout.HASH) {
+            String redisKey = RAW_RATES_KEY_PREFIX + "::" + platformName + "::" + rateName;
+            writeBehind.submit(redisKey, pipeline -> pipeline.setex(redisKey, TTL_IN_SECONDS, objectMapper.writeValueAsString(rate)));
+        }
+        if (layout != RedisLayout.KEYS) {
+            String hashKey = RAW_RATE_HASH_KEY_PREFIX + "::" + rateName;
+            long storedAt = System.currentTimeMillis();
+            writeBehind.submit(hashKey + "::" + platformName, pipeline -> {
+                pipeline.hset(hashKey, rawRateFields(platformName, objectMapper.writeValueAsString(rate), storedAt));
+                pipeline.expire(hashKey, TTL_IN_SECONDS);              // ONLY DROPS THE HASH WHEN NO PLATFORM WRITES ANY MORE.
+            });
         }
+        logger.debug("saveRawRate: Queued raw rate of {} for {} ({} layout) with TTL: {} seconds", platformName, rateName, layout, TTL_IN_SECONDS);
     }
 
     @Override
     public void saveCalculatedRate(String rateName, CalculatedRate rate) {
 
         String redisKey = CALCULATED_RATES_KEY_PREFIX + "::" + rateName;
-        try (Jedis jedis = jedisPool.getResource()) {
+        writeBehind.submit(redisKey, pipeline -> pipeline.setex(redisKey, TTL_IN_SECONDS, objectMapper.writeValueAsString(rate)));
+        logger.debug("saveCalculatedRate: Queued calculated rate for key: {} with TTL: {} seconds", redisKey, TTL_IN_SECONDS);
+    }
 
-            String rateInJson = objectMapper.writeValueAsString(rate);
 
-            jedis.setex(redisKey, TTL_IN_SECONDS, rateInJson);
-            logger.debug("saveCalculatedRate: Successfully saved calculated rate for key: {} with TTL: {} seconds", redisKey, TTL_IN_SECONDS);
-        } catch (JedisConnectionException | JsonProcessingException e) {
-            logger.error("saveCalculatedRate: Error when save calculated rates to the redis. Exception Message: {}", e.getMessage(), e);
+    @Override
+    public List<Rate> getAllRawRatesByRateName(String rateName) {
+        if (layout == RedisLayout.KEYS) {
+            return scanRawRates(rateName);
         }
+        List<Rate> rates = readRawRateHash(rateName);
+        if (rates.isEmpty() && layout == RedisLayout.DUAL) {
+            return scanRawRates(rateName);
+        }
+        return rates;
     }
 
+    /**
+     * Reads the hash of the rate name with one {@code HGETALL}. Platforms whose field is older than
+     * the TTL are skipped and their fields removed, unless they were written again after the read.
+     */
+    private List<Rate> readRawRateHash(String rateName) {
+        List<Rate> rates = new ArrayList<>();
+        String hashKey = RAW_RATE_HASH_KEY_PREFIX + "::" + rateName;
 
-    @Override
-    public List<Rate> getAllRawRatesByRateName(String rateName) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Map<String, String> fields = jedis.hgetAll(hashKey);
+            long oldest = System.currentTimeMillis() - TTL_IN_SECONDS * 1000;
+            List<String> stalePlatforms = new ArrayList<>();
+            List<String> staleStoredAts = new ArrayList<>();        // AS READ, NULL IF THE PLATFORM HAD NONE.
+
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                String platformName = field.getKey();
+                if (platformName.endsWith(STORED_AT_FIELD_SUFFIX)) {
+                    continue;
+                }
+                String storedAt = fields.get(platformName + STORED_AT_FIELD_SUFFIX);
+                if (storedAt == null || Long.parseLong(storedAt) < oldest) {
+                    stalePlatforms.add(platformName);
+                    staleStoredAts.add(storedAt);
+                    continue;
+                }
+                try {
+                    rates.add(objectMapper.readValue(field.getValue(), Rate.class));
+                } catch (JsonProcessingException e) {
+                    logger.error("getAllRawRatesByRateName: Could not parse JSON for field: {} of key: {}. Exception Message: {}", platformName, hashKey, e.getMessage(), e);
+                }
+            }
+            if (!stalePlatforms.isEmpty()) {
+                try {
+                    removeStaleFields(jedis, hashKey, stalePlatforms, staleStoredAts);
+                } catch (JedisException e) {
+                    logger.warn("getAllRawRatesByRateName: Could not remove stale fields of key: {}. They are skipped on every read until then. {}", hashKey, e.getMessage());
+                }
+            }
+
+        } catch (JedisConnectionException | NumberFormatException e) {
+            logger.error("getAllRawRatesByRateName: Redis read error for key {}: {}", hashKey, e.getMessage(), e);
+        }
+
+        logger.debug("getAllRawRatesByRateName: Fetched {} raw rates for rateName: {}", rates.size(), rateName);
+        return rates;
+    }
+
+    /**
+     * Removes the fields of platforms that were read as stale, unless their store time changed since, so a rate
+     * written after the read is kept. The hash is watched while the store times are compared: if any platform
+     * writes to it before the removal, the transaction is discarded and the next read tries again.
+     *
+     * @param storedAts The store time of each platform as read, {@code null} if it had none.
+     */
+    private void removeStaleFields(Jedis jedis, String hashKey, List<String> platformNames, List<String> storedAts) {
+        String[] storedAtFields = new String[platformNames.size()];
+        for (int i = 0; i < storedAtFields.length; i++) {
+            storedAtFields[i] = platformNames.get(i) + STORED_AT_FIELD_SUFFIX;
+        }
+
+        jedis.watch(hashKey);
+        List<String> currentStoredAts = jedis.hmget(hashKey, storedAtFields);
+        List<String> removableFields = new ArrayList<>();
+        for (int i = 0; i < storedAtFields.length; i++) {
+            if (Objects.equals(currentStoredAts.get(i), storedAts.get(i))) {
+                removableFields.add(platformNames.get(i));
+                removableFields.add(storedAtFields[i]);
+            }
+        }
+        if (removableFields.isEmpty()) {
+            jedis.unwatch();
+            return;
+        }
+
+        Transaction transaction = jedis.multi();
+        transaction.hdel(hashKey, removableFields.toArray(new String[0]));
+        if (transaction.exec() == null) {
+            logger.debug("getAllRawRatesByRateName: Key: {} was written while removing its stale fields. Trying again on the next read.", hashKey);
+        } else {
+            logger.debug("getAllRawRatesByRateName: Removed {} stale platforms of key: {}", removableFields.size() / 2, hashKey);
+        }
+    }
+
+    /**
+     * Reads the {@link RedisLayout#KEYS} layout: a {@code SCAN} over the whole keyspace and a {@code GET} per matching key.
+     */
+    private List<Rate> scanRawRates(String rateName) {
         List<Rate> rates = new ArrayList<>();
         String pattern = RAW_RATES_KEY_PREFIX + "*::" + rateName;
 
@@ -109,14 +241,8 @@ public class RedisServiceImpl implements CacheService {
 
     @Override
     public void saveUsdTryMidValue(BigDecimal usdMidValue) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(
-                    USD_TRY_MID_KEY,
-                    TTL_IN_SECONDS,
-                    usdMidValue.toPlainString()
-            );
-            logger.debug("saveCalculatedRate: Successfully saved USD/TRY Mid value for key: {} with TTL: {} seconds", USD_TRY_MID_KEY, TTL_IN_SECONDS);
-        }
+        writeBehind.submit(USD_TRY_MID_KEY, pipeline -> pipeline.setex(USD_TRY_MID_KEY, TTL_IN_SECONDS, usdMidValue.toPlainString()));
+        logger.debug("saveUsdTryMidValue: Queued USD/TRY Mid value for key: {} with TTL: {} seconds", USD_TRY_MID_KEY, TTL_IN_SECONDS);
     }
 
     @Override
@@ -131,6 +257,58 @@ public class RedisServiceImpl implements CacheService {
     }
 
 
+    /**
+     * Copies the raw rates of the {@link RedisLayout#KEYS} layout into the hashes, keeping their remaining
+     * lifetime, so a collector switched to {@link RedisLayout#HASH} or {@link RedisLayout#DUAL} starts with
+     * the rates written before. With {@link RedisLayout#HASH} the copied keys are deleted.
+     */
+    private void migrateKeysToHashes() {
+        int migrated = 0;
+        try (Jedis jedis = jedisPool.getResource()) {
+            String cursor = ScanParams.SCAN_POINTER_START;
+            ScanParams params = new ScanParams().match(RAW_RATES_KEY_PREFIX + "::*::*").count(500);
+            long now = System.currentTimeMillis();
+
+            do {
+                ScanResult<String> result = jedis.scan(cursor, params);
+                for (String key : result.getResult()) {
+                    String[] parts = key.split("::");
+                    String json = jedis.get(key);
+                    long ttl = jedis.ttl(key);
+                    if (parts.length != 3 || json == null || ttl <= 0) {
+                        continue;
+                    }
+                    long storedAt = now - (TTL_IN_SECONDS - Math.min(ttl, TTL_IN_SECONDS)) * 1000;
+                    String hashKey = RAW_RATE_HASH_KEY_PREFIX + "::" + parts[2];
+
+                    Pipeline pipeline = jedis.pipelined();
+                    pipeline.hset(hashKey, rawRateFields(parts[1], json, storedAt));
+                    pipeline.expire(hashKey, TTL_IN_SECONDS);
+                    if (layout == RedisLayout.HASH) {
+                        pipeline.del(key);
+                    }
+                    pipeline.sync();
+                    migrated++;
+                }
+                cursor = result.getCursor();
+            } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+
+        } catch (JedisConnectionException e) {
+            logger.error("migrateKeysToHashes: Redis connection error : {}", e.getMessage(), e);
+        }
+        if (migrated > 0) {
+            logger.info("migrateKeysToHashes: Copied {} raw rate keys into the {} layout.", migrated, layout);
+        }
+    }
+
+    private static Map<String, String> rawRateFields(String platformName, String rateInJson, long storedAtMillis) {
+        Map<String, String> fields = new HashMap<>(4);
+        fields.put(platformName, rateInJson);
+        fields.put(platformName + STORED_AT_FIELD_SUFFIX, Long.toString(storedAtMillis));
+        return fields;
+    }
+
+
     private void testRedisConnection() {
         try (Jedis jedis = jedisPool.getResource()) {
             jedis.ping();
@@ -139,10 +317,7 @@ public class RedisServiceImpl implements CacheService {
         }
     }
 
-    private JedisPool configureJedisPool() {
-
-        String redisHost = appConfig.getValue("redis.host");
-        int redisPort = appConfig.getIntValue("redis.port");
+    private JedisPool configureJedisPool(String redisHost, int redisPort) {
 
         final JedisPoolConfig poolConfig = new JedisPoolConfig();
         poolConfig.setMaxTotal(15);
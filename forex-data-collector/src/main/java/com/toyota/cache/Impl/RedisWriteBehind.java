@@ -0,0 +1,247 @@
+package com.toyota.cache.Impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Takes Redis writes off the calling thread. Writes wait in a bounded map keyed by what they overwrite,
+ * so a newer write to the same key replaces the pending one (coalescing). A single flusher thread sends
+ * the pending writes in pipelines as soon as {@code batchSize} are waiting or the oldest waited
+ * {@code flushIntervalMillis}, whichever comes first.
+ * <p>
+ * Writes that find the map full are dropped and counted. Failed pipelines are logged and not retried:
+ * the next write of a key replaces its value anyway. Counts and flush latencies are logged every
+ * {@value #STATS_INTERVAL_SECONDS} seconds while writes come in.
+ * </p>
+ */
+final class RedisWriteBehind {
+
+    private static final Logger logger = LogManager.getLogger(RedisWriteBehind.class);
+
+    private static final long STATS_INTERVAL_SECONDS = 60;
+
+    /**
+     * One pending write, appended to the flusher's pipeline.
+     */
+    @FunctionalInterface
+    interface RedisWrite {
+        void appendTo(Pipeline pipeline) throws JsonProcessingException;
+    }
+
+    private final JedisPool jedisPool;
+    private final int capacity;
+    private final int batchSize;
+    private final int flushThreshold;
+    private final long flushIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writesPending = lock.newCondition();
+    private LinkedHashMap<String, RedisWrite> pending = new LinkedHashMap<>();         // GUARDED BY lock.
+    private long oldestPendingNanos;                                                    // GUARDED BY lock.
+    private long submitted;                                                             // GUARDED BY lock.
+    private long coalesced;                                                             // GUARDED BY lock.
+    private long dropped;                                                               // GUARDED BY lock.
+    private boolean overflowReported;                                                   // GUARDED BY lock.
+    private boolean running = true;                                                     // GUARDED BY lock.
+
+    private final Thread flusher;
+    private long flushes;                           // FLUSHER THREAD ONLY.
+    private long flushedWrites;
+    private long failedWrites;
+    private long flushNanosTotal;
+    private long flushNanosMax;
+    private long lastStatsNanos = System.nanoTime();
+
+    RedisWriteBehind(JedisPool jedisPool, int capacity, int batchSize, long flushIntervalMillis) {
+        if (capacity < 1 || batchSize < 1 || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Write-behind capacity and batch size must be positive, the flush interval not negative.");
+        }
+        this.jedisPool = jedisPool;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushThreshold = Math.min(batchSize, capacity);          // A FULL MAP IS FLUSHED AT ONCE.
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        this.flusher = new Thread(this::flushLoop, "redis-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+
+    /**
+     * Queues the write, replacing a pending write with the same coalescing key.
+     *
+     * @param coalescingKey What the write overwrites, e.g. the Redis key, or the key and field of a hash.
+     */
+    void submit(String coalescingKey, RedisWrite write) {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            submitted++;
+            if (pending.containsKey(coalescingKey)) {
+                pending.put(coalescingKey, write);
+                coalesced++;
+                return;
+            }
+            if (pending.size() >= capacity) {
+                dropped++;
+                if (!overflowReported) {
+                    overflowReported = true;        // ONCE PER STATS INTERVAL.
+                    logger.warn("submit: {} Redis writes pending. New keys are dropped until Redis catches up.", capacity);
+                }
+                return;
+            }
+            if (pending.isEmpty()) {
+                oldestPendingNanos = System.nanoTime();
+                writesPending.signal();
+            }
+            pending.put(coalescingKey, write);
+            if (pending.size() == flushThreshold) {
+                writesPending.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the pending writes and stops the flusher.
+     */
+    void close(long timeoutMillis) {
+        lock.lock();
+        try {
+            running = false;
+            writesPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void flushLoop() {
+        while (true) {
+            Map<String, RedisWrite> batch;
+            boolean stopping;
+            lock.lock();
+            try {
+                while (running && !isDue()) {
+                    if (pending.isEmpty()) {
+                        writesPending.await();
+                    } else {
+                        writesPending.awaitNanos(oldestPendingNanos + flushIntervalNanos - System.nanoTime());
+                    }
+                }
+                stopping = !running;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            } catch (InterruptedException e) {
+                logger.warn("flushLoop: Redis write-behind interrupted. Pending writes are lost.");
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                if (stopping || System.nanoTime() - lastStatsNanos >= TimeUnit.SECONDS.toNanos(STATS_INTERVAL_SECONDS)) {
+                    logStats();
+                }
+            } catch (RuntimeException e) {
+                logger.error("flushLoop: Unexpected exception in the Redis write-behind, the flusher keeps running: {}", e.getMessage(), e);
+            }
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private boolean isDue() {
+        return pending.size() >= flushThreshold
+                || (!pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= flushIntervalNanos);
+    }
+
+    /**
+     * Sends the writes in pipelines of at most {@code batchSize} commands.
+     */
+    private void flush(Map<String, RedisWrite> batch) {
+        Iterator<Map.Entry<String, RedisWrite>> writes = batch.entrySet().iterator();
+        int count = 0;
+        try (Jedis jedis = jedisPool.getResource()) {
+            while (writes.hasNext()) {
+                long start = System.nanoTime();
+                Pipeline pipeline = jedis.pipelined();
+                count = 0;
+                while (writes.hasNext() && count < batchSize) {
+                    Map.Entry<String, RedisWrite> write = writes.next();
+                    count++;
+                    try {
+                        write.getValue().appendTo(pipeline);
+                    } catch (JsonProcessingException e) {
+                        failedWrites++;
+                        logger.error("flush: Could not serialize the write of {}: {}", write.getKey(), e.getMessage(), e);
+                    }
+                }
+                pipeline.sync();
+
+                long duration = System.nanoTime() - start;
+                flushes++;
+                flushedWrites += count;
+                flushNanosTotal += duration;
+                flushNanosMax = Math.max(flushNanosMax, duration);
+                count = 0;
+            }
+        } catch (RuntimeException e) {       // JedisException, OR E.G. AN UNEXPECTED PIPELINE RESPONSE.
+            int lost = count;               // THE PIPELINE IN FLIGHT, THEN THE WRITES NOT SENT YET.
+            while (writes.hasNext()) {
+                writes.next();
+                lost++;
+            }
+            failedWrites += lost;
+            logger.error("flush: Redis pipeline failed, {} pending writes dropped: {}", lost, e.getMessage(), e);
+        }
+    }
+
+    private void logStats() {
+        long submittedCount;
+        long coalescedCount;
+        long droppedCount;
+        lock.lock();
+        try {
+            submittedCount = submitted;
+            coalescedCount = coalesced;
+            droppedCount = dropped;
+            submitted = coalesced = dropped = 0;
+            overflowReported = false;
+        } finally {
+            lock.unlock();
+        }
+        if (submittedCount > 0 || flushes > 0) {
+            logger.info("Redis write-behind: {} writes submitted, {} coalesced, {} dropped (queue full), {} failed; {} written in {} pipelines, flush latency mean {} us, max {} us.",
+                    submittedCount, coalescedCount, droppedCount, failedWrites, flushedWrites, flushes,
+                    flushes == 0 ? 0 : flushNanosTotal / flushes / 1000, flushNanosMax / 1000);
+        }
+        flushes = flushedWrites = failedWrites = flushNanosTotal = flushNanosMax = 0;
+        lastStatsNanos = System.nanoTime();
+    }
+
+}
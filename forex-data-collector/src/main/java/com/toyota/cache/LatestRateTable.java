@@ -0,0 +1,116 @@
+package com.toyota.cache;
+
+import com.toyota.entity.Rate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The collector's authoritative copy of the latest raw rate of every (rate name, platform).
+ * <p>
+ * Platforms get a small integer id the first time they are seen. Every rate name has one row of
+ * arrays indexed by platform id, holding the latest {@link Rate}, its bid and ask already rendered as
+ * plain strings for the {@code CalculationService}, and the time it was stored. A rate older than the
+ * maximum age no longer counts, like an expired Redis key, e.g. after its platform disconnected.
+ * </p>
+ * <p>
+ * Thread safe. Reads and writes lock only the row of their rate name.
+ * </p>
+ */
+public class LatestRateTable {
+
+    private final long maxAgeMillis;
+    private final ConcurrentMap<String, Integer> platformIds = new ConcurrentHashMap<>();
+    private final AtomicInteger platformCount = new AtomicInteger();
+    private final ConcurrentMap<String, Row> rows = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxAgeMillis Age after which a stored rate is ignored.
+     */
+    public LatestRateTable(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+
+    /**
+     * Stores the rate as the latest of its rate name on the platform.
+     */
+    public void put(String platformName, String rateName, Rate rate) {
+        int platformId = platformIds.computeIfAbsent(platformName, name -> platformCount.getAndIncrement());
+        Row row = rows.computeIfAbsent(rateName, name -> new Row());
+        String bid = rate.getBid().toPlainString();
+        String ask = rate.getAsk().toPlainString();
+        long now = System.currentTimeMillis();
+
+        synchronized (row) {
+            row.ensureCapacity(platformId + 1);
+            row.rates[platformId] = rate;
+            row.bids[platformId] = bid;
+            row.asks[platformId] = ask;
+            row.storedAtMillis[platformId] = now;
+        }
+    }
+
+    /**
+     * @return The latest rates of all platforms for the rate name that are not older than the maximum age.
+     */
+    public Snapshot get(String rateName) {
+        Row row = rows.get(rateName);
+        if (row == null) {
+            return Snapshot.EMPTY;
+        }
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+
+        synchronized (row) {
+            List<Rate> rates = new ArrayList<>(row.rates.length);
+            List<String> bids = new ArrayList<>(row.rates.length);
+            List<String> asks = new ArrayList<>(row.rates.length);
+            for (int platformId = 0; platformId < row.rates.length; platformId++) {
+                if (row.rates[platformId] != null && row.storedAtMillis[platformId] >= oldest) {
+                    rates.add(row.rates[platformId]);
+                    bids.add(row.bids[platformId]);
+                    asks.add(row.asks[platformId]);
+                }
+            }
+            return rates.isEmpty() ? Snapshot.EMPTY : new Snapshot(rates, bids, asks);
+        }
+    }
+
+
+    /**
+     * The latest rates of one rate name, and their bids and asks in the same order.
+     */
+    public record Snapshot(List<Rate> rates, List<String> bids, List<String> asks) {
+
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+        public boolean isEmpty() {
+            return rates.isEmpty();
+        }
+    }
+
+    /**
+     * Guarded by its own monitor.
+     */
+    private static final class Row {
+        private Rate[] rates = new Rate[0];
+        private String[] bids = new String[0];
+        private String[] asks = new String[0];
+        private long[] storedAtMillis = new long[0];
+
+        private void ensureCapacity(int platformCount) {
+            if (rates.length < platformCount) {
+                rates = Arrays.copyOf(rates, platformCount);
+                bids = Arrays.copyOf(bids, platformCount);
+                asks = Arrays.copyOf(asks, platformCount);
+                storedAtMillis = Arrays.copyOf(storedAtMillis, platformCount);
+            }
+        }
+    }
+
+}
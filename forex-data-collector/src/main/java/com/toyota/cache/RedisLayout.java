@@ -0,0 +1,25 @@
+package com.toyota.cache;
+
+/**
+ * How raw rates are stored in Redis ({@code redis.layout}).
+ */
+public enum RedisLayout {
+
+    /**
+     * One key per platform and rate, {@code RAW_RATES::platform::rate}, expiring after the TTL.
+     * Reading the rates of one rate name is a {@code SCAN} over the whole keyspace plus a {@code GET} per key.
+     */
+    KEYS,
+
+    /**
+     * One hash per rate name, {@code LATEST_RAW_RATES::rate}, with a field per platform and the field's
+     * store time next to it. Reading is one {@code HGETALL}; fields older than the TTL are ignored and removed.
+     */
+    HASH,
+
+    /**
+     * Writes both layouts and reads the hash, falling back to {@code SCAN} while it is empty.
+     * For migrations, as long as other readers or writers still use {@link #KEYS}.
+     */
+    DUAL
+}
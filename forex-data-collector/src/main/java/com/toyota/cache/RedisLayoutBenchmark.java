@@ -0,0 +1,117 @@
+package com.toyota.cache;
+
+import com.toyota.cache.Impl.RedisServiceImpl;
+import com.toyota.entity.Rate;
+import redis.clients.jedis.Jedis;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares {@link CacheService#getAllRawRatesByRateName(String)} of the {@link RedisLayout#KEYS} layout
+ * ({@code SCAN} + {@code GET} per key) with the {@link RedisLayout#HASH} layout (one {@code HGETALL}).
+ * Both layouts are written for every rate name and platform, so each read walks a keyspace of
+ * {@code rateNames * (platforms + 1)} keys. Needs an empty Redis database, which is flushed afterwards:
+ * <pre>
+ * java -cp forex-data-collector.jar com.toyota.cache.RedisLayoutBenchmark [host] [port] [rateNames] [platforms] [reads]
+ * </pre>
+ */
+public class RedisLayoutBenchmark {
+
+    private static final long WRITE_STALL_TIMEOUT_MILLIS = 10_000;
+
+    public static void main(String[] args) {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6379;
+        int rateNames = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int platforms = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int reads = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+
+        try (Jedis jedis = new Jedis(host, port)) {
+            if (jedis.dbSize() > 0) {
+                System.out.println("Redis database is not empty. Run the benchmark against an empty database, it is flushed afterwards.");
+                return;
+            }
+            try {
+                CacheService keys = new RedisServiceImpl(host, port, RedisLayout.KEYS, 100_000, 1000, 10);
+                CacheService hashes = new RedisServiceImpl(host, port, RedisLayout.HASH, 100_000, 1000, 10);
+
+                System.out.println("Writing " + rateNames + " rate names from " + platforms + " platforms in both layouts...");
+                for (int i = 0; i < rateNames; i++) {
+                    for (int p = 0; p < platforms; p++) {
+                        Rate rate = new Rate("P" + p + "_RATE" + i, new BigDecimal("34.12345678"), new BigDecimal("34.22345678"), Instant.now());
+                        keys.saveRawRate("P" + p, "RATE" + i, rate);
+                        hashes.saveRawRate("P" + p, "RATE" + i, rate);
+                    }
+                }
+                long expectedKeys = (long) rateNames * (platforms + 1);
+                long keyCount = awaitKeys(jedis, expectedKeys);
+                if (keyCount < expectedKeys) {
+                    System.out.println((expectedKeys - keyCount) + " of " + expectedKeys + " keys missing after no write for "
+                            + WRITE_STALL_TIMEOUT_MILLIS + " ms. Writes were dropped or failed, see the Redis write-behind log.");
+                    return;
+                }
+                System.out.println("Keys in Redis: " + jedis.dbSize() + ". " + reads + " reads of random rate names per layout.");
+
+                report("KEYS", measure(keys, rateNames, platforms, reads));
+                report("HASH", measure(hashes, rateNames, platforms, reads));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                jedis.flushDB();
+            }
+        }
+    }
+
+
+    /**
+     * Waits until the write-behind has sent all keys, or the key count did not grow for
+     * {@value #WRITE_STALL_TIMEOUT_MILLIS} ms.
+     *
+     * @return The number of keys in Redis.
+     */
+    private static long awaitKeys(Jedis jedis, long expectedKeys) throws InterruptedException {
+        long keyCount = jedis.dbSize();
+        long lastProgress = System.currentTimeMillis();
+        while (keyCount < expectedKeys && System.currentTimeMillis() - lastProgress < WRITE_STALL_TIMEOUT_MILLIS) {
+            Thread.sleep(100);             // THE WRITES ARE SENT IN THE BACKGROUND.
+            long current = jedis.dbSize();
+            if (current > keyCount) {
+                keyCount = current;
+                lastProgress = System.currentTimeMillis();
+            }
+        }
+        return keyCount;
+    }
+
+    private static long[] measure(CacheService cache, int rateNames, int platforms, int reads) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < Math.max(1, reads / 10); i++) {         // WARM-UP.
+            cache.getAllRawRatesByRateName("RATE" + random.nextInt(rateNames));
+        }
+        long[] latencies = new long[reads];
+        for (int i = 0; i < reads; i++) {
+            String rateName = "RATE" + random.nextInt(rateNames);
+            long start = System.nanoTime();
+            int found = cache.getAllRawRatesByRateName(rateName).size();
+            latencies[i] = System.nanoTime() - start;
+            if (found != platforms) {
+                System.out.println("Expected " + platforms + " rates of " + rateName + ", found " + found);
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String layout, long[] sorted) {
+        System.out.printf("%-4s p50 %,10d us | p99 %,10d us | max %,10d us | mean %,10d us%n",
+                layout,
+                sorted[sorted.length / 2] / 1000,
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1000,
+                sorted[sorted.length - 1] / 1000,
+                Arrays.stream(sorted).sum() / sorted.length / 1000);
+    }
+
+}
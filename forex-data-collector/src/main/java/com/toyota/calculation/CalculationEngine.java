@@ -0,0 +1,24 @@
+package com.toyota.calculation;
+
+/**
+ * Which {@link CalculationService} the collector uses ({@code calculation.engine}).
+ */
+public enum CalculationEngine {
+
+    /**
+     * Runs {@code scripts/formulas.py} in GraalVM Python, one context per thread.
+     * Edits to the script take effect with this engine only.
+     */
+    PYTHON,
+
+    /**
+     * The same formulas in plain Java with {@link java.math.BigDecimal}, giving the same results as the
+     * script without the polyglot calls.
+     */
+    JAVA,
+
+    /**
+     * The {@code calculation.formula.*} formulas of the configuration, compiled once into expression trees.
+     */
+    EXPRESSION
+}
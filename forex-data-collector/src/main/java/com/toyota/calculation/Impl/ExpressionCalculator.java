@@ -0,0 +1,183 @@
+package com.toyota.calculation.Impl;
+
+import com.toyota.calculation.CalculationService;
+import com.toyota.calculation.expression.Condition;
+import com.toyota.calculation.expression.Expression;
+import com.toyota.calculation.expression.FormulaParser;
+import com.toyota.config.ApplicationConfig;
+import com.toyota.entity.CalculatedRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Calculates with formulas from the configuration instead of {@code scripts/formulas.py}.
+ * <p>
+ * Each formula is compiled once by {@link FormulaParser} into an expression tree, which is evaluated over the
+ * parsed bids and asks of every call. Invalid formulas fail the startup. The formulas and their variables:
+ * </p>
+ * <ul>
+ *     <li>{@code calculation.formula.validation}: a comparison over the incoming {@code bid}, {@code ask} and the
+ *     cached {@code bids}, {@code asks}. The incoming rate is valid if it holds.</li>
+ *     <li>{@code calculation.formula.usdtry.bid}, {@code .ask}, {@code .mid}: USD/TRY and its mid value over
+ *     the cached USD/TRY {@code bids}, {@code asks}.</li>
+ *     <li>{@code calculation.formula.derived.bid}, {@code .ask}: a rate derived from a USD based rate, over the
+ *     USD/TRY mid value {@code usdMid} and the cached {@code bids}, {@code asks} of the USD based rate.</li>
+ * </ul>
+ * <p>
+ * With the default formulas of {@code application.properties} the results are the ones of {@link JavaCalculator}.
+ * </p>
+ */
+public class ExpressionCalculator implements CalculationService {
+
+    private static final Logger logger = LogManager.getLogger(ExpressionCalculator.class);
+
+    public static final String VALIDATION_FORMULA_KEY = "calculation.formula.validation";
+    public static final String USD_TRY_BID_FORMULA_KEY = "calculation.formula.usdtry.bid";
+    public static final String USD_TRY_ASK_FORMULA_KEY = "calculation.formula.usdtry.ask";
+    public static final String USD_TRY_MID_FORMULA_KEY = "calculation.formula.usdtry.mid";
+    public static final String DERIVED_BID_FORMULA_KEY = "calculation.formula.derived.bid";
+    public static final String DERIVED_ASK_FORMULA_KEY = "calculation.formula.derived.ask";
+
+    private static final List<String> CACHED_LISTS = List.of("bids", "asks");
+    private static final List<String> INCOMING_SCALARS = List.of("bid", "ask");
+    private static final List<String> DERIVED_SCALARS = List.of("usdMid");
+    private static final BigDecimal[] NO_SCALARS = new BigDecimal[0];
+
+    private final Condition validation;
+    private final Expression usdTryBid;
+    private final Expression usdTryAsk;
+    private final Expression usdTryMid;
+    private final Expression derivedBid;
+    private final Expression derivedAsk;
+
+    public ExpressionCalculator(ApplicationConfig appConfig) {
+        this(
+                appConfig.getValue(VALIDATION_FORMULA_KEY),
+                appConfig.getValue(USD_TRY_BID_FORMULA_KEY),
+                appConfig.getValue(USD_TRY_ASK_FORMULA_KEY),
+                appConfig.getValue(USD_TRY_MID_FORMULA_KEY),
+                appConfig.getValue(DERIVED_BID_FORMULA_KEY),
+                appConfig.getValue(DERIVED_ASK_FORMULA_KEY)
+        );
+    }
+
+    /**
+     * @throws com.toyota.exception.InvalidFormulaException If a formula does not compile.
+     */
+    public ExpressionCalculator(String validationFormula,
+                                String usdTryBidFormula, String usdTryAskFormula, String usdTryMidFormula,
+                                String derivedBidFormula, String derivedAskFormula) {
+        this.validation = FormulaParser.parseCondition(VALIDATION_FORMULA_KEY, validationFormula, INCOMING_SCALARS, CACHED_LISTS);
+        this.usdTryBid = FormulaParser.parseExpression(USD_TRY_BID_FORMULA_KEY, usdTryBidFormula, List.of(), CACHED_LISTS);
+        this.usdTryAsk = FormulaParser.parseExpression(USD_TRY_ASK_FORMULA_KEY, usdTryAskFormula, List.of(), CACHED_LISTS);
+        this.usdTryMid = FormulaParser.parseExpression(USD_TRY_MID_FORMULA_KEY, usdTryMidFormula, List.of(), CACHED_LISTS);
+        this.derivedBid = FormulaParser.parseExpression(DERIVED_BID_FORMULA_KEY, derivedBidFormula, DERIVED_SCALARS, CACHED_LISTS);
+        this.derivedAsk = FormulaParser.parseExpression(DERIVED_ASK_FORMULA_KEY, derivedAskFormula, DERIVED_SCALARS, CACHED_LISTS);
+
+        logger.info("ExpressionCalculator: Formulas compiled. Validation: '{}', USD/TRY: '{}' / '{}', mid: '{}', derived: '{}' / '{}'.",
+                validationFormula, usdTryBidFormula, usdTryAskFormula, usdTryMidFormula, derivedBidFormula, derivedAskFormula);
+    }
+
+
+    @Override
+    public boolean isInComingRateValid(String inComingBid, String inComingAsk, List<String> cachedBids, List<String> cachedAsks) {
+        try {
+            BigDecimal[] scalars = {parse(inComingBid), parse(inComingAsk)};
+
+            boolean validationResult = validation.test(scalars, cachedLists(cachedBids, cachedAsks));
+            logger.debug("isInComingRateValid: Validation result for incoming rate: {}", validationResult);
+
+            return validationResult;
+        } catch (RuntimeException e) {
+            logger.error("isInComingRateValid: Error during rate validation. Validation result returning false. Details: {}", e.getMessage(), e);
+        }
+        return false;
+    }
+
+    @Override
+    public CalculatedRate calculateUsdTry(List<String> cachedBids, List<String> cachedAsks) {
+        try {
+            BigDecimal[][] lists = cachedLists(cachedBids, cachedAsks);
+            BigDecimal bid = usdTryBid.evaluate(NO_SCALARS, lists);
+            BigDecimal ask = usdTryAsk.evaluate(NO_SCALARS, lists);
+
+            logger.debug("calculateUsdTry: USD/TRY calculated successfully. Bid: {}, Ask: {}", bid, ask);
+
+            return new CalculatedRate(
+                    "USDTRY",
+                    bid,
+                    ask,
+                    Instant.now()
+            );
+
+        } catch (RuntimeException e) {
+            logger.error("calculateUsdTry: Failed to calculate USD/TRY." +
+                    " USD/TRY calculation returning null due to calculation error!. Details: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public CalculatedRate calculateRateDependentOnUsdTry(String rateName, String usdMid, List<String> cachedBids, List<String> cachedAsks) {
+        try {
+            BigDecimal[] scalars = {parse(usdMid)};
+            BigDecimal[][] lists = cachedLists(cachedBids, cachedAsks);
+            BigDecimal bid = derivedBid.evaluate(scalars, lists);
+            BigDecimal ask = derivedAsk.evaluate(scalars, lists);
+
+            logger.debug("calculateRateDependentOnUsdTry: Dependent rate: {} calculated successfully. Bid: {}, Ask: {}", rateName, bid, ask);
+
+            return new CalculatedRate(
+                    rateName,
+                    bid,
+                    ask,
+                    Instant.now()
+            );
+
+        } catch (RuntimeException e) {
+            logger.error("calculateRateDependentOnUsdTry: Failed to calculate rate dependent on USD/TRY. " +
+                    "Derived Rate returning null due to calculation error!. Details: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public BigDecimal calculateUsdTryMidValue(List<String> cachedUsdTryBids, List<String> cachedUsdTryAsks) {
+        try {
+            BigDecimal midValue = usdTryMid.evaluate(NO_SCALARS, cachedLists(cachedUsdTryBids, cachedUsdTryAsks));
+
+            logger.debug("calculateUsdTryMidValue: USD/TRY mid value calculated: {}", midValue);
+            return midValue;
+
+        } catch (RuntimeException e) {
+            logger.error("calculateUsdTryMidValue: Failed to calculate USD/TRY mid value. " +
+                    "USD/TRY mid value returning null due to calculation error!. Details: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * @return The lists in the order of {@link #CACHED_LISTS}.
+     */
+    private static BigDecimal[][] cachedLists(List<String> cachedBids, List<String> cachedAsks) {
+        return new BigDecimal[][]{parse(cachedBids), parse(cachedAsks)};
+    }
+
+    private static BigDecimal[] parse(List<String> values) {
+        BigDecimal[] parsed = new BigDecimal[values.size()];
+        for (int i = 0; i < parsed.length; i++) {
+            parsed[i] = parse(values.get(i));
+        }
+        return parsed;
+    }
+
+    private static BigDecimal parse(String value) {
+        return new BigDecimal(value.trim());
+    }
+
+}
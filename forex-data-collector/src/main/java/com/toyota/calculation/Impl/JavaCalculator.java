@@ -0,0 +1,151 @@
+package com.toyota.calculation.Impl;
+
+import com.toyota.calculation.CalculationService;
+import com.toyota.entity.CalculatedRate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The formulas of {@code scripts/formulas.py} in plain Java, without the GraalVM Python calls of {@link PythonCalculator}.
+ * <p>
+ * Follows the script's {@code Decimal} arithmetic step by step: the inputs are parsed exactly, and every addition,
+ * division and multiplication is rounded to 20 significant digits, half even, like {@code getcontext().prec = 20}.
+ * {@link BigDecimal} keeps the same digits and scale as Python for these operations, so the results are equal to
+ * the script's, including their scale. Inputs the script cannot calculate with (empty lists, division by zero,
+ * no number) give false or null here as well.
+ * </p>
+ * <p>
+ * Changes to {@code formulas.py} are not picked up; use {@link PythonCalculator} for edited formulas.
+ * </p>
+ */
+public class JavaCalculator implements CalculationService {
+
+    private static final Logger logger = LogManager.getLogger(JavaCalculator.class);
+
+    private static final MathContext DECIMAL_CONTEXT = new MathContext(20, RoundingMode.HALF_EVEN);      // PYTHON'S DEFAULT ROUNDING.
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final BigDecimal MAX_DIFF_PERCENTAGE = BigDecimal.ONE;
+
+
+    @Override
+    public boolean isInComingRateValid(String inComingBid, String inComingAsk, List<String> cachedBids, List<String> cachedAsks) {
+        try {
+            BigDecimal avgOfCachedBids = calculateAverage(cachedBids);
+            BigDecimal avgOfCachedAsks = calculateAverage(cachedAsks);
+
+            BigDecimal referenceMid = mid(avgOfCachedBids, avgOfCachedAsks);
+            BigDecimal midOfInComingRate = mid(parse(inComingBid), parse(inComingAsk));
+
+            BigDecimal diff = midOfInComingRate.subtract(referenceMid, DECIMAL_CONTEXT)
+                    .abs(DECIMAL_CONTEXT)
+                    .divide(referenceMid, DECIMAL_CONTEXT)
+                    .multiply(HUNDRED, DECIMAL_CONTEXT);
+
+            boolean validationResult = diff.compareTo(MAX_DIFF_PERCENTAGE) <= 0;
+            logger.debug("isInComingRateValid: Validation result for incoming rate: {}", validationResult);
+
+            return validationResult;
+        } catch (RuntimeException e) {
+            logger.error("isInComingRateValid: Error during rate validation. Validation result returning false. Details: {}", e.getMessage(), e);
+        }
+        return false;
+    }
+
+    @Override
+    public CalculatedRate calculateUsdTry(List<String> cachedBids, List<String> cachedAsks) {
+        try {
+            BigDecimal bid = calculateAverage(cachedBids);
+            BigDecimal ask = calculateAverage(cachedAsks);
+
+            logger.debug("calculateUsdTry: USD/TRY calculated successfully. Bid: {}, Ask: {}", bid, ask);
+
+            return new CalculatedRate(
+                    "USDTRY",
+                    bid,
+                    ask,
+                    Instant.now()
+            );
+
+        } catch (RuntimeException e) {
+            logger.error("calculateUsdTry: Failed to calculate USD/TRY." +
+                    " USD/TRY calculation returning null due to calculation error!. Details: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public CalculatedRate calculateRateDependentOnUsdTry(String rateName, String usdMid, List<String> cachedBids, List<String> cachedAsks) {
+        try {
+            BigDecimal avgOfBids = calculateAverage(cachedBids);
+            BigDecimal avgOfAsks = calculateAverage(cachedAsks);
+            BigDecimal usdMidValue = parse(usdMid);
+
+            BigDecimal bid = usdMidValue.multiply(avgOfBids, DECIMAL_CONTEXT);
+            BigDecimal ask = usdMidValue.multiply(avgOfAsks, DECIMAL_CONTEXT);
+
+            logger.debug("calculateRateDependentOnUsdTry: Dependent rate: {} calculated successfully. Bid: {}, Ask: {}", rateName, bid, ask);
+
+            return new CalculatedRate(
+                    rateName,
+                    bid,
+                    ask,
+                    Instant.now()
+            );
+
+        } catch (RuntimeException e) {
+            logger.error("calculateRateDependentOnUsdTry: Failed to calculate rate dependent on USD/TRY. " +
+                    "Derived Rate returning null due to calculation error!. Details: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public BigDecimal calculateUsdTryMidValue(List<String> cachedUsdTryBids, List<String> cachedUsdTryAsks) {
+        try {
+            BigDecimal midValue = mid(calculateAverage(cachedUsdTryBids), calculateAverage(cachedUsdTryAsks));
+
+            logger.debug("calculateUsdTryMidValue: USD/TRY mid value calculated: {}", midValue);
+            return midValue;
+
+        } catch (RuntimeException e) {
+            logger.error("calculateUsdTryMidValue: Failed to calculate USD/TRY mid value. " +
+                    "USD/TRY mid value returning null due to calculation error!. Details: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+
+    private static BigDecimal mid(BigDecimal bid, BigDecimal ask) {
+        return bid.add(ask, DECIMAL_CONTEXT).divide(TWO, DECIMAL_CONTEXT);
+    }
+
+    /**
+     * Sums from an exact zero and divides by the count, rounding each step like {@code calculate_average_of_bid_or_ask_list}.
+     *
+     * @throws ArithmeticException If the list is empty.
+     */
+    private static BigDecimal calculateAverage(List<String> values) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (String value : values) {
+            total = total.add(parse(value), DECIMAL_CONTEXT);
+        }
+        return total.divide(BigDecimal.valueOf(values.size()), DECIMAL_CONTEXT);
+    }
+
+    /**
+     * Exact, like {@code Decimal(str)}, which also ignores surrounding whitespace.
+     *
+     * @throws NumberFormatException If the value is no finite number.
+     */
+    private static BigDecimal parse(String value) {
+        return new BigDecimal(value.trim());
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.toyota.calculation.expression;
+
+import java.math.BigDecimal;
+
+/**
+ * A compiled comparison of two {@link Expression}s, e.g. the validation formula. Immutable and thread safe.
+ */
+public interface Condition {
+
+    /**
+     * @throws ArithmeticException If one of the sides cannot be evaluated.
+     */
+    boolean test(BigDecimal[] scalars, BigDecimal[][] lists);
+
+}
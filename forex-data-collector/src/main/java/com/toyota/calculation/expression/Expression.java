@@ -0,0 +1,19 @@
+package com.toyota.calculation.expression;
+
+import java.math.BigDecimal;
+
+/**
+ * A compiled formula, or a part of one, as parsed by {@link FormulaParser}.
+ * <p>
+ * Variables were resolved to indexes at parse time: a scalar variable reads {@code scalars[index]}, a list
+ * variable {@code lists[index]}, in the order of the names given to the parser. Immutable and thread safe.
+ * </p>
+ */
+public interface Expression {
+
+    /**
+     * @throws ArithmeticException On a division by zero, or an aggregate over an empty list.
+     */
+    BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists);
+
+}
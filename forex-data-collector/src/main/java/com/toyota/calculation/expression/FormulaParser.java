@@ -0,0 +1,308 @@
+package com.toyota.calculation.expression;
+
+import com.toyota.exception.InvalidFormulaException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles formulas into {@link Expression} and {@link Condition} trees. A formula is parsed once, variables
+ * are resolved to array indexes, and parts without variables are calculated in advance.
+ * <pre>
+ * condition  = expression ( "&lt;" | "&lt;=" | "&gt;" | "&gt;=" | "==" | "!=" ) expression
+ * expression = term { ( "+" | "-" ) term }
+ * term       = unary { ( "*" | "/" ) unary }
+ * unary      = "-" unary | number | scalar | function | "(" expression ")"
+ * function   = ( "avg" | "sum" | "count" | "min" | "max" ) "(" list ")"
+ *            | ( "min" | "max" ) "(" expression { "," expression } ")"
+ *            | "mid" "(" expression "," expression ")"
+ *            | "abs" "(" expression ")"
+ * </pre>
+ * For example {@code usdMid * avg(bids)}, or {@code abs(mid(bid, ask) / mid(avg(bids), avg(asks)) - 1) * 100 <= 1}.
+ * Numbers are exact decimals like {@code 0.5} or {@code 1E-4}.
+ */
+public final class FormulaParser {
+
+    private final String name;
+    private final String formula;
+    private final List<String> scalarNames;
+    private final List<String> listNames;
+    private int position;
+
+    private FormulaParser(String name, String formula, List<String> scalarNames, List<String> listNames) {
+        this.name = name;
+        this.formula = formula;
+        this.scalarNames = scalarNames;
+        this.listNames = listNames;
+    }
+
+
+    /**
+     * @param name        Named in error messages, e.g. the configuration key.
+     * @param scalarNames The scalar variables the formula may use, in the order of {@code scalars} at evaluation.
+     * @param listNames   The list variables the formula may use, in the order of {@code lists} at evaluation.
+     * @throws InvalidFormulaException If the formula is not a valid expression over these variables.
+     */
+    public static Expression parseExpression(String name, String formula, List<String> scalarNames, List<String> listNames) {
+        FormulaParser parser = new FormulaParser(name, formula, scalarNames, listNames);
+        Expression expression = parser.expression();
+        parser.expectEnd();
+        return expression;
+    }
+
+    /**
+     * Like {@link #parseExpression}, for a comparison of two expressions.
+     */
+    public static Condition parseCondition(String name, String formula, List<String> scalarNames, List<String> listNames) {
+        FormulaParser parser = new FormulaParser(name, formula, scalarNames, listNames);
+        Expression left = parser.expression();
+        Nodes.Comparison comparison = parser.comparison();
+        Expression right = parser.expression();
+        parser.expectEnd();
+        return new Nodes.Compare(comparison, left, right);
+    }
+
+
+    private Nodes.Comparison comparison() {
+        skipWhitespace();
+        Nodes.Comparison found = null;
+        for (Nodes.Comparison comparison : Nodes.Comparison.values()) {
+            if (formula.startsWith(comparison.symbol, position)
+                    && (found == null || comparison.symbol.length() > found.symbol.length())) {
+                found = comparison;
+            }
+        }
+        if (found == null) {
+            throw error("expected a comparison (<, <=, >, >=, ==, !=)");
+        }
+        position += found.symbol.length();
+        return found;
+    }
+
+    private Expression expression() {
+        Expression result = term();
+        while (true) {
+            if (accept('+')) {
+                result = fold(new Nodes.Binary(Nodes.Operator.ADD, result, term()));
+            } else if (accept('-')) {
+                result = fold(new Nodes.Binary(Nodes.Operator.SUBTRACT, result, term()));
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression term() {
+        Expression result = unary();
+        while (true) {
+            if (accept('*')) {
+                result = fold(new Nodes.Binary(Nodes.Operator.MULTIPLY, result, unary()));
+            } else if (accept('/')) {
+                result = fold(new Nodes.Binary(Nodes.Operator.DIVIDE, result, unary()));
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression unary() {
+        if (accept('-')) {
+            return fold(new Nodes.Negate(unary()));
+        }
+        if (accept('(')) {
+            Expression inner = expression();
+            expect(')');
+            return inner;
+        }
+        skipWhitespace();
+        if (position < formula.length() && (Character.isDigit(formula.charAt(position)) || formula.charAt(position) == '.')) {
+            return number();
+        }
+
+        int start = position;
+        String identifier = identifier();
+        skipWhitespace();
+        if (position < formula.length() && formula.charAt(position) == '(') {
+            return function(identifier, start);
+        }
+        int scalarIndex = scalarNames.indexOf(identifier);
+        if (scalarIndex >= 0) {
+            return new Nodes.ScalarVariable(scalarIndex);
+        }
+        if (listNames.contains(identifier)) {
+            throw error(start, "list '" + identifier + "' needs an aggregate, e.g. avg(" + identifier + ")");
+        }
+        throw error(start, "unknown variable '" + identifier + "'" + (scalarNames.isEmpty() ? "" : ", expected one of " + scalarNames));
+    }
+
+    private Expression function(String function, int start) {
+        expect('(');
+        Expression result = switch (function) {
+            case "avg" -> aggregate(Nodes.Aggregate.AVG);
+            case "sum" -> aggregate(Nodes.Aggregate.SUM);
+            case "count" -> aggregate(Nodes.Aggregate.COUNT);
+            case "min", "max" -> {
+                boolean max = function.equals("max");
+                if (nextIsListArgument()) {
+                    yield aggregate(max ? Nodes.Aggregate.MAX : Nodes.Aggregate.MIN);
+                }
+                List<Expression> operands = arguments();
+                yield fold(new Nodes.Extreme(max, List.copyOf(operands)));
+            }
+            case "mid" -> {
+                List<Expression> operands = arguments();
+                if (operands.size() != 2) {
+                    throw error(start, "mid takes two arguments");
+                }
+                yield fold(new Nodes.Mid(operands.get(0), operands.get(1)));
+            }
+            case "abs" -> {
+                List<Expression> operands = arguments();
+                if (operands.size() != 1) {
+                    throw error(start, "abs takes one argument");
+                }
+                yield fold(new Nodes.Abs(operands.get(0)));
+            }
+            default -> throw error(start, "unknown function '" + function + "'");
+        };
+        expect(')');
+        return result;
+    }
+
+    private Expression aggregate(Nodes.Aggregate aggregate) {
+        skipWhitespace();
+        int start = position;
+        String list = identifier();
+        int index = listNames.indexOf(list);
+        if (index < 0) {
+            throw error(start, aggregate.name().toLowerCase() + " takes a list, one of " + listNames);
+        }
+        return new Nodes.ListAggregate(aggregate, index);
+    }
+
+    private List<Expression> arguments() {
+        List<Expression> operands = new ArrayList<>();
+        operands.add(expression());
+        while (accept(',')) {
+            operands.add(expression());
+        }
+        return operands;
+    }
+
+    /**
+     * Whether the argument of {@code min} or {@code max} is a single list variable.
+     */
+    private boolean nextIsListArgument() {
+        skipWhitespace();
+        int start = position;
+        while (position < formula.length() && isIdentifierPart(formula.charAt(position))) {
+            position++;
+        }
+        boolean isList = listNames.contains(formula.substring(start, position)) && peek(')');
+        position = start;
+        return isList;
+    }
+
+    private Expression number() {
+        int start = position;
+        while (position < formula.length() && (Character.isDigit(formula.charAt(position)) || formula.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < formula.length() && (formula.charAt(position) == 'e' || formula.charAt(position) == 'E')) {
+            position++;
+            if (position < formula.length() && (formula.charAt(position) == '+' || formula.charAt(position) == '-')) {
+                position++;
+            }
+            while (position < formula.length() && Character.isDigit(formula.charAt(position))) {
+                position++;
+            }
+        }
+        try {
+            return new Nodes.Constant(new BigDecimal(formula.substring(start, position)));
+        } catch (NumberFormatException e) {
+            throw error(start, "invalid number '" + formula.substring(start, position) + "'");
+        }
+    }
+
+    private String identifier() {
+        int start = position;
+        if (position < formula.length() && Character.isLetter(formula.charAt(position))) {
+            while (position < formula.length() && isIdentifierPart(formula.charAt(position))) {
+                position++;
+            }
+        }
+        if (start == position) {
+            throw error(position < formula.length() ? "unexpected '" + formula.charAt(position) + "'" : "unexpected end");
+        }
+        return formula.substring(start, position);
+    }
+
+    /**
+     * Calculates nodes whose operands are all constants now instead of at every evaluation.
+     */
+    private Expression fold(Expression expression) {
+        boolean constant = switch (expression) {
+            case Nodes.Binary binary -> binary.left() instanceof Nodes.Constant && binary.right() instanceof Nodes.Constant;
+            case Nodes.Negate negate -> negate.operand() instanceof Nodes.Constant;
+            case Nodes.Abs abs -> abs.operand() instanceof Nodes.Constant;
+            case Nodes.Mid mid -> mid.first() instanceof Nodes.Constant && mid.second() instanceof Nodes.Constant;
+            case Nodes.Extreme extreme -> extreme.operands().stream().allMatch(Nodes.Constant.class::isInstance);
+            default -> false;
+        };
+        if (!constant) {
+            return expression;
+        }
+        try {
+            return new Nodes.Constant(expression.evaluate(null, null));
+        } catch (ArithmeticException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+
+    private boolean accept(char expected) {
+        if (peek(expected)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean peek(char expected) {
+        skipWhitespace();
+        return position < formula.length() && formula.charAt(position) == expected;
+    }
+
+    private void expect(char expected) {
+        if (!accept(expected)) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    private void expectEnd() {
+        skipWhitespace();
+        if (position < formula.length()) {
+            throw error("unexpected '" + formula.charAt(position) + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < formula.length() && Character.isWhitespace(formula.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private InvalidFormulaException error(String message) {
+        return error(position, message);
+    }
+
+    private InvalidFormulaException error(int at, String message) {
+        return new InvalidFormulaException(String.format("Invalid formula %s '%s' at position %d: %s.", name, formula, at + 1, message));
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.toyota.calculation.expression;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * The node types of the expression tree. Arithmetic rounds every step to 20 significant digits, half even,
+ * like Python's {@code Decimal} with {@code prec = 20}, so formulas written like {@code scripts/formulas.py}
+ * give the script's results.
+ */
+final class Nodes {
+
+    static final MathContext DECIMAL_CONTEXT = new MathContext(20, RoundingMode.HALF_EVEN);
+
+    private Nodes() {
+    }
+
+
+    record Constant(BigDecimal value) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return value;
+        }
+    }
+
+    record ScalarVariable(int index) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return scalars[index];
+        }
+    }
+
+    record Negate(Expression operand) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return operand.evaluate(scalars, lists).negate(DECIMAL_CONTEXT);
+        }
+    }
+
+    record Abs(Expression operand) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return operand.evaluate(scalars, lists).abs(DECIMAL_CONTEXT);
+        }
+    }
+
+    enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE;
+
+        BigDecimal apply(BigDecimal left, BigDecimal right) {
+            return switch (this) {
+                case ADD -> left.add(right, DECIMAL_CONTEXT);
+                case SUBTRACT -> left.subtract(right, DECIMAL_CONTEXT);
+                case MULTIPLY -> left.multiply(right, DECIMAL_CONTEXT);
+                case DIVIDE -> left.divide(right, DECIMAL_CONTEXT);
+            };
+        }
+    }
+
+    record Binary(Operator operator, Expression left, Expression right) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return operator.apply(left.evaluate(scalars, lists), right.evaluate(scalars, lists));
+        }
+    }
+
+    /**
+     * {@code mid(a, b)}, the same as {@code (a + b) / 2}.
+     */
+    record Mid(Expression first, Expression second) implements Expression {
+
+        private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return first.evaluate(scalars, lists).add(second.evaluate(scalars, lists), DECIMAL_CONTEXT).divide(TWO, DECIMAL_CONTEXT);
+        }
+    }
+
+    /**
+     * {@code min(a, b, ...)} and {@code max(a, b, ...)} of scalars. Returns the operand unchanged, scale included.
+     */
+    record Extreme(boolean max, List<Expression> operands) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            BigDecimal result = operands.get(0).evaluate(scalars, lists);
+            for (int i = 1; i < operands.size(); i++) {
+                result = pick(max, result, operands.get(i).evaluate(scalars, lists));
+            }
+            return result;
+        }
+    }
+
+    enum Aggregate {
+        SUM, AVG, COUNT, MIN, MAX
+    }
+
+    /**
+     * An aggregate over a list variable. {@code sum} adds from an exact zero and {@code avg} divides the sum
+     * by the count, like {@code calculate_average_of_bid_or_ask_list}.
+     */
+    record ListAggregate(Aggregate aggregate, int index) implements Expression {
+        @Override
+        public BigDecimal evaluate(BigDecimal[] scalars, BigDecimal[][] lists) {
+            BigDecimal[] values = lists[index];
+            return switch (aggregate) {
+                case SUM -> sum(values);
+                case AVG -> sum(values).divide(BigDecimal.valueOf(values.length), DECIMAL_CONTEXT);
+                case COUNT -> BigDecimal.valueOf(values.length);
+                case MIN, MAX -> {
+                    if (values.length == 0) {
+                        throw new ArithmeticException(aggregate.name().toLowerCase() + " of an empty list");
+                    }
+                    BigDecimal result = values[0];
+                    for (int i = 1; i < values.length; i++) {
+                        result = pick(aggregate == Aggregate.MAX, result, values[i]);
+                    }
+                    yield result;
+                }
+            };
+        }
+
+        private static BigDecimal sum(BigDecimal[] values) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (BigDecimal value : values) {
+                total = total.add(value, DECIMAL_CONTEXT);
+            }
+            return total;
+        }
+    }
+
+    enum Comparison {
+        LESS("<", (left, right) -> left.compareTo(right) < 0),
+        LESS_OR_EQUAL("<=", (left, right) -> left.compareTo(right) <= 0),
+        GREATER(">", (left, right) -> left.compareTo(right) > 0),
+        GREATER_OR_EQUAL(">=", (left, right) -> left.compareTo(right) >= 0),
+        EQUAL("==", (left, right) -> left.compareTo(right) == 0),
+        NOT_EQUAL("!=", (left, right) -> left.compareTo(right) != 0);
+
+        final String symbol;
+        private final BiPredicate<BigDecimal, BigDecimal> test;
+
+        Comparison(String symbol, BiPredicate<BigDecimal, BigDecimal> test) {
+            this.symbol = symbol;
+            this.test = test;
+        }
+    }
+
+    record Compare(Comparison comparison, Expression left, Expression right) implements Condition {
+        @Override
+        public boolean test(BigDecimal[] scalars, BigDecimal[][] lists) {
+            return comparison.test.test(left.evaluate(scalars, lists), right.evaluate(scalars, lists));
+        }
+    }
+
+
+    /**
+     * The first of two equal values, like Python's {@code min} and {@code max}.
+     */
+    private static BigDecimal pick(boolean max, BigDecimal current, BigDecimal candidate) {
+        int order = candidate.compareTo(current);
+        return (max ? order > 0 : order < 0) ? candidate : current;
+    }
+
+}
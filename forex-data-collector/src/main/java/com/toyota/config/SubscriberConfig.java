@@ -36,6 +36,13 @@ public class SubscriberConfig {
         return (T) value;
     }
 
+    public <T> T getProperty(String key, Class<T> type, T defaultValue){
+        if (properties == null || properties.get(key) == null) {
+            return defaultValue;
+        }
+        return getProperty(key, type);
+    }
+
     public String getPlatformName() {
         return platformName;
     }
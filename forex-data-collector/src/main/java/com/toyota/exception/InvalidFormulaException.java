@@ -0,0 +1,7 @@
+package com.toyota.exception;
+
+public class InvalidFormulaException extends RuntimeException{
+    public InvalidFormulaException(String message){
+        super(message);
+    }
+}
@@ -64,10 +64,7 @@ public class CoordinatorImpl implements CoordinatorService {
                 SubscriberService subscriber = subscribers.get(platformName);
                 SubscriberConfig subscriberConfig = subscriber.getConfig();
 
-                subscriberConfig.getExchangeRates()
-                        .forEach(rateName -> {
-                            subscriber.subscribe(platformName, rateName);
-                        });
+                subscriber.subscribeAll(platformName, subscriberConfig.getExchangeRates());
 
             } else {
                 log.error("onConnect: Platform '{}' connection status: {}", platformName, "FAILED");
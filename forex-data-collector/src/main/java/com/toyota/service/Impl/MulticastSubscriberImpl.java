@@ -0,0 +1,317 @@
+package com.toyota.service.Impl;
+
+import com.toyota.config.SubscriberConfig;
+import com.toyota.service.CoordinatorService;
+import com.toyota.service.SubscriberService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receives the TCP platform's rates from its UDP multicast feed instead of a TCP stream of its own,
+ * so any number of collectors on the same network cost the server a single send per tick.
+ * <p>
+ * The feed carries every pair; subscriptions only filter locally. Each datagram carries a packet
+ * sequence number. When a gap shows up, the missing packets are requested from the server's TCP
+ * recovery channel ({@code retransmit|from|to}); if they are no longer available, or the feed was
+ * restarted, the current state of all pairs is requested instead ({@code snapshot}). Recovery uses a
+ * short-lived TCP connection each time, since gaps are rare on a LAN.
+ * </p>
+ * <p>
+ * The server sends a heartbeat datagram when it has nothing else to send, so a feed that stays silent
+ * for {@code heartbeatTimeoutMs} is treated as a lost connection.
+ * </p>
+ */
+public class MulticastSubscriberImpl implements SubscriberService {
+
+    private static final Logger log = LogManager.getLogger(MulticastSubscriberImpl.class);
+
+    private static final byte FRAME_TYPE_TICK = 1;
+    private static final byte FRAME_TYPE_TEXT = 2;
+    private static final byte FRAME_TYPE_PAIR = 3;
+    private static final byte FRAME_TYPE_SNAPSHOT = 4;
+    private static final int HEADER_SIZE = 4 + 8 + 2;         // FEED ID, PACKET SEQUENCE, FRAME COUNT.
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int RECOVERY_TIMEOUT_MS = 5000;
+
+    private final String groupAddress;
+    private final int groupPort;
+    private final String interfaceName;
+    private final String recoveryHost;
+    private final int recoveryPort;
+    private final String username;
+    private final String password;
+    private final int heartbeatTimeoutMs;
+
+    private volatile MulticastSocket socket;
+
+    // ONLY USED BY THE LISTENER THREAD (AND BY connect() BEFORE IT STARTS).
+    private int feedId;
+    private long expectedSequence;
+
+    private final CoordinatorService coordinator;
+    private final SubscriberConfig subscriberConfig;
+    private final ExecutorService executorService;
+    private final PairTickDispatcher ticks;
+
+    public MulticastSubscriberImpl(CoordinatorService coordinator, SubscriberConfig subscriberConfig) {
+        this.coordinator = coordinator;
+        this.subscriberConfig = subscriberConfig;
+        this.executorService = Executors.newFixedThreadPool(1);
+        this.ticks = new PairTickDispatcher(coordinator);
+
+        this.groupAddress = subscriberConfig.getProperty("group", String.class);
+        this.groupPort = subscriberConfig.getProperty("port", Integer.class);
+        this.interfaceName = subscriberConfig.getProperty("interface", String.class, "");
+        this.recoveryHost = subscriberConfig.getProperty("recoveryHost", String.class);
+        this.recoveryPort = subscriberConfig.getProperty("recoveryPort", Integer.class);
+        this.username = subscriberConfig.getProperty("username", String.class);
+        this.password = subscriberConfig.getProperty("password", String.class);
+        this.heartbeatTimeoutMs = subscriberConfig.getProperty("heartbeatTimeoutMs", Integer.class, 5000);
+    }
+
+    @Override
+    public void connect(String platformName) {
+        log.info("connect: Joining multicast group {}:{} for platform: {}", groupAddress, groupPort, platformName);
+        try {
+            NetworkInterface networkInterface = resolveInterface();
+            socket = new MulticastSocket(groupPort);
+            socket.setSoTimeout(heartbeatTimeoutMs);
+            socket.joinGroup(new InetSocketAddress(InetAddress.getByName(groupAddress), groupPort), networkInterface);
+
+            feedId = 0;
+            expectedSequence = 0;
+            ticks.clearPairs();
+            requestSnapshot(platformName);          // PAIR NAMES AND CURRENT RATES. DATAGRAMS QUEUE UP IN THE SOCKET MEANWHILE.
+
+            log.info("connect: Joined multicast group {}:{} on interface {} for platform: {}.", groupAddress, groupPort, networkInterface.getName(), platformName);
+            executorService.execute(() -> listenToIncomingPackets(platformName));
+            coordinator.onConnect(platformName, true);
+
+        } catch (IOException e) {
+            log.error("connect: Connection attempt to {} failed. Exception Message: {}.", platformName, e.getMessage(), e);
+            closeResources();
+            coordinator.onConnect(platformName, false);
+        }
+    }
+
+    @Override
+    public void disConnect() {
+        closeResources();
+        log.info("disConnect: Left multicast group of platform: {} successfully.", subscriberConfig.getPlatformName());
+    }
+
+    /**
+     * Only starts forwarding the rate, the feed carries it anyway. The latest known rate is forwarded
+     * right away, like the snapshot the TCP server sends after a subscribe.
+     */
+    @Override
+    public void subscribe(String platformName, String rateName) {
+        log.info("subscribe: Subscribing to rate: {} on platform: {}", rateName, platformName);
+        ticks.subscribe(platformName, rateName);
+    }
+
+    @Override
+    public void unSubscribe(String platformName, String rateName) {
+        log.info("unSubscribe: Unsubscribing from rate: {} on platform: {}", rateName, platformName);
+        ticks.unSubscribe(rateName);
+    }
+
+    @Override
+    public SubscriberConfig getConfig() {
+        return this.subscriberConfig;
+    }
+
+
+
+    private void listenToIncomingPackets(String platformName) {
+        log.info("listenToIncomingPackets: Start to listen to the multicast feed of platform: {}", platformName);
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+        try {
+            MulticastSocket receiver;
+            while ((receiver = socket) != null && !receiver.isClosed()) {
+                datagram.setLength(buffer.length);
+                receiver.receive(datagram);
+                processPacket(platformName, ByteBuffer.wrap(buffer, 0, datagram.getLength()));
+            }
+        } catch (SocketTimeoutException e) {
+            log.error("listenToIncomingPackets: No multicast data from platform: {} for {} ms.", platformName, heartbeatTimeoutMs);
+        } catch (SocketException e) {
+            log.info("listenToIncomingPackets: Multicast socket closed for platform: {}", platformName);
+        } catch (IOException e) {
+            log.error("listenToIncomingPackets: Multicast listening error for platform: {}", platformName, e);
+        } finally {
+            closeResources();
+            coordinator.onDisConnect(platformName);
+        }
+    }
+
+    /**
+     * Packet layout (big endian): int feed id, long packet sequence, unsigned short frame count, frames.
+     * A packet without frames is a heartbeat that repeats the latest packet sequence.
+     */
+    private void processPacket(String platformName, ByteBuffer packet) throws IOException {
+        if (packet.remaining() < HEADER_SIZE) {
+            log.warn("processPacket: Skipping truncated multicast packet of {} bytes.", packet.remaining());
+            return;
+        }
+        int packetFeedId = packet.getInt();
+        long sequence = packet.getLong();
+        int frameCount = packet.getShort() & 0xFFFF;
+
+        if (packetFeedId != feedId) {
+            log.warn("processPacket: Multicast feed of platform: {} was restarted. Requesting a snapshot.", platformName);
+            ticks.resetSequences();                 // TICK SEQUENCES START OVER WITH THE NEW FEED.
+            requestSnapshot(platformName);
+        }
+
+        if (frameCount == 0) {
+            if (sequence >= expectedSequence) {
+                recoverPackets(platformName, expectedSequence, sequence);      // THE LATEST PACKETS GOT LOST.
+            }
+            return;
+        }
+        if (sequence > expectedSequence) {
+            recoverPackets(platformName, expectedSequence, sequence - 1);
+        }
+        if (sequence < expectedSequence) {
+            return;                 // ALREADY COVERED BY A RETRANSMISSION OR SNAPSHOT.
+        }
+
+        for (int i = 0; i < frameCount; i++) {
+            int length = packet.getShort() & 0xFFFF;
+            byte type = packet.get();
+            if (type != FRAME_TYPE_TICK) {
+                packet.position(packet.position() + length - 1);
+                continue;
+            }
+            ticks.handleTick(platformName, packet.getInt(), packet.getLong(), packet.get() & 0xFF,
+                    packet.getLong(), packet.getLong(), packet.getLong(), false, true);
+        }
+        expectedSequence = sequence + 1;
+    }
+
+    private void recoverPackets(String platformName, long from, long to) throws IOException {
+        log.warn("recoverPackets: Missed multicast packets {}-{} of platform: {}. Requesting retransmission.", from, to, platformName);
+        String result = requestRecovery(platformName, String.format("retransmit|%d|%d", from, to));
+        if (result.startsWith("SUCCESS")) {
+            expectedSequence = to + 1;
+        } else {
+            log.warn("recoverPackets: Retransmission of packets {}-{} failed: {}. Requesting a snapshot.", from, to, result);
+            requestSnapshot(platformName);
+        }
+    }
+
+    private void requestSnapshot(String platformName) throws IOException {
+        String result = requestRecovery(platformName, "snapshot");
+        String[] parts = result.split("\\|");
+        if (!result.startsWith("SUCCESS|SNAPSHOT") || parts.length != 4) {
+            throw new IOException("Snapshot request failed: " + result);
+        }
+        feedId = Integer.parseInt(parts[2]);
+        expectedSequence = Long.parseLong(parts[3]) + 1;
+        log.info("requestSnapshot: Received snapshot of platform: {} up to packet {}.", platformName, parts[3]);
+    }
+
+    /**
+     * Sends one command over a new recovery connection and applies the returned frames.
+     *
+     * @return The closing text response, e.g. {@code SUCCESS|RETRANSMIT|1|5}.
+     */
+    private String requestRecovery(String platformName, String command) throws IOException {
+        try (Socket recoverySocket = new Socket(recoveryHost, recoveryPort)) {
+            recoverySocket.setSoTimeout(RECOVERY_TIMEOUT_MS);
+            OutputStream output = recoverySocket.getOutputStream();
+            DataInputStream input = new DataInputStream(new BufferedInputStream(recoverySocket.getInputStream()));
+
+            output.write(String.format("connect|%s|%s\n%s\ndisconnect\n", username, password, command).getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            String connectResponse = readRecoveryFrames(platformName, input);
+            if (!connectResponse.startsWith("SUCCESS")) {
+                throw new IOException("Recovery channel rejected the login: " + connectResponse);
+            }
+            return readRecoveryFrames(platformName, input);
+        }
+    }
+
+    /**
+     * Applies PAIR, TICK and SNAPSHOT frames until a TEXT frame arrives.
+     *
+     * @return The text of that frame.
+     */
+    private String readRecoveryFrames(String platformName, DataInputStream input) throws IOException {
+        while (true) {
+            int length = input.readUnsignedShort();
+            byte type = input.readByte();
+
+            switch (type) {
+                case FRAME_TYPE_TICK, FRAME_TYPE_SNAPSHOT -> ticks.handleTick(platformName, input.readInt(), input.readLong(),
+                        input.readUnsignedByte(), input.readLong(), input.readLong(), input.readLong(), type == FRAME_TYPE_SNAPSHOT, true);
+                case FRAME_TYPE_PAIR -> {
+                    int pairId = input.readInt();
+                    byte[] name = new byte[length - 5];
+                    input.readFully(name);
+                    ticks.registerPair(pairId, new String(name, StandardCharsets.UTF_8));
+                }
+                case FRAME_TYPE_TEXT -> {
+                    byte[] message = new byte[length - 1];
+                    input.readFully(message);
+                    return new String(message, StandardCharsets.UTF_8);
+                }
+                default -> {
+                    log.warn("readRecoveryFrames: Skipping unknown frame type: {}.", type);
+                    input.skipNBytes(length - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * The configured interface, or the first multicast capable non-loopback interface that is up.
+     */
+    private NetworkInterface resolveInterface() throws IOException {
+        if (!interfaceName.isEmpty()) {
+            NetworkInterface networkInterface = NetworkInterface.getByName(interfaceName);
+            if (networkInterface == null) {
+                throw new IOException("Network interface not found: " + interfaceName);
+            }
+            return networkInterface;
+        }
+        return NetworkInterface.networkInterfaces()
+                .filter(candidate -> {
+                    try {
+                        return candidate.isUp() && candidate.supportsMulticast() && !candidate.isLoopback();
+                    } catch (SocketException e) {
+                        return false;
+                    }
+                })
+                .findFirst()
+                .orElseThrow(() -> new IOException("No multicast capable network interface found. Set the 'interface' property."));
+    }
+
+    private void closeResources() {
+        MulticastSocket current = socket;
+        socket = null;
+        if (current != null) {
+            current.close();            // ALSO LEAVES THE GROUP AND WAKES THE LISTENER.
+        }
+    }
+}
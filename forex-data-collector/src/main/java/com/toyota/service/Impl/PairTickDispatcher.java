@@ -0,0 +1,141 @@
+package com.toyota.service.Impl;
+
+import com.toyota.entity.Rate;
+import com.toyota.service.CoordinatorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The part the feed subscribers share that carry every pair of a platform as binary ticks, e.g. the
+ * multicast feed and the shared-memory ring: pair ids, duplicate ticks, and forwarding the subscribed
+ * rates to the coordinator.
+ * <p>
+ * Ticks of a pair whose tick sequence is not newer than the last one are dropped, so retransmissions,
+ * snapshots and re-read records can overlap. The latest rate of every pair is kept, subscribed or not,
+ * and forwarded when the pair gets subscribed.
+ * </p>
+ * <p>
+ * Pair registration and {@link #handleTick} are called by the subscriber's listener thread only;
+ * {@link #subscribe} and {@link #unSubscribe} may be called by any thread.
+ * </p>
+ */
+final class PairTickDispatcher {
+
+    private static final Logger log = LogManager.getLogger(PairTickDispatcher.class);
+
+    private final CoordinatorService coordinator;
+    private final Set<String> receivedRates = ConcurrentHashMap.newKeySet();
+    private final Set<String> subscribedRates = ConcurrentHashMap.newKeySet();
+    private final Map<String, Rate> latestRates = new ConcurrentHashMap<>();      // RATE NAME -> LATEST RATE, SUBSCRIBED OR NOT.
+
+    // LISTENER THREAD ONLY.
+    private String[] pairNames = new String[16];         // PAIR ID -> PAIR NAME.
+    private long[] lastSequences = new long[16];         // LAST TICK SEQUENCE PER PAIR ID.
+
+    PairTickDispatcher(CoordinatorService coordinator) {
+        this.coordinator = coordinator;
+    }
+
+
+    /**
+     * Replaces all pairs, e.g. with the pair table of a new ring file. Pair ids are the array indexes.
+     */
+    void setPairs(String[] names) {
+        pairNames = names.clone();
+        lastSequences = new long[names.length];
+    }
+
+    /**
+     * Forgets all pairs, before a feed registers them again.
+     */
+    void clearPairs() {
+        setPairs(new String[0]);
+    }
+
+    void registerPair(int pairId, String pairName) {
+        if (pairId >= pairNames.length) {
+            int newLength = Math.max(pairId + 1, pairNames.length * 2);
+            pairNames = Arrays.copyOf(pairNames, newLength);
+            lastSequences = Arrays.copyOf(lastSequences, newLength);
+        }
+        pairNames[pairId] = pairName;
+    }
+
+    /**
+     * Forgets the last tick sequences, for a feed whose sequences start over.
+     */
+    void resetSequences() {
+        Arrays.fill(lastSequences, 0);
+    }
+
+    int pairCount() {
+        return pairNames.length;
+    }
+
+    /**
+     * Starts forwarding the rate. The latest known rate is forwarded right away, like the snapshot the
+     * TCP server sends after a subscribe.
+     */
+    void subscribe(String platformName, String rateName) {
+        subscribedRates.add(rateName);
+        Rate latestRate = latestRates.get(rateName);
+        if (latestRate != null) {
+            dispatchRate(platformName, rateName, latestRate);
+        }
+    }
+
+    void unSubscribe(String rateName) {
+        subscribedRates.remove(rateName);
+    }
+
+    /**
+     * @param snapshot Whether the tick restates a current rate rather than following the previous tick,
+     *                 so a jump in its sequence is no loss.
+     * @param dispatch Whether a subscribed rate is forwarded, or only kept as the latest rate.
+     */
+    void handleTick(String platformName, int pairId, long sequence, int scale, long bid, long ask, long epochNanos,
+                    boolean snapshot, boolean dispatch) {
+        String pairName = pairId >= 0 && pairId < pairNames.length ? pairNames[pairId] : null;
+        if (pairName == null) {
+            log.warn("handleTick: Received tick for unknown pair id: {}.", pairId);
+            return;
+        }
+
+        long lastSequence = lastSequences[pairId];
+        if (lastSequence != 0 && sequence <= lastSequence) {
+            return;         // RETRANSMITTED OR ALREADY IN A SNAPSHOT.
+        }
+        if (!snapshot && lastSequence != 0 && sequence != lastSequence + 1) {
+            log.warn("handleTick: Missed {} ticks of {}.", sequence - lastSequence - 1, pairName);
+        }
+        lastSequences[pairId] = sequence;
+
+        String rateName = pairName.substring(pairName.indexOf('_') + 1);
+        Rate rate = new Rate(
+                pairName,
+                BigDecimal.valueOf(bid, scale),
+                BigDecimal.valueOf(ask, scale),
+                Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L))
+        );
+        latestRates.put(rateName, rate);
+        if (dispatch && subscribedRates.contains(rateName)) {
+            dispatchRate(platformName, rateName, rate);
+        }
+    }
+
+    private void dispatchRate(String platformName, String rateName, Rate rate) {
+        if (receivedRates.add(rateName)) {         // subscribe() AND THE LISTENER MAY RACE FOR THE FIRST RATE.
+            coordinator.onRateAvailable(platformName, rateName, rate);
+        } else {
+            coordinator.onRateUpdate(platformName, rateName, rate);
+        }
+    }
+
+}
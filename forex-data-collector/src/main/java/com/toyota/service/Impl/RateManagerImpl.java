@@ -1,6 +1,7 @@
 package com.toyota.service.Impl;
 
 import com.toyota.cache.CacheService;
+import com.toyota.cache.LatestRateTable;
 import com.toyota.calculation.CalculationService;
 import com.toyota.entity.CalculatedRate;
 import com.toyota.entity.Rate;
@@ -10,9 +11,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.math.BigDecimal;
-import java.util.List;
 
 
+/**
+ * Validates and calculates against the in-process {@link LatestRateTable}. Redis only mirrors the table
+ * for other consumers: the {@link CacheService} queues the writes and sends them in the background, so
+ * the tick-processing threads never wait for a Redis round trip.
+ */
 public class RateManagerImpl implements RateManager {
 
     private static final Logger log = LogManager.getLogger(RateManagerImpl.class);
@@ -20,17 +25,27 @@ public class RateManagerImpl implements RateManager {
     private final KafkaService kafkaService;
     private final CacheService redisService;
     private final CalculationService calculationService;
+    private final LatestRateTable rateTable;
+    private final long maxAgeMillis;
 
-    public RateManagerImpl(KafkaService kafkaService, CacheService redisService, CalculationService calculationService) {
+    private volatile UsdTryMid usdTryMid;
+
+    /**
+     * @param maxAgeMillis Age after which a cached rate or USD/TRY mid value no longer counts, like the Redis TTL.
+     */
+    public RateManagerImpl(KafkaService kafkaService, CacheService redisService, CalculationService calculationService, long maxAgeMillis) {
         this.kafkaService = kafkaService;
         this.redisService = redisService;
         this.calculationService = calculationService;
+        this.rateTable = new LatestRateTable(maxAgeMillis);
+        this.maxAgeMillis = maxAgeMillis;
     }
 
 
     public void handleFirstInComingRate(String platformName, String rateName, Rate inComingRate) {
         log.info("handleFirstInComingRate: Handling first incoming rate for {}/{}: {}", platformName, rateName, inComingRate);
 
+        rateTable.put(platformName, rateName, inComingRate);
         redisService.saveRawRate(platformName, rateName, inComingRate);
         kafkaService.sendRawRate(inComingRate);
 
@@ -43,7 +58,7 @@ public class RateManagerImpl implements RateManager {
     public void handleRateUpdate(String platformName, String rateName, Rate inComingRate) {
         log.info("handleRateUpdate: Handling rate update for {}/{}: {}", platformName, rateName, inComingRate);
 
-        List<Rate> cachedRates = redisService.getAllRawRatesByRateName(rateName);
+        LatestRateTable.Snapshot cachedRates = rateTable.get(rateName);
 
         if (cachedRates.isEmpty()) {
             log.warn("handleRateUpdate: Cache is empty for rateName '{}'. Treating incoming rate from platform '{}' as the new baseline: {}",
@@ -52,15 +67,13 @@ public class RateManagerImpl implements RateManager {
             return;
         }
 
-        List<String> cachedBids = cachedRates.stream().map(rate -> rate.getBid().toPlainString()).toList();
-        List<String> cachedAsks = cachedRates.stream().map(rate -> rate.getAsk().toPlainString()).toList();
-
         String newBid = inComingRate.getBid().toPlainString();
         String newAsk = inComingRate.getAsk().toPlainString();
 
 
-        if (calculationService.isInComingRateValid(newBid, newAsk, cachedBids, cachedAsks)) {
+        if (calculationService.isInComingRateValid(newBid, newAsk, cachedRates.bids(), cachedRates.asks())) {
             log.info("handleRateUpdate: Incoming rate: {} from platform: {} is valid. Saving Redis and sending to Kafka.", rateName, platformName);
+            rateTable.put(platformName, rateName, inComingRate);
             redisService.saveRawRate(platformName, rateName, inComingRate);
             kafkaService.sendRawRate(inComingRate);
 
@@ -82,25 +95,22 @@ public class RateManagerImpl implements RateManager {
 
         log.debug("calculateAndSaveUsdTry: Attempting calculation for {}.", rateName);
 
-        List<Rate> cachedRates = redisService.getAllRawRatesByRateName(rateName);
+        LatestRateTable.Snapshot cachedRates = rateTable.get(rateName);
 
         if (cachedRates.isEmpty()) {
             log.warn("calculateAndSaveUsdTry: Calculation skipped for {}: No rates found in cache.", rateName);
             return;
         }
 
-        List<String> cachedUsdTryBids = cachedRates.stream().map(rate -> rate.getBid().toPlainString()).toList();
-        List<String> cachedUsdTryAsks = cachedRates.stream().map(rate -> rate.getAsk().toPlainString()).toList();
-
         CalculatedRate calculatedRate = calculationService.calculateUsdTry(
-                cachedUsdTryBids,
-                cachedUsdTryAsks
+                cachedRates.bids(),
+                cachedRates.asks()
         );
 
         if(calculatedRate != null){
             log.info("calculateAndSaveUsdTry: Calculated USDTRY rate: {}", calculatedRate);
 
-            redisService.saveCalculatedRate(rateName,calculatedRate);
+            redisService.saveCalculatedRate(rateName, calculatedRate);
             kafkaService.sendCalculatedRate(calculatedRate);
         }
     }
@@ -108,23 +118,21 @@ public class RateManagerImpl implements RateManager {
 
     private void calculateAndSaveUsdTryMidValue() {
 
-        List<Rate> existsUsdTryRates = redisService.getAllRawRatesByRateName("USDTRY");
+        LatestRateTable.Snapshot existsUsdTryRates = rateTable.get("USDTRY");
 
         if (existsUsdTryRates.isEmpty()) {
             log.warn("calculateAndSaveUsdTryMidValue: USD/TRY Mid value calculation skipped. No rates found in cache.");
             return;
         }
 
-        List<String> cachedUsdTryBids = existsUsdTryRates.stream().map(rate -> rate.getBid().toPlainString()).toList();
-        List<String> cachedUsdTryAsks = existsUsdTryRates.stream().map(rate -> rate.getAsk().toPlainString()).toList();
-
-        BigDecimal usdTryMid = calculationService.calculateUsdTryMidValue(
-                cachedUsdTryBids,
-                cachedUsdTryAsks
+        BigDecimal usdTryMidValue = calculationService.calculateUsdTryMidValue(
+                existsUsdTryRates.bids(),
+                existsUsdTryRates.asks()
         );
 
-        if (usdTryMid != null) {
-            redisService.saveUsdTryMidValue(usdTryMid);
+        if (usdTryMidValue != null) {
+            usdTryMid = new UsdTryMid(usdTryMidValue, System.currentTimeMillis());
+            redisService.saveUsdTryMidValue(usdTryMidValue);
         }
 
     }
@@ -133,35 +141,43 @@ public class RateManagerImpl implements RateManager {
     private void calculateAndSaveRatesDependentOnUsdTry(String updatedRateName) {
         log.debug("calculateAndSaveRatesDependentOnUsdTry: Attempting calculation for '{}'.", updatedRateName);
 
-        List<Rate> cachedRates = redisService.getAllRawRatesByRateName(updatedRateName);
-        BigDecimal usdTryMid = redisService.getUsdTryMidValue();
+        LatestRateTable.Snapshot cachedRates = rateTable.get(updatedRateName);
+        UsdTryMid usdTryMid = this.usdTryMid;
 
-        if (cachedRates.isEmpty() || usdTryMid == null) {
+        if (cachedRates.isEmpty() || usdTryMid == null || usdTryMid.isOlderThan(maxAgeMillis)) {
             log.warn("calculateAndSaveRatesDependentOnUsdTry: Missing required rates for {} calculation. ",updatedRateName);
             return;
         }
 
-        List<String> cachedBids = cachedRates.stream().map(rate -> rate.getBid().toString()).toList();
-        List<String> cachedAsks = cachedRates.stream().map(rate -> rate.getAsk().toString()).toList();
-
 
         String derivedRate = updatedRateName.replace("USD", "TRY"); // GBPUSD -> GBPTRY or any other usd based currency pair.
 
         CalculatedRate calculatedRate = calculationService.calculateRateDependentOnUsdTry(
                 derivedRate,
-                usdTryMid.toPlainString(),
-                cachedBids,
-                cachedAsks
+                usdTryMid.value().toPlainString(),
+                cachedRates.bids(),
+                cachedRates.asks()
         );
 
         if(calculatedRate != null){
             log.info("calculateAndSaveRatesDependentOnUsdTry: Calculated dependent rate: {}", calculatedRate);
 
-            redisService.saveCalculatedRate(derivedRate,calculatedRate);
+            redisService.saveCalculatedRate(derivedRate, calculatedRate);
             kafkaService.sendCalculatedRate(calculatedRate);
         }
 
     }
 
 
+    /**
+     * The latest USD/TRY mid value, ignored like an expired Redis key once it is older than the maximum age.
+     */
+    private record UsdTryMid(BigDecimal value, long calculatedAtMillis) {
+
+        private boolean isOlderThan(long maxAgeMillis) {
+            return System.currentTimeMillis() - calculatedAtMillis > maxAgeMillis;
+        }
+    }
+
+
 }
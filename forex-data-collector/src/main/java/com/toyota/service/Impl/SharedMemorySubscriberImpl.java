@@ -0,0 +1,199 @@
+package com.toyota.service.Impl;
+
+import com.toyota.config.SubscriberConfig;
+import com.toyota.service.CoordinatorService;
+import com.toyota.service.SubscriberService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Receives the TCP platform's rates from the shared-memory ring file its server writes, for collectors
+ * that run on the same host. No socket and no parsing is involved: every tick is a fixed-size record
+ * that is read straight from the mapped file.
+ * <p>
+ * The ring has a single writer and keeps no reader state, so the server never waits for this reader.
+ * The reader follows the write sequence by polling; if it falls more than the ring's capacity behind,
+ * the overwritten ticks are lost and it skips ahead. Like the multicast feed, the ring carries every
+ * pair and subscriptions only filter locally.
+ * </p>
+ * <p>
+ * The server refreshes a heartbeat in the file every second. A heartbeat older than
+ * {@code heartbeatTimeoutMs} means the server stopped or replaced the file, and is treated as a lost
+ * connection, so the coordinator reconnects to the new file.
+ * </p>
+ */
+public class SharedMemorySubscriberImpl implements SubscriberService {
+
+    private static final Logger log = LogManager.getLogger(SharedMemorySubscriberImpl.class);
+
+    private static final long HEARTBEAT_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String path;
+    private final long pollIntervalNanos;
+    private final int heartbeatTimeoutMs;
+
+    private volatile boolean running;
+
+    // ONLY USED BY THE LISTENER THREAD (AND BY connect() BEFORE IT STARTS).
+    private TickRingFile ring;
+    private long nextSequence;
+
+    private final CoordinatorService coordinator;
+    private final SubscriberConfig subscriberConfig;
+    private final ExecutorService executorService;
+    private final PairTickDispatcher ticks;
+
+    public SharedMemorySubscriberImpl(CoordinatorService coordinator, SubscriberConfig subscriberConfig) {
+        this.coordinator = coordinator;
+        this.subscriberConfig = subscriberConfig;
+        this.executorService = Executors.newFixedThreadPool(1);
+        this.ticks = new PairTickDispatcher(coordinator);
+
+        this.path = subscriberConfig.getProperty("path", String.class);
+        this.pollIntervalNanos = TimeUnit.MICROSECONDS.toNanos(subscriberConfig.getProperty("pollIntervalMicros", Integer.class, 50));
+        this.heartbeatTimeoutMs = subscriberConfig.getProperty("heartbeatTimeoutMs", Integer.class, 5000);
+    }
+
+    @Override
+    public void connect(String platformName) {
+        log.info("connect: Opening ring file {} for platform: {}", path, platformName);
+        try {
+            ring = TickRingFile.map(Paths.get(path));
+            ticks.setPairs(ring.pairNames());
+            if (isStale()) {
+                throw new IOException("The server has not refreshed the heartbeat for " + heartbeatTimeoutMs + " ms.");
+            }
+            readCurrentRates(platformName);
+
+            running = true;
+            log.info("connect: Following ring file {} ({} pairs, {} slots) from tick {} for platform: {}.",
+                    path, ticks.pairCount(), ring.capacity(), nextSequence, platformName);
+            executorService.execute(() -> listenToRing(platformName));
+            coordinator.onConnect(platformName, true);
+
+        } catch (IOException | RuntimeException e) {
+            log.error("connect: Connection attempt to {} failed. Exception Message: {}.", platformName, e.getMessage(), e);
+            ring = null;
+            coordinator.onConnect(platformName, false);
+        }
+    }
+
+    @Override
+    public void disConnect() {
+        running = false;
+        log.info("disConnect: Stopped reading the ring file of platform: {} successfully.", subscriberConfig.getPlatformName());
+    }
+
+    /**
+     * Only starts forwarding the rate, the ring carries it anyway. The latest known rate is forwarded
+     * right away, like the snapshot the TCP server sends after a subscribe.
+     */
+    @Override
+    public void subscribe(String platformName, String rateName) {
+        log.info("subscribe: Subscribing to rate: {} on platform: {}", rateName, platformName);
+        ticks.subscribe(platformName, rateName);
+    }
+
+    @Override
+    public void unSubscribe(String platformName, String rateName) {
+        log.info("unSubscribe: Unsubscribing from rate: {} on platform: {}", rateName, platformName);
+        ticks.unSubscribe(rateName);
+    }
+
+    @Override
+    public SubscriberConfig getConfig() {
+        return this.subscriberConfig;
+    }
+
+
+
+    /**
+     * Takes the latest tick of every pair from the records still in the ring, without dispatching
+     * anything yet. Subscribing forwards them.
+     */
+    private void readCurrentRates(String platformName) {
+        long published = ring.writeSequence();
+        for (long sequence = Math.max(1, published - ring.capacity() + 1); sequence <= published; sequence++) {
+            readRecord(platformName, sequence, false);
+        }
+        nextSequence = published + 1;
+    }
+
+    private void listenToRing(String platformName) {
+        log.info("listenToRing: Start to poll the ring file of platform: {}", platformName);
+        long lastHeartbeatCheck = System.nanoTime();
+        try {
+            while (running) {
+                long published = ring.writeSequence();
+                if (published < nextSequence) {
+                    if (System.nanoTime() - lastHeartbeatCheck > HEARTBEAT_CHECK_INTERVAL_NANOS) {
+                        lastHeartbeatCheck = System.nanoTime();
+                        if (isStale()) {
+                            log.error("listenToRing: No heartbeat in the ring file of platform: {} for {} ms.", platformName, heartbeatTimeoutMs);
+                            break;
+                        }
+                    }
+                    idle();
+                    continue;
+                }
+
+                if (published - nextSequence >= ring.capacity()) {
+                    skipAhead(platformName, published);
+                }
+                while (nextSequence <= published) {
+                    if (!readRecord(platformName, nextSequence, true)) {
+                        skipAhead(platformName, ring.writeSequence());       // LAPPED WHILE READING.
+                        break;
+                    }
+                    nextSequence++;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("listenToRing: Ring reading error for platform: {}", platformName, e);
+        } finally {
+            running = false;
+            ring = null;
+            coordinator.onDisConnect(platformName);
+        }
+    }
+
+    /**
+     * @return {@code false} if the record was already overwritten.
+     */
+    private boolean readRecord(String platformName, long sequence, boolean dispatch) {
+        if (!ring.read(sequence)) {
+            return false;
+        }
+        ticks.handleTick(platformName, ring.pairId(), ring.tickSequence(), ring.priceScale(),
+                ring.bid(), ring.ask(), ring.epochNanos(), !dispatch, dispatch);
+        return true;
+    }
+
+    private void skipAhead(String platformName, long published) {
+        long oldest = published - ring.capacity() + 1;
+        if (oldest > nextSequence) {
+            log.warn("skipAhead: Fell {} ticks behind the ring of platform: {}. Skipping the overwritten ticks.",
+                    published - nextSequence + 1, platformName);
+            nextSequence = oldest;
+        }
+    }
+
+    private boolean isStale() {
+        return System.currentTimeMillis() - ring.heartbeatMillis() > heartbeatTimeoutMs;
+    }
+
+    private void idle() {
+        if (pollIntervalNanos == 0) {
+            Thread.onSpinWait();            // LOWEST LATENCY, BUT KEEPS A CORE BUSY.
+        } else {
+            LockSupport.parkNanos(pollIntervalNanos);
+        }
+    }
+}
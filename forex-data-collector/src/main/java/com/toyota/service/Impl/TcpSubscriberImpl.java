@@ -7,7 +7,11 @@ import com.toyota.service.SubscriberService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
@@ -15,7 +19,10 @@ import java.math.BigDecimal;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -24,16 +31,29 @@ public class TcpSubscriberImpl implements SubscriberService {
 
     public static final Logger log = LogManager.getLogger(TcpSubscriberImpl.class);
 
+    private static final String BINARY_PROTOCOL = "binary";
+    private static final byte FRAME_TYPE_TICK = 1;
+    private static final byte FRAME_TYPE_TEXT = 2;
+    private static final byte FRAME_TYPE_PAIR = 3;
+    private static final byte FRAME_TYPE_SNAPSHOT = 4;
+    private static final String SNAPSHOT_PREFIX = "SNAPSHOT|";
+
     private final int serverPort;
     private final String serverHost;
 
     private final String username;
     private final String password;
+    private final boolean binaryProtocol;
+    private final int updateIntervalMs;             // 0 = EVERY TICK. OTHERWISE AT MOST ONE UPDATE PER PAIR AND INTERVAL.
 
     private Socket socket;
     private BufferedReader reader;
+    private DataInputStream binaryInput;
     private PrintWriter writer;
 
+    private String[] pairNames;             // BINARY PROTOCOL: PAIR ID -> PAIR NAME. ONLY USED BY THE LISTENER THREAD.
+    private long[] lastSequences;           // BINARY PROTOCOL: LAST SEQUENCE PER PAIR ID.
+
     private final CoordinatorService coordinator;
     private final SubscriberConfig subscriberConfig;
     private final ExecutorService executorService;
@@ -50,6 +70,8 @@ public class TcpSubscriberImpl implements SubscriberService {
         this.serverPort = subscriberConfig.getProperty("port",Integer.class);
         this.username = subscriberConfig.getProperty("username",String.class);
         this.password = subscriberConfig.getProperty("password",String.class);
+        this.binaryProtocol = BINARY_PROTOCOL.equalsIgnoreCase(subscriberConfig.getProperty("protocol", String.class, "text"));
+        this.updateIntervalMs = subscriberConfig.getProperty("updateIntervalMs", Integer.class, 0);
     }
 
     @Override
@@ -57,12 +79,22 @@ public class TcpSubscriberImpl implements SubscriberService {
         log.info("connect: Attempting to connect to platform: {}", platformName);
         try {
             socket = new Socket(serverHost, serverPort);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
             writer = new PrintWriter(socket.getOutputStream(), true);
 
-            sendMessageToServer(String.format("connect|%s|%s", username, password));
-
-            String serverMessage = reader.readLine();
+            String serverMessage;
+            if (binaryProtocol) {
+                binaryInput = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                pairNames = new String[16];
+                lastSequences = new long[16];
+
+                sendMessageToServer(String.format("connect|%s|%s|%s", username, password, BINARY_PROTOCOL));
+                serverMessage = readTextLine(binaryInput);      // CONNECT RESPONSE IS ALWAYS A TEXT LINE.
+            } else {
+                reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+                sendMessageToServer(String.format("connect|%s|%s", username, password));
+                serverMessage = reader.readLine();
+            }
 
             if (serverMessage == null) {
                 log.error("connect: Connection attempt to {} failed: Server closed connection without response.", platformName);
@@ -73,7 +105,7 @@ public class TcpSubscriberImpl implements SubscriberService {
                 closeResources();
                 coordinator.onConnect(platformName, false);
             } else if (serverMessage.startsWith("SUCCESS")) {
-                log.info("connect: Connection to platform: {} successfully.",platformName);
+                log.info("connect: Connection to platform: {} successfully. Binary protocol: {}.", platformName, binaryProtocol);
                 executorService.execute(() -> listenToIncomingRates(platformName));
                 coordinator.onConnect(platformName, true);
             }
@@ -95,7 +127,22 @@ public class TcpSubscriberImpl implements SubscriberService {
     @Override
     public void subscribe(String platformName, String rateName) {
         log.info("subscribe: Subscribing to rate: {} on platform: {}", rateName, platformName);
-        sendMessageToServer(String.format("subscribe|%s_%s", platformName, rateName));
+        sendMessageToServer(String.format("subscribe|%s_%s%s", platformName, rateName, updateIntervalSuffix()));
+    }
+
+    /**
+     * Subscribes to all rates with a single {@code subscribe|TCP_A,TCP_B,...} command.
+     */
+    @Override
+    public void subscribeAll(String platformName, List<String> rateNames) {
+        if (rateNames.isEmpty()) {
+            return;
+        }
+        String pairList = rateNames.stream()
+                .map(rateName -> String.format("%s_%s", platformName, rateName))
+                .collect(Collectors.joining(","));
+        log.info("subscribeAll: Subscribing to rates: {} on platform: {}", rateNames, platformName);
+        sendMessageToServer(String.format("subscribe|%s%s", pairList, updateIntervalSuffix()));
     }
 
     @Override
@@ -111,13 +158,26 @@ public class TcpSubscriberImpl implements SubscriberService {
 
 
 
+    /**
+     * @return {@code |interval} if the server should throttle the subscribed pairs, empty otherwise.
+     */
+    private String updateIntervalSuffix() {
+        return updateIntervalMs > 0 ? "|" + updateIntervalMs : "";
+    }
+
     private void listenToIncomingRates(String platformName) {
         log.info("listenToIncomingRates: Start to listen to incoming rates for platform: {}", platformName);
         try {
-            String serverMessage;
-            while (!socket.isClosed() && (serverMessage = reader.readLine()) != null) {
-                processServerMessage(platformName, serverMessage);
+            if (binaryProtocol) {
+                listenToIncomingBinaryFrames(platformName);
+            } else {
+                String serverMessage;
+                while (!socket.isClosed() && (serverMessage = reader.readLine()) != null) {
+                    processServerMessage(platformName, serverMessage);
+                }
             }
+        } catch (EOFException e) {
+            log.info("listenToIncomingRates: Server closed the connection for platform: {}", platformName);
         } catch (IOException e) {
             log.error("listenToIncomingRates: Server listening error for platform: {}", platformName, e);
         } finally {
@@ -129,6 +189,13 @@ public class TcpSubscriberImpl implements SubscriberService {
     private void processServerMessage(String platformName, String message) {
         if (message.startsWith("TCP_")) {
             handleRateMessage(platformName, message);
+        } else if (message.startsWith(SNAPSHOT_PREFIX)) {
+            handleRateMessage(platformName, message.substring(SNAPSHOT_PREFIX.length()));      // CURRENT RATE RIGHT AFTER SUBSCRIBE.
+        } else if (message.equals("PING")) {
+            log.debug("listenToIncomingRates: Heartbeat from platform: {}, answering with pong.", platformName);
+            sendMessageToServer("pong");            // SERVER CLOSES CONNECTIONS THAT STAY SILENT FOR TOO LONG.
+        } else if (message.startsWith("SUCCESS|Subscribed to") && message.contains("currency pairs")) {
+            log.info("listenToIncomingRates: Server Message: {}.", message);
         } else if (message.contains("INFO|Not subscribed to currency pair") ||
                 message.contains("INFO|Already subscribed to currency pair") ||
                 message.contains("ERROR|Invalid currency pair")) {
@@ -136,11 +203,90 @@ public class TcpSubscriberImpl implements SubscriberService {
         }
     }
 
+    /**
+     * Reads length-prefixed binary frames until the stream ends. Frame layout (big endian):
+     * unsigned short length of the rest, byte type, payload.
+     * TICK: int pair id, long sequence, byte scale, long bid, long ask, long epoch nanos.
+     * TEXT: UTF-8 server response. PAIR: int pair id, UTF-8 pair name. SNAPSHOT: same as TICK.
+     */
+    private void listenToIncomingBinaryFrames(String platformName) throws IOException {
+        while (!socket.isClosed()) {
+            int length = binaryInput.readUnsignedShort();
+            byte type = binaryInput.readByte();
+
+            switch (type) {
+                case FRAME_TYPE_TICK, FRAME_TYPE_SNAPSHOT -> {
+                    int pairId = binaryInput.readInt();
+                    long sequence = binaryInput.readLong();
+                    int scale = binaryInput.readUnsignedByte();
+                    long bid = binaryInput.readLong();
+                    long ask = binaryInput.readLong();
+                    long epochNanos = binaryInput.readLong();
+                    handleBinaryTick(platformName, pairId, sequence, scale, bid, ask, epochNanos, type == FRAME_TYPE_SNAPSHOT);
+                }
+                case FRAME_TYPE_TEXT -> {
+                    byte[] message = new byte[length - 1];
+                    binaryInput.readFully(message);
+                    processServerMessage(platformName, new String(message, StandardCharsets.UTF_8));
+                }
+                case FRAME_TYPE_PAIR -> {
+                    int pairId = binaryInput.readInt();
+                    byte[] name = new byte[length - 5];
+                    binaryInput.readFully(name);
+                    registerPair(pairId, new String(name, StandardCharsets.UTF_8));
+                }
+                default -> {
+                    log.warn("listenToIncomingBinaryFrames: Skipping unknown frame type: {}.", type);
+                    binaryInput.skipNBytes(length - 1);
+                }
+            }
+        }
+    }
+
+    private void registerPair(int pairId, String pairName) {
+        if (pairId >= pairNames.length) {
+            int newLength = Math.max(pairId + 1, pairNames.length * 2);
+            pairNames = Arrays.copyOf(pairNames, newLength);
+            lastSequences = Arrays.copyOf(lastSequences, newLength);
+        }
+        pairNames[pairId] = pairName;
+    }
+
+    private void handleBinaryTick(String platformName, int pairId, long sequence, int scale, long bid, long ask, long epochNanos, boolean snapshot) {
+        String pairName = pairId < pairNames.length ? pairNames[pairId] : null;
+        if (pairName == null) {
+            log.warn("handleBinaryTick: Received tick for unknown pair id: {}.", pairId);
+            return;
+        }
+
+        long lastSequence = lastSequences[pairId];
+        if (snapshot) {
+            if (lastSequence != 0 && sequence <= lastSequence) {
+                return;         // THIS OR A NEWER TICK ALREADY ARRIVED.
+            }
+        } else if (lastSequence != 0 && sequence != lastSequence + 1) {
+            log.warn("handleBinaryTick: Missed {} ticks of {}.", sequence - lastSequence - 1, pairName);
+        }
+        lastSequences[pairId] = sequence;
+
+        Rate rate = new Rate(
+                pairName,
+                BigDecimal.valueOf(bid, scale),
+                BigDecimal.valueOf(ask, scale),
+                Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L))
+        );
+        dispatchRate(platformName, pairName.substring(4, 10), rate);
+    }
+
     private void handleRateMessage(String platformName, String message) {
         String rateName = message.substring(4, 10);
         Rate rate = convertMessageToRate(message);
         if (rate == null) return;
 
+        dispatchRate(platformName, rateName, rate);
+    }
+
+    private void dispatchRate(String platformName, String rateName, Rate rate) {
         if (receivedRates.contains(rateName)) {
             coordinator.onRateUpdate(platformName, rateName, rate);
         } else {
@@ -175,9 +321,25 @@ public class TcpSubscriberImpl implements SubscriberService {
         }
     }
 
+    /**
+     * Reads a single '\n' terminated line byte by byte, so no binary frame bytes after it are buffered away.
+     */
+    private String readTextLine(DataInputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1 && b != '\n') {
+            if (b != '\r') line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
     private void closeResources() {
         try {
             if (reader != null) reader.close();
+            if (binaryInput != null) binaryInput.close();
             if (writer != null) writer.close();
             if (socket != null) socket.close();
         } catch (IOException e) {
@@ -185,6 +347,7 @@ public class TcpSubscriberImpl implements SubscriberService {
         } finally {
             socket = null;
             reader = null;
+            binaryInput = null;
             writer = null;
         }
     }
@@ -0,0 +1,165 @@
+package com.toyota.service.Impl;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of the ring file the TCP data provider's {@code TickRingWriter} writes. The layout constants
+ * repeat the writer's. Both modules test their side against the same golden ring file, {@code tick-ring-v1.ring}.
+ * <p>
+ * A flyweight: {@link #read(long)} loads one record and the getters return its fields. Only used by one thread.
+ * </p>
+ */
+final class TickRingFile {
+
+    private static final int MAGIC = 0x46585231;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 128;
+    private static final int NAME_SIZE = 32;
+    private static final int SLOT_SIZE = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SLOT_SIZE_OFFSET = 12;
+    private static final int PAIR_COUNT_OFFSET = 16;
+    private static final int HEARTBEAT_OFFSET = 32;
+    private static final int WRITE_SEQUENCE_OFFSET = 64;
+    private static final int RECORD_SEQUENCE = 0;
+    private static final int RECORD_PAIR_ID = 8;
+    private static final int RECORD_TICK_SEQUENCE = 16;
+    private static final int RECORD_BID = 24;
+    private static final int RECORD_ASK = 32;
+    private static final int RECORD_EPOCH_NANOS = 40;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final MappedByteBuffer ring;
+    private final int capacity;
+    private final int dataOffset;
+    private final int priceScale;
+    private final String[] pairNames;
+
+    private int pairId;
+    private long tickSequence;
+    private long bid;
+    private long ask;
+    private long epochNanos;
+
+    private TickRingFile(MappedByteBuffer ring, int capacity, int dataOffset, int priceScale, String[] pairNames) {
+        this.ring = ring;
+        this.capacity = capacity;
+        this.dataOffset = dataOffset;
+        this.priceScale = priceScale;
+        this.pairNames = pairNames;
+    }
+
+
+    /**
+     * Maps the file and reads its header. The mapping stays valid after the channel is closed.
+     */
+    static TickRingFile map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a tick ring (or not initialized yet): " + path);
+            }
+            VarHandle.loadLoadFence();          // THE MAGIC IS WRITTEN LAST.
+            if (mapped.getShort(4) != VERSION || mapped.getInt(SLOT_SIZE_OFFSET) != SLOT_SIZE) {
+                throw new IOException("Unsupported tick ring version " + mapped.getShort(4) + ": " + path);
+            }
+
+            int pairCount = mapped.getInt(PAIR_COUNT_OFFSET);
+            String[] names = new String[pairCount];
+            for (int i = 0; i < pairCount; i++) {
+                int offset = HEADER_SIZE + i * NAME_SIZE;
+                byte[] name = new byte[mapped.get(offset)];
+                mapped.get(offset + 1, name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            int dataOffset = (HEADER_SIZE + pairCount * NAME_SIZE + 63) & ~63;
+            return new TickRingFile(mapped, mapped.getInt(CAPACITY_OFFSET), dataOffset, mapped.get(6), names);
+        }
+    }
+
+
+    /**
+     * Reads one record like a seqlock: the record sequence is checked before and after the fields, so a
+     * record the server is writing or overwrote meanwhile is never used.
+     *
+     * @param sequence The record to read, counted from 1.
+     * @return {@code false} if the record is not there (anymore).
+     */
+    boolean read(long sequence) {
+        int slot = dataOffset + (int) ((sequence - 1) & (capacity - 1)) * SLOT_SIZE;
+        if ((long) LONGS.getAcquire(ring, slot + RECORD_SEQUENCE) != sequence) {
+            return false;
+        }
+        int readPairId = ring.getInt(slot + RECORD_PAIR_ID);
+        long readTickSequence = ring.getLong(slot + RECORD_TICK_SEQUENCE);
+        long readBid = ring.getLong(slot + RECORD_BID);
+        long readAsk = ring.getLong(slot + RECORD_ASK);
+        long readEpochNanos = ring.getLong(slot + RECORD_EPOCH_NANOS);
+        VarHandle.loadLoadFence();
+        if ((long) LONGS.getOpaque(ring, slot + RECORD_SEQUENCE) != sequence) {
+            return false;
+        }
+
+        pairId = readPairId;
+        tickSequence = readTickSequence;
+        bid = readBid;
+        ask = readAsk;
+        epochNanos = readEpochNanos;
+        return true;
+    }
+
+    /**
+     * @return The number of records published so far, the sequence of the latest one.
+     */
+    long writeSequence() {
+        return (long) LONGS.getAcquire(ring, WRITE_SEQUENCE_OFFSET);
+    }
+
+    long heartbeatMillis() {
+        return (long) LONGS.getAcquire(ring, HEARTBEAT_OFFSET);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int priceScale() {
+        return priceScale;
+    }
+
+    String[] pairNames() {
+        return pairNames.clone();
+    }
+
+    int pairId() {
+        return pairId;
+    }
+
+    long tickSequence() {
+        return tickSequence;
+    }
+
+    long bid() {
+        return bid;
+    }
+
+    long ask() {
+        return ask;
+    }
+
+    long epochNanos() {
+        return epochNanos;
+    }
+
+}
@@ -2,6 +2,8 @@ package com.toyota.service;
 
 import com.toyota.config.SubscriberConfig;
 
+import java.util.List;
+
 /**
  * Defines the contract for services that subscribe to real-time or periodic data updates (e.g., currency rates) from external platforms.
  * Implementations handle the specific details of communication protocols (e.g., REST, TCP) and data retrieval.
@@ -32,6 +34,18 @@ public interface SubscriberService  {
      */
     void subscribe(String platformName, String rateName);
 
+    /**
+     * Subscribes to several data feeds on the specified platform at once, e.g. after (re)connecting.
+     * The default implementation calls {@link #subscribe(String, String)} for every rate.
+     * Implementations whose protocol supports batch subscriptions should override it with a single request.
+     *
+     * @param platformName The name of the platform hosting the data feeds.
+     * @param rateNames    The identifiers of the data feeds to subscribe to (e.g., "USDTRY").
+     */
+    default void subscribeAll(String platformName, List<String> rateNames) {
+        rateNames.forEach(rateName -> subscribe(platformName, rateName));
+    }
+
     /**
      * Unsubscribes from a specific data feed on the specified platform.
      * This stops the reception of updates for the given feed and may release
@@ -0,0 +1,428 @@
+package com.toyota.cache.Impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * A Redis stand-in on the loopback interface that speaks RESP2 and keeps its keys in memory, with just the
+ * commands the collector sends: strings, hashes, {@code TTL}/{@code EXPIRE}, {@code SCAN}, and
+ * {@code WATCH}/{@code MULTI}/{@code EXEC} with Redis' optimistic locking. Each connection has its own thread,
+ * commands of all connections run one at a time.
+ * <p>
+ * Tests read and write the keys directly, see every command received, and can run a write of a
+ * "concurrent client" right before a given command, see {@link #beforeCommand(String, Runnable)}.
+ * </p>
+ */
+final class FakeRedisServer implements AutoCloseable {
+
+    private static final Object OK = new Status("OK");
+    private static final Object QUEUED = new Status("QUEUED");
+    private static final Object NULL_ARRAY = new Object();
+    private static final Set<String> TRANSACTION_COMMANDS = Set.of("MULTI", "EXEC", "DISCARD", "WATCH", "UNWATCH");
+
+    private record Status(String text) {
+    }
+
+    private record Error(String text) {
+    }
+
+    private final ServerSocket serverSocket;
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final Map<String, Runnable> hooks = new ConcurrentHashMap<>();
+    private final List<List<String>> commands = new CopyOnWriteArrayList<>();
+
+    // GUARDED BY this.
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Long> expiresAtMillis = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+    private long nextVersion = 1;
+
+    FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+
+    String host() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Runs the action once, right before the next command of that name from any connection is executed.
+     */
+    void beforeCommand(String command, Runnable action) {
+        hooks.put(command, action);
+    }
+
+    /**
+     * @return Every command received so far, name first, in the order they were executed.
+     */
+    List<List<String>> commands() {
+        return List.copyOf(commands);
+    }
+
+    synchronized String get(String key) {
+        expire();
+        return strings.get(key);
+    }
+
+    /**
+     * @return A copy of the hash, empty if there is none.
+     */
+    synchronized Map<String, String> hash(String key) {
+        expire();
+        return new HashMap<>(hashes.getOrDefault(key, Map.of()));
+    }
+
+    synchronized Set<String> keys() {
+        expire();
+        Set<String> keys = new TreeSet<>(strings.keySet());
+        keys.addAll(hashes.keySet());
+        return keys;
+    }
+
+    /**
+     * @return The remaining lifetime in seconds, -1 without one and -2 if the key does not exist, like {@code TTL}.
+     */
+    synchronized long ttl(String key) {
+        expire();
+        return (long) execute(List.of("TTL", key));
+    }
+
+    synchronized void setex(String key, long seconds, String value) {
+        execute(List.of("SETEX", key, Long.toString(seconds), value));
+    }
+
+    synchronized void hset(String key, String field, String value) {
+        execute(List.of("HSET", key, field, value));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket client = serverSocket.accept();
+                clients.add(client);
+                Thread connection = new Thread(() -> serve(client), "fake-redis-connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (IOException e) {
+            // CLOSED.
+        }
+    }
+
+    private void serve(Socket client) {
+        Map<String, Long> watched = new HashMap<>();
+        List<List<String>> queued = null;           // NULL WHEN NOT IN MULTI.
+        try (client) {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            while (true) {
+                List<String> command = readCommand(in);
+                String name = command.get(0).toUpperCase();
+                Runnable hook = hooks.remove(name);
+                if (hook != null) {
+                    hook.run();
+                }
+
+                Object reply;
+                synchronized (this) {
+                    commands.add(command);
+                    expire();
+                    if (queued != null && !TRANSACTION_COMMANDS.contains(name)) {
+                        queued.add(command);
+                        reply = QUEUED;
+                    } else if (name.equals("WATCH")) {
+                        for (String key : command.subList(1, command.size())) {
+                            watched.put(key, versions.getOrDefault(key, 0L));
+                        }
+                        reply = OK;
+                    } else if (name.equals("UNWATCH")) {
+                        watched.clear();
+                        reply = OK;
+                    } else if (name.equals("MULTI")) {
+                        queued = new ArrayList<>();
+                        reply = OK;
+                    } else if (name.equals("DISCARD")) {
+                        queued = null;
+                        watched.clear();
+                        reply = OK;
+                    } else if (name.equals("EXEC")) {
+                        reply = exec(watched, queued);
+                        queued = null;
+                        watched.clear();
+                    } else {
+                        reply = execute(command);
+                    }
+                }
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                encode(reply, encoded);
+                out.write(encoded.toByteArray());
+                out.flush();
+            }
+        } catch (IOException e) {
+            // THE CLIENT DISCONNECTED.
+        }
+    }
+
+    private Object exec(Map<String, Long> watched, List<List<String>> queued) {
+        if (queued == null) {
+            return new Error("ERR EXEC without MULTI");
+        }
+        for (Map.Entry<String, Long> key : watched.entrySet()) {
+            if (versions.getOrDefault(key.getKey(), 0L).longValue() != key.getValue()) {
+                return NULL_ARRAY;          // A WATCHED KEY WAS WRITTEN, THE TRANSACTION IS DISCARDED.
+            }
+        }
+        List<Object> replies = new ArrayList<>();
+        for (List<String> command : queued) {
+            replies.add(execute(command));
+        }
+        return replies;
+    }
+
+    private Object execute(List<String> command) {
+        String name = command.get(0).toUpperCase();
+        String key = command.size() > 1 ? command.get(1) : null;
+        switch (name) {
+            case "PING":
+                return new Status("PONG");
+            case "CLIENT":
+                return OK;
+            case "GET":
+                return strings.get(key);
+            case "SET":
+                remove(key);
+                strings.put(key, command.get(2));
+                touch(key);
+                return OK;
+            case "SETEX":
+                remove(key);
+                strings.put(key, command.get(3));
+                expiresAtMillis.put(key, System.currentTimeMillis() + Long.parseLong(command.get(2)) * 1000);
+                touch(key);
+                return OK;
+            case "DEL":
+                long deleted = 0;
+                for (String deletedKey : command.subList(1, command.size())) {
+                    if (remove(deletedKey)) {
+                        touch(deletedKey);
+                        deleted++;
+                    }
+                }
+                return deleted;
+            case "TTL":
+                if (!exists(key)) {
+                    return -2L;
+                }
+                Long expiresAt = expiresAtMillis.get(key);
+                return expiresAt == null ? -1L : Math.round((expiresAt - System.currentTimeMillis()) / 1000.0);
+            case "EXPIRE":
+                if (!exists(key)) {
+                    return 0L;
+                }
+                expiresAtMillis.put(key, System.currentTimeMillis() + Long.parseLong(command.get(2)) * 1000);
+                touch(key);
+                return 1L;
+            case "HSET":
+                Map<String, String> hash = hashes.computeIfAbsent(key, k -> new LinkedHashMap<>());
+                long added = 0;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (hash.put(command.get(i), command.get(i + 1)) == null) {
+                        added++;
+                    }
+                }
+                touch(key);
+                return added;
+            case "HGET":
+                return hashes.getOrDefault(key, Map.of()).get(command.get(2));
+            case "HMGET":
+                List<Object> values = new ArrayList<>();
+                for (String field : command.subList(2, command.size())) {
+                    values.add(hashes.getOrDefault(key, Map.of()).get(field));
+                }
+                return values;
+            case "HGETALL":
+                List<Object> fields = new ArrayList<>();
+                hashes.getOrDefault(key, Map.of()).forEach((field, value) -> {
+                    fields.add(field);
+                    fields.add(value);
+                });
+                return fields;
+            case "HDEL":
+                Map<String, String> fieldsOfKey = hashes.get(key);
+                long removed = 0;
+                for (String field : command.subList(2, command.size())) {
+                    if (fieldsOfKey != null && fieldsOfKey.remove(field) != null) {
+                        removed++;
+                    }
+                }
+                if (removed > 0) {
+                    if (fieldsOfKey.isEmpty()) {
+                        remove(key);
+                    }
+                    touch(key);
+                }
+                return removed;
+            case "SCAN":
+                return scan(command);
+            default:
+                return new Error("ERR unknown command '" + name + "'");
+        }
+    }
+
+    /**
+     * Pages through the sorted keys, {@code COUNT} keys per call, so callers have to follow the cursor.
+     */
+    private Object scan(List<String> command) {
+        int cursor = Integer.parseInt(command.get(1));
+        Pattern match = null;
+        int count = 10;
+        for (int i = 2; i + 1 < command.size(); i += 2) {
+            if (command.get(i).equalsIgnoreCase("MATCH")) {
+                match = Pattern.compile(globToRegex(command.get(i + 1)));
+            } else if (command.get(i).equalsIgnoreCase("COUNT")) {
+                count = Integer.parseInt(command.get(i + 1));
+            }
+        }
+
+        List<String> keys = new ArrayList<>(new TreeSet<>(strings.keySet()));
+        keys.addAll(new TreeSet<>(hashes.keySet()));
+        int end = Math.min(keys.size(), cursor + count);
+        List<Object> page = new ArrayList<>();
+        for (String key : keys.subList(Math.min(cursor, end), end)) {
+            if (match == null || match.matcher(key).matches()) {
+                page.add(key);
+            }
+        }
+        return List.of(end >= keys.size() ? "0" : Integer.toString(end), page);
+    }
+
+    private boolean exists(String key) {
+        return strings.containsKey(key) || hashes.containsKey(key);
+    }
+
+    private boolean remove(String key) {
+        expiresAtMillis.remove(key);
+        return strings.remove(key) != null | hashes.remove(key) != null;
+    }
+
+    private void touch(String key) {
+        versions.put(key, nextVersion++);
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        for (String key : List.copyOf(expiresAtMillis.keySet())) {
+            if (expiresAtMillis.get(key) <= now) {
+                remove(key);
+                touch(key);
+            }
+        }
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (!header.startsWith("*")) {
+            throw new IOException("Not a RESP array: " + header);
+        }
+        int length = Integer.parseInt(header.substring(1));
+        List<String> command = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            int size = Integer.parseInt(readLine(in).substring(1));
+            byte[] bulk = in.readNBytes(size + 2);
+            if (bulk.length != size + 2) {
+                throw new EOFException();
+            }
+            command.add(new String(bulk, 0, size, StandardCharsets.UTF_8));
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void encode(Object reply, ByteArrayOutputStream out) {
+        if (reply == null) {
+            out.writeBytes("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply == NULL_ARRAY) {
+            out.writeBytes("*-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof Status status) {
+            out.writeBytes(("+" + status.text() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof Error error) {
+            out.writeBytes(("-" + error.text() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof Long number) {
+            out.writeBytes((":" + number + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof String bulk) {
+            byte[] bytes = bulk.getBytes(StandardCharsets.UTF_8);
+            out.writeBytes(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(bytes);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else {
+            List<?> array = (List<?>) reply;
+            out.writeBytes(("*" + array.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (Object element : array) {
+                encode(element, out);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.toyota.cache.Impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.toyota.cache.RedisLayout;
+import com.toyota.entity.Rate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Runs the service against a {@link FakeRedisServer}. Writes go through the write-behind with a batch size of 1,
+ * so each is sent right away, but still asynchronously: the tests wait until Redis has them.
+ */
+class RedisServiceImplTest {
+
+    private static final String HASH_KEY = "LATEST_RAW_RATES::USDTRY";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private FakeRedisServer redis;
+
+
+    @BeforeEach
+    void startRedis() throws IOException {
+        redis = new FakeRedisServer();
+    }
+
+    @AfterEach
+    void stopRedis() throws IOException {
+        redis.close();
+    }
+
+
+    @Test
+    void whenLayoutIsHash_ThenRatesAreFieldsOfOneHashPerRateName() throws InterruptedException {
+        RedisServiceImpl service = service(RedisLayout.HASH);
+        long before = System.currentTimeMillis();
+
+        service.saveRawRate("PF1", "USDTRY", rate("PF1_USDTRY"));
+        service.saveRawRate("PF2", "USDTRY", rate("PF2_USDTRY"));
+        await(() -> redis.hash(HASH_KEY).size() == 4);
+
+        Assertions.assertEquals(Set.of(HASH_KEY), redis.keys(), "No key per platform in the HASH layout.");
+        Assertions.assertEquals(Set.of("PF1", "PF1::storedAt", "PF2", "PF2::storedAt"), redis.hash(HASH_KEY).keySet());
+        long storedAt = Long.parseLong(redis.hash(HASH_KEY).get("PF1::storedAt"));
+        Assertions.assertTrue(storedAt >= before && storedAt <= System.currentTimeMillis());
+        Assertions.assertEquals(300, redis.ttl(HASH_KEY));
+
+        Assertions.assertEquals(List.of("PF1_USDTRY", "PF2_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")));
+        Assertions.assertEquals(List.of(), service.getAllRawRatesByRateName("EURUSD"));
+    }
+
+    @Test
+    void whenFieldIsStale_ThenItIsSkippedAndRemoved() throws JsonProcessingException {
+        RedisServiceImpl service = service(RedisLayout.HASH);
+        long now = System.currentTimeMillis();
+        storeField("PF1", now - 301_000);
+        storeField("PF2", now);
+        redis.hset(HASH_KEY, "PF3", json(rate("PF3_USDTRY")));         // NO STORE TIME.
+
+        Assertions.assertEquals(List.of("PF2_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")));
+        Assertions.assertEquals(Set.of("PF2", "PF2::storedAt"), redis.hash(HASH_KEY).keySet());
+    }
+
+    @Test
+    void whenStaleFieldIsRewrittenAfterTheRead_ThenOnlyThatFieldIsKept() throws JsonProcessingException {
+        RedisServiceImpl service = service(RedisLayout.HASH);
+        long now = System.currentTimeMillis();
+        storeField("PF1", now - 301_000);
+        redis.hset(HASH_KEY, "PF3", json(rate("PF3_USDTRY")));
+        redis.beforeCommand("WATCH", () -> storeField("PF1", now));
+
+        Assertions.assertEquals(List.of(), service.getAllRawRatesByRateName("USDTRY"), "Both were stale when read.");
+        Assertions.assertEquals(Set.of("PF1", "PF1::storedAt"), redis.hash(HASH_KEY).keySet());
+        Assertions.assertEquals(Long.toString(now), redis.hash(HASH_KEY).get("PF1::storedAt"));
+    }
+
+    @Test
+    void whenHashIsWrittenDuringTheRemoval_ThenNothingIsRemovedUntilTheNextRead(){
+        RedisServiceImpl service = service(RedisLayout.HASH);
+        long now = System.currentTimeMillis();
+        storeField("PF1", now - 301_000);
+        redis.beforeCommand("MULTI", () -> storeField("PF2", now));
+
+        Assertions.assertEquals(List.of(), service.getAllRawRatesByRateName("USDTRY"));
+        Assertions.assertEquals(Set.of("PF1", "PF1::storedAt", "PF2", "PF2::storedAt"), redis.hash(HASH_KEY).keySet(),
+                "The watched hash changed, so the transaction is discarded.");
+
+        Assertions.assertEquals(List.of("PF2_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")));
+        Assertions.assertEquals(Set.of("PF2", "PF2::storedAt"), redis.hash(HASH_KEY).keySet());
+    }
+
+    @Test
+    void whenLayoutIsKeys_ThenEveryPlatformHasAKeyThatIsScanned() throws InterruptedException {
+        RedisServiceImpl service = service(RedisLayout.KEYS);
+        for (int i = 0; i < 45; i++) {
+            redis.setex("CALCULATED_RATES::RATE" + i, 300, "{}");        // MORE THAN ONE SCAN PAGE.
+        }
+
+        service.saveRawRate("PF1", "USDTRY", rate("PF1_USDTRY"));
+        service.saveRawRate("PF2", "USDTRY", rate("PF2_USDTRY"));
+        service.saveRawRate("PF1", "EURUSD", rate("PF1_EURUSD"));
+        await(() -> redis.keys().size() == 48);
+
+        Assertions.assertEquals(300, redis.ttl("RAW_RATES::PF2::USDTRY"));
+        Assertions.assertEquals(Set.of(), redis.hash(HASH_KEY).keySet(), "No hash in the KEYS layout.");
+        Assertions.assertEquals(List.of("PF1_USDTRY", "PF2_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")));
+        Assertions.assertEquals(List.of("PF1_EURUSD"), names(service.getAllRawRatesByRateName("EURUSD")));
+    }
+
+    @Test
+    void whenLayoutIsDual_ThenBothAreWrittenAndKeysAreOnlyScannedWithoutAHash() throws InterruptedException, JsonProcessingException {
+        RedisServiceImpl service = service(RedisLayout.DUAL);
+
+        service.saveRawRate("PF1", "USDTRY", rate("PF1_USDTRY"));
+        await(() -> redis.keys().size() == 2);
+        Assertions.assertEquals(Set.of("RAW_RATES::PF1::USDTRY", HASH_KEY), redis.keys());
+
+        redis.setex("RAW_RATES::PF2::USDTRY", 300, json(rate("PF2_USDTRY")));
+        Assertions.assertEquals(List.of("PF1_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")), "The hash is read first.");
+
+        redis.setex("RAW_RATES::PF2::EURUSD", 300, json(rate("PF2_EURUSD")));
+        Assertions.assertEquals(List.of("PF2_EURUSD"), names(service.getAllRawRatesByRateName("EURUSD")), "No hash yet, so the keys are scanned.");
+    }
+
+    @Test
+    void whenLayoutIsHash_ThenExistingKeysAreMigratedWithTheirLifetimeAndDeleted() throws JsonProcessingException {
+        storeKeys();
+        long now = System.currentTimeMillis();
+
+        RedisServiceImpl service = service(RedisLayout.HASH);
+
+        Assertions.assertEquals(Set.of("LATEST_RAW_RATES::EURUSD", HASH_KEY, "RAW_RATES::PF3"), redis.keys(),
+                "Only keys of the KEYS layout are migrated.");
+        long storedAt = Long.parseLong(redis.hash(HASH_KEY).get("PF1::storedAt"));
+        Assertions.assertEquals(now - 100_000, storedAt, 2_000, "100 s of the TTL had passed.");
+        Assertions.assertEquals(300, redis.ttl(HASH_KEY));
+        Assertions.assertEquals(List.of("PF1_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")));
+        Assertions.assertEquals(List.of("PF2_EURUSD"), names(service.getAllRawRatesByRateName("EURUSD")));
+    }
+
+    @Test
+    void whenLayoutIsDual_ThenExistingKeysAreMigratedAndKept() throws JsonProcessingException {
+        storeKeys();
+
+        RedisServiceImpl service = service(RedisLayout.DUAL);
+
+        Assertions.assertEquals(Set.of("LATEST_RAW_RATES::EURUSD", HASH_KEY,
+                "RAW_RATES::PF1::USDTRY", "RAW_RATES::PF2::EURUSD", "RAW_RATES::PF3"), redis.keys());
+        Assertions.assertEquals(Set.of("PF1", "PF1::storedAt"), redis.hash(HASH_KEY).keySet());
+        Assertions.assertEquals(List.of("PF1_USDTRY"), names(service.getAllRawRatesByRateName("USDTRY")));
+    }
+
+
+    private RedisServiceImpl service(RedisLayout layout) {
+        return new RedisServiceImpl(redis.host(), redis.port(), layout, 100, 1, 1);
+    }
+
+    private void storeKeys() throws JsonProcessingException {
+        redis.setex("RAW_RATES::PF1::USDTRY", 200, json(rate("PF1_USDTRY")));
+        redis.setex("RAW_RATES::PF2::EURUSD", 300, json(rate("PF2_EURUSD")));
+        redis.setex("RAW_RATES::PF3", 300, json(rate("PF3_USDTRY")));
+    }
+
+    /**
+     * Writes a platform's fields directly, like another collector would.
+     */
+    private void storeField(String platformName, long storedAtMillis) {
+        try {
+            redis.hset(HASH_KEY, platformName, json(rate(platformName + "_USDTRY")));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        redis.hset(HASH_KEY, platformName + "::storedAt", Long.toString(storedAtMillis));
+    }
+
+    private String json(Rate rate) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(rate);
+    }
+
+    private static Rate rate(String name) {
+        return new Rate(name, new BigDecimal("34.10"), new BigDecimal("34.20"), Instant.now());
+    }
+
+    private static List<String> names(List<Rate> rates) {
+        return rates.stream().map(Rate::getName).sorted().toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Redis did not get the writes in time.");
+            Thread.sleep(5);
+        }
+    }
+
+}
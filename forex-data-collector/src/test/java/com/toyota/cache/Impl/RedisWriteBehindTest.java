@@ -0,0 +1,171 @@
+package com.toyota.cache.Impl;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.JedisPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Flushes into a {@link FakeRedisServer}, which records every command of the pipelines. With a flush interval of
+ * a minute and a large batch size, the write-behind sends nothing before it is closed, so the tests decide what
+ * is pending.
+ */
+class RedisWriteBehindTest {
+
+    private static final long NEVER_MILLIS = 60_000;
+
+    private final List<String> warnings = new CopyOnWriteArrayList<>();
+    private final Appender recorder = new AbstractAppender("recorder", null, null, true, Property.EMPTY_ARRAY) {
+        @Override
+        public void append(LogEvent event) {
+            if (event.getLevel() == Level.WARN) {
+                warnings.add(event.getMessage().getFormattedMessage());
+            }
+        }
+    };
+
+    private FakeRedisServer redis;
+    private JedisPool jedisPool;
+
+
+    @BeforeEach
+    void startRedis() throws IOException {
+        redis = new FakeRedisServer();
+        jedisPool = new JedisPool(redis.host(), redis.port());
+        recorder.start();
+        logger().addAppender(recorder);
+    }
+
+    @AfterEach
+    void stopRedis() throws IOException {
+        logger().removeAppender(recorder);
+        jedisPool.close();
+        redis.close();
+    }
+
+
+    @Test
+    void whenKeyIsWrittenAgainBeforeTheFlush_ThenOnlyTheLatestWriteIsSent(){
+        RedisWriteBehind writeBehind = new RedisWriteBehind(jedisPool, 100, 100, NEVER_MILLIS);
+
+        submit(writeBehind, "A", "1");
+        submit(writeBehind, "B", "1");
+        submit(writeBehind, "A", "2");
+        submit(writeBehind, "A", "3");
+        writeBehind.close(2_000);
+
+        Assertions.assertEquals(List.of("A=3", "B=1"), sentWrites(), "Coalesced in the order the keys came in.");
+    }
+
+    @Test
+    void whenBatchSizeIsReached_ThenWritesAreFlushedWithoutWaitingForTheInterval() throws InterruptedException {
+        RedisWriteBehind writeBehind = new RedisWriteBehind(jedisPool, 100, 2, NEVER_MILLIS);
+
+        submit(writeBehind, "A", "1");
+        submit(writeBehind, "A", "2");
+        Thread.sleep(50);
+        Assertions.assertEquals(List.of(), sentWrites(), "A coalesced write does not count towards the batch.");
+
+        submit(writeBehind, "B", "1");
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (sentWrites().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(List.of("A=2", "B=1"), sentWrites());
+        writeBehind.close(2_000);
+    }
+
+    @Test
+    void whenQueueIsFull_ThenNewKeysAreDroppedWithASingleWarning() throws InterruptedException {
+        RedisWriteBehind writeBehind = new RedisWriteBehind(jedisPool, 2, 100, NEVER_MILLIS);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch redisResponds = new CountDownLatch(1);
+        redis.beforeCommand("SETEX", () -> {
+            flushing.countDown();
+            awaitQuietly(redisResponds);
+        });
+
+        submit(writeBehind, "A", "1");
+        submit(writeBehind, "B", "1");              // A FULL QUEUE IS FLUSHED AT ONCE, REDIS HOLDS THE PIPELINE.
+        Assertions.assertTrue(flushing.await(2, TimeUnit.SECONDS));
+
+        submit(writeBehind, "C", "1");
+        submit(writeBehind, "D", "1");
+        submit(writeBehind, "E", "1");
+        submit(writeBehind, "F", "1");
+        submit(writeBehind, "C", "2");              // A PENDING KEY IS STILL REPLACED.
+        Assertions.assertEquals(1, warnings.size(), warnings.toString());
+        Assertions.assertTrue(warnings.get(0).contains("dropped"), warnings.get(0));
+
+        redisResponds.countDown();
+        writeBehind.close(2_000);
+        Assertions.assertEquals(List.of("A=1", "B=1", "C=2", "D=1"), sentWrites());
+        Assertions.assertNull(redis.get("E"));
+    }
+
+    @Test
+    void whenClosed_ThenQueuedWritesAreFlushedAndLaterOnesIgnored(){
+        RedisWriteBehind writeBehind = new RedisWriteBehind(jedisPool, 1_000, 1_000, NEVER_MILLIS);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            submit(writeBehind, "RATE" + i, Integer.toString(i));
+            expected.add("RATE" + i + "=" + i);
+        }
+        Assertions.assertEquals(List.of(), sentWrites());
+
+        writeBehind.close(2_000);
+        Assertions.assertEquals(expected, sentWrites());
+        Assertions.assertEquals("249", redis.get("RATE249"));
+
+        submit(writeBehind, "LATE", "1");
+        writeBehind.close(2_000);
+        Assertions.assertEquals(expected, sentWrites());
+    }
+
+
+    private static void submit(RedisWriteBehind writeBehind, String key, String value) {
+        writeBehind.submit(key, pipeline -> pipeline.setex(key, 300, value));
+    }
+
+    /**
+     * @return The {@code SETEX} commands Redis received, as {@code key=value}.
+     */
+    private List<String> sentWrites() {
+        List<String> writes = new ArrayList<>();
+        for (List<String> command : redis.commands()) {
+            if (command.get(0).equalsIgnoreCase("SETEX")) {
+                writes.add(command.get(1) + "=" + command.get(3));
+            }
+        }
+        return writes;
+    }
+
+    private static Logger logger() {
+        return (Logger) LogManager.getLogger(RedisWriteBehind.class);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.toyota.cache;
+
+import com.toyota.entity.Rate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+
+class LatestRateTableTest {
+
+    private static final long MAX_AGE_MILLIS = 300;
+
+
+    @Test
+    void whenPlatformStoresANewRate_ThenItReplacesOnlyThatPlatformsRate(){
+        LatestRateTable table = new LatestRateTable(60_000);
+        Rate first = rate("PF1_USDTRY", "34.10", "34.20");
+        Rate second = rate("PF2_USDTRY", "34.30", "34.40");
+        Rate replacement = rate("PF1_USDTRY", "34.50", "34.60");
+
+        table.put("PF1", "USDTRY", first);
+        table.put("PF2", "USDTRY", second);
+        table.put("PF1", "USDTRY", replacement);
+
+        LatestRateTable.Snapshot snapshot = table.get("USDTRY");
+        Assertions.assertEquals(List.of(replacement, second), snapshot.rates());
+        Assertions.assertEquals(List.of("34.50", "34.30"), snapshot.bids());
+        Assertions.assertEquals(List.of("34.60", "34.40"), snapshot.asks());
+    }
+
+    @Test
+    void whenRateNamesDiffer_ThenTheyAreKeptApart(){
+        LatestRateTable table = new LatestRateTable(60_000);
+        table.put("PF2", "EURUSD", rate("PF2_EURUSD", "1E+0", "1.0001"));
+
+        Assertions.assertTrue(table.get("USDTRY").isEmpty());
+        Assertions.assertEquals(List.of("1"), table.get("EURUSD").bids(), "Rendered as a plain string.");
+    }
+
+    @Test
+    void whenRateIsOlderThanMaxAge_ThenItIsIgnored() throws InterruptedException {
+        LatestRateTable table = new LatestRateTable(MAX_AGE_MILLIS);
+        table.put("PF1", "USDTRY", rate("PF1_USDTRY", "34.10", "34.20"));
+        Assertions.assertEquals(List.of("34.10"), table.get("USDTRY").bids());
+
+        Thread.sleep(MAX_AGE_MILLIS * 2);
+        Assertions.assertTrue(table.get("USDTRY").isEmpty());
+
+        table.put("PF2", "USDTRY", rate("PF2_USDTRY", "34.30", "34.40"));
+        Assertions.assertEquals(List.of("34.30"), table.get("USDTRY").bids(), "Only the stale platform is ignored.");
+
+        table.put("PF1", "USDTRY", rate("PF1_USDTRY", "34.50", "34.60"));
+        Assertions.assertEquals(List.of("34.50", "34.30"), table.get("USDTRY").bids(), "A new rate counts again.");
+    }
+
+
+    private static Rate rate(String name, String bid, String ask) {
+        return new Rate(name, new BigDecimal(bid), new BigDecimal(ask), Instant.now());
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.toyota.calculation;
+
+import com.toyota.calculation.Impl.ExpressionCalculator;
+import com.toyota.calculation.Impl.JavaCalculator;
+import com.toyota.config.ApplicationConfig;
+import com.toyota.entity.CalculatedRate;
+import com.toyota.exception.InvalidFormulaException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+
+class ExpressionCalculatorTest {
+
+    private static CalculationService javaCalculator;
+    private static CalculationService defaultFormulas;
+
+
+    @BeforeAll
+    static void setUp(){
+        javaCalculator = new JavaCalculator();
+        defaultFormulas = new ExpressionCalculator(ApplicationConfig.getInstance());
+    }
+
+
+    @Test
+    void whenFormulasAreDefaults_ThenResultsEqualJavaCalculator(){
+        Random random = new Random(20250601L);
+        int validations = 0;
+
+        for (int i = 0; i < 1_000; i++) {
+            int base = 1 + random.nextInt(100_000_000);
+            int scale = random.nextInt(9);
+            List<String> bids = randomValues(random, 1 + random.nextInt(4), base, scale);
+            List<String> asks = randomValues(random, bids.size(), base, scale);
+            String usdMid = randomValues(random, 1, 1 + random.nextInt(100_000_000), scale).get(0);
+            String arguments = usdMid + ", " + bids + ", " + asks;
+
+            boolean valid = javaCalculator.isInComingRateValid(bids.get(0), asks.get(0), bids, asks);
+            Assertions.assertEquals(valid, defaultFormulas.isInComingRateValid(bids.get(0), asks.get(0), bids, asks), arguments);
+            validations += valid ? 1 : 0;
+            Assertions.assertEquals(
+                    javaCalculator.calculateUsdTryMidValue(bids, asks),
+                    defaultFormulas.calculateUsdTryMidValue(bids, asks),
+                    arguments
+            );
+            assertSameRate(javaCalculator.calculateUsdTry(bids, asks), defaultFormulas.calculateUsdTry(bids, asks), arguments);
+            assertSameRate(
+                    javaCalculator.calculateRateDependentOnUsdTry("EURTRY", usdMid, bids, asks),
+                    defaultFormulas.calculateRateDependentOnUsdTry("EURTRY", usdMid, bids, asks),
+                    arguments
+            );
+        }
+        Assertions.assertTrue(validations > 100 && validations < 900, "Both validation results should be covered, valid: " + validations);
+    }
+
+    @Test
+    void whenFormulasAreCustom_ThenTheyAreEvaluated(){
+        CalculationService calculator = new ExpressionCalculator(
+                "max(bids) - min(bids) < 0.5 * (bid - ask + 1)",
+                "min(bids)",
+                "max(asks)",
+                "(sum(bids) + sum(asks)) / (count(bids) + count(asks))",
+                "usdMid * avg(bids) * (1 - 2E-4)",
+                "max(usdMid * max(asks), 35)"
+        );
+        List<String> bids = List.of("32.0", "32.2");
+        List<String> asks = List.of("32.4", "32.6");
+
+        Assertions.assertTrue(calculator.isInComingRateValid("1.2", "1.0", bids, asks));
+        Assertions.assertFalse(calculator.isInComingRateValid("1.0", "1.6", bids, asks));
+
+        CalculatedRate usdTry = calculator.calculateUsdTry(bids, asks);
+        Assertions.assertEquals(new BigDecimal("32.0"), usdTry.getBid());
+        Assertions.assertEquals(new BigDecimal("32.6"), usdTry.getAsk());
+        Assertions.assertEquals(new BigDecimal("32.3"), calculator.calculateUsdTryMidValue(bids, asks));
+
+        CalculatedRate eurTry = calculator.calculateRateDependentOnUsdTry("EURTRY", "32.0", List.of("1.1", "1.12"), List.of("1.13", "1.15"));
+        Assertions.assertEquals("EURTRY", eurTry.getName());
+        Assertions.assertEquals(new BigDecimal("35.5128960"), eurTry.getBid());
+        Assertions.assertEquals(new BigDecimal("36.800"), eurTry.getAsk());
+    }
+
+    @Test
+    void whenInputsCannotBeCalculated_ThenResultIsNullOrFalse(){
+        List<String> empty = Collections.emptyList();
+
+        Assertions.assertNull(defaultFormulas.calculateUsdTry(empty, empty));
+        Assertions.assertNull(defaultFormulas.calculateUsdTryMidValue(List.of("1"), List.of("x")));
+        Assertions.assertNull(defaultFormulas.calculateRateDependentOnUsdTry("EURTRY", "abc", List.of("1"), List.of("1")));
+        Assertions.assertFalse(defaultFormulas.isInComingRateValid("1", "1", List.of("0"), List.of("0")));
+    }
+
+    @Test
+    void whenFormulaIsInvalid_ThenThrowInvalidFormulaException(){
+        assertInvalid("avg(bids) <", "avg(bids)", "avg(asks)", "1", "usdMid", "usdMid");
+        assertInvalid("bid <= 1", "avg(bids) <= 1", "avg(asks)", "1", "usdMid", "usdMid");
+        assertInvalid("bid <= 1", "bids", "avg(asks)", "1", "usdMid", "usdMid");
+        assertInvalid("bid <= 1", "avg(bids)", "usdMid", "1", "usdMid", "usdMid");
+        assertInvalid("bid <= 1", "avg(bids)", "avg(asks)", "(1 + 2", "usdMid", "usdMid");
+        assertInvalid("bid <= 1", "avg(bids)", "avg(asks)", "1 / (1 - 1)", "usdMid", "usdMid");
+        assertInvalid("bid <= 1", "avg(bids)", "avg(asks)", "1", "avg(usdMid)", "usdMid");
+        assertInvalid("bid <= 1", "avg(bids)", "avg(asks)", "1", "usdMid", "median(asks)");
+        assertInvalid("bid <= 1", "avg(bids)", "avg(asks)", "1", "usdMid", "mid(usdMid)");
+    }
+
+
+    private static void assertInvalid(String validation, String usdTryBid, String usdTryAsk, String usdTryMid, String derivedBid, String derivedAsk) {
+        Assertions.assertThrows(
+                InvalidFormulaException.class,
+                () -> new ExpressionCalculator(validation, usdTryBid, usdTryAsk, usdTryMid, derivedBid, derivedAsk)
+        );
+    }
+
+    private static void assertSameRate(CalculatedRate expected, CalculatedRate actual, String arguments) {
+        Assertions.assertEquals(expected.getName(), actual.getName(), arguments);
+        Assertions.assertEquals(expected.getBid(), actual.getBid(), arguments);
+        Assertions.assertEquals(expected.getAsk(), actual.getAsk(), arguments);
+    }
+
+    /**
+     * Rate-like values around {@code base}, within 2.5% of it so that some pass the validation.
+     */
+    private static List<String> randomValues(Random random, int count, int base, int scale) {
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int value = Math.max(1, base + random.nextInt(base / 20 + 1) - base / 40);
+            values.add(BigDecimal.valueOf(value, scale).toPlainString());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.toyota.calculation;
+
+import com.toyota.calculation.Impl.JavaCalculator;
+import com.toyota.calculation.Impl.PythonCalculator;
+import com.toyota.entity.CalculatedRate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Runs the same inputs through {@link JavaCalculator} and the Python script and expects equal results,
+ * down to the scale of every {@link BigDecimal}.
+ */
+class JavaCalculatorTest {
+
+    private static final int RANDOM_CASES = 200;
+
+    private static CalculationService javaCalculator;
+    private static CalculationService pythonCalculator;
+
+
+    @BeforeAll
+    static void setUp(){
+        javaCalculator = new JavaCalculator();
+        pythonCalculator = new PythonCalculator();
+    }
+
+
+    @Test
+    void whenInputsAreFixedCases_ThenResultsEqualPython(){
+        assertSameResults("100.0", "101.0", List.of("99.0", "100.0"), List.of("100.0", "101.0"));
+        assertSameResults("101.0", "102.0", List.of("99.0", "100.0"), List.of("100.0", "101.0"));
+        assertSameResults("32.0", List.of("32.0", "32.2"), List.of("32.4", "32.6"));
+        assertSameResults("32.0", List.of("1.1", "1.12"), List.of("1.13", "1.15"));
+
+        // ROUNDED QUOTIENTS, HALF EVEN AND TRAILING ZEROS.
+        assertSameResults("1", List.of("1", "1", "2"), List.of("2", "2", "3"));
+        assertSameResults("3.00", List.of("2.000", "1.0000"), List.of("0.00", "0.000"));
+        assertSameResults("0.5", List.of("0.123456789012345678905"), List.of("0.123456789012345678915"));
+
+        // MORE THAN 20 DIGITS AND EXPONENTS.
+        assertSameResults("34.123456789012345678901234", List.of("1.00000000000000000000001", "99999999999999999999.9"), List.of("1E+3", "1E-7"));
+        assertSameResults("1E+2", List.of("12345678901234567890123456789"), List.of("0.0000000012345"));
+        assertSameResults("-1.5", List.of("-2.5", "3.5"), List.of("-0.0", "0"));
+
+        // THE BOUNDARY OF THE ONE PERCENT CHECK.
+        assertSameResults("101", "101", List.of("100"), List.of("100"));
+        assertSameResults("101.00000000000000000001", "101", List.of("100"), List.of("100"));
+        assertSameResults("98.99999999999999999999", "99", List.of("100"), List.of("100"));
+    }
+
+    @Test
+    void whenInputsCannotBeCalculated_ThenBothFail(){
+        List<String> empty = Collections.emptyList();
+
+        assertSameResults("1.0", empty, empty);
+        assertSameResults("1.0", List.of("1.0"), empty);
+        assertSameResults("abc", List.of("1.0"), List.of("abc"));
+        assertSameResults("1.0", "1.0", empty, empty);
+        assertSameResults("1.0", "1.0", List.of("-1"), List.of("1"));
+        assertSameResults("1.0", "abc", List.of("1.0"), List.of("1.0"));
+
+        Assertions.assertNull(javaCalculator.calculateUsdTry(empty, empty));
+        Assertions.assertNull(javaCalculator.calculateUsdTryMidValue(List.of("1"), List.of("x")));
+        Assertions.assertFalse(javaCalculator.isInComingRateValid("1", "1", List.of("0"), List.of("0")));
+    }
+
+    @Test
+    void whenInputsAreRandomRates_ThenResultsEqualPython(){
+        Random random = new Random(20250518L);
+
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            int platforms = 1 + random.nextInt(4);
+            List<String> bids = randomValues(random, platforms);
+            List<String> asks = randomValues(random, platforms);
+
+            assertSameResults(randomValue(random), randomValue(random), bids, asks);
+            assertSameResults(randomValue(random), bids, asks);
+        }
+    }
+
+    @Test
+    void whenInputsAreCloseToReference_ThenValidationEqualsPython(){
+        Random random = new Random(1L);
+
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            BigDecimal reference = new BigDecimal(BigInteger.valueOf(1 + random.nextInt(5_000_000)), 5);
+            BigDecimal offset = reference.multiply(BigDecimal.valueOf(random.nextInt(2_400) - 1_200, 5));     // -1.2% .. +1.2%.
+            List<String> cached = List.of(reference.toPlainString());
+
+            assertSameResults(reference.add(offset).toPlainString(), reference.add(offset).toPlainString(), cached, cached);
+        }
+    }
+
+
+    private static void assertSameResults(String inComingBid, String inComingAsk, List<String> cachedBids, List<String> cachedAsks) {
+        Assertions.assertEquals(
+                pythonCalculator.isInComingRateValid(inComingBid, inComingAsk, cachedBids, cachedAsks),
+                javaCalculator.isInComingRateValid(inComingBid, inComingAsk, cachedBids, cachedAsks),
+                () -> "is_rate_valid(" + inComingBid + ", " + inComingAsk + ", " + cachedBids + ", " + cachedAsks + ")"
+        );
+    }
+
+    private static void assertSameResults(String usdMid, List<String> cachedBids, List<String> cachedAsks) {
+        String arguments = usdMid + ", " + cachedBids + ", " + cachedAsks;
+
+        assertSameRate(
+                pythonCalculator.calculateUsdTry(cachedBids, cachedAsks),
+                javaCalculator.calculateUsdTry(cachedBids, cachedAsks),
+                "calculate_usd_try(" + arguments + ")"
+        );
+        assertSameDecimal(
+                pythonCalculator.calculateUsdTryMidValue(cachedBids, cachedAsks),
+                javaCalculator.calculateUsdTryMidValue(cachedBids, cachedAsks),
+                "calculate_usd_try_mid_value(" + arguments + ")"
+        );
+        assertSameRate(
+                pythonCalculator.calculateRateDependentOnUsdTry("EURTRY", usdMid, cachedBids, cachedAsks),
+                javaCalculator.calculateRateDependentOnUsdTry("EURTRY", usdMid, cachedBids, cachedAsks),
+                "calculate_rate_dependent_on_usd_try(" + arguments + ")"
+        );
+    }
+
+    private static void assertSameRate(CalculatedRate expected, CalculatedRate actual, String call) {
+        if (expected == null) {
+            Assertions.assertNull(actual, call);
+            return;
+        }
+        Assertions.assertNotNull(actual, call);
+        Assertions.assertEquals(expected.getName(), actual.getName(), call);
+        assertSameDecimal(expected.getBid(), actual.getBid(), call + " bid");
+        assertSameDecimal(expected.getAsk(), actual.getAsk(), call + " ask");
+    }
+
+    /**
+     * {@link BigDecimal#equals} also compares the scale, unlike {@code compareTo}.
+     */
+    private static void assertSameDecimal(BigDecimal expected, BigDecimal actual, String call) {
+        Assertions.assertEquals(expected, actual, call);
+    }
+
+    private static List<String> randomValues(Random random, int count) {
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(randomValue(random));
+        }
+        return values;
+    }
+
+    /**
+     * Mostly rate-like values with up to 8 decimals, some with more digits than the precision.
+     */
+    private static String randomValue(Random random) {
+        if (random.nextInt(5) == 0) {
+            BigInteger unscaled = new BigInteger(60 + random.nextInt(40), random).add(BigInteger.ONE);
+            return new BigDecimal(unscaled, random.nextInt(30)).toString();
+        }
+        return BigDecimal.valueOf(1 + random.nextInt(100_000_000), random.nextInt(9)).toPlainString();
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.toyota.service.Impl;
+
+import com.toyota.config.SubscriberConfig;
+import com.toyota.entity.Rate;
+import com.toyota.service.CoordinatorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+
+/**
+ * Runs the subscriber against a scripted multicast feed on the loopback interface: datagrams are sent by the
+ * test, which also plays the TCP recovery channel and answers each command with the frames set in {@link #recovery}.
+ * The layout is the one of the TCP data provider's {@code MulticastPublisher} and {@code BinaryFrame}.
+ */
+class MulticastSubscriberImplTest {
+
+    private static final String GROUP = "239.255.42.98";
+    private static final String PLATFORM = "TCP";
+    private static final List<String> PAIRS = List.of("TCP_USDTRY", "TCP_EURUSD", "TCP_GBPUSD");
+    private static final byte TICK = 1;
+    private static final byte TEXT = 2;
+    private static final byte PAIR = 3;
+    private static final byte SNAPSHOT = 4;
+
+    private final BlockingQueue<String> rates = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> connections = new LinkedBlockingQueue<>();
+    private final List<String> recoveryCommands = new CopyOnWriteArrayList<>();
+    private volatile Function<String, byte[]> recovery;
+
+    private NetworkInterface loopback;
+    private int groupPort;
+    private ServerSocket recoveryServer;
+    private DatagramChannel feed;
+    private MulticastSubscriberImpl subscriber;
+
+
+    @BeforeEach
+    void startFeed() throws IOException {
+        loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            groupPort = probe.getLocalPort();
+        }
+        feed = DatagramChannel.open(StandardProtocolFamily.INET);
+        feed.setOption(StandardSocketOptions.IP_MULTICAST_IF, loopback);
+
+        recoveryServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread recoveryThread = new Thread(this::serveRecovery, "recovery");
+        recoveryThread.setDaemon(true);
+        recoveryThread.start();
+
+        SubscriberConfig config = new SubscriberConfig(PLATFORM, MulticastSubscriberImpl.class.getName(), List.of("USDTRY", "EURUSD"), Map.of(
+                "group", GROUP,
+                "port", groupPort,
+                "interface", loopback.getName(),
+                "recoveryHost", InetAddress.getLoopbackAddress().getHostAddress(),
+                "recoveryPort", recoveryServer.getLocalPort(),
+                "username", "user",
+                "password", "pass"));
+        subscriber = new MulticastSubscriberImpl(new RecordingCoordinator(), config);
+    }
+
+    @AfterEach
+    void stopFeed() throws IOException {
+        subscriber.disConnect();
+        feed.close();
+        recoveryServer.close();
+    }
+
+
+    @Test
+    void whenDatagramIsLost_ThenItIsRetransmittedAndHeartbeatsAreIgnored() throws Exception {
+        recovery = command -> switch (command) {
+            case "snapshot" -> concat(pairs(), frame(SNAPSHOT, 0, 1, 100_000), text("SUCCESS|SNAPSHOT|7|1"));
+            case "retransmit|3|3" -> concat(frame(TICK, 1, 1, 108_000), text("SUCCESS|RETRANSMIT|3|3"));
+            case "retransmit|5|5" -> concat(frame(TICK, 1, 2, 108_100), text("SUCCESS|RETRANSMIT|5|5"));
+            default -> text("ERROR|Unexpected command: " + command);
+        };
+        connectAndSubscribe();
+        Assertions.assertEquals("USDTRY|1.00000", nextRate(), "The snapshot's rate is forwarded on subscribe.");
+
+        send(7, 2, frame(TICK, 0, 2, 100_010));
+        Assertions.assertEquals("USDTRY|1.00010", nextRate());
+        send(7, 2);                                         // HEARTBEAT, NOTHING MISSED.
+        // PACKET 3 IS LOST.
+        send(7, 4, frame(TICK, 0, 3, 100_020));
+        Assertions.assertEquals("EURUSD|1.08000", nextRate(), "The lost packet comes first.");
+        Assertions.assertEquals("USDTRY|1.00020", nextRate());
+
+        // PACKET 5, THE LATEST ONE, IS LOST. ONLY THE HEARTBEAT TELLS.
+        send(7, 5);
+        Assertions.assertEquals("EURUSD|1.08100", nextRate());
+        send(7, 5);
+        send(7, 6, frame(TICK, 0, 4, 100_030));
+        Assertions.assertEquals("USDTRY|1.00030", nextRate());
+
+        Assertions.assertEquals(List.of("snapshot", "retransmit|3|3", "retransmit|5|5"), recoveryCommands);
+        Assertions.assertTrue(rates.isEmpty());
+    }
+
+    @Test
+    void whenRetransmitIsNotAvailable_ThenSubscriberTakesASnapshot() throws Exception {
+        recovery = command -> switch (command) {
+            case "snapshot" -> recoveryCommands.size() == 1
+                    ? concat(pairs(), frame(SNAPSHOT, 0, 1, 100_000), text("SUCCESS|SNAPSHOT|7|1"))
+                    : concat(pairs(), frame(SNAPSHOT, 0, 9, 100_090), text("SUCCESS|SNAPSHOT|7|9"));
+            default -> text("ERROR|Packets not available: 2-8");
+        };
+        connectAndSubscribe();
+        Assertions.assertEquals("USDTRY|1.00000", nextRate());
+
+        send(7, 9, frame(TICK, 0, 9, 100_090));             // ALSO IN THE SNAPSHOT, NOT FORWARDED TWICE.
+        send(7, 10, frame(TICK, 0, 10, 100_100));
+        Assertions.assertEquals("USDTRY|1.00090", nextRate());
+        Assertions.assertEquals("USDTRY|1.00100", nextRate());
+
+        Assertions.assertEquals(List.of("snapshot", "retransmit|2|8", "snapshot"), recoveryCommands);
+        Assertions.assertTrue(rates.isEmpty());
+    }
+
+    @Test
+    void whenFeedIdChanges_ThenSubscriberTakesASnapshotOfTheNewFeed() throws Exception {
+        recovery = command -> command.equals("snapshot") && recoveryCommands.size() == 1
+                ? concat(pairs(), frame(SNAPSHOT, 0, 5, 100_000), text("SUCCESS|SNAPSHOT|7|3"))
+                : command.equals("snapshot")
+                ? concat(pairs(), frame(SNAPSHOT, 0, 1, 200_000), text("SUCCESS|SNAPSHOT|8|1"))
+                : text("ERROR|Unexpected command: " + command);
+        connectAndSubscribe();
+        Assertions.assertEquals("USDTRY|1.00000", nextRate());
+
+        // THE SERVER RESTARTED: NEW FEED ID, PACKET AND TICK SEQUENCES START OVER.
+        send(8, 2, frame(TICK, 0, 2, 200_010));
+        Assertions.assertEquals("USDTRY|2.00000", nextRate(), "The new feed's snapshot.");
+        Assertions.assertEquals("USDTRY|2.00010", nextRate(), "Tick sequence 2 is newer than the snapshot's 1, not older than the old feed's 5.");
+
+        Assertions.assertEquals(List.of("snapshot", "snapshot"), recoveryCommands);
+        Assertions.assertTrue(rates.isEmpty());
+    }
+
+
+    private void connectAndSubscribe() throws InterruptedException {
+        subscriber.connect(PLATFORM);
+        Assertions.assertEquals("connected:true", connections.poll(5, TimeUnit.SECONDS));
+        subscriber.subscribe(PLATFORM, "USDTRY");
+        subscriber.subscribe(PLATFORM, "EURUSD");
+    }
+
+    private String nextRate() throws InterruptedException {
+        String rate = rates.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(rate, "No rate forwarded.");
+        return rate;
+    }
+
+    /**
+     * Sends a datagram: int feed id, long packet sequence, unsigned short frame count, frames. No frames is a heartbeat.
+     */
+    private void send(int feedId, long sequence, byte[]... frames) throws IOException {
+        byte[] body = concat(frames);
+        ByteBuffer datagram = ByteBuffer.allocate(14 + body.length)
+                .putInt(feedId)
+                .putLong(sequence)
+                .putShort((short) frames.length)
+                .put(body)
+                .flip();
+        feed.send(datagram, new InetSocketAddress(InetAddress.getByName(GROUP), groupPort));
+    }
+
+    private void serveRecovery() {
+        while (!recoveryServer.isClosed()) {
+            try (Socket socket = recoveryServer.accept()) {
+                BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Assertions.assertEquals("connect|user|pass", input.readLine());
+                socket.getOutputStream().write(text("SUCCESS|CONNECTED"));
+                String command = input.readLine();
+                recoveryCommands.add(command);
+                socket.getOutputStream().write(recovery.apply(command));
+                Assertions.assertEquals("disconnect", input.readLine());
+            } catch (IOException e) {
+                return;                                     // CLOSED AFTER THE TEST.
+            }
+        }
+    }
+
+    private static byte[] pairs() {
+        byte[][] frames = new byte[PAIRS.size()][];
+        for (int pairId = 0; pairId < PAIRS.size(); pairId++) {
+            byte[] name = PAIRS.get(pairId).getBytes(StandardCharsets.UTF_8);
+            frames[pairId] = ByteBuffer.allocate(2 + 1 + 4 + name.length)
+                    .putShort((short) (1 + 4 + name.length)).put(PAIR).putInt(pairId).put(name).array();
+        }
+        return concat(frames);
+    }
+
+    private static byte[] frame(byte type, int pairId, long tickSequence, long bid) {
+        return ByteBuffer.allocate(2 + 38)
+                .putShort((short) 38).put(type)
+                .putInt(pairId).putLong(tickSequence).put((byte) 5).putLong(bid).putLong(bid + 5).putLong(1_750_000_000_000_000_000L)
+                .array();
+    }
+
+    private static byte[] text(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + 1 + bytes.length).putShort((short) (1 + bytes.length)).put(TEXT).put(bytes).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        try {
+            for (byte[] part : parts) {
+                data.write(part);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+
+    private class RecordingCoordinator implements CoordinatorService {
+
+        @Override
+        public void onConnect(String platformName, Boolean status) {
+            connections.add("connected:" + status);
+        }
+
+        @Override
+        public void onDisConnect(String platformName) {
+            connections.add("disconnected");
+        }
+
+        @Override
+        public void onRateAvailable(String platformName, String rateName, Rate rate) {
+            rates.add(rateName + "|" + rate.getBid().toPlainString());
+        }
+
+        @Override
+        public void onRateUpdate(String platformName, String rateName, Rate rate) {
+            rates.add(rateName + "|" + rate.getBid().toPlainString());
+        }
+    }
+
+}
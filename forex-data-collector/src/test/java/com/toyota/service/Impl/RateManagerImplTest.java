@@ -0,0 +1,125 @@
+package com.toyota.service.Impl;
+
+import com.toyota.cache.CacheService;
+import com.toyota.calculation.Impl.JavaCalculator;
+import com.toyota.entity.CalculatedRate;
+import com.toyota.entity.Rate;
+import com.toyota.publisher.KafkaService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Runs the rate manager with the {@link JavaCalculator} and records what it sends to Kafka and Redis.
+ */
+class RateManagerImplTest {
+
+    private static final long MAX_AGE_MILLIS = 300;
+
+    private final List<String> rawRates = new ArrayList<>();
+    private final List<String> calculatedRates = new ArrayList<>();
+    private final List<BigDecimal> savedMids = new ArrayList<>();
+    private final RateManagerImpl rateManager = new RateManagerImpl(new RecordingKafka(), new RecordingCache(), new JavaCalculator(), MAX_AGE_MILLIS);
+
+
+    @Test
+    void whenUsdTryMidIsFresh_ThenDependentRateIsCalculated(){
+        rateManager.handleFirstInComingRate("PF1", "USDTRY", rate("PF1_USDTRY", "34.10", "34.20"));
+        Assertions.assertEquals(1, savedMids.size());
+
+        rateManager.handleFirstInComingRate("PF1", "EURUSD", rate("PF1_EURUSD", "1.0800", "1.0802"));
+        rateManager.handleRateUpdate("PF1", "EURUSD", rate("PF1_EURUSD", "1.0801", "1.0803"));
+
+        Assertions.assertEquals(List.of("PF1_USDTRY", "PF1_EURUSD", "PF1_EURUSD"), rawRates);
+        Assertions.assertEquals(List.of("EURTRY"), calculatedRates);
+    }
+
+    @Test
+    void whenUsdTryMidIsStale_ThenDependentRateIsSkippedUntilUsdTryArrivesAgain() throws InterruptedException {
+        rateManager.handleFirstInComingRate("PF1", "USDTRY", rate("PF1_USDTRY", "34.10", "34.20"));
+        Thread.sleep(MAX_AGE_MILLIS * 2);
+
+        rateManager.handleFirstInComingRate("PF1", "EURUSD", rate("PF1_EURUSD", "1.0800", "1.0802"));
+        rateManager.handleRateUpdate("PF1", "EURUSD", rate("PF1_EURUSD", "1.0801", "1.0803"));
+        Assertions.assertEquals(List.of(), calculatedRates, "The USD/TRY mid is too old to calculate EURTRY.");
+
+        rateManager.handleRateUpdate("PF1", "USDTRY", rate("PF1_USDTRY", "34.11", "34.21"));
+        Assertions.assertEquals(2, savedMids.size(), "The stale USD/TRY rate was replaced as a new baseline.");
+        rateManager.handleRateUpdate("PF1", "EURUSD", rate("PF1_EURUSD", "1.0802", "1.0804"));
+        Assertions.assertEquals(List.of("EURTRY"), calculatedRates);
+    }
+
+    @Test
+    void whenUpdateIsFarFromTheCachedRates_ThenItIsIgnored(){
+        rateManager.handleFirstInComingRate("PF1", "USDTRY", rate("PF1_USDTRY", "34.10", "34.20"));
+        rateManager.handleFirstInComingRate("PF2", "USDTRY", rate("PF2_USDTRY", "34.12", "34.22"));
+
+        rateManager.handleRateUpdate("PF1", "USDTRY", rate("PF1_USDTRY", "40.00", "40.10"));
+        Assertions.assertEquals(List.of("PF1_USDTRY", "PF2_USDTRY"), rawRates);
+
+        rateManager.handleRateUpdate("PF1", "USDTRY", rate("PF1_USDTRY", "34.14", "34.24"));
+        Assertions.assertEquals(List.of("PF1_USDTRY", "PF2_USDTRY", "PF1_USDTRY"), rawRates);
+        Assertions.assertEquals(List.of("USDTRY"), calculatedRates);
+    }
+
+    @Test
+    void whenCachedRatesAreStale_ThenUpdateIsTheNewBaseline() throws InterruptedException {
+        rateManager.handleFirstInComingRate("PF1", "USDTRY", rate("PF1_USDTRY", "34.10", "34.20"));
+        Thread.sleep(MAX_AGE_MILLIS * 2);
+
+        rateManager.handleRateUpdate("PF2", "USDTRY", rate("PF2_USDTRY", "40.00", "40.10"));
+        Assertions.assertEquals(List.of("PF1_USDTRY", "PF2_USDTRY"), rawRates, "Not compared with the stale rate.");
+        Assertions.assertEquals(List.of(), calculatedRates, "A first rate is not calculated.");
+    }
+
+
+    private static Rate rate(String name, String bid, String ask) {
+        return new Rate(name, new BigDecimal(bid), new BigDecimal(ask), Instant.now());
+    }
+
+
+    private class RecordingKafka implements KafkaService {
+
+        @Override
+        public void sendRawRate(Rate rawRate) {
+            rawRates.add(rawRate.getName());
+        }
+
+        @Override
+        public void sendCalculatedRate(CalculatedRate calculatedRate) {
+            calculatedRates.add(calculatedRate.getName());
+        }
+    }
+
+    private class RecordingCache implements CacheService {
+
+        @Override
+        public void saveRawRate(String platformName, String rateName, Rate rate) {
+        }
+
+        @Override
+        public void saveCalculatedRate(String rateName, CalculatedRate rate) {
+        }
+
+        @Override
+        public List<Rate> getAllRawRatesByRateName(String rateName) {
+            throw new UnsupportedOperationException("The rate manager reads its own table.");
+        }
+
+        @Override
+        public void saveUsdTryMidValue(BigDecimal usdMidValue) {
+            savedMids.add(usdMidValue);
+        }
+
+        @Override
+        public BigDecimal getUsdTryMidValue() {
+            throw new UnsupportedOperationException("The rate manager keeps its own mid value.");
+        }
+    }
+
+}
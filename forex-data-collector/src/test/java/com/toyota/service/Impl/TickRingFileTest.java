@@ -0,0 +1,125 @@
+package com.toyota.service.Impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Reads {@code tick-ring-v1.ring}, a copy of the golden ring file the TCP data provider's {@code TickRingWriterTest}
+ * checks its writer against, so reader and writer are pinned to the same bytes. The file holds 3 pairs, 8 slots and
+ * 11 records, so records 1 to 3 were overwritten. Records 1 to 10 are pair {@code n % 3}, tick sequence {@code 100 + n},
+ * bid {@code 3412300 + n}, ask {@code 3412800 + n} and epoch nanos {@code 1750000000000000000 + n}; record 11 holds
+ * extreme values.
+ */
+class TickRingFileTest {
+
+    private static final String[] PAIRS = {"TCP_USDTRY", "TCP_EURUSD", "TCP_GBPUSD"};
+    private static final int CAPACITY = 8;
+    private static final int DATA_OFFSET = 256;
+    private static final int SLOT_SIZE = 64;
+
+    @TempDir
+    Path tempDir;
+
+
+    @Test
+    void whenGoldenRingIsMapped_ThenHeaderIsRead() throws IOException {
+        TickRingFile ring = TickRingFile.map(goldenRing());
+
+        Assertions.assertArrayEquals(PAIRS, ring.pairNames());
+        Assertions.assertEquals(CAPACITY, ring.capacity());
+        Assertions.assertEquals(5, ring.priceScale());
+        Assertions.assertEquals(11, ring.writeSequence());
+        Assertions.assertEquals(1_750_000_000_500L, ring.heartbeatMillis());
+    }
+
+    @Test
+    void whenRingWrappedAround_ThenOnlyTheLatestRecordsAreRead() throws IOException {
+        TickRingFile ring = TickRingFile.map(goldenRing());
+
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            Assertions.assertFalse(ring.read(sequence), "Record " + sequence + " was overwritten.");
+        }
+        for (long sequence = 4; sequence <= 10; sequence++) {
+            Assertions.assertTrue(ring.read(sequence), "Record " + sequence);
+            assertRecord(ring, (int) (sequence % PAIRS.length), 100 + sequence, 3_412_300 + sequence, 3_412_800 + sequence,
+                    1_750_000_000_000_000_000L + sequence);
+        }
+        Assertions.assertTrue(ring.read(11));
+        assertRecord(ring, 2, Long.MAX_VALUE, -1, Long.MAX_VALUE, -5);
+        Assertions.assertFalse(ring.read(12), "Not published yet.");
+    }
+
+    @Test
+    void whenSlotIsBeingWritten_ThenRecordIsRejected() throws IOException {
+        Path path = goldenRing();
+        TickRingFile ring = TickRingFile.map(path);
+        int slot = DATA_OFFSET + (int) ((10 - 1) % CAPACITY) * SLOT_SIZE;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer writer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            writer.order(ByteOrder.LITTLE_ENDIAN);
+            Assertions.assertEquals(10, writer.getLong(slot));
+
+            // THE WRITER CLEARS THE RECORD SEQUENCE BEFORE IT TOUCHES THE FIELDS.
+            writer.putLong(slot, 0);
+            writer.putLong(slot + 24, 999);
+            Assertions.assertFalse(ring.read(10), "A record being written must not be read.");
+
+            // A RECORD OF A LATER LAP IN THE SAME SLOT.
+            writer.putLong(slot, 10 + CAPACITY);
+            Assertions.assertFalse(ring.read(10), "An overwritten record must not be read.");
+
+            writer.putLong(slot + 24, 3_412_310);
+            writer.putLong(slot, 10);
+            Assertions.assertTrue(ring.read(10));
+            assertRecord(ring, 1, 110, 3_412_310, 3_412_810, 1_750_000_000_000_000_010L);
+        }
+    }
+
+    @Test
+    void whenFileIsNotARing_ThenMapFails() throws IOException {
+        Path empty = Files.write(tempDir.resolve("empty.ring"), new byte[256]);
+        Assertions.assertThrows(IOException.class, () -> TickRingFile.map(empty));
+
+        Path path = goldenRing();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{2, 0}), 4);
+        }
+        Assertions.assertThrows(IOException.class, () -> TickRingFile.map(path), "Version 2 is not supported.");
+    }
+
+
+    /**
+     * @return A writable copy of the golden ring.
+     */
+    private Path goldenRing() throws IOException {
+        Path path = tempDir.resolve("golden-" + System.nanoTime() + ".ring");
+        try (InputStream golden = TickRingFileTest.class.getResourceAsStream("/tick-ring-v1.ring")) {
+            Assertions.assertNotNull(golden, "tick-ring-v1.ring not found.");
+            Files.copy(golden, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path;
+    }
+
+    private static void assertRecord(TickRingFile ring, int pairId, long tickSequence, long bid, long ask, long epochNanos) {
+        Assertions.assertEquals(pairId, ring.pairId());
+        Assertions.assertEquals(tickSequence, ring.tickSequence());
+        Assertions.assertEquals(bid, ring.bid());
+        Assertions.assertEquals(ask, ring.ask());
+        Assertions.assertEquals(epochNanos, ring.epochNanos());
+    }
+
+}
@@ -4,10 +4,31 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.toyota.auth.AuthService;
 import com.toyota.broadcast.FxDataPublisher;
+import com.toyota.broadcast.MulticastPublisher;
+import com.toyota.broadcast.MulticastRecoveryServer;
+import com.toyota.broadcast.TickSchedule;
 import com.toyota.config.ConfigUtil;
+import com.toyota.config.CorrelationMatrix;
 import com.toyota.config.RateInfo;
 import com.toyota.entity.Rate;
+import com.toyota.journal.TickJournalWriter;
+import com.toyota.metrics.MetricsExporter;
+import com.toyota.metrics.MetricsHttpServer;
+import com.toyota.metrics.ServerMetrics;
+import com.toyota.ring.TickRingWriter;
+import com.toyota.server.CurrencyPairRegistry;
+import com.toyota.server.DeliveryMode;
 import com.toyota.server.FxDataServer;
+import com.toyota.server.OverflowPolicy;
+import com.toyota.server.ServerMode;
+import com.toyota.server.SubscriptionIndex;
+import com.toyota.server.VirtualThreadServer;
+import com.toyota.simulation.BigDecimalRateEngine;
+import com.toyota.simulation.FixedPointRateEngine;
+import com.toyota.simulation.GbmRateEngine;
+import com.toyota.simulation.RateSimulationEngine;
+import com.toyota.simulation.ReplayRateEngine;
+import com.toyota.simulation.SimulationEngineType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -15,11 +36,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
-import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
@@ -30,6 +51,7 @@ public class TcpDataProvider {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private static final String INITIAL_RATES_EXTERNAL_CONFIG_PATH = "/conf/initial-rates.json";
+    private static final int STARTUP_LOG_PAIR_LIMIT = 50;
 
     public static void main(String[] args) {
 
@@ -41,23 +63,68 @@ public class TcpDataProvider {
         final BigDecimal SPIKE_PERCENTAGE = config.getBigDecimalValue("spike.percentage");
         final BigDecimal MINIMUM_RATE_CHANGE = config.getBigDecimalValue("minimum.rate.change");
         final BigDecimal MAXIMUM_RATE_CHANGE = config.getBigDecimalValue("maximum.rate.change");
+        final SimulationEngineType SIMULATION_ENGINE = config.getEnumValue("simulation.engine", SimulationEngineType.class);
+        final int SYNTHETIC_PAIRS = config.getIntValue("simulation.synthetic.pairs");
+        final double GBM_VOLATILITY = config.getBigDecimalValue("gbm.volatility").doubleValue();
+        final double GBM_DRIFT = config.getBigDecimalValue("gbm.drift").doubleValue();
+        final double GBM_CORRELATION = config.getBigDecimalValue("gbm.correlation").doubleValue();
+        final String GBM_CORRELATION_MATRIX_PATH = config.getStringValue("gbm.correlation.matrix.path").trim();
+        final double GBM_TIME_SCALE = config.getBigDecimalValue("gbm.time.scale").doubleValue();
+        final boolean GBM_VECTOR_API = config.getBooleanValue("gbm.vector.api");
         final List<String> USER_CREDENTIALS_LIST = Arrays.stream(config.getStringValue("user.credentials").split(",")).toList();
-
-
-
-
-
-        final List<RateInfo> initialRatesFromJson = loadInitialRates();
-
-        if (initialRatesFromJson == null || initialRatesFromJson.isEmpty()) {
+        final int CLIENT_MAX_PENDING_BYTES = config.getIntValue("client.max.pending.bytes");
+        final OverflowPolicy CLIENT_OVERFLOW_POLICY = config.getEnumValue("client.overflow.policy", OverflowPolicy.class);
+        final DeliveryMode CLIENT_DELIVERY_MODE = config.getEnumValue("client.delivery.mode", DeliveryMode.class);
+        final int CLIENT_SOCKET_SEND_BUFFER = config.getIntValue("client.socket.send.buffer");
+        final int CLIENT_HEARTBEAT_INTERVAL = config.getIntValue("client.heartbeat.interval.seconds");
+        final int CLIENT_IDLE_TIMEOUT = config.getIntValue("client.idle.timeout.seconds");
+        final boolean CLIENT_SNAPSHOT_ON_SUBSCRIBE = config.getBooleanValue("client.snapshot.on.subscribe");
+        final ServerMode SERVER_MODE = config.getEnumValue("server.mode", ServerMode.class);
+        final int CONFIGURED_WORKER_THREADS = config.getIntValue("server.worker.threads");
+        final int WORKER_THREADS = CONFIGURED_WORKER_THREADS > 0
+                ? CONFIGURED_WORKER_THREADS
+                : Runtime.getRuntime().availableProcessors();        // 0 MEANS ONE REACTOR PER AVAILABLE CORE.
+        final String JOURNAL_RECORD_DIR = config.getStringValue("journal.record.dir").trim();
+        final String REPLAY_JOURNAL_PATH = config.getStringValue("replay.journal.path").trim();
+        final double REPLAY_SPEED = config.getBigDecimalValue("replay.speed").doubleValue();
+        final int METRICS_HTTP_PORT = config.getIntValue("metrics.http.port");
+        final boolean METRICS_JMX_ENABLED = config.getBooleanValue("metrics.jmx.enabled");
+        final String MULTICAST_GROUP = config.getStringValue("multicast.group").trim();
+        final int MULTICAST_PORT = config.getIntValue("multicast.port");
+        final String MULTICAST_INTERFACE = config.getStringValue("multicast.interface").trim();
+        final int MULTICAST_TTL = config.getIntValue("multicast.ttl");
+        final int MULTICAST_MAX_PACKET_BYTES = config.getIntValue("multicast.max.packet.bytes");
+        final int MULTICAST_RETAINED_PACKETS = config.getIntValue("multicast.retained.packets");
+        final int MULTICAST_HEARTBEAT_INTERVAL = config.getIntValue("multicast.heartbeat.interval.ms");
+        final int MULTICAST_RECOVERY_PORT = config.getIntValue("multicast.recovery.port");
+        final String RING_FILE_PATH = config.getStringValue("ring.file.path").trim();
+        final int RING_CAPACITY = config.getIntValue("ring.capacity");
+
+
+
+
+
+        // IN REPLAY MODE THE PAIRS AND RATES COME FROM THE JOURNAL INSTEAD OF initial-rates.json.
+        final ReplayRateEngine REPLAY_ENGINE = REPLAY_JOURNAL_PATH.isEmpty()
+                ? null
+                : openReplayEngine(Paths.get(REPLAY_JOURNAL_PATH), REPLAY_SPEED);
+
+        final List<RateInfo> initialRatesFromJson = REPLAY_ENGINE == null ? loadInitialRates() : List.of();
+
+        if (REPLAY_ENGINE == null && (initialRatesFromJson == null || initialRatesFromJson.isEmpty())) {
             logger.error("Application start failed. Initial rate data could not be loaded. Exiting...");
             throw new RuntimeException("Initial rates could not be loaded. Please check the config file.");
         }
+        if (REPLAY_ENGINE == null && SYNTHETIC_PAIRS > 0) {
+            initialRatesFromJson.addAll(createSyntheticRates(initialRatesFromJson, SYNTHETIC_PAIRS));
+        }
 
 
 
         final List<Rate> INITIAL_RATES = new ArrayList<>();
         final List<String> CURRENCY_PAIRS = new ArrayList<>();
+        final List<TickSchedule> TICK_SCHEDULES = new ArrayList<>();
+        boolean customTickSchedules = false;
 
         for (RateInfo rateInfo : initialRatesFromJson) {
             try {
@@ -69,20 +136,29 @@ public class TcpDataProvider {
                         rateInfo.getMinLimit(),
                         rateInfo.getMaxLimit()
                 );
+                TickSchedule tickSchedule = createTickSchedule(rateInfo, PUBLISH_FREQUENCY);
                 INITIAL_RATES.add(rate);
                 CURRENCY_PAIRS.add(rateInfo.getRateName());
+                TICK_SCHEDULES.add(tickSchedule);
+                customTickSchedules |= rateInfo.getTickIntervalMs() != null || rateInfo.getTicksPerSecond() != null;
             } catch (RuntimeException e) {
                 logger.error("Unexpected error loading initial rate for '{}': {}", rateInfo.getRateName(), e.getMessage(), e);
             }
         }
+        if (REPLAY_ENGINE != null) {
+            for (int index = 0; index < REPLAY_ENGINE.size(); index++) {
+                CURRENCY_PAIRS.add(REPLAY_ENGINE.getRateName(index));
+            }
+        }
 
 
-        final ConcurrentHashMap<String, Set<SocketChannel>> SUBSCRIPTIONS = new ConcurrentHashMap<>();
-        for (String currencyPair : CURRENCY_PAIRS) {
-            SUBSCRIPTIONS.put(
-                    currencyPair,
-                    ConcurrentHashMap.newKeySet()
-            );
+        // PAIR IDS ARE THE INDEXES IN INITIAL_RATES, SO THEY MATCH THE SIMULATION ENGINE'S INDEXES.
+        final CurrencyPairRegistry CURRENCY_PAIR_REGISTRY = new CurrencyPairRegistry(CURRENCY_PAIRS);
+
+        // EACH WORKER REACTOR GETS ITS OWN SUBSCRIPTION VIEW. THE PUBLISHER WALKS ALL OF THEM.
+        final List<SubscriptionIndex> SUBSCRIPTION_VIEWS = new ArrayList<>();
+        for (int i = 0; i < WORKER_THREADS; i++) {
+            SUBSCRIPTION_VIEWS.add(new SubscriptionIndex(CURRENCY_PAIR_REGISTRY.size()));
         }
 
 
@@ -96,38 +172,244 @@ public class TcpDataProvider {
 
         final AuthService AUTH_SERVICE = new AuthService(AUTH_REPOSITORY);
 
+        // SHARED BY THE REACTORS AND THE PUBLISHER. ONLY READ WHEN METRICS ARE REQUESTED.
+        final ServerMetrics SERVER_METRICS = new ServerMetrics();
 
 
 
 
-        final ExecutorService executorService = Executors.newFixedThreadPool(2);
-        final FxDataServer fxDataServer = new FxDataServer(
-                SERVER_PORT,
-                CURRENCY_PAIRS,
-                SUBSCRIPTIONS,
-                AUTH_SERVICE
-        );
 
+        final RateSimulationEngine RATE_ENGINE = REPLAY_ENGINE != null
+                ? REPLAY_ENGINE
+                : switch (SIMULATION_ENGINE) {
+                    case BIG_DECIMAL -> new BigDecimalRateEngine(
+                            INITIAL_RATES, SPIKE_INTERVAL, SPIKE_PERCENTAGE, MINIMUM_RATE_CHANGE, MAXIMUM_RATE_CHANGE
+                    );
+                    case FIXED_POINT -> new FixedPointRateEngine(
+                            INITIAL_RATES, SPIKE_INTERVAL, SPIKE_PERCENTAGE, MINIMUM_RATE_CHANGE, MAXIMUM_RATE_CHANGE
+                    );
+                    case GBM -> createGbmEngine(
+                            INITIAL_RATES, SPIKE_INTERVAL, SPIKE_PERCENTAGE, GBM_VOLATILITY, GBM_DRIFT, GBM_CORRELATION,
+                            GBM_TIME_SCALE, GBM_CORRELATION_MATRIX_PATH, GBM_VECTOR_API
+                    );
+                };
+
+        final TickJournalWriter TICK_JOURNAL = JOURNAL_RECORD_DIR.isEmpty()
+                ? null
+                : createTickJournal(Paths.get(JOURNAL_RECORD_DIR), CURRENCY_PAIRS);
+
+        final MulticastPublisher MULTICAST_PUBLISHER = MULTICAST_GROUP.isEmpty()
+                ? null
+                : openMulticastPublisher(
+                        MULTICAST_GROUP, MULTICAST_PORT, MULTICAST_INTERFACE, MULTICAST_TTL, MULTICAST_MAX_PACKET_BYTES,
+                        MULTICAST_RETAINED_PACKETS, MULTICAST_HEARTBEAT_INTERVAL, CURRENCY_PAIR_REGISTRY, SERVER_METRICS
+                );
+
+        final TickRingWriter TICK_RING = RING_FILE_PATH.isEmpty()
+                ? null
+                : createTickRing(Paths.get(RING_FILE_PATH), RING_CAPACITY, CURRENCY_PAIRS);
+
+        // PAIRS ONLY TICK INDEPENDENTLY IF initial-rates.json GIVES AT LEAST ONE OF THEM ITS OWN SCHEDULE.
         final FxDataPublisher publisher = new FxDataPublisher(
-                SUBSCRIPTIONS,
-                INITIAL_RATES,
+                SUBSCRIPTION_VIEWS,
+                RATE_ENGINE,
                 PUBLISH_FREQUENCY,
-                SPIKE_INTERVAL,
-                SPIKE_PERCENTAGE,
-                MINIMUM_RATE_CHANGE,
-                MAXIMUM_RATE_CHANGE
+                customTickSchedules ? TICK_SCHEDULES : null,
+                TICK_JOURNAL,
+                MULTICAST_PUBLISHER,
+                TICK_RING,
+                SERVER_METRICS
         );
+        if (TICK_JOURNAL != null) {
+            // CUTS THE JOURNAL TO ITS RECORDED LENGTH WHEN THE CONTAINER STOPS.
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> publisher.stopRecording(5000)));
+        }
+
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(MULTICAST_PUBLISHER == null ? 2 : 3);
+        final Runnable serverLoop;
+        if (SERVER_MODE == ServerMode.VIRTUAL_THREADS) {
+            serverLoop = new VirtualThreadServer(
+                    SERVER_PORT,
+                    CLIENT_SOCKET_SEND_BUFFER,
+                    CLIENT_MAX_PENDING_BYTES,
+                    CLIENT_OVERFLOW_POLICY,
+                    CLIENT_DELIVERY_MODE,
+                    CLIENT_HEARTBEAT_INTERVAL,
+                    CLIENT_IDLE_TIMEOUT,
+                    CURRENCY_PAIR_REGISTRY,
+                    SUBSCRIPTION_VIEWS,
+                    CLIENT_SNAPSHOT_ON_SUBSCRIBE ? publisher : null,
+                    AUTH_SERVICE,
+                    SERVER_METRICS
+            )::startServer;
+        } else {
+            try {
+                serverLoop = new FxDataServer(
+                        SERVER_PORT,
+                        CLIENT_SOCKET_SEND_BUFFER,
+                        CLIENT_MAX_PENDING_BYTES,
+                        CLIENT_OVERFLOW_POLICY,
+                        CLIENT_DELIVERY_MODE,
+                        CLIENT_HEARTBEAT_INTERVAL,
+                        CLIENT_IDLE_TIMEOUT,
+                        CURRENCY_PAIR_REGISTRY,
+                        SUBSCRIPTION_VIEWS,
+                        CLIENT_SNAPSHOT_ON_SUBSCRIBE ? publisher : null,       // THE PUBLISHER OWNS THE CURRENT RATES.
+                        AUTH_SERVICE,
+                        SERVER_METRICS
+                )::startServer;
+            } catch (IOException e) {
+                logger.error("Application start failed. Client reactors could not be created: {}", e.getMessage(), e);
+                throw new RuntimeException("Client reactors could not be created.", e);
+            }
+        }
 
 
         logStartupInfo(
                 SERVER_PORT, PUBLISH_FREQUENCY, CURRENCY_PAIRS, AUTH_REPOSITORY, INITIAL_RATES,
-                SPIKE_INTERVAL, SPIKE_PERCENTAGE, MINIMUM_RATE_CHANGE, MAXIMUM_RATE_CHANGE
+                SPIKE_INTERVAL, SPIKE_PERCENTAGE, MINIMUM_RATE_CHANGE, MAXIMUM_RATE_CHANGE,
+                CLIENT_MAX_PENDING_BYTES, CLIENT_OVERFLOW_POLICY, CLIENT_DELIVERY_MODE, SERVER_MODE, WORKER_THREADS, SIMULATION_ENGINE,
+                CLIENT_HEARTBEAT_INTERVAL, CLIENT_IDLE_TIMEOUT, CLIENT_SNAPSHOT_ON_SUBSCRIBE,
+                customTickSchedules ? TICK_SCHEDULES : null
+        );
+
+
+        final MetricsExporter metricsExporter = new MetricsExporter(
+                SERVER_METRICS, CURRENCY_PAIR_REGISTRY, SUBSCRIPTION_VIEWS, AUTH_SERVICE.getSessionRegistry()
         );
+        if (METRICS_JMX_ENABLED) {
+            metricsExporter.registerMBean();
+        }
+        if (METRICS_HTTP_PORT > 0) {
+            startMetricsHttpServer(METRICS_HTTP_PORT, metricsExporter);
+        }
 
 
-        executorService.execute(fxDataServer::startServer);
+        executorService.execute(serverLoop);
         executorService.execute(publisher::startBroadcast);
+        if (MULTICAST_PUBLISHER != null) {
+            logger.info("Multicast feed: {} (feed id {}), recovery channel on port {}.",
+                    MULTICAST_PUBLISHER.getGroup(), MULTICAST_PUBLISHER.getFeedId(), MULTICAST_RECOVERY_PORT);
+            executorService.execute(new MulticastRecoveryServer(
+                    MULTICAST_RECOVERY_PORT, MULTICAST_PUBLISHER, AUTH_SERVICE, SERVER_METRICS
+            )::startServer);
+        }
+
+    }
+
+
+
+    /**
+     * A pair ticks as a Poisson process if it has {@code ticksPerSecond}, at its own fixed interval if
+     * it has {@code tickIntervalMs}, and every publish frequency otherwise.
+     */
+    private static TickSchedule createTickSchedule(RateInfo rateInfo, int publishFrequency) {
+        if (rateInfo.getTicksPerSecond() != null && rateInfo.getTickIntervalMs() != null) {
+            throw new IllegalArgumentException("Only one of tickIntervalMs and ticksPerSecond may be set.");
+        }
+        if (rateInfo.getTicksPerSecond() != null) {
+            return TickSchedule.poisson(rateInfo.getTicksPerSecond());
+        }
+        if (rateInfo.getTickIntervalMs() != null) {
+            return TickSchedule.fixedInterval(rateInfo.getTickIntervalMs());
+        }
+        return TickSchedule.fixedInterval(publishFrequency);
+    }
 
+    /**
+     * Copies of the configured pairs for load tests, taken in turn: {@code TCP_USDTRY_00001},
+     * {@code TCP_EURUSD_00002}, ... with the rates, limits and tick schedule of the copied pair.
+     */
+    private static List<RateInfo> createSyntheticRates(List<RateInfo> templates, int count) {
+        List<RateInfo> syntheticRates = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            RateInfo template = templates.get((i - 1) % templates.size());
+            RateInfo rateInfo = new RateInfo(
+                    String.format("%s_%05d", template.getRateName(), i),
+                    template.getMaxLimit(),
+                    template.getMinLimit(),
+                    template.getAsk(),
+                    template.getBid()
+            );
+            rateInfo.setTickIntervalMs(template.getTickIntervalMs());
+            rateInfo.setTicksPerSecond(template.getTicksPerSecond());
+            syntheticRates.add(rateInfo);
+        }
+        logger.info("Added {} synthetic pairs to the {} configured pairs.", count, templates.size());
+        return syntheticRates;
+    }
+
+
+
+    /**
+     * The metrics endpoint is optional: if its port is taken, the server keeps running without it.
+     */
+    private static void startMetricsHttpServer(int port, MetricsExporter exporter) {
+        try {
+            new MetricsHttpServer(port, exporter).start();
+        } catch (IOException e) {
+            logger.error("Metrics HTTP endpoint could not be started on port {}: {}", port, e.getMessage(), e);
+        }
+    }
+
+    private static GbmRateEngine createGbmEngine(List<Rate> initialRates, int spikeInterval, BigDecimal spikePercentage,
+                                                 double volatility, double drift, double correlation, double timeScale,
+                                                 String correlationMatrixPath, boolean preferVectorApi) {
+        try {
+            CorrelationMatrix matrix = correlationMatrixPath.isEmpty()
+                    ? null
+                    : MAPPER.readValue(new File(correlationMatrixPath), CorrelationMatrix.class);
+            return new GbmRateEngine(
+                    initialRates, spikeInterval, spikePercentage, volatility, drift, correlation, timeScale, matrix, preferVectorApi
+            );
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Application start failed. GBM engine could not be created: {}", e.getMessage(), e);
+            throw new RuntimeException("GBM engine could not be created.", e);
+        }
+    }
+
+    private static ReplayRateEngine openReplayEngine(Path journal, double speed) {
+        try {
+            ReplayRateEngine engine = new ReplayRateEngine(journal, speed);
+            logger.info("Replay mode: playing back {} pairs from journal {} at {}.",
+                    engine.size(), journal, speed == 0 ? "maximum speed" : speed + "x speed");
+            return engine;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Application start failed. Tick journal {} could not be opened: {}", journal, e.getMessage(), e);
+            throw new RuntimeException("Tick journal could not be opened for replay.", e);
+        }
+    }
+
+    private static MulticastPublisher openMulticastPublisher(String group, int port, String networkInterface, int ttl,
+                                                             int maxPacketBytes, int retainedPackets, int heartbeatIntervalMillis,
+                                                             CurrencyPairRegistry currencyPairs, ServerMetrics metrics) {
+        try {
+            return MulticastPublisher.open(
+                    group, port, networkInterface, ttl, maxPacketBytes, retainedPackets, heartbeatIntervalMillis, currencyPairs, metrics
+            );
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Application start failed. Multicast feed {}:{} could not be opened: {}", group, port, e.getMessage(), e);
+            throw new RuntimeException("Multicast feed could not be opened.", e);
+        }
+    }
+
+    private static TickJournalWriter createTickJournal(Path directory, List<String> currencyPairs) {
+        try {
+            return TickJournalWriter.create(directory, currencyPairs, RateSimulationEngine.PRICE_SCALE);
+        } catch (IOException e) {
+            logger.error("Application start failed. Tick journal could not be created in {}: {}", directory, e.getMessage(), e);
+            throw new RuntimeException("Tick journal could not be created.", e);
+        }
+    }
+
+    private static TickRingWriter createTickRing(Path file, int capacity, List<String> currencyPairs) {
+        try {
+            return TickRingWriter.create(file, capacity, currencyPairs, RateSimulationEngine.PRICE_SCALE);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Application start failed. Tick ring {} could not be created: {}", file, e.getMessage(), e);
+            throw new RuntimeException("Tick ring could not be created.", e);
+        }
     }
 
 
@@ -165,7 +447,12 @@ public class TcpDataProvider {
 
     private static void logStartupInfo(int serverPort, int publishFrequency, List<String> currencyPairs,
                                        Map<String, String> authRepository, List<Rate> initialRates,
-                                       int spikeInterval, BigDecimal spikePercentage, BigDecimal minRateChange, BigDecimal maxRateChange) {
+                                       int spikeInterval, BigDecimal spikePercentage, BigDecimal minRateChange, BigDecimal maxRateChange,
+                                       int clientMaxPendingBytes, OverflowPolicy clientOverflowPolicy,
+                                       DeliveryMode clientDeliveryMode, ServerMode serverMode, int workerThreads,
+                                       SimulationEngineType simulationEngine,
+                                       int clientHeartbeatInterval, int clientIdleTimeout,
+                                       boolean clientSnapshotOnSubscribe, List<TickSchedule> tickSchedules) {
 
         logger.info("============================================================");
         logger.info("             TCP FX DATA PROVIDER - SERVER STARTING         ");
@@ -174,26 +461,56 @@ public class TcpDataProvider {
 
         logger.info(">> Server Configuration");
         logger.info(" - Listening Port           : {}", serverPort);
+        logger.info(" - Server Mode              : {}", serverMode);
+        logger.info(" - {} : {}", serverMode == ServerMode.NIO ? "Worker Reactors         " : "Subscription Shards     ", workerThreads);
         logger.info(" - Broadcast Frequency (ms) : {}", publishFrequency);
+        logger.info(" - Client Buffer (bytes)    : {}", clientMaxPendingBytes);
+        logger.info(" - Client Overflow Policy   : {}", clientOverflowPolicy);
+        logger.info(" - Client Delivery Mode     : {}", clientDeliveryMode);
+        logger.info(" - Heartbeat Interval (s)   : {}", clientHeartbeatInterval);
+        logger.info(" - Idle Timeout (s)         : {}", clientIdleTimeout);
+        logger.info(" - Snapshot On Subscribe    : {}", clientSnapshotOnSubscribe);
+        if (clientIdleTimeout > 0 && clientHeartbeatInterval >= clientIdleTimeout) {
+            logger.warn("Heartbeat interval is not shorter than the idle timeout. Clients will be closed before they are pinged.");
+        }
 
         logger.info(">> Currency Pairs Supported [{}]:", currencyPairs.size());
-        currencyPairs.forEach(pair -> logger.info("   • {}", pair));
+        currencyPairs.stream().limit(STARTUP_LOG_PAIR_LIMIT).forEach(pair -> logger.info("   • {}", pair));
+        logOmittedPairs(currencyPairs.size());
 
         logger.info(">> Available Usernames [{}]:", authRepository.size());
         authRepository.keySet().forEach(username -> logger.info("   • {}", username));
 
         logger.info(">> Initial Rate Data [{}]:", initialRates.size());
-        initialRates.forEach(rate -> logger.info("   • {} | Bid: {} | Ask: {} | Limits: [{} - {}]",
+        initialRates.stream().limit(STARTUP_LOG_PAIR_LIMIT).forEach(rate -> logger.info("   • {} | Bid: {} | Ask: {} | Limits: [{} - {}]",
                 rate.getRateName(),
                 rate.getBid(),
                 rate.getAsk(),
                 rate.getMinLimit(),
                 rate.getMaxLimit()));
+        logOmittedPairs(initialRates.size());
+
+        if (tickSchedules == null) {
+            logger.info(">> Tick Schedule: all pairs every {} ms", publishFrequency);
+        } else {
+            logger.info(">> Tick Schedules (independent per pair):");
+            for (int i = 0; i < Math.min(currencyPairs.size(), STARTUP_LOG_PAIR_LIMIT); i++) {
+                logger.info("   • {} | {}", currencyPairs.get(i), tickSchedules.get(i));
+            }
+            logOmittedPairs(currencyPairs.size());
+        }
 
         logger.info(">> Volatility & Spike Configuration");
+        logger.info(" - Simulation Engine         : {}", simulationEngine);
         logger.info(" - Spike Interval            : {}", spikeInterval);
         logger.info(" - Spike Percentage          : {}", spikePercentage);
         logger.info(" - Min Rate Change           : {}", minRateChange);
         logger.info(" - Max Rate Change           : {}", maxRateChange);
     }
+
+    private static void logOmittedPairs(int pairCount) {
+        if (pairCount > STARTUP_LOG_PAIR_LIMIT) {
+            logger.info("   • ... and {} more", pairCount - STARTUP_LOG_PAIR_LIMIT);
+        }
+    }
 }
\ No newline at end of file
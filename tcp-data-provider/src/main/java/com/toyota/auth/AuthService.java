@@ -1,21 +1,21 @@
 package com.toyota.auth;
 
 import java.nio.channels.SocketChannel;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Manages user authentication and session state for {@link SocketChannel} based connections.
  * This service validates user credentials against a provided repository and tracks active,
  * authenticated sessions associated with specific communication channels.
+ * Sessions are kept in a {@link SessionRegistry}, so the service can be shared by all reactor threads.
  */
 public class AuthService {
 
-    private final Map<SocketChannel, String> connectedClients;
+    private final SessionRegistry sessionRegistry;
     private final Map<String, String> authRepository;
 
     public AuthService(Map<String, String> authRepository) {
-        this.connectedClients = new HashMap<>();
+        this.sessionRegistry = new SessionRegistry();
         this.authRepository = authRepository;
     }
 
@@ -33,24 +33,32 @@ public class AuthService {
 
     /**
      * Creates an active session for a successfully authenticated client channel.
-     * Associates the given SocketChannel with the authenticated username.
+     * Associates the given SocketChannel with the authenticated username. Claiming the username
+     * is atomic, so concurrent logins of the same user on different channels cannot both succeed.
      *
      * @param clientChannel The communication channel of the authenticated client.
      * @param username      The authenticated username to associate with this channel.
+     * @return The new session, or {@code null} if the username already has a session on another channel.
      */
-    public void createSession(SocketChannel clientChannel,String username){
-        connectedClients.put(clientChannel, username);
+    public Session createSession(SocketChannel clientChannel, String username) {
+        return sessionRegistry.register(clientChannel, username);
     }
 
     /**
      * Checks if a specific client channel currently has an active, authenticated session.
-     * Verifies if the channel exists as a key in the active sessions map.
      *
      * @param clientChannel The client channel to check.
      * @return {@code true} if this specific channel has an active session, {@code false} otherwise.
      */
     public boolean isClientAuthenticated(SocketChannel clientChannel) {
-        return connectedClients.containsKey(clientChannel);
+        return sessionRegistry.get(clientChannel) != null;
+    }
+
+    /**
+     * @return The session of the channel, or {@code null} if the channel is not authenticated.
+     */
+    public Session getSession(SocketChannel clientChannel) {
+        return sessionRegistry.get(clientChannel);
     }
 
     /**
@@ -62,7 +70,7 @@ public class AuthService {
      * @return {@code true} if any active channel is associated with this username, {@code false} otherwise.
      */
     public boolean isClientHasASession(String username) {
-        return connectedClients.containsValue(username);
+        return sessionRegistry.hasSession(username);
     }
 
     /**
@@ -70,9 +78,14 @@ public class AuthService {
      * Should be called when a client disconnects or its session ends.
      *
      * @param clientChannel The client channel whose session should be terminated.
+     * @return The terminated session, or {@code null} if the channel was not authenticated.
      */
-    public void disconnect(SocketChannel clientChannel) {
-        connectedClients.remove(clientChannel);
+    public Session disconnect(SocketChannel clientChannel) {
+        return sessionRegistry.remove(clientChannel);
+    }
+
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
     }
 
 
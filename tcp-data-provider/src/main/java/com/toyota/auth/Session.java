@@ -0,0 +1,52 @@
+package com.toyota.auth;
+
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An authenticated session: the user logged in on a client channel, and metadata about it.
+ * <p>
+ * The counters are only incremented by the reactor thread that owns the channel, but may be
+ * read from any thread (e.g. for monitoring).
+ * </p>
+ */
+public class Session {
+
+    private final String username;
+    private final SocketChannel channel;
+    private final Instant connectedAt;
+    private final AtomicLong commandCount;
+
+    public Session(String username, SocketChannel channel) {
+        this.username = username;
+        this.channel = channel;
+        this.connectedAt = Instant.now();
+        this.commandCount = new AtomicLong();
+    }
+
+
+    /**
+     * Counts a command received from the client after login.
+     */
+    public void recordCommand() {
+        commandCount.incrementAndGet();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public Instant getConnectedAt() {
+        return connectedAt;
+    }
+
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+}
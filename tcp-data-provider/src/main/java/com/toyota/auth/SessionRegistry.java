@@ -0,0 +1,85 @@
+package com.toyota.auth;
+
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent, bidirectional index of the active {@link Session}s: channel -> session and
+ * username -> session.
+ * <p>
+ * Both lookups are O(1), so checking whether a user is already logged in no longer scans all
+ * sessions. A login claims the username with a single {@link ConcurrentHashMap#putIfAbsent}, so
+ * two reactor threads can never create two sessions for the same user, even when the same
+ * credentials arrive on two connections at the same moment.
+ * </p>
+ * <p>
+ * All methods are safe to call from any thread.
+ * </p>
+ */
+public class SessionRegistry {
+
+    private final Map<SocketChannel, Session> sessionsByChannel;
+    private final Map<String, Session> sessionsByUsername;
+
+    public SessionRegistry() {
+        this.sessionsByChannel = new ConcurrentHashMap<>();
+        this.sessionsByUsername = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Atomically creates a session for the user on the given channel.
+     *
+     * @return The new session, or {@code null} if the user already has a session on another channel.
+     */
+    public Session register(SocketChannel channel, String username) {
+        Session session = new Session(username, channel);
+        if (sessionsByUsername.putIfAbsent(username, session) != null) {
+            return null;
+        }
+        sessionsByChannel.put(channel, session);
+        return session;
+    }
+
+    /**
+     * @return The session of the channel, or {@code null} if the channel is not authenticated.
+     */
+    public Session get(SocketChannel channel) {
+        return sessionsByChannel.get(channel);
+    }
+
+    /**
+     * @return {@code true} if the user is logged in on any channel.
+     */
+    public boolean hasSession(String username) {
+        return sessionsByUsername.containsKey(username);
+    }
+
+    /**
+     * Removes the session of the channel and releases its username.
+     *
+     * @return The removed session, or {@code null} if the channel had none.
+     */
+    public Session remove(SocketChannel channel) {
+        Session session = sessionsByChannel.remove(channel);
+        if (session != null) {
+            sessionsByUsername.remove(session.getUsername(), session);
+        }
+        return session;
+    }
+
+    /**
+     * @return A live, unmodifiable view of the active sessions.
+     */
+    public Collection<Session> sessions() {
+        return Collections.unmodifiableCollection(sessionsByChannel.values());
+    }
+
+    public int size() {
+        return sessionsByChannel.size();
+    }
+
+}
@@ -1,64 +1,163 @@
 package com.toyota.broadcast;
 
-import com.toyota.entity.Rate;
+import com.toyota.journal.TickJournalWriter;
+import com.toyota.metrics.ServerMetrics;
+import com.toyota.ring.TickRingWriter;
+import com.toyota.server.BinaryFrame;
+import com.toyota.server.ClientConnection;
+import com.toyota.server.SnapshotProvider;
+import com.toyota.server.SubscriptionIndex;
+import com.toyota.simulation.RateSimulationEngine;
+import com.toyota.simulation.ReplayRateEngine;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
-import java.time.Instant;
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 /**
  * Manages the periodic broadcasting of simulated Forex (FX) rate updates to subscribed clients.
- * It simulates rate fluctuations, including occasional spikes, based on configured parameters
- * and sends formatted messages over {@link SocketChannel} connections.
+ * Rate fluctuations, including occasional spikes, are simulated by the configured
+ * {@link RateSimulationEngine}. The publisher queues the encoded messages on the subscribed
+ * {@link ClientConnection}s of every reactor's subscription view. The actual socket writes are performed by the reactors' selector threads,
+ * so a slow client never blocks a broadcast.
+ * <p>
+ * Each tick is encoded exactly once into a shared read-only buffer. Subscribers only receive
+ * {@link ByteBuffer#duplicate()} views of it, and every client is asked to flush once per publish
+ * cycle, after all of its pairs were queued, so its updates leave in a single gathering write.
+ * </p>
+ * <p>
+ * Clients that negotiated the binary protocol receive {@link BinaryFrame} ticks instead of text lines.
+ * The pair id of a tick is the pair's index in the engine, and every pair carries its own sequence number.
+ * </p>
+ * <p>
+ * Ticks of pairs a client subscribed to with an update interval go through
+ * {@link ClientConnection#enqueueThrottledTick(int, ByteBuffer, long)}. A tick held back by the throttle
+ * is released by a task on the publisher thread at the end of the interval, so the client also gets the
+ * latest price of a pair that stopped ticking.
+ * </p>
+ * <p>
+ * As a {@link SnapshotProvider} the publisher sends the current state of newly subscribed pairs.
+ * Snapshot requests run as tasks on the publisher's own thread between two publish cycles, so the
+ * engine is never accessed concurrently and a snapshot is never older than a tick already queued.
+ * </p>
+ * <p>
+ * By default all pairs tick together once per publish frequency. When per-pair {@link TickSchedule}s
+ * are given, every pair ticks on its own fixed interval or Poisson arrivals instead. The next due time
+ * of each pair is kept in a {@link TickQueue}, and a single timer task publishes all pairs that are due
+ * and re-arms itself for the earliest next one. Each of these ticks counts as one engine cycle.
+ * </p>
+ * <p>
+ * With a {@link TickJournalWriter} every published tick is appended to a journal. With a
+ * {@link ReplayRateEngine} the publisher plays a journal back at its recorded pace (or a multiple of it)
+ * instead of running a schedule.
+ * </p>
+ * <p>
+ * With a {@link MulticastPublisher} every tick is also sent once to a multicast group, whatever the
+ * TCP subscriptions are. Its datagrams are sent with the flush requests at the end of each publish
+ * loop, and its heartbeats run on the publisher thread too.
+ * </p>
+ * <p>
+ * With a {@link TickRingWriter} every tick is also written to a shared-memory ring file, where collectors
+ * on the same host pick it up without a socket. The ring's heartbeat is refreshed every second.
+ * </p>
+ * <p>
+ * Every run of the publish loop, from the first updated pair to the last flush request, is recorded in
+ * the {@link ServerMetrics} publish loop histogram. A lockstep cycle that takes longer than the publish
+ * frequency counts as an overrun.
+ * </p>
  */
-public class FxDataPublisher {
+public class FxDataPublisher implements SnapshotProvider {
 
-    private final BigDecimal MAXIMUM_RATE_CHANGE;
-    private final BigDecimal MINIMUM_RATE_CHANGE;
-
-    private final BigDecimal SPIKE_PERCENTAGE;
-    private final int SPIKE_INTERVAL;
-    private int spikeCounter = 0;
+    private static final Logger logger = LogManager.getLogger(FxDataPublisher.class);
+    private static final byte[] SNAPSHOT_PREFIX = "SNAPSHOT|".getBytes(StandardCharsets.US_ASCII);
+    private static final int REPLAY_BATCH_SIZE = 4096;
 
     private final int PUBLISH_FREQUENCY;
-    private final List<Rate> rates;
+    private final long PUBLISH_FREQUENCY_NANOS;
+    private final RateSimulationEngine engine;
     private final ScheduledExecutorService scheduler;
-    private final ConcurrentHashMap<String, Set<SocketChannel>> subscriptions;
+    private final List<ClientConnection> clientsToFlush;
+    private final long[] sequences;
+    private final List<SubscriptionIndex> subscriptionViews;
+    private final TickSchedule[] tickSchedules;     // NULL IF ALL PAIRS TICK TOGETHER.
+    private final TickQueue tickQueue;
+    private final MulticastPublisher multicast;     // NULL IF THERE IS NO MULTICAST FEED.
+    private final TickRingWriter ring;              // NULL IF THERE IS NO SHARED-MEMORY RING.
+    private final ServerMetrics metrics;
+    private TickJournalWriter journal;              // NULL IF TICKS ARE NOT RECORDED.
+    private long replayStartNanos;
 
-    private static final Logger logger = LogManager.getLogger(FxDataPublisher.class);
 
+    public FxDataPublisher(
+            List<SubscriptionIndex> subscriptionViews,
+            RateSimulationEngine engine,
+            int publishFrequency
+    ) {
+        this(subscriptionViews, engine, publishFrequency, null, null, null, null, new ServerMetrics());
+    }
 
+    /**
+     * @param tickSchedules One schedule per pair, in engine index order, or {@code null} to let all
+     *                      pairs tick together once per publish frequency.
+     * @param journal       Records every published tick, or {@code null}.
+     * @param multicast     Sends every published tick to a multicast group, or {@code null}.
+     * @param ring          Writes every published tick to a shared-memory ring file, or {@code null}.
+     * @param metrics       Receives the published ticks and publish loop durations.
+     */
     public FxDataPublisher(
-            ConcurrentHashMap<String, Set<SocketChannel>> subscriptions,
-            List<Rate> initial_rates,
+            List<SubscriptionIndex> subscriptionViews,
+            RateSimulationEngine engine,
             int publishFrequency,
-            int spikeInterval,
-            BigDecimal spikePercentage,
-            BigDecimal minimumRateChange,
-            BigDecimal maximumRateChange
+            List<TickSchedule> tickSchedules,
+            TickJournalWriter journal,
+            MulticastPublisher multicast,
+            TickRingWriter ring,
+            ServerMetrics metrics
     ) {
+        if (tickSchedules != null && tickSchedules.size() != engine.size()) {
+            throw new IllegalArgumentException("Expected " + engine.size() + " tick schedules, got " + tickSchedules.size());
+        }
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.subscriptions = subscriptions;
-        this.rates = initial_rates;
+        this.clientsToFlush = new ArrayList<>();
+        this.subscriptionViews = subscriptionViews;
+        this.engine = engine;
+        this.sequences = new long[engine.size()];
         this.PUBLISH_FREQUENCY = publishFrequency;
-        this.SPIKE_INTERVAL = spikeInterval;
-        this.SPIKE_PERCENTAGE = spikePercentage;
-        this.MINIMUM_RATE_CHANGE = minimumRateChange;
-        this.MAXIMUM_RATE_CHANGE = maximumRateChange;
+        this.PUBLISH_FREQUENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(publishFrequency);
+        this.tickSchedules = tickSchedules == null ? null : tickSchedules.toArray(new TickSchedule[0]);
+        this.tickQueue = tickSchedules == null ? null : new TickQueue(engine.size());
+        this.journal = journal;
+        this.multicast = multicast;
+        this.ring = ring;
+        this.metrics = metrics;
     }
 
     public void startBroadcast() {
+        if (multicast != null) {
+            long heartbeatCheck = Math.max(1, multicast.getHeartbeatIntervalMillis() / 4);
+            scheduler.scheduleAtFixedRate(multicast::sendHeartbeatIfIdle, heartbeatCheck, heartbeatCheck, TimeUnit.MILLISECONDS);
+        }
+        if (ring != null) {
+            scheduler.scheduleAtFixedRate(ring::heartbeat, 0, 1, TimeUnit.SECONDS);
+        }
+        if (engine instanceof ReplayRateEngine replayEngine) {
+            scheduler.execute(() -> startReplay(replayEngine));
+            return;
+        }
+        if (tickSchedules != null) {
+            scheduler.execute(this::startScheduledTicks);
+            return;
+        }
         scheduler.scheduleWithFixedDelay(
                 this::publishRates,
                 1, // Initial delay
@@ -67,105 +166,270 @@ public class FxDataPublisher {
         );
     }
 
-    private void publishRates() {
-        spikeCounter++;
-
-        for (Rate rate : rates) {
-            updateRate(rate);
-
-            String message = formatRateMessage(rate);
-
-            Set<SocketChannel> clients = subscriptions.get(rate.getRateName());
-
-            if (clients != null && !clients.isEmpty()) {
-                for (SocketChannel client : clients) {
-                    sendToClient(client, message);
-                }
+    /**
+     * Closes the tick journal on the publisher thread, so no tick is appended while the file is cut
+     * to its final length. Waits at most {@code timeoutMillis}.
+     */
+    public void stopRecording(long timeoutMillis) {
+        Future<?> closed = scheduler.submit(() -> {
+            if (journal == null) {
+                return;
             }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.error("Tick journal {} could not be closed: {}", journal.getPath(), e.getMessage(), e);
+            }
+            journal = null;
+        });
+        try {
+            closed.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Tick journal was not closed in time: {}", e.getMessage());
         }
     }
 
-    private void updateRate(Rate rate) {
-
-        BigDecimal changePercentage = determineChangePercentage();
-
-        BigDecimal spread = rate
-                .getAsk()
-                .subtract(rate.getBid());  // SPREAD IS CONSTANT.
+    @Override
+    public void requestSnapshot(ClientConnection connection, BitSet pairIds) {
+        scheduler.execute(() -> sendSnapshots(connection, pairIds));
+    }
 
-        BigDecimal newBid;
-        BigDecimal newAsk;
+    /**
+     * Publishes every pair once. Must not throw: an exception would cancel the fixed-delay schedule.
+     */
+    private void publishRates() {
+        long start = System.nanoTime();
+        try {
+            engine.nextCycle();
 
-        newBid = rate
-                .getBid()
-                .multiply(BigDecimal.ONE.add(changePercentage));
+            for (int index = 0; index < engine.size(); index++) {
+                publishRate(index);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected exception while publishing rates: {}", e.getMessage(), e);
+        } finally {
+            flushClients();
+            long duration = System.nanoTime() - start;
+            metrics.publishLoop(duration, duration > PUBLISH_FREQUENCY_NANOS);
+        }
+    }
 
-        newBid = applyRateBounds(
-                newBid,
-                rate.getMinLimit(),
-                rate.getMaxLimit()
-        );
+    private void startScheduledTicks() {
+        if (tickSchedules.length == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int index = 0; index < tickSchedules.length; index++) {
+            tickQueue.add(index, now + tickSchedules[index].initialDelayNanos());
+        }
+        publishDueRates();
+    }
 
-        newAsk = newBid.add(spread);
+    /**
+     * Publishes every pair whose tick is due, then schedules itself for the earliest next tick.
+     * Ticks missed by more than one interval (e.g. after a long pause) are skipped instead of replayed.
+     */
+    private void publishDueRates() {
+        long now = System.nanoTime();
+        try {
+            while (tickQueue.peekDue() - now <= 0) {
+                long due = tickQueue.peekDue();
+                int index = tickQueue.poll();
 
+                long delay = tickSchedules[index].nextDelayNanos();
+                long next = due + delay;
+                tickQueue.add(index, next - now < 0 ? now + delay : next);       // REQUEUED FIRST, SO A FAILING PAIR KEEPS ITS SCHEDULE.
 
-        rate.setBid(newBid.setScale(16, RoundingMode.HALF_UP));
-        rate.setAsk(newAsk.setScale(16,RoundingMode.HALF_UP));
+                engine.nextCycle();
+                publishRate(index);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected exception while publishing scheduled ticks: {}", e.getMessage(), e);
+        } finally {
+            flushClients();
+            metrics.publishLoop(System.nanoTime() - now, false);
+            scheduler.schedule(this::publishDueRates, tickQueue.peekDue() - now, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        rate.setTimestamp(Instant.now());
-        logger.trace("Rate {} updated. New Bid: {}, New Ask: {}", rate.getRateName(), rate.getBid(), rate.getAsk());
+    private void startReplay(ReplayRateEngine replayEngine) {
+        logger.info("Replaying tick journal {}.", replayEngine.isMaxSpeed() ? "as fast as possible" : "at its recorded pace");
+        replayStartNanos = System.nanoTime();
+        replayDueTicks(replayEngine);
     }
 
+    /**
+     * Publishes the journal's ticks that are due, at most {@value #REPLAY_BATCH_SIZE} at a time so
+     * snapshot requests still get their turn, then schedules itself for the next tick.
+     */
+    private void replayDueTicks(ReplayRateEngine replayEngine) {
+        long now = System.nanoTime();
+        try {
+            for (int count = 0; count < REPLAY_BATCH_SIZE && replayEngine.hasNextTick(); count++) {
+                if (replayStartNanos + replayEngine.nextTickOffsetNanos() - now > 0) {
+                    break;
+                }
+                publishRate(replayEngine.stageNextTick());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected exception while replaying ticks: {}", e.getMessage(), e);
+        } finally {
+            flushClients();
+            metrics.publishLoop(System.nanoTime() - now, false);
+        }
 
+        if (!replayEngine.hasNextTick()) {
+            long elapsed = System.nanoTime() - replayStartNanos;
+            logger.info("Replay finished: {} ticks in {} ms ({} ticks/s).",
+                    replayEngine.getReplayedTicks(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    elapsed > 0 ? replayEngine.getReplayedTicks() * TimeUnit.SECONDS.toNanos(1) / elapsed : 0);
+        } else if (replayEngine.isMaxSpeed()) {
+            scheduler.execute(() -> replayDueTicks(replayEngine));
+        } else {
+            long delay = replayStartNanos + replayEngine.nextTickOffsetNanos() - System.nanoTime();
+            scheduler.schedule(() -> replayDueTicks(replayEngine), delay, TimeUnit.NANOSECONDS);
+        }
+    }
 
-    private BigDecimal determineChangePercentage(){
+    private void publishRate(int index) {
+        engine.updateRate(index);
+        sequences[index]++;
+        metrics.tickPublished();
+        if (journal != null) {
+            record(index);
+        }
+        if (multicast != null) {
+            multicast.publishTick(
+                    index,
+                    sequences[index],
+                    RateSimulationEngine.PRICE_SCALE,
+                    engine.getScaledBid(index),
+                    engine.getScaledAsk(index),
+                    engine.getTimestampNanos(index)
+            );
+        }
+        if (ring != null) {
+            ring.publish(
+                    index,
+                    sequences[index],
+                    engine.getScaledBid(index),
+                    engine.getScaledAsk(index),
+                    engine.getTimestampNanos(index)
+            );
+        }
 
-        BigDecimal changePercentage;
+        ByteBuffer textMessage = null;      // EACH FORMAT IS ENCODED LAZILY, ONLY IF SOMEONE NEEDS IT.
+        ByteBuffer binaryMessage = null;
+
+        for (SubscriptionIndex subscriptions : subscriptionViews) {
+            ClientConnection[] clients = subscriptions.subscribers(index);      // ENGINE INDEX IS THE PAIR ID.
+
+            if (clients.length > 0) {
+                for (ClientConnection client : clients) {
+                    ByteBuffer message;
+                    if (client.isBinaryProtocol()) {
+                        if (binaryMessage == null) {
+                            binaryMessage = encodeBinaryTick(index);
+                        }
+                        message = binaryMessage;
+                    } else {
+                        if (textMessage == null) {
+                            textMessage = engine.encodeRate(index);
+                        }
+                        message = textMessage;
+                    }
+                    if (client.isThrottled(index)) {
+                        enqueueThrottledTick(client, index, message.duplicate());
+                    } else if (client.enqueueTick(index, message.duplicate())) {
+                        clientsToFlush.add(client);
+                    }
+                }
+            }
+        }
+    }
 
-        if (spikeCounter % SPIKE_INTERVAL == 0) {
-            changePercentage = SPIKE_PERCENTAGE;
-            logger.debug("Spike triggered! Applying spike percentage: {}", changePercentage);
-        } else {
-            changePercentage = MAXIMUM_RATE_CHANGE
-                    .subtract(MINIMUM_RATE_CHANGE)
-                    .multiply(BigDecimal.valueOf(Math.random()))
-                    .add(MINIMUM_RATE_CHANGE);
+    private void enqueueThrottledTick(ClientConnection client, int index, ByteBuffer tick) {
+        long result = client.enqueueThrottledTick(index, tick, System.nanoTime());
+        if (result == ClientConnection.THROTTLE_FLUSH_REQUIRED) {
+            clientsToFlush.add(client);
+        } else if (result > 0) {
+            scheduler.schedule(() -> releaseThrottledTick(client, index), result, TimeUnit.NANOSECONDS);
         }
+    }
 
-        if(Math.random() < 0.5){
-            changePercentage = changePercentage.negate();
+    private void releaseThrottledTick(ClientConnection client, int index) {
+        if (client.releaseThrottledTick(index, System.nanoTime())) {
+            client.requestFlush();
         }
+    }
 
-        return changePercentage;
+    private void record(int index) {
+        try {
+            journal.append(
+                    index,
+                    sequences[index],
+                    engine.getScaledBid(index),
+                    engine.getScaledAsk(index),
+                    engine.getTimestampNanos(index)
+            );
+        } catch (IOException e) {
+            logger.error("Tick journal {} could not be written, recording stopped: {}", journal.getPath(), e.getMessage(), e);
+            journal = null;          // BROADCASTING GOES ON WITHOUT THE JOURNAL.
+        }
     }
 
+    private void flushClients() {
+        for (ClientConnection client : clientsToFlush) {
+            client.requestFlush();
+        }
+        clientsToFlush.clear();
+        if (multicast != null) {
+            multicast.flush();
+        }
+    }
 
-    private BigDecimal applyRateBounds(BigDecimal bidValue, BigDecimal minLimit, BigDecimal maxLimit) {
-        if (bidValue.compareTo(minLimit) < 0) {
-            return minLimit;
-        } else if (bidValue.compareTo(maxLimit) > 0) {
-            return maxLimit;
+    private void sendSnapshots(ClientConnection connection, BitSet pairIds) {
+        boolean flushRequired = false;
+        for (int index = pairIds.nextSetBit(0); index >= 0; index = pairIds.nextSetBit(index + 1)) {
+            ByteBuffer snapshot = connection.isBinaryProtocol()
+                    ? encodeBinarySnapshot(index)
+                    : encodeTextSnapshot(index);
+            flushRequired |= connection.enqueue(snapshot);
+        }
+        if (flushRequired) {
+            connection.requestFlush();
         }
-        return bidValue;
     }
 
-    private String formatRateMessage(Rate rate) {
-        return String.format(
-                "%s|B:%s|A:%s|T:%s",
-                rate.getRateName(),
-                rate.getBid(),
-                rate.getAsk(),
-                rate.getTimestamp()
+    private ByteBuffer encodeTextSnapshot(int index) {
+        ByteBuffer line = engine.encodeRate(index);
+        ByteBuffer snapshot = ByteBuffer.allocate(SNAPSHOT_PREFIX.length + line.remaining());
+        return snapshot.put(SNAPSHOT_PREFIX).put(line).flip();
+    }
+
+    private ByteBuffer encodeBinarySnapshot(int index) {
+        return BinaryFrame.snapshot(
+                index,
+                sequences[index],
+                RateSimulationEngine.PRICE_SCALE,
+                engine.getScaledBid(index),
+                engine.getScaledAsk(index),
+                engine.getTimestampNanos(index)
         );
     }
 
-    private void sendToClient(SocketChannel client, String message) {
-        try {
-            ByteBuffer buffer = ByteBuffer.wrap((message + "\r\n").getBytes());
-            client.write(buffer);
-        } catch (IOException e) {
-            logger.error("Failed to send message to client: {}", message, e);
-        }
+    private ByteBuffer encodeBinaryTick(int index) {
+        return BinaryFrame.tick(
+                index,
+                sequences[index],
+                RateSimulationEngine.PRICE_SCALE,
+                engine.getScaledBid(index),
+                engine.getScaledAsk(index),
+                engine.getTimestampNanos(index)
+        );
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,305 @@
+package com.toyota.broadcast;
+
+import com.toyota.metrics.ServerMetrics;
+import com.toyota.server.BinaryFrame;
+import com.toyota.server.CurrencyPairRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends every published tick once to a UDP multicast group, so co-located collectors share a single
+ * stream instead of each getting its own TCP copy. Subscriptions do not apply: the group receives all
+ * pairs and receivers filter locally.
+ * <p>
+ * Ticks are batched into datagrams of at most {@code maxPacketBytes}. Each datagram starts with a
+ * header (big endian) followed by {@link BinaryFrame} tick frames:
+ * </p>
+ * <ul>
+ *     <li>int feed id: changes on every server start, so receivers notice a restarted feed.</li>
+ *     <li>long packet sequence: counts the datagrams of the feed, starting at 1.</li>
+ *     <li>unsigned short frame count: the number of frames that follow.</li>
+ * </ul>
+ * <p>
+ * A datagram without frames is a heartbeat. It is sent when nothing else was sent for the heartbeat
+ * interval and repeats the latest packet sequence, so receivers also notice a lost last packet.
+ * </p>
+ * <p>
+ * The latest {@code retainedPackets} datagrams and the latest tick of every pair are kept for the
+ * {@link MulticastRecoveryServer}, which resends lost packets or a snapshot over TCP. Only the publisher
+ * thread sends; the retained state is guarded by this object's monitor, which recovery threads take
+ * briefly while copying.
+ * </p>
+ */
+public class MulticastPublisher implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(MulticastPublisher.class);
+
+    public static final int HEADER_SIZE = 4 + 8 + 2;
+    private static final int FRAME_COUNT_OFFSET = 12;
+    private static final int FRAME_TYPE_OFFSET = 2;
+    private static final int FRAME_PAIR_ID_OFFSET = 3;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress group;
+    private final CurrencyPairRegistry currencyPairs;
+    private final ServerMetrics metrics;
+    private final int feedId;
+    private final long heartbeatIntervalNanos;
+
+    private final ByteBuffer packet;
+    private int frameCount;
+    private long lastSendNanos;
+
+    // GUARDED BY this. WRITTEN BY THE PUBLISHER THREAD, READ BY RECOVERY THREADS.
+    private final byte[][] retainedPackets;         // PACKET SEQUENCE % CAPACITY -> DATAGRAM BYTES.
+    private final int[] retainedLengths;
+    private final byte[][] latestTicks;             // PAIR ID -> LATEST TICK FRAME, NULL BEFORE THE FIRST TICK.
+    private long packetSequence;                    // LAST SENT PACKET.
+
+
+    private MulticastPublisher(DatagramChannel channel,
+                               InetSocketAddress group,
+                               int maxPacketBytes,
+                               int retainedPackets,
+                               int heartbeatIntervalMillis,
+                               int feedId,
+                               CurrencyPairRegistry currencyPairs,
+                               ServerMetrics metrics) {
+        this.channel = channel;
+        this.group = group;
+        this.currencyPairs = currencyPairs;
+        this.metrics = metrics;
+        this.feedId = feedId;
+        this.heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMillis);
+        this.packet = ByteBuffer.allocate(maxPacketBytes);
+        this.retainedPackets = new byte[retainedPackets][];
+        this.retainedLengths = new int[retainedPackets];
+        this.latestTicks = new byte[currencyPairs.size()][];
+        resetPacket();
+    }
+
+    /**
+     * @param groupAddress     An IPv4 multicast address, e.g. {@code 239.1.1.1}.
+     * @param networkInterface The name of the interface to send on (e.g. {@code eth0}, {@code lo}), or
+     *                         empty for the system default.
+     * @param ttl              Router hops the datagrams may cross. 1 keeps them on the local network.
+     */
+    public static MulticastPublisher open(String groupAddress,
+                                          int port,
+                                          String networkInterface,
+                                          int ttl,
+                                          int maxPacketBytes,
+                                          int retainedPackets,
+                                          int heartbeatIntervalMillis,
+                                          CurrencyPairRegistry currencyPairs,
+                                          ServerMetrics metrics) throws IOException {
+        return open(groupAddress, port, networkInterface, ttl, maxPacketBytes, retainedPackets, heartbeatIntervalMillis,
+                (int) TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()), currencyPairs, metrics);
+    }
+
+    /**
+     * Same as the public {@code open}, with a given feed id instead of one derived from the clock.
+     */
+    static MulticastPublisher open(String groupAddress,
+                                   int port,
+                                   String networkInterface,
+                                   int ttl,
+                                   int maxPacketBytes,
+                                   int retainedPackets,
+                                   int heartbeatIntervalMillis,
+                                   int feedId,
+                                   CurrencyPairRegistry currencyPairs,
+                                   ServerMetrics metrics) throws IOException {
+        InetAddress address = InetAddress.getByName(groupAddress);
+        if (!address.isMulticastAddress()) {
+            throw new IllegalArgumentException(groupAddress + " is not a multicast address.");
+        }
+        if (maxPacketBytes < HEADER_SIZE + BinaryFrame.TICK_FRAME_LENGTH || maxPacketBytes > 65507) {
+            throw new IllegalArgumentException("Multicast packets must hold between one tick and 65507 bytes, got " + maxPacketBytes);
+        }
+        if (retainedPackets < 1) {
+            throw new IllegalArgumentException("At least one packet must be retained for retransmission.");
+        }
+
+        DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, ttl);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);      // RECEIVERS ON THIS HOST, E.G. IN TESTS.
+            if (!networkInterface.isEmpty()) {
+                NetworkInterface sendInterface = NetworkInterface.getByName(networkInterface);
+                if (sendInterface == null) {
+                    throw new IllegalArgumentException("Network interface not found: " + networkInterface);
+                }
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, sendInterface);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        return new MulticastPublisher(
+                channel, new InetSocketAddress(address, port), maxPacketBytes, retainedPackets,
+                heartbeatIntervalMillis, feedId, currencyPairs, metrics
+        );
+    }
+
+
+    /**
+     * Adds a tick to the current datagram, sending the datagram first if the tick does not fit.
+     * Publisher thread only.
+     */
+    public void publishTick(int pairId, long sequence, int priceScale, long bid, long ask, long epochNanos) {
+        if (packet.remaining() < BinaryFrame.TICK_FRAME_LENGTH) {
+            send();
+        }
+        BinaryFrame.putTick(packet, pairId, sequence, priceScale, bid, ask, epochNanos);
+        frameCount++;
+    }
+
+    /**
+     * Sends the current datagram if it holds any tick. Called at the end of every publish loop.
+     * Publisher thread only.
+     */
+    public void flush() {
+        if (frameCount > 0) {
+            send();
+        }
+    }
+
+    /**
+     * Sends a heartbeat if nothing was sent for the heartbeat interval. Publisher thread only.
+     */
+    public void sendHeartbeatIfIdle() {
+        if (frameCount > 0 || System.nanoTime() - lastSendNanos < heartbeatIntervalNanos) {
+            return;
+        }
+        long lastSequence;
+        synchronized (this) {
+            lastSequence = packetSequence;
+        }
+        packet.putLong(4, lastSequence).flip();
+        transmit();
+    }
+
+    public int getFeedId() {
+        return feedId;
+    }
+
+    public long getHeartbeatIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(heartbeatIntervalNanos);
+    }
+
+    public InetSocketAddress getGroup() {
+        return group;
+    }
+
+
+    /**
+     * Copies the latest tick of every pair, as {@link BinaryFrame#TYPE_SNAPSHOT} frames preceded by the
+     * {@link BinaryFrame#TYPE_PAIR} frames of all pairs, into {@code frames}.
+     *
+     * @return The sequence of the last packet whose ticks the snapshot contains.
+     *         Receivers continue with the packet after it.
+     */
+    public synchronized long snapshot(List<ByteBuffer> frames) {
+        for (int pairId = 0; pairId < currencyPairs.size(); pairId++) {
+            frames.add(BinaryFrame.pairDefinition(pairId, currencyPairs.nameOf(pairId)));
+        }
+        for (byte[] tick : latestTicks) {
+            if (tick != null) {
+                byte[] snapshot = tick.clone();
+                snapshot[FRAME_TYPE_OFFSET] = BinaryFrame.TYPE_SNAPSHOT;
+                frames.add(ByteBuffer.wrap(snapshot));
+            }
+        }
+        return packetSequence;
+    }
+
+    /**
+     * Copies the tick frames of the packets {@code from} to {@code to} (inclusive) into {@code frames}.
+     *
+     * @return {@code false} if any of the packets is not retained anymore (or was never sent), in which
+     *         case nothing is copied and the receiver needs a snapshot.
+     */
+    public synchronized boolean retransmit(long from, long to, List<ByteBuffer> frames) {
+        if (from < 1 || from > to || to > packetSequence || packetSequence - from >= retainedPackets.length) {
+            return false;
+        }
+        for (long sequence = from; sequence <= to; sequence++) {
+            int slot = (int) (sequence % retainedPackets.length);
+            frames.add(ByteBuffer.wrap(Arrays.copyOfRange(retainedPackets[slot], HEADER_SIZE, retainedLengths[slot])));     // THE SLOT IS REUSED LATER.
+        }
+        return true;
+    }
+
+    /**
+     * Closes the channel. Publisher thread only, or after the publisher stopped.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    private void send() {
+        synchronized (this) {
+            long sequence = ++packetSequence;
+            packet.putLong(4, sequence)
+                    .putShort(FRAME_COUNT_OFFSET, (short) frameCount)
+                    .flip();
+            retain(sequence);               // RETAINED EVEN IF SENDING FAILS, SO RECEIVERS CAN RECOVER IT.
+        }
+        transmit();
+    }
+
+    private void transmit() {
+        int length = packet.remaining();
+        try {
+            channel.send(packet, group);
+            metrics.multicastPacketSent(length);
+        } catch (IOException e) {
+            logger.error("Multicast packet could not be sent to {}: {}", group, e.getMessage());
+        } finally {
+            lastSendNanos = System.nanoTime();
+            resetPacket();
+        }
+    }
+
+    private void retain(long sequence) {
+        int slot = (int) (sequence % retainedPackets.length);
+        int length = packet.limit();
+        if (retainedPackets[slot] == null || retainedPackets[slot].length < length) {
+            retainedPackets[slot] = new byte[packet.capacity()];
+        }
+        packet.get(0, retainedPackets[slot], 0, length);
+        retainedLengths[slot] = length;
+
+        for (int offset = HEADER_SIZE; offset < length; offset += BinaryFrame.TICK_FRAME_LENGTH) {
+            int pairId = packet.getInt(offset + FRAME_PAIR_ID_OFFSET);
+            if (latestTicks[pairId] == null) {
+                latestTicks[pairId] = new byte[BinaryFrame.TICK_FRAME_LENGTH];
+            }
+            packet.get(offset, latestTicks[pairId]);
+        }
+    }
+
+    private void resetPacket() {
+        packet.clear();
+        packet.putInt(feedId).putLong(0).putShort((short) 0);
+        frameCount = 0;
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.toyota.broadcast;
+
+import com.toyota.auth.AuthService;
+import com.toyota.entity.ServerResponse;
+import com.toyota.metrics.ServerMetrics;
+import com.toyota.server.BinaryFrame;
+import com.toyota.server.ClientCommand;
+import com.toyota.server.LineFrameDecoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The TCP side of the multicast feed. Receivers use it to fill gaps in the packet sequence of the
+ * {@link MulticastPublisher} and to get the current state of all pairs when they join or fall behind.
+ * <p>
+ * Commands are text lines, every response is a {@link BinaryFrame}:
+ * </p>
+ * <ul>
+ *     <li>{@code connect|user|pass}: checks the credentials with the {@link AuthService}. Recovery
+ *     connections are short-lived and do not open a session, so a collector can use them while its
+ *     user is logged in elsewhere.</li>
+ *     <li>{@code snapshot}: PAIR frames of all pairs, a SNAPSHOT frame with the latest tick of every pair,
+ *     then {@code SUCCESS|SNAPSHOT|feedId|packetSequence}. The receiver continues with the packet after it.</li>
+ *     <li>{@code retransmit|from|to}: the tick frames of the packets {@code from} to {@code to}, then
+ *     {@code SUCCESS|RETRANSMIT|from|to}, or {@code ERROR|Packets not available: from-to} if they are
+ *     no longer retained. At most the retained number of packets can be requested at once.</li>
+ *     <li>{@code disconnect}: closes the connection.</li>
+ * </ul>
+ * <p>
+ * Each connection is served by its own virtual thread with blocking I/O.
+ * </p>
+ */
+public class MulticastRecoveryServer {
+
+    private static final Logger logger = LogManager.getLogger(MulticastRecoveryServer.class);
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private final int port;
+    private final MulticastPublisher multicast;
+    private final AuthService authService;
+    private final ServerMetrics metrics;
+    private final ThreadFactory recoveryThreads;
+
+    public MulticastRecoveryServer(int port, MulticastPublisher multicast, AuthService authService, ServerMetrics metrics) {
+        this.port = port;
+        this.multicast = multicast;
+        this.authService = authService;
+        this.metrics = metrics;
+        this.recoveryThreads = Thread.ofVirtual().name("fx-recovery-", 0).factory();
+    }
+
+
+    /**
+     * Accepts recovery connections until the server socket fails.
+     */
+    public void startServer() {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            logger.info("Multicast recovery channel listening on port {}.", port);
+
+            while (serverChannel.isOpen()) {
+                SocketChannel clientChannel = serverChannel.accept();
+                recoveryThreads.newThread(() -> serveClient(clientChannel)).start();
+            }
+
+        } catch (IOException e) {
+            logger.error("IOException in the multicast recovery channel on port {}: {}", port, e.getMessage(), e);
+        }
+    }
+
+
+    private void serveClient(SocketChannel clientChannel) {
+        String clientAddress = getClientAddressSafe(clientChannel);
+        ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        LineFrameDecoder decoder = new LineFrameDecoder();
+        ClientCommand command = new ClientCommand();
+        boolean authenticated = false;
+
+        try (clientChannel) {
+            while (clientChannel.read(readBuffer.clear()) != -1) {
+                readBuffer.flip();
+
+                LineFrameDecoder.Result result;
+                while ((result = decoder.decode(readBuffer)) != LineFrameDecoder.Result.NEED_MORE_DATA) {
+                    if (result == LineFrameDecoder.Result.FRAME_TOO_LONG) {
+                        write(clientChannel, List.of(BinaryFrame.text(ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage())));
+                        continue;
+                    }
+                    command.parse(decoder.frame(), decoder.frameLength());
+                    if (command.isEmpty()) {
+                        continue;
+                    }
+                    if (command.type() == ClientCommand.Type.DISCONNECT) {
+                        return;
+                    }
+                    if (command.type() == ClientCommand.Type.CONNECT) {
+                        authenticated = command.fieldCount() == 3 && authService.authenticateUser(command.field(1), command.field(2));
+                        write(clientChannel, List.of(BinaryFrame.text(authenticated
+                                ? ServerResponse.SUCCESS_CONNECTED.getMessage()
+                                : ServerResponse.ERROR_INVALID_CREDENTIALS.getMessage())));
+                        continue;
+                    }
+                    if (!authenticated) {
+                        write(clientChannel, List.of(BinaryFrame.text(ServerResponse.ERROR_NOT_CONNECTED.getMessage())));
+                        continue;
+                    }
+                    handleRecoveryCommand(clientChannel, clientAddress, command);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("IOException on recovery connection {}: {}", clientAddress, e.getMessage());
+        }
+    }
+
+    private void handleRecoveryCommand(SocketChannel clientChannel, String clientAddress, ClientCommand command) throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>();
+
+        if (command.type() == ClientCommand.Type.SNAPSHOT && command.fieldCount() == 1) {
+            long packetSequence = multicast.snapshot(frames);
+            frames.add(BinaryFrame.text(ServerResponse.SUCCESS_SNAPSHOT.getMessage(
+                    String.valueOf(multicast.getFeedId()), String.valueOf(packetSequence)
+            )));
+            metrics.recoverySnapshotSent();
+            logger.info("Sent multicast snapshot up to packet {} to {}.", packetSequence, clientAddress);
+
+        } else if (command.type() == ClientCommand.Type.RETRANSMIT && command.fieldCount() == 3) {
+            String from = command.field(1);
+            String to = command.field(2);
+            try {
+                long first = Long.parseLong(from);
+                long last = Long.parseLong(to);
+                if (multicast.retransmit(first, last, frames)) {
+                    frames.add(BinaryFrame.text(ServerResponse.SUCCESS_RETRANSMITTED.getMessage(from, to)));
+                    metrics.packetsRetransmitted((int) (last - first + 1));
+                    logger.debug("Retransmitted multicast packets {}-{} to {}.", from, to, clientAddress);
+                } else {
+                    frames.add(BinaryFrame.text(ServerResponse.ERROR_PACKETS_NOT_AVAILABLE.getMessage(from, to)));
+                    logger.warn("Multicast packets {}-{} requested by {} are not available.", from, to, clientAddress);
+                }
+            } catch (NumberFormatException e) {
+                frames.add(BinaryFrame.text(ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage()));
+            }
+
+        } else {
+            frames.add(BinaryFrame.text(ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage()));
+        }
+
+        write(clientChannel, frames);
+    }
+
+    private void write(SocketChannel clientChannel, List<ByteBuffer> frames) throws IOException {
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            clientChannel.write(buffers);
+        }
+    }
+
+    private String getClientAddressSafe(SocketChannel clientChannel) {
+        try {
+            return String.valueOf(clientChannel.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown address";
+        }
+    }
+
+}
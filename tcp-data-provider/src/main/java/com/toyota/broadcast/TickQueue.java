@@ -0,0 +1,85 @@
+package com.toyota.broadcast;
+
+/**
+ * A binary min-heap of pair indexes ordered by their next due time.
+ * <p>
+ * Backed by primitive arrays, so scheduling the next tick of a pair does not allocate.
+ * Each pair is in the queue at most once. Not thread safe; only used by the publisher thread.
+ * </p>
+ */
+class TickQueue {
+
+    private final int[] heap;           // PAIR INDEXES.
+    private final long[] dueNanos;      // DUE TIME PER PAIR INDEX.
+    private int size;
+
+    TickQueue(int pairCount) {
+        this.heap = new int[pairCount];
+        this.dueNanos = new long[pairCount];
+    }
+
+
+    void add(int index, long due) {
+        dueNanos[index] = due;
+        heap[size] = index;
+        siftUp(size++);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The due time of the earliest pair. The queue must not be empty.
+     */
+    long peekDue() {
+        return dueNanos[heap[0]];
+    }
+
+    /**
+     * Removes the earliest pair.
+     *
+     * @return Its index.
+     */
+    int poll() {
+        int index = heap[0];
+        heap[0] = heap[--size];
+        if (size > 0) {
+            siftDown(0);
+        }
+        return index;
+    }
+
+
+    private void siftUp(int position) {
+        int index = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (dueNanos[heap[parent]] - dueNanos[index] <= 0) {        // OVERFLOW SAFE LIKE System.nanoTime() COMPARISONS.
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = index;
+    }
+
+    private void siftDown(int position) {
+        int index = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && dueNanos[heap[right]] - dueNanos[heap[child]] < 0) {
+                child = right;
+            }
+            if (dueNanos[index] - dueNanos[heap[child]] <= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+
+}
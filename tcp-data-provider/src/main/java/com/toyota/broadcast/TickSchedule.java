@@ -0,0 +1,70 @@
+package com.toyota.broadcast;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When a single currency pair ticks: either at a fixed interval or as a Poisson process,
+ * i.e. with exponentially distributed gaps around a mean arrival rate. Poisson pairs produce
+ * the bursty traffic of a real feed, while fixed intervals keep load tests reproducible.
+ */
+public final class TickSchedule {
+
+    private final long intervalNanos;       // FIXED INTERVAL, OR THE MEAN GAP OF A POISSON SCHEDULE.
+    private final boolean poisson;
+
+    private TickSchedule(long intervalNanos, boolean poisson) {
+        this.intervalNanos = intervalNanos;
+        this.poisson = poisson;
+    }
+
+
+    /**
+     * @param intervalMillis The time between two ticks in milliseconds.
+     */
+    public static TickSchedule fixedInterval(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Tick interval must be positive: " + intervalMillis);
+        }
+        return new TickSchedule(TimeUnit.MILLISECONDS.toNanos(intervalMillis), false);
+    }
+
+    /**
+     * @param ticksPerSecond The mean number of ticks per second.
+     */
+    public static TickSchedule poisson(double ticksPerSecond) {
+        if (!(ticksPerSecond > 0) || Double.isInfinite(ticksPerSecond)) {
+            throw new IllegalArgumentException("Ticks per second must be positive: " + ticksPerSecond);
+        }
+        return new TickSchedule(Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond)), true);
+    }
+
+    /**
+     * @return The delay until the next tick. Poisson gaps are drawn from an exponential distribution.
+     */
+    public long nextDelayNanos() {
+        if (!poisson) {
+            return intervalNanos;
+        }
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();        // (0, 1], SO THE LOG IS FINITE.
+        return Math.max(1, (long) (-Math.log(uniform) * intervalNanos));
+    }
+
+    /**
+     * @return The delay until the first tick. Fixed schedules start at a random phase within one
+     *         interval, so pairs with the same interval do not all tick at the same moment.
+     */
+    public long initialDelayNanos() {
+        return poisson
+                ? nextDelayNanos()
+                : ThreadLocalRandom.current().nextLong(intervalNanos);
+    }
+
+    @Override
+    public String toString() {
+        return poisson
+                ? String.format("poisson(%.3f/s)", TimeUnit.SECONDS.toNanos(1) / (double) intervalNanos)
+                : "every " + TimeUnit.NANOSECONDS.toMillis(intervalNanos) + " ms";
+    }
+
+}
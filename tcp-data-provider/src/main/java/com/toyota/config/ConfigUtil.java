@@ -60,6 +60,28 @@ public class ConfigUtil {
         }
     }
 
+    public boolean getBooleanValue(String key) {
+        String value = getStringValue(key).trim();
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(
+                String.format("Invalid boolean value for key '%s': '%s'", key, value));
+    }
+
+    public <E extends Enum<E>> E getEnumValue(String key, Class<E> enumType) {
+        String value = getStringValue(key);
+        try {
+            return Enum.valueOf(enumType, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid %s value for key '%s': '%s'", enumType.getSimpleName(), key, value), e);
+        }
+    }
+
     public BigDecimal getBigDecimalValue(String key) {
         String value = getStringValue(key);
         try {
@@ -0,0 +1,36 @@
+package com.toyota.config;
+
+import java.util.List;
+
+/**
+ * Contents of the correlation file of the {@code GBM} simulation engine ({@code gbm.correlation.matrix.path}):
+ * the listed pairs and their symmetric correlation matrix in the same order.
+ */
+public class CorrelationMatrix {
+    private List<String> pairs;
+    private double[][] matrix;
+
+    public CorrelationMatrix(List<String> pairs, double[][] matrix) {
+        this.pairs = pairs;
+        this.matrix = matrix;
+    }
+
+    public CorrelationMatrix() {
+    }
+
+    public List<String> getPairs() {
+        return pairs;
+    }
+
+    public void setPairs(List<String> pairs) {
+        this.pairs = pairs;
+    }
+
+    public double[][] getMatrix() {
+        return matrix;
+    }
+
+    public void setMatrix(double[][] matrix) {
+        this.matrix = matrix;
+    }
+}
@@ -8,6 +8,8 @@ public class RateInfo {
     private BigDecimal ask;
     private BigDecimal minLimit;
     private BigDecimal maxLimit;
+    private Long tickIntervalMs;            // OPTIONAL. FIXED TICK INTERVAL OF THIS PAIR.
+    private Double ticksPerSecond;          // OPTIONAL. POISSON ARRIVAL RATE OF THIS PAIR.
 
     public RateInfo(String rateName, BigDecimal maxLimit, BigDecimal minLimit, BigDecimal ask, BigDecimal bid) {
         this.rateName = rateName;
@@ -59,4 +61,20 @@ public class RateInfo {
     public void setMinLimit(BigDecimal minLimit) {
         this.minLimit = minLimit;
     }
+
+    public Long getTickIntervalMs() {
+        return tickIntervalMs;
+    }
+
+    public void setTickIntervalMs(Long tickIntervalMs) {
+        this.tickIntervalMs = tickIntervalMs;
+    }
+
+    public Double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public void setTicksPerSecond(Double ticksPerSecond) {
+        this.ticksPerSecond = ticksPerSecond;
+    }
 }
@@ -6,7 +6,7 @@ package com.toyota.entity;
  */
 public enum ServerResponse {
     ERROR_NOT_CONNECTED("ERROR|Not Authenticated"),
-    ERROR_INVALID_COMMAND("ERROR|Invalid command. Please enter one of these: connect,disconnect,subscribe,unsubscribe"),
+    ERROR_INVALID_COMMAND("ERROR|Invalid command. Please enter one of these: connect,disconnect,subscribe,unsubscribe,ping"),
     ERROR_INVALID_CREDENTIALS("ERROR|Invalid credentials"),
     ERROR_INVALID_CURRENCY_PAIR("ERROR|Invalid currency pair: %s"),
     ERROR_INVALID_MESSAGE_FORMAT("ERROR|Invalid message format"),
@@ -16,7 +16,15 @@ public enum ServerResponse {
     INFO_CLIENT_ALREADY_CONNECTED("INFO|User already connected"),
     SUCCESS_SUBSCRIBED("SUCCESS|Subscribed to currency pair: %s"),
     SUCCESS_UNSUBSCRIBED("SUCCESS|Unsubscribed from currency pair: %s"),
-    SUCCESS_CONNECTED("SUCCESS|CONNECTED");
+    SUCCESS_SUBSCRIBED_BATCH("SUCCESS|Subscribed to %s currency pairs: %s"),
+    SUCCESS_UNSUBSCRIBED_BATCH("SUCCESS|Unsubscribed from %s currency pairs: %s"),
+    SUCCESS_UPDATE_INTERVAL("SUCCESS|Update interval of %s set to %s ms"),
+    SUCCESS_CONNECTED("SUCCESS|CONNECTED"),
+    SUCCESS_SNAPSHOT("SUCCESS|SNAPSHOT|%s|%s"),
+    SUCCESS_RETRANSMITTED("SUCCESS|RETRANSMIT|%s|%s"),
+    ERROR_PACKETS_NOT_AVAILABLE("ERROR|Packets not available: %s-%s"),
+    PING("PING"),
+    PONG("PONG");
 
     private final String messageTemplate;
 
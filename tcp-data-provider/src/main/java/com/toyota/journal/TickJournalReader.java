@@ -0,0 +1,211 @@
+package com.toyota.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a journal written by {@link TickJournalWriter} sequentially through memory-mapped windows.
+ * <p>
+ * The reader is a flyweight: {@link #next()} moves to the next record and the getters return its
+ * fields, so reading a journal does not allocate per tick. Reading stops at the end of the file or
+ * at the first incomplete record, e.g. the tail of a journal whose process was killed.
+ * </p>
+ * <p>
+ * {@link #main(String[])} prints a summary of a journal:
+ * {@code java -cp tcp-data-provider.jar com.toyota.journal.TickJournalReader <file> [--dump]}
+ * </p>
+ */
+public class TickJournalReader implements AutoCloseable {
+
+    private static final long WINDOW_SIZE = TickJournalWriter.REGION_SIZE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int priceScale;
+    private final List<String> pairNames;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    private int pairId;
+    private long sequence;
+    private long scaledBid;
+    private long scaledAsk;
+    private long epochNanos;
+
+    public TickJournalReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+
+        try {
+            ByteBuffer header = map(0);
+            if (fileSize < 11 || header.getInt() != TickJournalWriter.MAGIC) {
+                throw new IOException("Not a tick journal: " + path);
+            }
+            short version = header.getShort();
+            if (version != TickJournalWriter.VERSION) {
+                throw new IOException("Unsupported tick journal version " + version + ": " + path);
+            }
+            this.priceScale = header.get();
+
+            int pairCount = header.getInt();
+            List<String> names = new ArrayList<>(pairCount);
+            for (int i = 0; i < pairCount; i++) {
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                names.add(new String(name, StandardCharsets.UTF_8));
+            }
+            this.pairNames = Collections.unmodifiableList(names);
+            this.position = header.position();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ioException ? ioException : new IOException("Corrupt tick journal: " + path, e);
+        }
+    }
+
+
+    /**
+     * Moves to the next record.
+     *
+     * @return {@code false} at the end of the journal.
+     */
+    public boolean next() throws IOException {
+        if (position + TickJournalWriter.RECORD_SIZE > fileSize) {
+            return false;
+        }
+        if (position + TickJournalWriter.RECORD_SIZE > windowStart + window.capacity()) {
+            map(position);
+        }
+
+        int offset = (int) (position - windowStart);
+        if (window.get(offset) != TickJournalWriter.RECORD_TICK) {
+            markEnd();
+            return false;
+        }
+        pairId = window.getInt(offset + 1);
+        sequence = window.getLong(offset + 5);
+        scaledBid = window.getLong(offset + 13);
+        scaledAsk = window.getLong(offset + 21);
+        epochNanos = window.getLong(offset + 29);
+        position += TickJournalWriter.RECORD_SIZE;
+        return true;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return The pair names in pair id order.
+     */
+    public List<String> getPairNames() {
+        return pairNames;
+    }
+
+    /**
+     * @return The number of decimal places of the fixed-point prices.
+     */
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getPairId() {
+        return pairId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getScaledBid() {
+        return scaledBid;
+    }
+
+    public long getScaledAsk() {
+        return scaledAsk;
+    }
+
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    private MappedByteBuffer map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+        return window;
+    }
+
+    private void markEnd() {
+        position = fileSize;            // NOTHING AFTER A TORN RECORD IS VALID.
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: TickJournalReader <journal file> [--dump]");
+            System.exit(1);
+        }
+        boolean dump = args.length > 1 && args[1].equals("--dump");
+
+        try (TickJournalReader reader = new TickJournalReader(Paths.get(args[0]))) {
+            List<String> names = reader.getPairNames();
+            long[] counts = new long[names.size()];
+            long total = 0;
+            long first = 0;
+            long last = 0;
+
+            long start = System.nanoTime();
+            while (reader.next()) {
+                if (total++ == 0) {
+                    first = reader.getEpochNanos();
+                }
+                last = reader.getEpochNanos();
+                counts[reader.getPairId()]++;
+
+                if (dump) {
+                    System.out.println(Instant.EPOCH.plusNanos(reader.getEpochNanos())
+                            + " " + names.get(reader.getPairId())
+                            + " #" + reader.getSequence()
+                            + " B:" + BigDecimal.valueOf(reader.getScaledBid(), reader.getPriceScale()).toPlainString()
+                            + " A:" + BigDecimal.valueOf(reader.getScaledAsk(), reader.getPriceScale()).toPlainString());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println("Journal:  " + reader.getPath() + " (" + reader.fileSize + " bytes, scale " + reader.getPriceScale() + ")");
+            for (int i = 0; i < names.size(); i++) {
+                System.out.println("  " + names.get(i) + ": " + counts[i] + " ticks");
+            }
+            System.out.println("Ticks:    " + total);
+            if (total > 0) {
+                System.out.println("Span:     " + Instant.EPOCH.plusNanos(first) + " .. " + Instant.EPOCH.plusNanos(last)
+                        + " (" + Duration.ofNanos(last - first) + ")");
+            }
+            if (!dump && elapsed > 0) {
+                System.out.printf("Read:     %.1f ms (%.0f ticks/s)%n", elapsed / 1e6, total * 1e9 / elapsed);
+            }
+        }
+    }
+
+}
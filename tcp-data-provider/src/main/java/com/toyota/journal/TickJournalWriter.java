@@ -0,0 +1,156 @@
+package com.toyota.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Appends ticks to a memory-mapped, append-only journal file.
+ * <p>
+ * The file is mapped in regions of {@value #REGION_SIZE} bytes, so an append is a few stores into
+ * the page cache and never a system call. When a region is full the next one is mapped behind it.
+ * The OS writes the pages back in the background, so the journal survives a crash of the process.
+ * A record's type byte is written after its payload: a torn record reads as the end of the journal.
+ * {@link #close()} cuts the file to the written length.
+ * </p>
+ * <p>
+ * Format (big endian):
+ * </p>
+ * <ul>
+ *     <li>Header: int {@link #MAGIC}, short {@link #VERSION}, byte price scale, int pair count,
+ *     and per pair an unsigned short length and the UTF-8 pair name. The position of a name is the pair id.</li>
+ *     <li>Records of {@value #RECORD_SIZE} bytes: byte {@link #RECORD_TICK}, int pair id, long sequence,
+ *     long bid, long ask, long epoch nanos. Bid and ask are fixed-point values with the header's scale.</li>
+ * </ul>
+ * <p>
+ * Not thread safe. Only the publisher thread appends.
+ * </p>
+ */
+public class TickJournalWriter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(TickJournalWriter.class);
+
+    public static final int MAGIC = 0x46584A31;             // "FXJ1"
+    public static final short VERSION = 1;
+    public static final byte RECORD_TICK = 1;
+    public static final int RECORD_SIZE = 1 + 4 + 8 + 8 + 8 + 8;
+
+    static final long REGION_SIZE = 64L * 1024 * 1024;
+
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;                  // END OF THE LAST COMPLETE RECORD, IN FILE OFFSETS.
+    private long recordCount;
+
+    private TickJournalWriter(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+
+    /**
+     * Creates a new journal named {@code ticks-<yyyyMMdd-HHmmss>.fxj} in the given directory,
+     * so an existing recording is never overwritten.
+     *
+     * @param pairNames  The pair names in pair id order.
+     * @param priceScale The number of decimal places of the recorded fixed-point prices.
+     */
+    public static TickJournalWriter create(Path directory, List<String> pairNames, int priceScale) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve("ticks-" + LocalDateTime.now().format(FILE_NAME_FORMAT) + ".fxj");
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        TickJournalWriter writer = new TickJournalWriter(path, channel);
+        writer.writeHeader(pairNames, priceScale);
+        logger.info("Recording ticks of {} pairs to journal {}.", pairNames.size(), path);
+        return writer;
+    }
+
+    /**
+     * Appends one tick.
+     */
+    public void append(int pairId, long sequence, long scaledBid, long scaledAsk, long epochNanos) throws IOException {
+        int offset = reserve(RECORD_SIZE);
+        region.putInt(offset + 1, pairId)
+                .putLong(offset + 5, sequence)
+                .putLong(offset + 13, scaledBid)
+                .putLong(offset + 21, scaledAsk)
+                .putLong(offset + 29, epochNanos)
+                .put(offset, RECORD_TICK);          // LAST, SO A READER NEVER SEES A HALF WRITTEN RECORD.
+        position += RECORD_SIZE;
+        recordCount++;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes the mapped pages back and cuts the file to the recorded length.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        region.force();
+        channel.truncate(position);
+        channel.close();
+        logger.info("Closed tick journal {} with {} records.", path, recordCount);
+    }
+
+
+    private void writeHeader(List<String> pairNames, int priceScale) throws IOException {
+        int headerSize = 4 + 2 + 1 + 4;
+        byte[][] names = new byte[pairNames.size()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = pairNames.get(i).getBytes(StandardCharsets.UTF_8);
+            headerSize += 2 + names[i].length;
+        }
+
+        int offset = reserve(headerSize);
+        ByteBuffer header = region.duplicate().position(offset);
+        header.putInt(MAGIC).putShort(VERSION).put((byte) priceScale).putInt(names.length);
+        for (byte[] name : names) {
+            header.putShort((short) name.length).put(name);
+        }
+        position += headerSize;
+    }
+
+    /**
+     * Makes sure the current region has room for {@code length} bytes at {@link #position}.
+     *
+     * @return The offset of {@link #position} inside the region.
+     */
+    private int reserve(int length) throws IOException {
+        if (region == null || position + length > regionStart + region.capacity()) {
+            if (region != null) {
+                region.force();
+            }
+            regionStart = position;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, length));
+        }
+        return (int) (position - regionStart);
+    }
+
+}
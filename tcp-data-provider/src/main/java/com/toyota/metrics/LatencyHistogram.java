@@ -0,0 +1,110 @@
+package com.toyota.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket histogram of durations.
+ * <p>
+ * The bucket bounds are chosen up front, so {@link #record(long)} is a short scan over a
+ * {@code long[]} and an atomic increment, without allocation or locking. Readers get consistent
+ * enough values for monitoring; a concurrent record may be visible in the count before the sum.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    /**
+     * Upper bounds of the buckets in nanoseconds: 100 µs up to 10 s.
+     */
+    private static final long[] DEFAULT_BOUNDS_NANOS = {
+            100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L,
+            10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private final long[] boundsNanos;
+    private final AtomicLongArray counts;           // ONE MORE THAN THE BOUNDS: THE LAST ONE IS +Inf.
+    private final LongAdder sumNanos;
+    private final AtomicLong maxNanos;
+
+    public LatencyHistogram() {
+        this.boundsNanos = DEFAULT_BOUNDS_NANOS;
+        this.counts = new AtomicLongArray(boundsNanos.length + 1);
+        this.sumNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+    }
+
+
+    public void record(long durationNanos) {
+        int bucket = 0;
+        while (bucket < boundsNanos.length && durationNanos > boundsNanos[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        sumNanos.add(durationNanos);
+        maxNanos.accumulateAndGet(durationNanos, Math::max);
+    }
+
+    /**
+     * @return The number of buckets with an upper bound, not counting the +Inf bucket.
+     */
+    public int bucketCount() {
+        return boundsNanos.length;
+    }
+
+    public long bucketBoundNanos(int bucket) {
+        return boundsNanos[bucket];
+    }
+
+    /**
+     * @return The number of durations in the bucket, not cumulative. {@link #bucketCount()} is the +Inf bucket.
+     */
+    public long bucketValue(int bucket) {
+        return counts.get(bucket);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return An estimate of the given quantile: the upper bound of the bucket it falls into,
+     *         or the maximum for the +Inf bucket. 0 if nothing was recorded.
+     */
+    public long quantileNanos(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long cumulative = 0;
+        for (int bucket = 0; bucket < boundsNanos.length; bucket++) {
+            cumulative += counts.get(bucket);
+            if (cumulative >= rank) {
+                return Math.min(boundsNanos[bucket], getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
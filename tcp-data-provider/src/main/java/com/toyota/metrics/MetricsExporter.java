@@ -0,0 +1,283 @@
+package com.toyota.metrics;
+
+import com.toyota.auth.SessionRegistry;
+import com.toyota.server.ClientConnection;
+import com.toyota.server.CurrencyPairRegistry;
+import com.toyota.server.SubscriptionIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the {@link ServerMetrics} together with the gauges that are derived from the server's state
+ * (sessions, subscriptions per pair) and exposes them over JMX and in the Prometheus text format.
+ * <p>
+ * Everything here runs on the reader's thread when metrics are requested, never on the hot path.
+ * </p>
+ */
+public class MetricsExporter implements ServerMetricsMXBean {
+
+    private static final Logger logger = LogManager.getLogger(MetricsExporter.class);
+
+    public static final String OBJECT_NAME = "com.toyota:type=ServerMetrics";
+
+    private final ServerMetrics metrics;
+    private final CurrencyPairRegistry currencyPairs;
+    private final List<SubscriptionIndex> subscriptionViews;
+    private final SessionRegistry sessions;
+
+    public MetricsExporter(ServerMetrics metrics,
+                           CurrencyPairRegistry currencyPairs,
+                           List<SubscriptionIndex> subscriptionViews,
+                           SessionRegistry sessions) {
+        this.metrics = metrics;
+        this.currencyPairs = currencyPairs;
+        this.subscriptionViews = subscriptionViews;
+        this.sessions = sessions;
+    }
+
+
+    /**
+     * Registers the metrics with the platform MBean server under {@value #OBJECT_NAME}.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+            logger.info("Server metrics registered in JMX as {}.", OBJECT_NAME);
+        } catch (JMException e) {
+            logger.error("Server metrics could not be registered in JMX: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String renderPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        gauge(out, "fx_connections_active", "Open client connections.", metrics.getActiveConnections());
+        counter(out, "fx_connections_opened_total", "Accepted client connections.", metrics.getConnectionsOpened());
+        gauge(out, "fx_sessions_active", "Authenticated sessions.", getActiveSessions());
+
+        header(out, "fx_subscriptions", "gauge", "Subscribed clients per currency pair.");
+        for (int pairId = 0; pairId < currencyPairs.size(); pairId++) {
+            out.append("fx_subscriptions{pair=\"").append(currencyPairs.nameOf(pairId)).append("\"} ")
+                    .append(subscriberCount(pairId)).append('\n');
+        }
+
+        counter(out, "fx_bytes_out_total", "Bytes written to client sockets.", metrics.getBytesOut());
+        counter(out, "fx_messages_out_total", "Messages completely written to client sockets.", metrics.getMessagesOut());
+        counter(out, "fx_partial_writes_total", "Writes that stopped because a socket buffer was full.", metrics.getPartialWrites());
+        counter(out, "fx_failed_writes_total", "Writes that failed and closed the client.", metrics.getFailedWrites());
+        counter(out, "fx_dropped_messages_total", "Messages dropped because an outbound buffer was full.", metrics.getDroppedMessages());
+        counter(out, "fx_conflated_ticks_total", "Ticks replaced by a newer tick of the same pair before being sent.", metrics.getConflatedTicks());
+        counter(out, "fx_throttled_ticks_total", "Ticks replaced by a newer tick within a throttled subscription's interval.", metrics.getThrottledTicks());
+        counter(out, "fx_overflow_disconnects_total", "Clients disconnected because their outbound buffer overflowed.", metrics.getOverflowDisconnects());
+        gauge(out, "fx_outbound_queued_bytes", "Bytes waiting in client outbound queues.", metrics.getQueuedBytes());
+
+        counter(out, "fx_ticks_published_total", "Rate ticks published.", metrics.getTicksPublished());
+        counter(out, "fx_publish_overruns_total", "Publish loops that took longer than the publish frequency.", metrics.getPublishOverruns());
+
+        counter(out, "fx_multicast_packets_total", "Tick datagrams sent to the multicast group.", metrics.getMulticastPackets());
+        counter(out, "fx_multicast_bytes_total", "Bytes sent to the multicast group.", metrics.getMulticastBytes());
+        counter(out, "fx_retransmitted_packets_total", "Multicast packets resent over the recovery channel.", metrics.getRetransmittedPackets());
+        counter(out, "fx_recovery_snapshots_total", "Snapshots sent over the recovery channel.", metrics.getRecoverySnapshots());
+
+        LatencyHistogram publishLoop = metrics.getPublishLoop();
+        header(out, "fx_publish_loop_seconds", "histogram", "Duration of one publish loop run.");
+        long cumulative = 0;
+        for (int bucket = 0; bucket < publishLoop.bucketCount(); bucket++) {
+            cumulative += publishLoop.bucketValue(bucket);
+            out.append("fx_publish_loop_seconds_bucket{le=\"").append(toPlainSeconds(publishLoop.bucketBoundNanos(bucket)))
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += publishLoop.bucketValue(publishLoop.bucketCount());
+        out.append("fx_publish_loop_seconds_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append("fx_publish_loop_seconds_sum ").append(toSeconds(publishLoop.getSumNanos())).append('\n');
+        out.append("fx_publish_loop_seconds_count ").append(cumulative).append('\n');
+
+        return out.toString();
+    }
+
+
+    @Override
+    public long getActiveConnections() {
+        return metrics.getActiveConnections();
+    }
+
+    @Override
+    public long getConnectionsOpened() {
+        return metrics.getConnectionsOpened();
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    @Override
+    public long getSubscriptions() {
+        long total = 0;
+        for (int pairId = 0; pairId < currencyPairs.size(); pairId++) {
+            total += subscriberCount(pairId);
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Integer> getSubscriptionsPerPair() {
+        Map<String, Integer> subscriptions = new LinkedHashMap<>();
+        for (int pairId = 0; pairId < currencyPairs.size(); pairId++) {
+            subscriptions.put(currencyPairs.nameOf(pairId), subscriberCount(pairId));
+        }
+        return subscriptions;
+    }
+
+    @Override
+    public long getBytesOut() {
+        return metrics.getBytesOut();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return metrics.getMessagesOut();
+    }
+
+    @Override
+    public long getPartialWrites() {
+        return metrics.getPartialWrites();
+    }
+
+    @Override
+    public long getFailedWrites() {
+        return metrics.getFailedWrites();
+    }
+
+    @Override
+    public long getDroppedMessages() {
+        return metrics.getDroppedMessages();
+    }
+
+    @Override
+    public long getConflatedTicks() {
+        return metrics.getConflatedTicks();
+    }
+
+    @Override
+    public long getThrottledTicks() {
+        return metrics.getThrottledTicks();
+    }
+
+    @Override
+    public long getOverflowDisconnects() {
+        return metrics.getOverflowDisconnects();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return metrics.getQueuedBytes();
+    }
+
+    @Override
+    public long getTicksPublished() {
+        return metrics.getTicksPublished();
+    }
+
+    @Override
+    public long getPublishLoopCount() {
+        return metrics.getPublishLoop().getCount();
+    }
+
+    @Override
+    public double getPublishLoopMeanMillis() {
+        LatencyHistogram publishLoop = metrics.getPublishLoop();
+        long count = publishLoop.getCount();
+        return count == 0 ? 0 : LatencyHistogram.toMillis(publishLoop.getSumNanos()) / count;
+    }
+
+    @Override
+    public double getPublishLoopP99Millis() {
+        return LatencyHistogram.toMillis(metrics.getPublishLoop().quantileNanos(0.99));
+    }
+
+    @Override
+    public double getPublishLoopMaxMillis() {
+        return LatencyHistogram.toMillis(metrics.getPublishLoop().getMaxNanos());
+    }
+
+    @Override
+    public long getPublishOverruns() {
+        return metrics.getPublishOverruns();
+    }
+
+    @Override
+    public long getMulticastPackets() {
+        return metrics.getMulticastPackets();
+    }
+
+    @Override
+    public long getMulticastBytes() {
+        return metrics.getMulticastBytes();
+    }
+
+    @Override
+    public long getRetransmittedPackets() {
+        return metrics.getRetransmittedPackets();
+    }
+
+    @Override
+    public long getRecoverySnapshots() {
+        return metrics.getRecoverySnapshots();
+    }
+
+
+    /**
+     * Counts the open subscribers of the pair in all reactors' views. Closed connections that were not
+     * compacted out of the arrays yet are skipped.
+     */
+    private int subscriberCount(int pairId) {
+        int count = 0;
+        for (SubscriptionIndex subscriptions : subscriptionViews) {
+            for (ClientConnection connection : subscriptions.subscribers(pairId)) {
+                if (!connection.isClosed()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static String toPlainSeconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();       // 0.0001 INSTEAD OF 1.0E-4.
+    }
+
+}
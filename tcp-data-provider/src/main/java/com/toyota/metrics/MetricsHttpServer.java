@@ -0,0 +1,71 @@
+package com.toyota.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * A minimal HTTP endpoint for Prometheus scrapes, built on the JDK's own {@link HttpServer}.
+ * {@code GET /metrics} returns {@link MetricsExporter#renderPrometheus()}. Scrapes are served by
+ * a single daemon thread, so they never compete with the reactors for more than one core.
+ */
+public class MetricsHttpServer {
+
+    private static final Logger logger = LogManager.getLogger(MetricsHttpServer.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final MetricsExporter exporter;
+
+    public MetricsHttpServer(int port, MetricsExporter exporter) throws IOException {
+        this.exporter = exporter;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/metrics", this::handleScrape);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+
+    public void start() {
+        server.start();
+        logger.info("Prometheus metrics available at http://0.0.0.0:{}/metrics", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+
+    private void handleScrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = exporter.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected exception while rendering metrics: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+}
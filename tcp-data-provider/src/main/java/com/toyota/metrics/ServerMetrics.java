@@ -0,0 +1,188 @@
+package com.toyota.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters the reactors and the publisher update while serving clients.
+ * <p>
+ * Every update is a {@link LongAdder} increment or a {@link LatencyHistogram} record, so the
+ * instrumentation neither allocates nor locks on the hot path, and reactor threads updating the
+ * same counter do not contend on one cache line. Values are only summed up when they are read by
+ * the {@link MetricsExporter}.
+ * </p>
+ */
+public class ServerMetrics {
+
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder partialWrites = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder conflatedTicks = new LongAdder();
+    private final LongAdder throttledTicks = new LongAdder();
+    private final LongAdder overflowDisconnects = new LongAdder();
+    private final LongAdder queuedBytes = new LongAdder();          // GAUGE: BYTES IN ALL OUTBOUND QUEUES.
+    private final LongAdder ticksPublished = new LongAdder();
+    private final LongAdder publishOverruns = new LongAdder();
+    private final LongAdder multicastPackets = new LongAdder();
+    private final LongAdder multicastBytes = new LongAdder();
+    private final LongAdder retransmittedPackets = new LongAdder();
+    private final LongAdder recoverySnapshots = new LongAdder();
+    private final LatencyHistogram publishLoop = new LatencyHistogram();
+
+
+    public void connectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    public void connectionClosed() {
+        connectionsClosed.increment();
+    }
+
+    /**
+     * Records one write system call that sent {@code bytes} bytes and completed {@code messages} messages.
+     */
+    public void written(long bytes, int messages) {
+        bytesOut.add(bytes);
+        messagesOut.add(messages);
+    }
+
+    /**
+     * Records a write that could not send everything because the socket buffer was full.
+     */
+    public void partialWrite() {
+        partialWrites.increment();
+    }
+
+    public void writeFailed() {
+        failedWrites.increment();
+    }
+
+    public void messageDropped() {
+        droppedMessages.increment();
+    }
+
+    public void tickConflated() {
+        conflatedTicks.increment();
+    }
+
+    public void tickThrottled() {
+        throttledTicks.increment();
+    }
+
+    public void overflowDisconnect() {
+        overflowDisconnects.increment();
+    }
+
+    /**
+     * Adjusts the number of bytes waiting in outbound queues, positive when queued, negative when written or discarded.
+     */
+    public void queuedBytesChanged(long delta) {
+        queuedBytes.add(delta);
+    }
+
+    public void tickPublished() {
+        ticksPublished.increment();
+    }
+
+    /**
+     * Records the duration of one publish loop run, i.e. all ticks published and flushed at once.
+     *
+     * @param overrun {@code true} if the loop took longer than the publish frequency.
+     */
+    public void publishLoop(long durationNanos, boolean overrun) {
+        publishLoop.record(durationNanos);
+        if (overrun) {
+            publishOverruns.increment();
+        }
+    }
+
+    public void multicastPacketSent(int bytes) {
+        multicastPackets.increment();
+        multicastBytes.add(bytes);
+    }
+
+    public void packetsRetransmitted(int packets) {
+        retransmittedPackets.add(packets);
+    }
+
+    public void recoverySnapshotSent() {
+        recoverySnapshots.increment();
+    }
+
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    public long getActiveConnections() {
+        return connectionsOpened.sum() - connectionsClosed.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    public long getPartialWrites() {
+        return partialWrites.sum();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    public long getConflatedTicks() {
+        return conflatedTicks.sum();
+    }
+
+    public long getThrottledTicks() {
+        return throttledTicks.sum();
+    }
+
+    public long getOverflowDisconnects() {
+        return overflowDisconnects.sum();
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.sum();
+    }
+
+    public long getTicksPublished() {
+        return ticksPublished.sum();
+    }
+
+    public long getPublishOverruns() {
+        return publishOverruns.sum();
+    }
+
+    public long getMulticastPackets() {
+        return multicastPackets.sum();
+    }
+
+    public long getMulticastBytes() {
+        return multicastBytes.sum();
+    }
+
+    public long getRetransmittedPackets() {
+        return retransmittedPackets.sum();
+    }
+
+    public long getRecoverySnapshots() {
+        return recoverySnapshots.sum();
+    }
+
+    public LatencyHistogram getPublishLoop() {
+        return publishLoop;
+    }
+
+}
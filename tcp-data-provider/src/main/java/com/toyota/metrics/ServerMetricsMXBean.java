@@ -0,0 +1,62 @@
+package com.toyota.metrics;
+
+import java.util.Map;
+
+/**
+ * The server metrics as seen in JMX clients such as JConsole or VisualVM,
+ * under {@value MetricsExporter#OBJECT_NAME}.
+ */
+public interface ServerMetricsMXBean {
+
+    long getActiveConnections();
+
+    long getConnectionsOpened();
+
+    int getActiveSessions();
+
+    long getSubscriptions();
+
+    /**
+     * @return The number of subscribed clients per currency pair.
+     */
+    Map<String, Integer> getSubscriptionsPerPair();
+
+    long getBytesOut();
+
+    long getMessagesOut();
+
+    long getPartialWrites();
+
+    long getFailedWrites();
+
+    long getDroppedMessages();
+
+    long getConflatedTicks();
+
+    long getThrottledTicks();
+
+    long getOverflowDisconnects();
+
+    long getQueuedBytes();
+
+    long getTicksPublished();
+
+    long getPublishLoopCount();
+
+    double getPublishLoopMeanMillis();
+
+    double getPublishLoopP99Millis();
+
+    double getPublishLoopMaxMillis();
+
+    long getPublishOverruns();
+
+    long getMulticastPackets();
+
+    long getMulticastBytes();
+
+    long getRetransmittedPackets();
+
+    long getRecoverySnapshots();
+
+}
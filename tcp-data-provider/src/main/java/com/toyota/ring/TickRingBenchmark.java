@@ -0,0 +1,204 @@
+package com.toyota.ring;
+
+import com.toyota.server.BinaryFrame;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the hand-off latency from a publishing thread to a consuming thread, once through a
+ * {@link TickRingWriter} ring file and once as {@link BinaryFrame} ticks over a loopback TCP connection,
+ * the transport the collectors use otherwise. Both run in this process, so the producer's
+ * {@link System#nanoTime()} in the tick's timestamp field can be compared with the consumer's clock.
+ * <p>
+ * The producer publishes one tick every {@code intervalNanos}; the ring consumer spins on the write
+ * sequence, the TCP consumer blocks in {@code read}. The first tenth of the ticks is a warm-up and not
+ * counted. The ring consumer maps the file itself and reads records the way the forex data collector does.
+ * Run it on an otherwise idle machine with at least two free cores:
+ * </p>
+ * <pre>
+ * java -cp tcp-data-provider.jar com.toyota.ring.TickRingBenchmark [ticks] [intervalNanos]
+ * </pre>
+ */
+public class TickRingBenchmark {
+
+    private static final int PAIR_COUNT = 3;
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int FRAME_NANOS_OFFSET = BinaryFrame.TICK_FRAME_LENGTH - 8;
+    private static final long LAPPED = Long.MIN_VALUE;
+
+    public static void main(String[] args) throws Exception {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long intervalNanos = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            System.out.println("WARNING: only one core available. The spinning ring consumer only runs when the producer is descheduled, so its latencies are meaningless.");
+        }
+        System.out.println("Ticks: " + ticks + ", one every " + intervalNanos + " ns, " + ticks / 10 + " warm-up ticks not counted.");
+        report("Ring", runRing(ticks, intervalNanos), ticks);
+        report("TCP", runTcp(ticks, intervalNanos), ticks);
+    }
+
+
+    private static Result runRing(int ticks, long intervalNanos) throws Exception {
+        Path directory = Files.isDirectory(Paths.get("/dev/shm")) ? Paths.get("/dev/shm") : Paths.get(System.getProperty("java.io.tmpdir"));
+        Path file = directory.resolve("fx-ring-benchmark-" + ProcessHandle.current().pid() + ".ring");
+        List<String> pairs = List.of("BENCH_A", "BENCH_B", "BENCH_C");
+
+        try (TickRingWriter writer = TickRingWriter.create(file, RING_CAPACITY, pairs, 8);
+             FileChannel readerChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            MappedByteBuffer ring = readerChannel.map(FileChannel.MapMode.READ_ONLY, 0, readerChannel.size());
+            ring.order(ByteOrder.LITTLE_ENDIAN);
+            int dataOffset = TickRingWriter.dataOffset(pairs.size());
+            long[] latencies = new long[ticks];
+            int[] received = new int[1];
+            Thread consumer = new Thread(() -> {
+                long next = 1;
+                int lapped = 0;
+                while (next <= ticks) {
+                    if ((long) TickRingWriter.LONGS.getAcquire(ring, TickRingWriter.WRITE_SEQUENCE_OFFSET) < next) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    long epochNanos = readEpochNanos(ring, dataOffset, next);
+                    if (epochNanos != LAPPED) {
+                        latencies[received[0]++] = System.nanoTime() - epochNanos;
+                    } else {
+                        lapped++;
+                    }
+                    next++;
+                }
+                if (lapped > 0) {
+                    System.out.println("Ring reader was lapped and lost " + lapped + " ticks.");
+                }
+            }, "ring-consumer");
+            consumer.start();
+
+            long start = System.nanoTime();
+            long due = start;
+            for (int i = 0; i < ticks; i++) {
+                due = pace(due, intervalNanos);
+                writer.publish(i % PAIR_COUNT, i / PAIR_COUNT + 1, 100_000_000L, 100_010_000L, System.nanoTime());
+            }
+            consumer.join();
+            return new Result(Arrays.copyOf(latencies, received[0]), System.nanoTime() - start);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Result runTcp(int ticks, long intervalNanos) throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            try (SocketChannel producerChannel = SocketChannel.open(server.getLocalAddress());
+                 SocketChannel consumerChannel = server.accept()) {
+                producerChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                long[] latencies = new long[ticks];
+                Thread consumer = new Thread(() -> {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                    int received = 0;
+                    try {
+                        while (received < ticks && consumerChannel.read(buffer) != -1) {
+                            long now = System.nanoTime();
+                            buffer.flip();
+                            while (buffer.remaining() >= BinaryFrame.TICK_FRAME_LENGTH) {
+                                latencies[received++] = now - buffer.getLong(buffer.position() + FRAME_NANOS_OFFSET);
+                                buffer.position(buffer.position() + BinaryFrame.TICK_FRAME_LENGTH);
+                            }
+                            buffer.compact();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("TCP consumer failed: " + e.getMessage());
+                    }
+                }, "tcp-consumer");
+                consumer.start();
+
+                ByteBuffer frame = ByteBuffer.allocateDirect(BinaryFrame.TICK_FRAME_LENGTH);
+                long start = System.nanoTime();
+                long due = start;
+                for (int i = 0; i < ticks; i++) {
+                    due = pace(due, intervalNanos);
+                    frame.clear();
+                    BinaryFrame.putTick(frame, i % PAIR_COUNT, i / PAIR_COUNT + 1, 8, 100_000_000L, 100_010_000L, System.nanoTime());
+                    frame.flip();
+                    while (frame.hasRemaining()) {
+                        producerChannel.write(frame);
+                    }
+                }
+                consumer.join();
+                return new Result(latencies, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Reads the timestamp of a record like a seqlock: the record sequence is checked before and after it.
+     *
+     * @return {@link #LAPPED} if the record was already overwritten.
+     */
+    private static long readEpochNanos(MappedByteBuffer ring, int dataOffset, long sequence) {
+        int slot = dataOffset + (int) ((sequence - 1) & (RING_CAPACITY - 1)) * TickRingWriter.SLOT_SIZE;
+        if ((long) TickRingWriter.LONGS.getAcquire(ring, slot + TickRingWriter.RECORD_SEQUENCE) != sequence) {
+            return LAPPED;
+        }
+        long epochNanos = ring.getLong(slot + TickRingWriter.RECORD_EPOCH_NANOS);
+        VarHandle.loadLoadFence();
+        return (long) TickRingWriter.LONGS.getOpaque(ring, slot + TickRingWriter.RECORD_SEQUENCE) == sequence ? epochNanos : LAPPED;
+    }
+
+    /**
+     * Spins until {@code due}, so the producer's pace does not depend on the timer resolution.
+     *
+     * @return The due time of the next tick.
+     */
+    private static long pace(long due, long intervalNanos) {
+        while (System.nanoTime() - due < 0) {
+            Thread.onSpinWait();
+        }
+        return due + intervalNanos;
+    }
+
+    private static void report(String transport, Result result, int ticks) {
+        int warmup = Math.min(ticks / 10, result.latencies().length);
+        long[] samples = Arrays.copyOfRange(result.latencies(), warmup, result.latencies().length);
+        Arrays.sort(samples);
+
+        System.out.printf("%-5s p50 %,7d ns | p90 %,7d ns | p99 %,7d ns | p99.9 %,8d ns | max %,10d ns | %,.0f ticks/s%n",
+                transport,
+                percentile(samples, 0.50),
+                percentile(samples, 0.90),
+                percentile(samples, 0.99),
+                percentile(samples, 0.999),
+                samples.length == 0 ? 0 : samples[samples.length - 1],
+                ticks * 1e9 / result.elapsedNanos());
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+    }
+
+    private record Result(long[] latencies, long elapsedNanos) {
+    }
+
+}
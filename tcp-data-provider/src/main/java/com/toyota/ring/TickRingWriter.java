@@ -0,0 +1,195 @@
+package com.toyota.ring;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Publishes ticks into a memory-mapped ring file that processes on the same host read without any
+ * system call: a single producer, any number of consumers, and no consumer state in the file, so the
+ * producer never waits for anyone. Put the file on a tmpfs such as {@code /dev/shm} to keep it in memory.
+ * <p>
+ * Format (little endian):
+ * </p>
+ * <ul>
+ *     <li>Header, {@value #HEADER_SIZE} bytes: int {@link #MAGIC}, short {@link #VERSION}, byte price scale,
+ *     int capacity (slots, a power of two) at 8, int slot size at 12, int pair count at 16, long feed id at 24
+ *     (the creation time in epoch millis), long heartbeat at 32 (epoch millis of the producer's latest sign of
+ *     life) and, on its own cache line at {@value #WRITE_SEQUENCE_OFFSET}, long write sequence (the number of
+ *     published records).</li>
+ *     <li>Pair names, {@value #NAME_SIZE} bytes per pair: byte length, UTF-8 name. The position of a name is the pair id.</li>
+ *     <li>Slots of {@value #SLOT_SIZE} bytes, starting at the next multiple of 64: long record sequence, int pair id,
+ *     4 bytes padding, long tick sequence, long bid, long ask, long epoch nanos. Record {@code n} (counted from 1)
+ *     lives in slot {@code (n - 1) % capacity}.</li>
+ * </ul>
+ * <p>
+ * A record is published like a seqlock: the slot's record sequence is cleared, the fields are written, then
+ * the record sequence and the write sequence are stored with release semantics. A consumer that reads the
+ * same record sequence before and after the fields has a consistent record; otherwise it was lapped by the
+ * producer and lost records. The forex data collector's {@code TickRingFile} is the reader; both sides are tested
+ * against the same golden ring file ({@code src/test/resources/tick-ring-v1.ring} in each module).
+ * </p>
+ * <p>
+ * Not thread safe. Only the publisher thread writes.
+ * </p>
+ */
+public class TickRingWriter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(TickRingWriter.class);
+
+    public static final int MAGIC = 0x46585231;             // "FXR1"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 128;
+    public static final int NAME_SIZE = 32;
+    public static final int SLOT_SIZE = 64;                 // ONE CACHE LINE PER RECORD.
+
+    static final int CAPACITY_OFFSET = 8;
+    static final int SLOT_SIZE_OFFSET = 12;
+    static final int PAIR_COUNT_OFFSET = 16;
+    static final int FEED_ID_OFFSET = 24;
+    static final int HEARTBEAT_OFFSET = 32;
+    static final int WRITE_SEQUENCE_OFFSET = 64;
+
+    static final int RECORD_SEQUENCE = 0;
+    static final int RECORD_PAIR_ID = 8;
+    static final int RECORD_TICK_SEQUENCE = 16;
+    static final int RECORD_BID = 24;
+    static final int RECORD_ASK = 32;
+    static final int RECORD_EPOCH_NANOS = 40;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final int dataOffset;
+    private final int mask;
+    private long writeSequence;
+
+    private TickRingWriter(Path path, FileChannel channel, MappedByteBuffer ring, int dataOffset, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.ring = ring;
+        this.dataOffset = dataOffset;
+        this.mask = capacity - 1;
+    }
+
+
+    /**
+     * Creates the ring file, replacing an existing one. Consumers of the replaced file keep their mapping
+     * of it and notice that its heartbeat stopped.
+     *
+     * @param capacity   The number of slots, a power of two. A consumer that falls behind by more loses records.
+     * @param pairNames  The pair names in pair id order, at most {@value #NAME_SIZE} - 1 bytes each.
+     * @param priceScale The number of decimal places of the fixed-point prices.
+     */
+    public static TickRingWriter create(Path path, int capacity, List<String> pairNames, int priceScale) throws IOException {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, got " + capacity);
+        }
+        byte[][] names = new byte[pairNames.size()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = pairNames.get(i).getBytes(StandardCharsets.UTF_8);
+            if (names[i].length >= NAME_SIZE) {
+                throw new IllegalArgumentException("Pair name too long for the tick ring: " + pairNames.get(i));
+            }
+        }
+        int dataOffset = dataOffset(names.length);
+        long fileSize = dataOffset + (long) capacity * SLOT_SIZE;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring capacity too large: " + capacity);
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(path);         // A NEW INODE, SO READERS OF THE OLD FILE NEVER SEE IT CHANGE SIZE.
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            ring.order(ByteOrder.LITTLE_ENDIAN);
+
+            ring.putInt(CAPACITY_OFFSET, capacity)
+                    .putInt(SLOT_SIZE_OFFSET, SLOT_SIZE)
+                    .putInt(PAIR_COUNT_OFFSET, names.length)
+                    .putLong(FEED_ID_OFFSET, System.currentTimeMillis())
+                    .putLong(HEARTBEAT_OFFSET, System.currentTimeMillis())
+                    .putShort(4, VERSION)
+                    .put(6, (byte) priceScale);
+            for (int i = 0; i < names.length; i++) {
+                ring.put(HEADER_SIZE + i * NAME_SIZE, (byte) names[i].length)
+                        .put(HEADER_SIZE + i * NAME_SIZE + 1, names[i]);
+            }
+            VarHandle.storeStoreFence();
+            ring.putInt(0, MAGIC);          // LAST, SO A READER NEVER SEES A HALF WRITTEN HEADER.
+
+            logger.info("Publishing ticks of {} pairs to ring file {} ({} slots).", names.length, path, capacity);
+            return new TickRingWriter(path, channel, ring, dataOffset, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static int dataOffset(int pairCount) {
+        int namesEnd = HEADER_SIZE + pairCount * NAME_SIZE;
+        return (namesEnd + 63) & ~63;
+    }
+
+
+    /**
+     * Publishes one tick. Visible to consumers as soon as this returns.
+     */
+    public void publish(int pairId, long tickSequence, long scaledBid, long scaledAsk, long epochNanos) {
+        long sequence = writeSequence + 1;
+        int slot = dataOffset + (int) ((sequence - 1) & mask) * SLOT_SIZE;
+
+        LONGS.setOpaque(ring, slot + RECORD_SEQUENCE, 0L);
+        VarHandle.storeStoreFence();            // READERS SEE THE SLOT CLEARED BEFORE ANY NEW FIELD.
+        ring.putInt(slot + RECORD_PAIR_ID, pairId)
+                .putLong(slot + RECORD_TICK_SEQUENCE, tickSequence)
+                .putLong(slot + RECORD_BID, scaledBid)
+                .putLong(slot + RECORD_ASK, scaledAsk)
+                .putLong(slot + RECORD_EPOCH_NANOS, epochNanos);
+        LONGS.setRelease(ring, slot + RECORD_SEQUENCE, sequence);
+        LONGS.setRelease(ring, WRITE_SEQUENCE_OFFSET, sequence);
+        writeSequence = sequence;
+    }
+
+    /**
+     * Tells consumers that the producer is alive, also when no pair ticks.
+     */
+    public void heartbeat() {
+        LONGS.setRelease(ring, HEARTBEAT_OFFSET, System.currentTimeMillis());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getWriteSequence() {
+        return writeSequence;
+    }
+
+    /**
+     * Closes the file. Consumers keep their mappings and notice the stopped heartbeat.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
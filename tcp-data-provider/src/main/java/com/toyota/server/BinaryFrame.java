@@ -0,0 +1,102 @@
+package com.toyota.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoders for the optional binary protocol. A client opts in with {@code connect|user|pass|binary}.
+ * The {@code SUCCESS|CONNECTED} response is still sent as a text line, every later message is a binary frame.
+ * <p>
+ * All numbers are big endian. Every frame starts with an unsigned 16 bit length of the rest of the frame,
+ * followed by a one byte frame type:
+ * </p>
+ * <ul>
+ *     <li>{@link #TYPE_TICK}: int pair id, long sequence, byte price scale, long bid, long ask, long epoch nanos.
+ *     Bid and ask are fixed-point values, {@code price = value / 10^scale}. The sequence is counted per pair,
+ *     so a gap means the client missed ticks of that pair.</li>
+ *     <li>{@link #TYPE_TEXT}: a UTF-8 server response such as {@code SUCCESS|Subscribed to currency pair: ...}.</li>
+ *     <li>{@link #TYPE_PAIR}: int pair id, UTF-8 pair name. Sent before the response of a successful subscribe,
+ *     so the client can map the pair ids of the following ticks.</li>
+ *     <li>{@link #TYPE_SNAPSHOT}: same layout as a tick. The current state of a pair, sent right after a subscribe.
+ *     Its sequence is the one of the pair's latest tick, so it may repeat a tick the client already received.</li>
+ * </ul>
+ */
+public final class BinaryFrame {
+
+    public static final byte TYPE_TICK = 1;
+    public static final byte TYPE_TEXT = 2;
+    public static final byte TYPE_PAIR = 3;
+    public static final byte TYPE_SNAPSHOT = 4;
+
+    public static final String CONNECT_FLAG = "binary";
+
+    private static final int LENGTH_FIELD_SIZE = 2;
+    private static final int TICK_BODY_LENGTH = 1 + 4 + 8 + 1 + 8 + 8 + 8;
+
+    /** Total size of a tick or snapshot frame, including the length field. */
+    public static final int TICK_FRAME_LENGTH = LENGTH_FIELD_SIZE + TICK_BODY_LENGTH;
+
+    private BinaryFrame() {
+    }
+
+
+    /**
+     * @return A read-only tick frame that may be shared by all binary subscribers.
+     */
+    public static ByteBuffer tick(int pairId, long sequence, int priceScale, long bid, long ask, long epochNanos) {
+        return priceFrame(TYPE_TICK, pairId, sequence, priceScale, bid, ask, epochNanos);
+    }
+
+    /**
+     * @return A read-only snapshot frame, laid out like a tick.
+     */
+    public static ByteBuffer snapshot(int pairId, long sequence, int priceScale, long bid, long ask, long epochNanos) {
+        return priceFrame(TYPE_SNAPSHOT, pairId, sequence, priceScale, bid, ask, epochNanos);
+    }
+
+    public static ByteBuffer text(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_FIELD_SIZE + 1 + bytes.length);
+        frame.putShort((short) (1 + bytes.length))
+                .put(TYPE_TEXT)
+                .put(bytes);
+        return frame.flip();
+    }
+
+    public static ByteBuffer pairDefinition(int pairId, String pairName) {
+        byte[] bytes = pairName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_FIELD_SIZE + 1 + 4 + bytes.length);
+        frame.putShort((short) (1 + 4 + bytes.length))
+                .put(TYPE_PAIR)
+                .putInt(pairId)
+                .put(bytes);
+        return frame.flip();
+    }
+
+
+    /**
+     * Writes a tick frame at the buffer's position, e.g. into a datagram that carries several frames.
+     */
+    public static void putTick(ByteBuffer target, int pairId, long sequence, int priceScale, long bid, long ask, long epochNanos) {
+        putPriceFrame(target, TYPE_TICK, pairId, sequence, priceScale, bid, ask, epochNanos);
+    }
+
+
+    private static ByteBuffer priceFrame(byte type, int pairId, long sequence, int priceScale, long bid, long ask, long epochNanos) {
+        ByteBuffer frame = ByteBuffer.allocate(TICK_FRAME_LENGTH);
+        putPriceFrame(frame, type, pairId, sequence, priceScale, bid, ask, epochNanos);
+        return frame.flip().asReadOnlyBuffer();
+    }
+
+    private static void putPriceFrame(ByteBuffer target, byte type, int pairId, long sequence, int priceScale, long bid, long ask, long epochNanos) {
+        target.putShort((short) TICK_BODY_LENGTH)
+                .put(type)
+                .putInt(pairId)
+                .putLong(sequence)
+                .put((byte) priceScale)
+                .putLong(bid)
+                .putLong(ask)
+                .putLong(epochNanos);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.toyota.server;
+
+import com.toyota.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ClientConnection} of the {@link VirtualThreadServer}, whose channel is in blocking mode.
+ * <p>
+ * Queuing works exactly as in NIO mode. Instead of registering {@code OP_WRITE}, a flush request
+ * releases a permit that wakes the connection's writer thread, which then drains the queue with
+ * blocking writes. A slow client therefore only blocks its own writer thread.
+ * </p>
+ */
+public class BlockingClientConnection extends ClientConnection {
+
+    private final Semaphore writeRequests;
+    private long lastPingNanos;                 // ONLY USED BY THE IDLE SWEEPER.
+
+    public BlockingClientConnection(SocketChannel channel,
+                                    int maxPendingBytes,
+                                    OverflowPolicy overflowPolicy,
+                                    DeliveryMode deliveryMode,
+                                    int pairCount,
+                                    Consumer<ClientConnection> closeHandler,
+                                    ServerMetrics metrics) {
+        super(channel, null, maxPendingBytes, overflowPolicy, deliveryMode, pairCount, closeHandler, metrics);
+        this.writeRequests = new Semaphore(0);
+    }
+
+
+    /**
+     * The writer loop. Waits for flush requests and drains the queue until the connection is closed.
+     *
+     * @throws IOException if writing to the channel fails.
+     */
+    void runWriter() throws IOException, InterruptedException {
+        while (!isClosed()) {
+            writeRequests.acquire();
+            writeRequests.drainPermits();           // ONE DRAIN SERVES ALL REQUESTS MADE SO FAR.
+            if (!isClosed()) {
+                drainBlocking();
+            }
+        }
+    }
+
+    /**
+     * Also wakes the writer thread, so it can exit.
+     */
+    @Override
+    public void close() {
+        super.close();
+        writeRequests.release();
+    }
+
+    long getLastPingNanos() {
+        return lastPingNanos;
+    }
+
+    void setLastPingNanos(long lastPingNanos) {
+        this.lastPingNanos = lastPingNanos;
+    }
+
+    @Override
+    protected void armWrite() {
+        // NOTHING TO REGISTER. THE PERMIT RELEASED IN wakeUpWriter() IS THE REQUEST.
+    }
+
+    @Override
+    protected void wakeUpWriter() {
+        writeRequests.release();
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.toyota.server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable, allocation free view of a single pipe-delimited client command
+ * such as {@code connect|user|pass} or {@code subscribe|TCP_USDTRY}.
+ * <p>
+ * {@link #parse(byte[], int)} only records the command type and the start/end offsets of
+ * each field inside the given frame array. No regular expressions or intermediate strings
+ * are involved; a field is only turned into a {@link String} when a handler asks for it.
+ * Fields are trimmed of surrounding whitespace. Like {@link String#split(String)},
+ * trailing empty fields are not counted.
+ * </p>
+ * <p>
+ * An instance is not thread safe. Each reactor keeps its own instance, and the parsed
+ * fields stay valid only until the frame array is reused by the next decode.
+ * </p>
+ */
+public class ClientCommand {
+
+    public enum Type {
+        CONNECT("connect"),
+        DISCONNECT("disconnect"),
+        SUBSCRIBE("subscribe"),
+        UNSUBSCRIBE("unsubscribe"),
+        PING("ping"),
+        PONG("pong"),
+        SNAPSHOT("snapshot"),           // MULTICAST RECOVERY CHANNEL ONLY.
+        RETRANSMIT("retransmit"),       // MULTICAST RECOVERY CHANNEL ONLY.
+        UNKNOWN("");
+
+        private final byte[] name;
+
+        Type(String name) {
+            this.name = name.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final Type[] KNOWN_TYPES = {Type.CONNECT, Type.DISCONNECT, Type.SUBSCRIBE, Type.UNSUBSCRIBE, Type.PING, Type.PONG, Type.SNAPSHOT, Type.RETRANSMIT};
+    private static final int MAX_FIELDS = 8;
+
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+
+    private byte[] frame;
+    private int frameLength;
+    private int fieldCount;
+    private Type type;
+
+
+    /**
+     * Parses a frame. Previous parse results are discarded.
+     *
+     * @param frame  The array holding the frame bytes, starting at index 0.
+     * @param length The number of frame bytes, without the line terminator.
+     */
+    public void parse(byte[] frame, int length) {
+        this.frame = frame;
+        this.frameLength = length;
+        this.fieldCount = 0;
+
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || frame[i] == '|') {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+
+        while (fieldCount > 1 && fieldCount <= MAX_FIELDS && fieldLength(fieldCount - 1) == 0) {
+            fieldCount--;           // IGNORE TRAILING EMPTY FIELDS LIKE String.split DOES.
+        }
+
+        this.type = resolveType();
+    }
+
+
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * @return The number of fields including the command name.
+     *         May be larger than the number of stored fields for malformed commands.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return {@code true} if the frame contains nothing but whitespace.
+     */
+    public boolean isEmpty() {
+        return fieldCount == 1 && fieldLength(0) == 0;
+    }
+
+    /**
+     * @return The trimmed field at the given index as a string.
+     */
+    public String field(int index) {
+        return new String(frame, fieldStart[index], fieldLength(index), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The trimmed field at the given index as an upper case string.
+     */
+    public String upperCaseField(int index) {
+        byte[] value = new byte[fieldLength(index)];
+        for (int i = 0; i < value.length; i++) {
+            byte b = frame[fieldStart[index] + i];
+            value[i] = (b >= 'a' && b <= 'z') ? (byte) (b - ('a' - 'A')) : b;
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return new String(frame, 0, frameLength, StandardCharsets.UTF_8);
+    }
+
+
+    private void addField(int start, int end) {
+        if (fieldCount < MAX_FIELDS) {
+            while (start < end && isWhitespace(frame[start])) start++;
+            while (end > start && isWhitespace(frame[end - 1])) end--;
+            fieldStart[fieldCount] = start;
+            fieldEnd[fieldCount] = end;
+        }
+        fieldCount++;
+    }
+
+    private int fieldLength(int index) {
+        return fieldEnd[index] - fieldStart[index];
+    }
+
+    private Type resolveType() {
+        int length = fieldLength(0);
+        for (Type candidate : KNOWN_TYPES) {
+            if (candidate.name.length != length) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < length && matches; i++) {
+                matches = frame[fieldStart[0] + i] == candidate.name[i];
+            }
+            if (matches) {
+                return candidate;
+            }
+        }
+        return Type.UNKNOWN;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+}
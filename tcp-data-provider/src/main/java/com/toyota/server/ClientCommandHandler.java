@@ -0,0 +1,469 @@
+package com.toyota.server;
+
+import com.toyota.auth.AuthService;
+import com.toyota.auth.Session;
+import com.toyota.entity.ServerResponse;
+import com.toyota.metrics.ServerMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Executes the commands of the client protocol ({@code connect}, {@code disconnect}, {@code subscribe},
+ * {@code unsubscribe}, {@code ping}) for one {@link SubscriptionIndex}.
+ * <p>
+ * The handler does no I/O of its own: responses are queued on the {@link ClientConnection} and
+ * {@code disconnect} is handed to the server's disconnect handler. This way the NIO
+ * {@link ClientReactor} and the blocking {@link VirtualThreadServer} answer every command identically.
+ * Calls for one connection must not overlap; calls for different connections may run concurrently.
+ * </p>
+ */
+class ClientCommandHandler {
+
+    private static final Logger logger = LogManager.getLogger(ClientCommandHandler.class);
+    private static final int MAX_LISTED_PAIRS = 20;     // LONGER BATCH RESPONSES ARE ABBREVIATED.
+    private static final int NO_UPDATE_INTERVAL = 0;
+    private static final int INVALID_UPDATE_INTERVAL = -1;
+    private static final int UNCHANGED_UPDATE_INTERVAL = -2;
+
+    private final AuthService authService;
+    private final CurrencyPairRegistry currencyPairs;
+    private final SubscriptionIndex subscriptions;
+    private final SnapshotProvider snapshotProvider;            // NULL IF SNAPSHOTS ARE DISABLED.
+    private final ServerMetrics metrics;
+    private final Consumer<ClientConnection> disconnectHandler;
+
+    /**
+     * @param snapshotProvider  Sends the current rates of newly subscribed pairs, {@code null} disables snapshots.
+     * @param disconnectHandler Closes the client when it sends {@code disconnect}.
+     */
+    ClientCommandHandler(AuthService authService,
+                         CurrencyPairRegistry currencyPairs,
+                         SubscriptionIndex subscriptions,
+                         SnapshotProvider snapshotProvider,
+                         ServerMetrics metrics,
+                         Consumer<ClientConnection> disconnectHandler) {
+        this.authService = authService;
+        this.currencyPairs = currencyPairs;
+        this.subscriptions = subscriptions;
+        this.snapshotProvider = snapshotProvider;
+        this.metrics = metrics;
+        this.disconnectHandler = disconnectHandler;
+    }
+
+    /**
+     * Feeds received bytes to the connection's {@link LineFrameDecoder} and executes every complete
+     * command, parsed into the caller's reusable {@link ClientCommand}. Stops as soon as the connection
+     * is closed, e.g. by {@code disconnect}; the remaining bytes are ignored.
+     */
+    void handleInput(ClientConnection connection, ByteBuffer input, ClientCommand command) {
+        LineFrameDecoder decoder = connection.getDecoder();
+        LineFrameDecoder.Result result;
+        while (!connection.isClosed() && (result = decoder.decode(input)) != LineFrameDecoder.Result.NEED_MORE_DATA) {
+            if (result == LineFrameDecoder.Result.FRAME_TOO_LONG) {
+                logger.warn("Discarded command longer than {} bytes from client {}.", LineFrameDecoder.MAX_FRAME_LENGTH, getClientAddressSafe(connection.getChannel()));
+                sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
+                continue;
+            }
+
+            command.parse(decoder.frame(), decoder.frameLength());
+            if (command.isEmpty()) {
+                continue;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Received message from client {}: {}", getClientAddressSafe(connection.getChannel()), command);
+            }
+            validateMessageAndTakeAction(connection, command);      // STOPS IF CLIENT SENT 'disconnect'.
+        }
+    }
+
+
+    /**
+     * Takes a parsed command, identifies its type, and delegates
+     * processing to the appropriate handler method (handleConnect, handleSubscribe, etc.).
+     * Sends an error message back to the client if the command is unrecognized.
+     *
+     * @param connection The connection from which the message was received.
+     * @param command    The parsed command received from the client.
+     */
+    void validateMessageAndTakeAction(ClientConnection connection, ClientCommand command) {
+        logger.trace("validateMessageAndTakeAction method called.");
+
+        Session session = authService.getSession(connection.getChannel());
+        if (session != null) {
+            session.recordCommand();
+        }
+
+        logger.debug("Processing command: {}", command.type());
+        switch (command.type()) {
+            case CONNECT:
+                handleConnect(connection, command);
+                break;
+
+            case DISCONNECT:
+                disconnectHandler.accept(connection);
+                break;
+
+            case SUBSCRIBE:
+                handleSubscribe(connection, command);
+                break;
+
+            case UNSUBSCRIBE:
+                handleUnsubscribe(connection, command);
+                break;
+
+            case PING:
+                sendInfoMessageToClient(connection, ServerResponse.PONG.getMessage());
+                break;
+
+            case PONG:
+                break;              // THE READ ITSELF ALREADY COUNTS AS ACTIVITY.
+
+            default:
+                logger.warn("Invalid command received: {}", command.field(0));
+                sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_COMMAND.getMessage());
+                break;
+        }
+        logger.trace("validateMessageAndTakeAction method finished.");
+    }
+
+
+
+    /**
+     * Handles the "subscribe" command. Validates arguments, checks authentication,
+     * checks if the currency pair is valid, and adds the client channel to the
+     * subscription set for that pair. Sends appropriate success/info/error messages.
+     * Pair lists such as {@code subscribe|A,B,C} or {@code subscribe|TCP_*USD*} are
+     * handled by {@link #handleBatchSubscribe(ClientConnection, String, int)}.
+     * An optional third field, e.g. {@code subscribe|TCP_USDTRY|250}, limits the pair to one
+     * (conflated) update per that many milliseconds. Sent for a pair that is already subscribed,
+     * it changes the pair's interval; {@code 0} removes it.
+     */
+    private void handleSubscribe(ClientConnection connection, ClientCommand command) {
+        SocketChannel clientChannel = connection.getChannel();
+        logger.trace("handleSubscribe method called.");
+
+        // KULLANICI AUTHENTICATED OLMADI ISE.
+        if (!authService.isClientAuthenticated(clientChannel)) {
+            logger.warn("Subscribe attempt failed for {}: Not authenticated.", getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_NOT_CONNECTED.getMessage());
+            return;
+        }
+
+
+        int updateInterval = parseUpdateInterval(command);
+        if ((command.fieldCount() != 2 && command.fieldCount() != 3) || updateInterval == INVALID_UPDATE_INTERVAL) {
+            logger.warn("Subscribe attempt failed for {}: Invalid message format.", getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
+            return;
+        }
+
+        String currencyPair = command.upperCaseField(1);
+        if (CurrencyPairRegistry.isPairList(currencyPair)) {
+            handleBatchSubscribe(connection, currencyPair, command.fieldCount() == 3 ? updateInterval : UNCHANGED_UPDATE_INTERVAL);
+            return;
+        }
+        int pairId = currencyPairs.idOf(currencyPair);
+
+
+        if (pairId == CurrencyPairRegistry.UNKNOWN_PAIR) {
+            logger.warn("Subscribe attempt failed for {}: Invalid currency pair '{}'.", getClientAddressSafe(clientChannel), currencyPair);
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_CURRENCY_PAIR.getMessage(currencyPair));
+            return;
+        }
+
+        if (subscriptions.isSubscribed(connection, pairId) && command.fieldCount() == 3) {
+            logger.info("Client {} changed the update interval of {} to {} ms.", getClientAddressSafe(clientChannel), currencyPair, updateInterval);
+            connection.setThrottleInterval(pairId, TimeUnit.MILLISECONDS.toNanos(updateInterval));
+            sendInfoMessageToClient(connection, ServerResponse.SUCCESS_UPDATE_INTERVAL.getMessage(currencyPair, String.valueOf(updateInterval)));
+        } else if (subscriptions.isSubscribed(connection, pairId)) {
+            logger.info("Client {} already subscribed to {}", getClientAddressSafe(clientChannel), currencyPair);
+            sendInfoMessageToClient(connection, ServerResponse.INFO_ALREADY_SUBSCRIBED.getMessage(currencyPair));
+        } else {
+            logger.info("Client {} successfully subscribed to {} (update interval: {} ms)", getClientAddressSafe(clientChannel), currencyPair, updateInterval);
+            if (connection.isBinaryProtocol()) {
+                // PAIR ID MAPPING MUST BE QUEUED BEFORE THE PUBLISHER CAN SEE THE SUBSCRIPTION.
+                connection.send(BinaryFrame.pairDefinition(pairId, currencyPair));
+            }
+            connection.setThrottleInterval(pairId, TimeUnit.MILLISECONDS.toNanos(updateInterval));     // ALSO BEFORE THE SUBSCRIPTION.
+            subscriptions.add(connection, pairId);
+            sendInfoMessageToClient(connection, ServerResponse.SUCCESS_SUBSCRIBED.getMessage(currencyPair));
+            if (snapshotProvider != null) {
+                BitSet snapshotPairs = new BitSet();
+                snapshotPairs.set(pairId);
+                snapshotProvider.requestSnapshot(connection, snapshotPairs);
+            }
+        }
+        logger.trace("handleSubscribe method finished.");
+    }
+
+
+    /**
+     * Subscribes the client to every pair matched by a pair list and answers with one consolidated
+     * success line. Pairs the client is already subscribed to are listed as well. List entries that
+     * match no pair are reported in a single error line.
+     *
+     * @param updateInterval The update interval in ms for all matched pairs, or {@value #UNCHANGED_UPDATE_INTERVAL}
+     *                       if none was given: new pairs are then not throttled and subscribed ones keep theirs.
+     */
+    private void handleBatchSubscribe(ClientConnection connection, String pairList, int updateInterval) {
+        SocketChannel clientChannel = connection.getChannel();
+
+        BitSet matchedPairs = new BitSet();
+        List<String> unmatched = currencyPairs.resolve(pairList, matchedPairs);
+
+        BitSet newPairs = new BitSet();
+        for (int pairId = matchedPairs.nextSetBit(0); pairId >= 0; pairId = matchedPairs.nextSetBit(pairId + 1)) {
+            boolean subscribed = subscriptions.isSubscribed(connection, pairId);
+            if (!subscribed || updateInterval != UNCHANGED_UPDATE_INTERVAL) {
+                connection.setThrottleInterval(pairId, TimeUnit.MILLISECONDS.toNanos(Math.max(updateInterval, NO_UPDATE_INTERVAL)));
+            }
+            if (!subscribed) {
+                if (connection.isBinaryProtocol()) {
+                    connection.send(BinaryFrame.pairDefinition(pairId, currencyPairs.nameOf(pairId)));
+                }
+                subscriptions.add(connection, pairId);
+                newPairs.set(pairId);
+            }
+        }
+
+        logger.info("Client {} subscribed to {} pairs ({} new) with '{}'.",
+                getClientAddressSafe(clientChannel), matchedPairs.cardinality(), newPairs.cardinality(), pairList);
+        if (!matchedPairs.isEmpty()) {
+            sendInfoMessageToClient(connection, ServerResponse.SUCCESS_SUBSCRIBED_BATCH.getMessage(
+                    String.valueOf(matchedPairs.cardinality()), listPairNames(matchedPairs)));
+        }
+        if (snapshotProvider != null && !newPairs.isEmpty()) {
+            snapshotProvider.requestSnapshot(connection, newPairs);
+        }
+        if (!unmatched.isEmpty()) {
+            logger.warn("Subscribe attempt partly failed for {}: Invalid currency pairs '{}'.", getClientAddressSafe(clientChannel), unmatched);
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_CURRENCY_PAIR.getMessage(String.join(",", unmatched)));
+        }
+    }
+
+
+    /**
+     * Handles the "unsubscribe" command. Validates arguments, checks authentication,
+     * checks if the currency pair is valid, and removes the client channel from the
+     * subscription set for that pair. Sends appropriate success/info/error messages.
+     * Pair lists are handled by {@link #handleBatchUnsubscribe(ClientConnection, String)}.
+     */
+    private void handleUnsubscribe(ClientConnection connection, ClientCommand command) {
+        SocketChannel clientChannel = connection.getChannel();
+        logger.trace("handleUnsubscribe method called.");
+
+        // handleSubscribe'daki MANTIK ILE AYNI EGER AUTHENTICATION ISLEMI YAPILMAMIS ISE MESSAGE YOLLA.
+        if (!authService.isClientAuthenticated(clientChannel)) {
+            logger.warn("Unsubscribe attempt failed for {}: Not connected.", getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_NOT_CONNECTED.getMessage());
+            return;
+        }
+
+
+        if (command.fieldCount() != 2) {
+            logger.warn("Unsubscribe attempt failed for {}: Invalid message format.", getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
+            return;
+        }
+
+        String currencyPair = command.upperCaseField(1);
+        if (CurrencyPairRegistry.isPairList(currencyPair)) {
+            handleBatchUnsubscribe(connection, currencyPair);
+            return;
+        }
+        int pairId = currencyPairs.idOf(currencyPair);
+        if (pairId == CurrencyPairRegistry.UNKNOWN_PAIR) {
+            logger.warn("Unsubscribe attempt failed for {}: Invalid currency pair '{}'.", getClientAddressSafe(clientChannel), currencyPair);
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_CURRENCY_PAIR.getMessage(currencyPair));
+            return;
+        }
+
+        if (subscriptions.remove(connection, pairId)) {
+            connection.setThrottleInterval(pairId, 0);
+            logger.info("Client {} successfully unsubscribed from {}", getClientAddressSafe(clientChannel), currencyPair);
+            sendInfoMessageToClient(connection, ServerResponse.SUCCESS_UNSUBSCRIBED.getMessage(currencyPair));
+        } else {
+            logger.info("Client {} was not subscribed to {}.", getClientAddressSafe(clientChannel), currencyPair);
+            sendInfoMessageToClient(connection, ServerResponse.INFO_NOT_SUBSCRIBED.getMessage(currencyPair));
+        }
+        logger.trace("handleUnsubscribe method finished.");
+    }
+
+
+    /**
+     * Unsubscribes the client from every matched pair it was subscribed to and answers with one
+     * consolidated line. List entries that match no pair are reported in a single error line.
+     */
+    private void handleBatchUnsubscribe(ClientConnection connection, String pairList) {
+        SocketChannel clientChannel = connection.getChannel();
+
+        BitSet matchedPairs = new BitSet();
+        List<String> unmatched = currencyPairs.resolve(pairList, matchedPairs);
+
+        BitSet removedPairs = new BitSet();
+        for (int pairId = matchedPairs.nextSetBit(0); pairId >= 0; pairId = matchedPairs.nextSetBit(pairId + 1)) {
+            if (subscriptions.remove(connection, pairId)) {
+                connection.setThrottleInterval(pairId, 0);
+                removedPairs.set(pairId);
+            }
+        }
+
+        logger.info("Client {} unsubscribed from {} pairs with '{}'.", getClientAddressSafe(clientChannel), removedPairs.cardinality(), pairList);
+        if (!removedPairs.isEmpty()) {
+            sendInfoMessageToClient(connection, ServerResponse.SUCCESS_UNSUBSCRIBED_BATCH.getMessage(
+                    String.valueOf(removedPairs.cardinality()), listPairNames(removedPairs)));
+        } else if (!matchedPairs.isEmpty()) {
+            sendInfoMessageToClient(connection, ServerResponse.INFO_NOT_SUBSCRIBED.getMessage(pairList));
+        }
+        if (!unmatched.isEmpty()) {
+            logger.warn("Unsubscribe attempt partly failed for {}: Invalid currency pairs '{}'.", getClientAddressSafe(clientChannel), unmatched);
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_CURRENCY_PAIR.getMessage(String.join(",", unmatched)));
+        }
+    }
+
+
+    /**
+     * @return The update interval in ms from the third field of a subscribe command, {@value #NO_UPDATE_INTERVAL}
+     *         if there is none, or {@value #INVALID_UPDATE_INTERVAL} if it is not a non-negative number.
+     */
+    private int parseUpdateInterval(ClientCommand command) {
+        if (command.fieldCount() != 3) {
+            return NO_UPDATE_INTERVAL;
+        }
+        try {
+            int updateInterval = Integer.parseInt(command.field(2).trim());
+            return updateInterval < 0 ? INVALID_UPDATE_INTERVAL : updateInterval;
+        } catch (NumberFormatException e) {
+            return INVALID_UPDATE_INTERVAL;
+        }
+    }
+
+
+    /**
+     * @return The names of the given pairs, comma separated. Lists longer than
+     *         {@value #MAX_LISTED_PAIRS} names are abbreviated.
+     */
+    private String listPairNames(BitSet pairIds) {
+        StringBuilder names = new StringBuilder();
+        int listed = 0;
+        for (int pairId = pairIds.nextSetBit(0); pairId >= 0 && listed < MAX_LISTED_PAIRS; pairId = pairIds.nextSetBit(pairId + 1)) {
+            if (listed++ > 0) {
+                names.append(',');
+            }
+            names.append(currencyPairs.nameOf(pairId));
+        }
+        int remaining = pairIds.cardinality() - listed;
+        if (remaining > 0) {
+            names.append(",...(+").append(remaining).append(" more)");
+        }
+        return names.toString();
+    }
+
+
+
+    /**
+     * Handles the "connect" command. Validates arguments, checks if the client is already
+     * authenticated or if the username has an existing session from another channel.
+     * Uses {@link AuthService} to validate credentials and creates a session if successful.
+     * Sends appropriate success/info/error messages. An optional fourth field
+     * {@code binary} switches the connection to the {@link BinaryFrame} protocol
+     * after the success response.
+     */
+    private void handleConnect(ClientConnection connection, ClientCommand command) {
+        SocketChannel clientChannel = connection.getChannel();
+        logger.trace("handleConnect method called.");
+
+        boolean binaryRequested = command.fieldCount() == 4 && BinaryFrame.CONNECT_FLAG.equalsIgnoreCase(command.field(3));
+        if (command.fieldCount() != 3 && !binaryRequested) {
+            logger.warn("Connect attempt failed for {}: Invalid message format.", getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
+            return;
+        }
+
+        String username = command.field(1);
+        String password = command.field(2);
+
+        // AYNI IP ILE BIR DAHA CONNECT DENER ISE.
+        if (authService.isClientAuthenticated(clientChannel)) {
+            logger.warn("Authentication attempt failed for {}: Already authenticated.", getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.INFO_CLIENT_ALREADY_CONNECTED.getMessage());
+            return;
+        }
+
+        // FARKLI IP'DEN AYNI USERNAME VE PASSWORD GELIR ISE.
+        if (authService.isClientHasASession(username)) {
+            logger.warn("Authentication attempt failed for user '{}' from {}: User already has an active session.", username, getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_CLIENT_ALREADY_HAS_A_SESSION.getMessage());
+            return;
+        }
+
+        // USERNAME PASSWORD DOGRU ISE, CHANNELDAN GELEN USERNAME'I CHANNEL'A MÜHÜRLE (createSession ile).
+        // BÖYLECE BASKA BIR CHANNEL AYNI USERNAME ILE BAGLANAMACAK.
+        if (authService.authenticateUser(username, password)) {
+            if (authService.createSession(clientChannel, username) == null) {
+                // BASKA BIR REACTOR AYNI ANDA AYNI USERNAME ILE GIRIS YAPTI.
+                logger.warn("Authentication attempt failed for user '{}' from {}: Session was created concurrently on another connection.", username, getClientAddressSafe(clientChannel));
+                sendInfoMessageToClient(connection, ServerResponse.ERROR_CLIENT_ALREADY_HAS_A_SESSION.getMessage());
+                return;
+            }
+            sendInfoMessageToClient(connection, ServerResponse.SUCCESS_CONNECTED.getMessage());
+            connection.setBinaryProtocol(binaryRequested);        // RESPONSE ABOVE IS STILL A TEXT LINE.
+            logger.info("Client {} successfully authenticated and logged in as user '{}' (binary protocol: {}).", getClientAddressSafe(clientChannel), username, binaryRequested);
+        } else {
+            logger.warn("Authentication attempt failed for user '{}' from {}: Invalid credentials.", username, getClientAddressSafe(clientChannel));
+            sendInfoMessageToClient(connection, ServerResponse.ERROR_INVALID_CREDENTIALS.getMessage());
+        }
+        logger.trace("handleConnect method finished.");
+    }
+
+    /**
+     * Releases everything the server holds for a client that is going away: discards its outbound
+     * buffer, removes it from the subscriptions and ends its session. The caller closes the channel.
+     */
+    void releaseClient(ClientConnection connection) {
+        SocketChannel clientChannel = connection.getChannel();
+        logger.info("Shutting down client: {} (dropped messages: {}, conflated ticks: {})",
+                getClientAddressSafe(clientChannel), connection.getDroppedMessages(), connection.getConflatedTicks());
+
+        connection.close();
+        metrics.connectionClosed();
+        subscriptions.removeAll(connection);            // ONLY VISITS THE PAIRS THE CLIENT SUBSCRIBED TO.
+        Session session = authService.disconnect(clientChannel);
+        if (session != null) {
+            logger.info("Session of user '{}' ended after {} s ({} commands).", session.getUsername(),
+                    Duration.between(session.getConnectedAt(), Instant.now()).toSeconds(), session.getCommandCount());
+        }
+    }
+
+
+    void sendInfoMessageToClient(ClientConnection connection, String message) {
+        ByteBuffer buffer = connection.isBinaryProtocol()
+                ? BinaryFrame.text(message)
+                : ByteBuffer.wrap((message + "\r\n").getBytes(StandardCharsets.UTF_8));
+        connection.send(buffer);
+    }
+
+
+    String getClientAddressSafe(SocketChannel clientChannel) {
+        try {
+            if (clientChannel != null && clientChannel.isOpen()) {
+                return clientChannel.getRemoteAddress().toString();
+            }
+        } catch (IOException e) {
+            logger.warn("IOException when try to get client address. {}",e.getMessage(),e);
+        }
+        return "unknown address";
+    }
+
+}
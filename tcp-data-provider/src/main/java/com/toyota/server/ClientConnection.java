@@ -0,0 +1,588 @@
+package com.toyota.server;
+
+import com.toyota.metrics.ServerMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Represents a single client connection of the {@link FxDataServer} together with its
+ * bounded outbound buffer.
+ * <p>
+ * Messages are never written to the socket by the caller. They are appended to the
+ * outbound queue and the channel's {@link SelectionKey} is flagged for {@code OP_WRITE},
+ * so the selector thread drains the queue whenever the socket can accept more bytes.
+ * This keeps a slow client from blocking the publisher or any other client.
+ * </p>
+ * <p>
+ * Queued buffers may be read-only views shared with other connections. The selector thread
+ * drains them with a single gathering write, so all messages queued for a client during one
+ * publish tick usually leave in one system call.
+ * </p>
+ * <p>
+ * When the queued bytes would exceed the configured limit, the configured
+ * {@link OverflowPolicy} decides whether the message is dropped or the client is disconnected.
+ * </p>
+ * <p>
+ * In {@link DeliveryMode#CONFLATE} mode rate ticks do not go to the outbound queue directly.
+ * Each pair has one "latest pending" slot, and the slots are moved to the queue only once it is
+ * empty. A tick replacing a still pending one is counted as conflated.
+ * </p>
+ * <p>
+ * A pair subscribed with an update interval is throttled: at most one tick per interval is queued and
+ * the ticks in between are conflated into a held one, which the caller releases with
+ * {@link #releaseThrottledTick(int, long)} when the interval is over. This applies in both delivery modes.
+ * </p>
+ * <p>
+ * Written bytes and messages, partial writes, drops, conflation and the queued bytes are also
+ * counted in the shared {@link ServerMetrics}.
+ * </p>
+ * <p>
+ * How a flush request reaches the writer is decided by {@link #armWrite()} and {@link #wakeUpWriter()}.
+ * This class registers {@code OP_WRITE} with the selector; {@link BlockingClientConnection} wakes a
+ * dedicated writer thread instead, which drains the queue with {@link #drainBlocking()}.
+ * </p>
+ */
+public class ClientConnection {
+
+    private static final Logger logger = LogManager.getLogger(ClientConnection.class);
+    private static final int MAX_BUFFERS_PER_WRITE = 64;
+
+    /**
+     * Returned by {@link #enqueueThrottledTick(int, ByteBuffer, long)} if the tick was queued and the
+     * caller must call {@link #requestFlush()}.
+     */
+    public static final long THROTTLE_FLUSH_REQUIRED = -1;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final int maxPendingBytes;
+    private final OverflowPolicy overflowPolicy;
+    private final DeliveryMode deliveryMode;
+    private final int pairCount;
+    private final Consumer<ClientConnection> closeHandler;
+    private final ServerMetrics metrics;
+    private final LineFrameDecoder decoder;
+    private volatile boolean binaryProtocol;
+    private final BitSet subscribedPairs;       // PAIR IDS, MAINTAINED BY THE SubscriptionIndex. PRE-SIZED, SO IT NEVER GROWS.
+    private volatile long lastReadNanos;        // LAST TIME THE CLIENT SENT ANYTHING.
+    private int idleWheelBucket;                // REACTOR THREAD ONLY.
+
+    private final Deque<ByteBuffer> outboundQueue;
+    private final ByteBuffer[] writeBatch;
+    private boolean flushRequestPending;
+    private int pendingBytes;
+    private long droppedMessages;
+    private boolean overflowing;
+    private boolean closed;
+
+    private ByteBuffer[] latestTicks;           // CONFLATE MODE: PENDING TICK PER PAIR ID. ALLOCATED ON FIRST TICK.
+    private int[] pendingPairIds;               // CONFLATE MODE: PAIR IDS WITH A PENDING TICK, IN ARRIVAL ORDER.
+    private int pendingPairCount;
+    private long conflatedTicks;
+    private boolean conflating;
+
+    private volatile long[] throttleIntervals;  // NANOS PER PAIR ID, 0 = NOT THROTTLED. COPY-ON-WRITE, NULL UNTIL FIRST USED.
+    private ByteBuffer[] throttledTicks;        // HELD TICK PER PAIR ID, WAITING FOR THE END OF ITS INTERVAL.
+    private long[] throttleDueNanos;            // EARLIEST TIME THE NEXT TICK OF EACH PAIR MAY BE QUEUED.
+    private long throttledTickCount;
+
+    /**
+     * @param key The selection key of the channel, or {@code null} if the channel is served by blocking threads.
+     */
+    public ClientConnection(SocketChannel channel,
+                            SelectionKey key,
+                            int maxPendingBytes,
+                            OverflowPolicy overflowPolicy,
+                            DeliveryMode deliveryMode,
+                            int pairCount,
+                            Consumer<ClientConnection> closeHandler,
+                            ServerMetrics metrics) {
+        this.channel = channel;
+        this.key = key;
+        this.maxPendingBytes = maxPendingBytes;
+        this.overflowPolicy = overflowPolicy;
+        this.deliveryMode = deliveryMode;
+        this.pairCount = pairCount;
+        this.closeHandler = closeHandler;
+        this.metrics = metrics;
+        this.decoder = new LineFrameDecoder();
+        this.subscribedPairs = new BitSet(pairCount);
+        this.outboundQueue = new ArrayDeque<>();
+        this.writeBatch = new ByteBuffer[MAX_BUFFERS_PER_WRITE];
+        this.lastReadNanos = System.nanoTime();
+    }
+
+
+    /**
+     * Appends a message to the outbound queue and asks the selector to drain it.
+     * Safe to call from any thread.
+     *
+     * @param message The bytes to send. The buffer must not be modified by the caller afterwards.
+     */
+    public void send(ByteBuffer message) {
+        if (enqueue(message)) {
+            requestFlush();
+        }
+    }
+
+
+    /**
+     * Appends a message to the outbound queue without waking the selector, so several
+     * messages can be queued before a single {@link #requestFlush()}. Safe to call from any thread.
+     *
+     * @param message The bytes to send. The buffer must not be modified by anyone afterwards.
+     * @return {@code true} if this is the first message queued since the last flush request,
+     *         meaning the caller must call {@link #requestFlush()}. {@code false} if a flush request
+     *         is already pending or the message was rejected (closed connection or overflow).
+     */
+    public boolean enqueue(ByteBuffer message) {
+        boolean disconnect = false;
+
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+
+            int size = message.remaining();
+            if (pendingBytes + size > maxPendingBytes) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    closed = true;
+                    outboundQueue.clear();
+                    discardPendingBytes();
+                    disconnect = true;
+                    metrics.overflowDisconnect();
+                } else {
+                    droppedMessages++;
+                    metrics.messageDropped();
+                    if (!overflowing) {
+                        overflowing = true;
+                        logger.warn("Outbound buffer of client {} is full ({} bytes pending). Dropping messages until it drains.",
+                                channel, pendingBytes);
+                    }
+                    return false;
+                }
+            } else {
+                outboundQueue.addLast(message);
+                pendingBytes += size;
+                metrics.queuedBytesChanged(size);
+                if (!flushRequestPending) {
+                    flushRequestPending = true;
+                    return true;
+                }
+            }
+        }
+
+        if (disconnect) {
+            logger.warn("Outbound buffer of client {} overflowed. Disconnecting client.", channel);
+            closeHandler.accept(this);
+        }
+        return false;
+    }
+
+
+    /**
+     * Queues a rate tick of the given pair according to the connection's {@link DeliveryMode}.
+     * In {@link DeliveryMode#QUEUE} mode this is the same as {@link #enqueue(ByteBuffer)}.
+     * In {@link DeliveryMode#CONFLATE} mode the tick replaces any pending tick of the same pair.
+     * Safe to call from any thread.
+     *
+     * @return Same as {@link #enqueue(ByteBuffer)}: {@code true} if the caller must call {@link #requestFlush()}.
+     */
+    public boolean enqueueTick(int pairId, ByteBuffer tick) {
+        if (deliveryMode == DeliveryMode.QUEUE) {
+            return enqueue(tick);
+        }
+
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (latestTicks == null) {
+                latestTicks = new ByteBuffer[pairCount];
+                pendingPairIds = new int[pairCount];
+            }
+
+            if (latestTicks[pairId] != null) {
+                conflatedTicks++;
+                metrics.tickConflated();
+                if (!conflating) {
+                    conflating = true;
+                    if (conflatedTicks == 1) {
+                        logger.warn("Client {} is falling behind. Conflating ticks to the latest price per pair.", channel);
+                    } else {
+                        logger.debug("Client {} is falling behind again. {} ticks conflated so far.", channel, conflatedTicks);
+                    }
+                }
+            } else {
+                pendingPairIds[pendingPairCount++] = pairId;
+            }
+            latestTicks[pairId] = tick;
+
+            if (!flushRequestPending) {
+                flushRequestPending = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+
+    /**
+     * @return {@code true} if ticks of the pair must go through {@link #enqueueThrottledTick(int, ByteBuffer, long)}.
+     *         Safe to call from any thread.
+     */
+    public boolean isThrottled(int pairId) {
+        long[] intervals = throttleIntervals;
+        return intervals != null && intervals[pairId] > 0;
+    }
+
+    /**
+     * Sets the minimum interval between two ticks of the pair. 0 removes the throttle.
+     * Only called by the thread handling the connection's commands, before subscribing.
+     */
+    public synchronized void setThrottleInterval(int pairId, long intervalNanos) {
+        long[] intervals = throttleIntervals;
+        if (intervals == null) {
+            if (intervalNanos == 0) {
+                return;
+            }
+            intervals = new long[pairCount];
+        } else {
+            intervals = intervals.clone();
+        }
+        intervals[pairId] = intervalNanos;
+        throttleIntervals = intervals;
+    }
+
+    /**
+     * Queues a tick of a throttled pair if its interval is over, like {@link #enqueueTick(int, ByteBuffer)}.
+     * Otherwise the tick is held, replacing any tick already held for the pair.
+     * Safe to call from any thread.
+     *
+     * @return {@link #THROTTLE_FLUSH_REQUIRED} if the tick was queued and the caller must call
+     *         {@link #requestFlush()}; a positive delay in nanos if the tick is the first one held since
+     *         the pair's last update, after which the caller must call {@link #releaseThrottledTick(int, long)};
+     *         {@code 0} if there is nothing more to do.
+     */
+    public long enqueueThrottledTick(int pairId, ByteBuffer tick, long nowNanos) {
+        synchronized (this) {
+            if (closed) {
+                return 0;
+            }
+            if (throttledTicks == null) {
+                throttledTicks = new ByteBuffer[pairCount];
+                throttleDueNanos = new long[pairCount];
+            }
+
+            ByteBuffer held = throttledTicks[pairId];
+            if (held != null || nowNanos - throttleDueNanos[pairId] < 0) {
+                throttledTicks[pairId] = tick;
+                if (held != null) {
+                    throttledTickCount++;
+                    metrics.tickThrottled();
+                    return 0;               // THE RELEASE IS ALREADY SCHEDULED.
+                }
+                return Math.max(1, throttleDueNanos[pairId] - nowNanos);
+            }
+            throttleDueNanos[pairId] = nowNanos + throttleIntervals[pairId];
+        }
+        return enqueueTick(pairId, tick) ? THROTTLE_FLUSH_REQUIRED : 0;
+    }
+
+    /**
+     * Queues the tick held for a throttled pair, if any, and starts the pair's next interval.
+     * Safe to call from any thread.
+     *
+     * @return Same as {@link #enqueue(ByteBuffer)}: {@code true} if the caller must call {@link #requestFlush()}.
+     */
+    public boolean releaseThrottledTick(int pairId, long nowNanos) {
+        ByteBuffer tick;
+        synchronized (this) {
+            if (closed || throttledTicks == null || throttledTicks[pairId] == null) {
+                return false;
+            }
+            tick = throttledTicks[pairId];
+            throttledTicks[pairId] = null;
+            throttleDueNanos[pairId] = nowNanos + throttleIntervals[pairId];
+            if (!subscribedPairs.get(pairId)) {
+                return false;               // UNSUBSCRIBED WHILE THE TICK WAS HELD.
+            }
+        }
+        return enqueueTick(pairId, tick);
+    }
+
+
+    /**
+     * Asks the writer to drain the queued messages: flags the key for {@code OP_WRITE} and wakes the selector.
+     * Safe to call from any thread.
+     */
+    public void requestFlush() {
+        synchronized (this) {
+            flushRequestPending = false;
+            if (closed) {
+                return;
+            }
+            armWrite();
+        }
+        wakeUpWriter();
+    }
+
+
+    /**
+     * Writes as many queued bytes as the socket accepts without blocking, using gathering
+     * writes of up to {@value #MAX_BUFFERS_PER_WRITE} buffers at a time.
+     * Conflated ticks are moved to the queue whenever it runs empty.
+     * Must only be called from the selector thread that owns the key.
+     * {@code OP_WRITE} interest is cleared once the queue and all conflation slots are empty.
+     *
+     * @throws IOException if writing to the channel fails.
+     */
+    public synchronized void flush() throws IOException {
+        moveLatestTicksToQueueIfEmpty();
+
+        while (!outboundQueue.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer buffer : outboundQueue) {
+                writeBatch[count++] = buffer;
+                if (count == writeBatch.length) {
+                    break;
+                }
+            }
+
+            long written = channel.write(writeBatch, 0, count);
+            pendingBytes -= (int) written;
+            metrics.queuedBytesChanged(-written);
+            boolean socketFull = writeBatch[count - 1].hasRemaining();
+            Arrays.fill(writeBatch, 0, count, null);
+
+            int completed = 0;
+            while (!outboundQueue.isEmpty() && !outboundQueue.peekFirst().hasRemaining()) {
+                outboundQueue.pollFirst();
+                completed++;
+            }
+            metrics.written(written, completed);
+            if (socketFull) {
+                metrics.partialWrite();
+                return;         // SOCKET BUFFER IS FULL. KEEP OP_WRITE AND CONTINUE ON NEXT WRITABLE EVENT.
+            }
+            moveLatestTicksToQueueIfEmpty();
+        }
+
+        drained();
+        if (key.isValid()) {
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        }
+    }
+
+
+    /**
+     * Drains the queue with blocking writes, for channels in blocking mode. Batches of queued buffers
+     * are taken off the queue under the lock but written without holding it, so a slow socket never
+     * blocks the publisher queuing the next tick. Must only be called by the connection's single writer thread.
+     *
+     * @throws IOException if writing to the channel fails.
+     */
+    void drainBlocking() throws IOException {
+        ByteBuffer[] batch = writeBatch;            // ONLY THE WRITER THREAD USES THE BATCH IN BLOCKING MODE.
+        while (true) {
+            int count;
+            synchronized (this) {
+                moveLatestTicksToQueueIfEmpty();
+                count = 0;
+                while (count < batch.length && !outboundQueue.isEmpty()) {
+                    batch[count++] = outboundQueue.pollFirst();
+                }
+                if (count == 0) {
+                    drained();
+                    return;
+                }
+            }
+
+            long written = 0;
+            try {
+                while (batch[count - 1].hasRemaining()) {
+                    written += channel.write(batch, 0, count);
+                }
+                metrics.written(written, count);
+            } finally {
+                Arrays.fill(batch, 0, count, null);
+                synchronized (this) {
+                    if (!closed) {                  // close() ALREADY DISCARDED THE PENDING BYTES.
+                        pendingBytes -= (int) written;
+                        metrics.queuedBytesChanged(-written);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Marks the connection as closed and discards all pending messages.
+     * Further {@link #send(ByteBuffer)} calls are rejected.
+     */
+    public synchronized void close() {
+        closed = true;
+        outboundQueue.clear();
+        discardPendingBytes();
+        if (latestTicks != null) {
+            Arrays.fill(latestTicks, null);
+            pendingPairCount = 0;
+        }
+        if (throttledTicks != null) {
+            Arrays.fill(throttledTicks, null);
+        }
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public SelectionKey getKey() {
+        return key;
+    }
+
+    /**
+     * @return The decoder holding this client's partially received command, if any.
+     *         Only used by the thread reading the connection.
+     */
+    public LineFrameDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * @return {@code true} if the client negotiated the {@link BinaryFrame} protocol at connect time.
+     */
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    public void setBinaryProtocol(boolean binaryProtocol) {
+        this.binaryProtocol = binaryProtocol;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} of the last read that returned data, or of the
+     *         connection's creation. Written by the thread reading the connection.
+     */
+    public long getLastReadNanos() {
+        return lastReadNanos;
+    }
+
+    public void setLastReadNanos(long lastReadNanos) {
+        this.lastReadNanos = lastReadNanos;
+    }
+
+    /**
+     * @return The bucket of the reactor's idle wheel holding this connection's next idle check.
+     */
+    public int getIdleWheelBucket() {
+        return idleWheelBucket;
+    }
+
+    public void setIdleWheelBucket(int idleWheelBucket) {
+        this.idleWheelBucket = idleWheelBucket;
+    }
+
+    /**
+     * @return The ids of the pairs this client is subscribed to. Modified only by the thread handling
+     *         the connection's commands.
+     */
+    BitSet getSubscribedPairs() {
+        return subscribedPairs;
+    }
+
+    /**
+     * Makes a requested flush visible to the writer. Called while holding the connection's lock,
+     * only for open connections.
+     */
+    protected void armWrite() {
+        key.interestOpsOr(SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Wakes the writer up after {@link #armWrite()}. Called without holding the connection's lock.
+     */
+    protected void wakeUpWriter() {
+        key.selector().wakeup();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized int getPendingBytes() {
+        return pendingBytes;
+    }
+
+    public synchronized long getDroppedMessages() {
+        return droppedMessages;
+    }
+
+    /**
+     * @return The number of ticks that were replaced by a newer tick of the same pair before being sent.
+     *         Always zero in {@link DeliveryMode#QUEUE} mode.
+     */
+    public synchronized long getConflatedTicks() {
+        return conflatedTicks;
+    }
+
+    /**
+     * @return The number of ticks of throttled pairs that were replaced by a newer tick within the pair's interval.
+     */
+    public synchronized long getThrottledTicks() {
+        return throttledTickCount;
+    }
+
+
+    /**
+     * Moves the pending conflated ticks to the outbound queue once everything queued before them was written.
+     * Ticks of pairs the client unsubscribed from in the meantime are discarded.
+     */
+    private void moveLatestTicksToQueueIfEmpty() {
+        if (pendingPairCount == 0 || !outboundQueue.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < pendingPairCount; i++) {
+            int pairId = pendingPairIds[i];
+            ByteBuffer tick = latestTicks[pairId];
+            latestTicks[pairId] = null;
+            if (subscribedPairs.get(pairId)) {
+                outboundQueue.addLast(tick);
+                pendingBytes += tick.remaining();
+                metrics.queuedBytesChanged(tick.remaining());
+            }
+        }
+        pendingPairCount = 0;
+    }
+
+    /**
+     * Resets the overflow and conflation state once the queue was written completely.
+     */
+    private void drained() {
+        if (overflowing) {
+            overflowing = false;
+            logger.info("Outbound buffer of client {} drained. {} messages dropped so far.", channel, droppedMessages);
+        }
+        if (conflating) {
+            conflating = false;
+            logger.debug("Client {} caught up. {} ticks conflated so far.", channel, conflatedTicks);
+        }
+    }
+
+    private void discardPendingBytes() {
+        metrics.queuedBytesChanged(-pendingBytes);
+        pendingBytes = 0;
+    }
+
+}
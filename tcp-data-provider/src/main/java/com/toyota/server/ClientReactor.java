@@ -0,0 +1,370 @@
+package com.toyota.server;
+
+import com.toyota.auth.AuthService;
+import com.toyota.entity.ServerResponse;
+import com.toyota.metrics.ServerMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker reactor of the {@link FxDataServer}. Each reactor owns one {@link Selector}
+ * and runs on its own thread, handling every I/O event of the clients assigned to it:
+ * reading commands, which the {@link ClientCommandHandler} parses and executes
+ * (authentication via the {@link AuthService}, subscriptions), and draining outbound buffers.
+ * <p>
+ * Every reactor keeps its own {@link SubscriptionIndex} (pair id -> subscribed connections)
+ * that only contains its own clients, so reactors never contend with each other when
+ * clients subscribe or disconnect. The publisher walks the views of all reactors.
+ * </p>
+ * <p>
+ * Idle clients are tracked with a {@link TimingWheel} on the reactor thread. A client that sent
+ * nothing for the heartbeat interval receives a {@code PING} and is expected to answer with
+ * {@code pong}; a client that stays silent for the idle timeout is closed, which also removes it
+ * from the subscriptions. Each connection has at most one wheel entry that is only rescheduled when
+ * it expires, so reads never touch the wheel and half-open connections are reaped within the idle
+ * timeout plus one wheel tick.
+ * </p>
+ */
+public class ClientReactor implements Runnable {
+
+    private static final Logger logger = LogManager.getLogger(ClientReactor.class);
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final long MAX_WHEEL_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MIN_WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Selector selector;
+    private final int MAX_PENDING_BYTES;
+    private final OverflowPolicy OVERFLOW_POLICY;
+    private final DeliveryMode DELIVERY_MODE;
+    private final long HEARTBEAT_INTERVAL_NANOS;     // 0 = NO PINGS.
+    private final long IDLE_TIMEOUT_NANOS;           // 0 = IDLE CLIENTS ARE NEVER CLOSED.
+
+    private final CurrencyPairRegistry currencyPairs;
+    private final ClientCommandHandler commandHandler;
+    private final ServerMetrics metrics;
+    private final Queue<Runnable> pendingTasks;
+    private final TimingWheel<ClientConnection> idleWheel;     // NULL IF HEARTBEATS AND IDLE TIMEOUT ARE DISABLED.
+    private final TimingWheel.ExpiryHandler<ClientConnection> idleCheck;
+
+    private final ByteBuffer readBuffer;        // SHARED BY ALL CLIENTS OF THIS REACTOR. ONLY USED ON THE REACTOR THREAD.
+    private final ClientCommand command;
+
+    /**
+     * @param heartbeatIntervalSeconds Silence after which a client is sent a {@code PING}, 0 disables pings.
+     * @param idleTimeoutSeconds       Silence after which a client is closed, 0 disables the idle timeout.
+     * @param snapshotProvider         Sends the current rates of newly subscribed pairs, {@code null} disables snapshots.
+     */
+    public ClientReactor(int maxPendingBytes,
+                         OverflowPolicy overflowPolicy,
+                         DeliveryMode deliveryMode,
+                         int heartbeatIntervalSeconds,
+                         int idleTimeoutSeconds,
+                         CurrencyPairRegistry currencyPairs,
+                         SubscriptionIndex subscriptions,
+                         SnapshotProvider snapshotProvider,
+                         AuthService authService,
+                         ServerMetrics metrics) throws IOException {
+        this.selector = Selector.open();
+        this.MAX_PENDING_BYTES = maxPendingBytes;
+        this.OVERFLOW_POLICY = overflowPolicy;
+        this.DELIVERY_MODE = deliveryMode;
+        this.HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(Math.max(0, heartbeatIntervalSeconds));
+        this.IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(Math.max(0, idleTimeoutSeconds));
+        this.currencyPairs = currencyPairs;
+        this.metrics = metrics;
+        this.commandHandler = new ClientCommandHandler(
+                authService, currencyPairs, subscriptions, snapshotProvider, metrics,
+                connection -> shutDownClient(connection.getKey())
+        );
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        this.command = new ClientCommand();
+        this.idleWheel = createIdleWheel();
+        this.idleCheck = this::checkIdleClient;
+    }
+
+
+    /**
+     * Runs the reactor's event loop until its selector is closed.
+     * Processes tasks handed over by other threads (new connections, shutdown requests)
+     * and the I/O events of the registered clients.
+     */
+    @Override
+    public void run() {
+        logger.trace("run method begins.");
+        long selectTimeout = idleWheel == null ? 0 : idleWheel.tickMillis();       // 0 BLOCKS UNTIL AN EVENT.
+        try {
+            while (selector.isOpen()) {
+                selector.select(selectTimeout);
+                runPendingTasks();
+
+                Set<SelectionKey> selectedKeys = selector.selectedKeys();
+                Iterator<SelectionKey> iterator = selectedKeys.iterator();
+
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+
+                    if (!key.isValid()) {
+                        logger.warn("Skipping invalid SelectionKey.");
+                        continue;
+                    }
+
+                    if (key.isReadable()) {
+                        logger.trace("Handling incoming client message.");
+                        handleClientMessage(key);     // Key keeps channel and its events
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        logger.trace("Draining outbound buffer of client.");
+                        handleClientWrite(key);
+                    }
+                }
+
+                if (idleWheel != null) {
+                    idleWheel.advance(System.nanoTime(), idleCheck);
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            logger.trace("Reactor selector closed.");
+        } catch (IOException e) {
+            logger.error("IOException in reactor loop: {}", e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Unexpected exception in reactor loop: {}", e.getMessage(), e);
+        }
+        logger.info("Client reactor stopped.");
+        logger.trace("run method finished.");
+    }
+
+
+    /**
+     * Hands an accepted client channel over to this reactor. Safe to call from any thread.
+     * The channel is registered with the reactor's selector for read events (OP_READ) on the
+     * reactor thread, and a {@link ClientConnection} holding its outbound buffer is attached to the key.
+     *
+     * @param clientChannel The accepted, non-blocking client channel.
+     */
+    public void register(SocketChannel clientChannel) {
+        pendingTasks.add(() -> {
+            try {
+                SelectionKey clientKey = clientChannel.register(selector, SelectionKey.OP_READ);
+                ClientConnection connection = new ClientConnection(
+                        clientChannel,
+                        clientKey,
+                        MAX_PENDING_BYTES,
+                        OVERFLOW_POLICY,
+                        DELIVERY_MODE,
+                        currencyPairs.size(),
+                        this::requestShutDown,
+                        metrics
+                );
+                clientKey.attach(connection);
+                metrics.connectionOpened();
+                if (idleWheel != null) {
+                    connection.setIdleWheelBucket(idleWheel.schedule(connection, nextIdleCheckDelay(0), connection.getLastReadNanos()));
+                }
+                logger.info("Client connected: {}", commandHandler.getClientAddressSafe(clientChannel));
+            } catch (IOException e) {
+                logger.error("IOException while registering client {}: {}", commandHandler.getClientAddressSafe(clientChannel), e.getMessage(), e);
+                closeQuietly(clientChannel);
+            }
+        });
+        selector.wakeup();
+    }
+
+
+    /**
+     * Stops the event loop by closing the reactor's selector.
+     */
+    public void shutDown() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.error("IOException while closing reactor selector: {}", e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Handles incoming messages from a client (OP_READ event).
+     * Reads data from the client's channel into the reactor's reusable read buffer and hands it
+     * to {@link ClientCommandHandler#handleInput(ClientConnection, ByteBuffer, ClientCommand)},
+     * which executes every complete command with the reactor's {@link ClientCommand}.
+     * Bytes of an incomplete command are kept by the connection's decoder until the rest arrives.
+     * Handles client disconnection if read returns -1 or an IOException occurs.
+     *
+     * @param key The {@link SelectionKey} associated with the readable client channel.
+     */
+    private void handleClientMessage(SelectionKey key) {
+        logger.trace("handleClientMessage method called.");
+        try {
+            ClientConnection connection = (ClientConnection) key.attachment();
+            SocketChannel clientChannel = connection.getChannel();
+
+            readBuffer.clear();
+            int bytesRead = clientChannel.read(readBuffer);
+
+            if (bytesRead == -1) {
+                shutDownClient(key);
+                logger.info("Client {} disconnected gracefully (read returned -1).", commandHandler.getClientAddressSafe(clientChannel));
+            } else if (bytesRead > 0) {
+                connection.setLastReadNanos(System.nanoTime());       // THE IDLE WHEEL ENTRY IS ONLY CHECKED WHEN IT EXPIRES.
+                readBuffer.flip();
+                commandHandler.handleInput(connection, readBuffer, command);
+            }
+        } catch (IOException e) {
+            String clientAddr = commandHandler.getClientAddressSafe((SocketChannel)key.channel());
+            logger.warn("IOException while handling client message from {}: {}. Closing connection.", clientAddr, e.getMessage());
+            shutDownClient(key);
+        }
+        logger.trace("handleClientMessage method finished.");
+    }
+
+
+    /**
+     * Handles a writable client channel (OP_WRITE event) by draining as much of the
+     * client's outbound buffer as the socket accepts.
+     *
+     * @param key The {@link SelectionKey} associated with the writable client channel.
+     */
+    private void handleClientWrite(SelectionKey key) {
+        ClientConnection connection = (ClientConnection) key.attachment();
+        try {
+            connection.flush();
+        } catch (IOException e) {
+            logger.warn("IOException while writing to client {}: {}. Closing connection.", commandHandler.getClientAddressSafe(connection.getChannel()), e.getMessage());
+            metrics.writeFailed();
+            shutDownClient(key);
+        }
+    }
+
+
+    /**
+     * Cleans up resources associated with a client connection.
+     * Removes the client from all subscription lists, discards its outbound buffer,
+     * disconnects the session in the {@link AuthService}, cancels the {@link SelectionKey},
+     * and closes the {@link SocketChannel}.
+     *
+     * @param key The SelectionKey associated with the client to shut down.
+     */
+    private void shutDownClient(SelectionKey key) {
+        logger.trace("shutDownClient method called.");
+
+        try {
+            ClientConnection connection = (ClientConnection) key.attachment();
+            if (idleWheel != null) {
+                idleWheel.cancel(connection, connection.getIdleWheelBucket());
+            }
+            commandHandler.releaseClient(connection);
+            key.cancel();
+            connection.getChannel().close();
+
+        } catch (IOException e) {
+            logger.error("IOException while closing client resources: {}", e.getMessage(), e);
+        }
+        logger.trace("shutDownClient method finished.");
+    }
+
+
+    /**
+     * Schedules {@link #shutDownClient(SelectionKey)} on the selector thread.
+     * Used by connections that must be closed from another thread (e.g. on buffer overflow).
+     */
+    private void requestShutDown(ClientConnection connection) {
+        pendingTasks.add(() -> {
+            if (connection.getKey().isValid()) {
+                shutDownClient(connection.getKey());
+            }
+        });
+        selector.wakeup();
+    }
+
+
+    /**
+     * Called by the idle wheel for a connection whose check is due. Closes the client if it stayed
+     * silent for the idle timeout, sends a {@code PING} if it stayed silent for the heartbeat interval,
+     * and schedules the next check. Connections closed by the reactor are cancelled from the wheel, others
+     * that were closed in the meantime simply leave it here.
+     */
+    private void checkIdleClient(ClientConnection connection, long nowNanos) {
+        if (connection.isClosed() || !connection.getKey().isValid()) {
+            return;
+        }
+
+        long idleNanos = nowNanos - connection.getLastReadNanos();
+        if (IDLE_TIMEOUT_NANOS > 0 && idleNanos >= IDLE_TIMEOUT_NANOS) {
+            logger.warn("Client {} sent nothing for {} ms. Closing idle connection.",
+                    commandHandler.getClientAddressSafe(connection.getChannel()), TimeUnit.NANOSECONDS.toMillis(idleNanos));
+            shutDownClient(connection.getKey());
+            return;
+        }
+
+        if (HEARTBEAT_INTERVAL_NANOS > 0 && idleNanos >= HEARTBEAT_INTERVAL_NANOS) {
+            logger.debug("Sending heartbeat to idle client {}.", commandHandler.getClientAddressSafe(connection.getChannel()));
+            commandHandler.sendInfoMessageToClient(connection, ServerResponse.PING.getMessage());
+        }
+        connection.setIdleWheelBucket(idleWheel.schedule(connection, nextIdleCheckDelay(idleNanos), nowNanos));
+    }
+
+    /**
+     * @return The time until the next heartbeat or idle timeout of a client that has been silent for
+     *         {@code idleNanos}. Once the heartbeat interval has passed, pings repeat every interval.
+     */
+    private long nextIdleCheckDelay(long idleNanos) {
+        long delay = Long.MAX_VALUE;
+        if (HEARTBEAT_INTERVAL_NANOS > 0) {
+            delay = idleNanos < HEARTBEAT_INTERVAL_NANOS
+                    ? HEARTBEAT_INTERVAL_NANOS - idleNanos
+                    : HEARTBEAT_INTERVAL_NANOS;
+        }
+        if (IDLE_TIMEOUT_NANOS > 0) {
+            delay = Math.min(delay, IDLE_TIMEOUT_NANOS - idleNanos);
+        }
+        return delay;
+    }
+
+    private TimingWheel<ClientConnection> createIdleWheel() {
+        if (HEARTBEAT_INTERVAL_NANOS == 0 && IDLE_TIMEOUT_NANOS == 0) {
+            return null;
+        }
+        long maxDelay = Math.max(HEARTBEAT_INTERVAL_NANOS, IDLE_TIMEOUT_NANOS);
+        long minDelay = HEARTBEAT_INTERVAL_NANOS == 0 || IDLE_TIMEOUT_NANOS == 0
+                ? maxDelay
+                : Math.min(HEARTBEAT_INTERVAL_NANOS, IDLE_TIMEOUT_NANOS);
+        long tick = Math.max(MIN_WHEEL_TICK_NANOS, Math.min(MAX_WHEEL_TICK_NANOS, minDelay / 8));
+        return new TimingWheel<>(tick, maxDelay, System.nanoTime());
+    }
+
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+
+
+
+    private void closeQuietly(SocketChannel clientChannel) {
+        try {
+            clientChannel.close();
+        } catch (IOException e) {
+            logger.warn("IOException while closing client channel: {}", e.getMessage());
+        }
+    }
+
+
+
+}
\ No newline at end of file
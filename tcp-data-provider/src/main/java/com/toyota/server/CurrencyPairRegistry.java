@@ -0,0 +1,134 @@
+package com.toyota.server;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the supported currency pairs to dense integer ids at startup.
+ * <p>
+ * The id of a pair is its index in the initial rate list, which is also its index in the
+ * rate simulation engine and the pair id sent in binary ticks. The registry is immutable
+ * and shared by all reactors and the publisher.
+ * </p>
+ * <p>
+ * Besides single names, subscribe commands may carry a pair list: comma separated names and
+ * glob patterns where {@code *} matches any sequence and {@code ?} a single character,
+ * e.g. {@code TCP_USDTRY,TCP_EURUSD} or {@code TCP_*USD*}.
+ * </p>
+ */
+public class CurrencyPairRegistry {
+
+    public static final int UNKNOWN_PAIR = -1;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+
+    public CurrencyPairRegistry(List<String> currencyPairs) {
+        this.names = currencyPairs.toArray(new String[0]);
+        this.ids = new HashMap<>(currencyPairs.size() * 2);
+        for (int id = 0; id < names.length; id++) {
+            ids.put(names[id], id);
+        }
+    }
+
+
+    /**
+     * @return The id of the pair, or {@link #UNKNOWN_PAIR} if the pair is not supported.
+     */
+    public int idOf(String currencyPair) {
+        Integer id = ids.get(currencyPair);
+        return id == null ? UNKNOWN_PAIR : id;
+    }
+
+    /**
+     * @return {@code true} if the value is a pair list (contains a comma or a glob wildcard)
+     *         rather than a single pair name.
+     */
+    public static boolean isPairList(String value) {
+        return value.indexOf(',') >= 0 || isPattern(value);
+    }
+
+    /**
+     * Resolves a pair list and sets the ids of all matching pairs in {@code target}.
+     *
+     * @param pairList Comma separated pair names and glob patterns, already upper case.
+     * @param target   Receives the matching pair ids.
+     * @return The entries of the list that matched no pair.
+     */
+    public List<String> resolve(String pairList, BitSet target) {
+        List<String> unmatched = new ArrayList<>();
+        for (String entry : pairList.split(",")) {
+            String pattern = entry.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            boolean matched = false;
+            if (isPattern(pattern)) {
+                for (int id = 0; id < names.length; id++) {
+                    if (matchesGlob(pattern, names[id])) {
+                        target.set(id);
+                        matched = true;
+                    }
+                }
+            } else {
+                int id = idOf(pattern);
+                if (id != UNKNOWN_PAIR) {
+                    target.set(id);
+                    matched = true;
+                }
+            }
+
+            if (!matched) {
+                unmatched.add(pattern);
+            }
+        }
+        return unmatched;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+
+    private static boolean isPattern(String value) {
+        return value.indexOf('*') >= 0 || value.indexOf('?') >= 0;
+    }
+
+    /**
+     * Glob match with backtracking to the last {@code *}. Runs in O(pattern * name) at worst.
+     */
+    private static boolean matchesGlob(String pattern, String name) {
+        int p = 0;
+        int n = 0;
+        int starPattern = -1;
+        int starName = 0;
+
+        while (n < name.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+                p++;
+                n++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starPattern = p++;
+                starName = n;
+            } else if (starPattern >= 0) {
+                p = starPattern + 1;
+                n = ++starName;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+}
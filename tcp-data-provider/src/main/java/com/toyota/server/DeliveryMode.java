@@ -0,0 +1,20 @@
+package com.toyota.server;
+
+/**
+ * Defines how rate ticks are delivered to a client that does not read as fast as they are published.
+ */
+public enum DeliveryMode {
+
+    /**
+     * Every tick is appended to the client's outbound queue. A slow client receives a growing
+     * backlog of ticks until the {@link OverflowPolicy} applies.
+     */
+    QUEUE,
+
+    /**
+     * The client keeps one "latest pending" slot per pair. A tick that arrives while the previous
+     * tick of the same pair is still pending replaces it, so a slow client receives the most recent
+     * price instead of stale ticks, and its memory use stays bounded by the number of pairs.
+     */
+    CONFLATE
+}
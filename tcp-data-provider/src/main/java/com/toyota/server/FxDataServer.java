@@ -1,65 +1,110 @@
 package com.toyota.server;
 
 import com.toyota.auth.AuthService;
-import com.toyota.entity.ServerResponse;
+import com.toyota.metrics.ServerMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
+import java.net.StandardSocketOptions;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A non-blocking TCP server using Java NIO (`Selector`, `Channels`) to handle
  * client connections for a simulated Forex (FX) data service.
  * <p>
- * This server listens on a specified port, accepts multiple client connections,
+ * The server follows a boss/worker reactor model. The boss thread running
+ * {@link #startServer()} only accepts connections and hands them round-robin to
+ * N {@link ClientReactor} workers. Each worker has its own selector and thread and
  * authenticates users via an {@link AuthService}, manages client subscriptions
  * to specific currency pairs, and processes commands (`connect`, `disconnect`,
- * `subscribe`, `unsubscribe`) received from clients.
+ * `subscribe`, `unsubscribe`) received from its clients.
  * </p>
  */
 public class FxDataServer {
 
     private static final Logger logger = LogManager.getLogger(FxDataServer.class);
 
-    private Selector selector;
     private final int SERVER_PORT;
+    private final int SOCKET_SEND_BUFFER;
 
-    private final AuthService authService;
-    private final List<String> currencyPairs;
-    private final ConcurrentHashMap<String, Set<SocketChannel>> subscriptions;
+    private final List<ClientReactor> reactors;
+    private final ExecutorService reactorExecutor;
+    private int nextReactor = 0;
 
+    /**
+     * @param socketSendBuffer  {@code SO_SNDBUF} of accepted client sockets in bytes, 0 keeps the OS default.
+     * @param heartbeatIntervalSeconds Silence after which a client is sent a {@code PING}, 0 disables pings.
+     * @param idleTimeoutSeconds       Silence after which a client is closed, 0 disables the idle timeout.
+     * @param snapshotProvider         Sends the current rates of newly subscribed pairs, {@code null} disables snapshots.
+     * @param subscriptionViews One subscription index per worker reactor. The number of views
+     *                          determines the number of worker reactors.
+     * @param metrics           Counters shared by all reactors.
+     */
     public FxDataServer(int server_port,
-                        List<String> currency_pairs,
-                        ConcurrentHashMap<String, Set<SocketChannel>> subscriptions,
-                        AuthService authService) {
+                        int socketSendBuffer,
+                        int maxPendingBytes,
+                        OverflowPolicy overflowPolicy,
+                        DeliveryMode deliveryMode,
+                        int heartbeatIntervalSeconds,
+                        int idleTimeoutSeconds,
+                        CurrencyPairRegistry currencyPairs,
+                        List<SubscriptionIndex> subscriptionViews,
+                        SnapshotProvider snapshotProvider,
+                        AuthService authService,
+                        ServerMetrics metrics) throws IOException {
         this.SERVER_PORT = server_port;
-        this.currencyPairs = currency_pairs;
-        this.subscriptions = subscriptions;
-        this.authService = authService;
+        this.SOCKET_SEND_BUFFER = socketSendBuffer;
+        this.reactors = new ArrayList<>(subscriptionViews.size());
+
+        for (SubscriptionIndex subscriptions : subscriptionViews) {
+            reactors.add(new ClientReactor(
+                    maxPendingBytes,
+                    overflowPolicy,
+                    deliveryMode,
+                    heartbeatIntervalSeconds,
+                    idleTimeoutSeconds,
+                    currencyPairs,
+                    subscriptions,
+                    snapshotProvider,
+                    authService,
+                    metrics
+            ));
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.reactorExecutor = Executors.newFixedThreadPool(
+                reactors.size(),
+                runnable -> new Thread(runnable, "fx-reactor-" + threadCounter.getAndIncrement())
+        );
     }
 
 
     /**
-     * Starts the server's main loop.
+     * Starts the worker reactors and the server's accept loop.
      * Initializes the {@link ServerSocketChannel}, binds it to the configured port,
-     * registers it with the {@link Selector}, and enters a loop processing I/O events
-     * (accepting connections, reading client messages).
+     * registers it with the boss {@link Selector}, and enters a loop accepting connections.
+     * Worker reactors are stopped when the accept loop ends.
      */
     public void startServer() {
         logger.trace("startServer method begins.");
-        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
-            this.selector = Selector.open();
+        reactors.forEach(reactorExecutor::execute);
+        logger.info("Started {} client reactor(s).", reactors.size());
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+             Selector selector = Selector.open()) {
+
             serverChannel.bind(new InetSocketAddress(SERVER_PORT));
             serverChannel.configureBlocking(false);
             serverChannel.register(selector, SelectionKey.OP_ACCEPT);
@@ -73,25 +118,11 @@ public class FxDataServer {
                     SelectionKey key = iterator.next();
                     iterator.remove();
 
-                    if (!key.isValid()) {
-                        logger.warn("Skipping invalid SelectionKey.");
-                        continue;
-                    }
-
-                    if (key.isAcceptable()) {
+                    if (key.isValid() && key.isAcceptable()) {
                         logger.trace("Handling new connection request.");
                         handleConnectionRequest(serverChannel);
-                    } else if (key.isReadable()) {
-                        logger.trace("Handling incoming client message.");
-                        handleClientMessage(key);     // Key keeps channel and its events
                     }
                 }
-
-            }
-
-            if(selector != null && selector.isOpen()){
-                logger.trace("Closing selector.");
-                selector.close();
             }
 
         } catch (IOException e) {
@@ -99,6 +130,9 @@ public class FxDataServer {
         } catch (Exception e) {
             logger.error("Unexpected exception during server socket setup or main loop on port {}: {}", SERVER_PORT, e.getMessage(), e);
         }
+
+        reactors.forEach(ClientReactor::shutDown);
+        reactorExecutor.shutdown();
         logger.info("FX Data Server stopped.");
         logger.trace("startServer method finished.");
     }
@@ -107,7 +141,7 @@ public class FxDataServer {
     /**
      * Handles an incoming connection request (OP_ACCEPT event).
      * Accepts the new client connection, configures it for non-blocking mode,
-     * and registers it with the selector to listen for read events (OP_READ).
+     * and hands it to the next worker reactor in round-robin order.
      *
      * @param serverChannel The server socket channel that accepted the connection.
      */
@@ -117,9 +151,14 @@ public class FxDataServer {
             SocketChannel clientChannel = serverChannel.accept();
             if (clientChannel != null) {
                 clientChannel.configureBlocking(false);
-                clientChannel.register(selector, SelectionKey.OP_READ);
+                if (SOCKET_SEND_BUFFER > 0) {
+                    // A SMALL KERNEL BUFFER LETS A SLOW CLIENT FALL BEHIND IN OUR QUEUE, WHERE TICKS CAN BE CONFLATED.
+                    clientChannel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_SEND_BUFFER);
+                }
 
-                logger.info("Client connected: {}", getClientAddressSafe(clientChannel));
+                ClientReactor reactor = reactors.get(nextReactor);
+                nextReactor = (nextReactor + 1) % reactors.size();
+                reactor.register(clientChannel);
             }
         } catch (IOException e) {
             logger.error("IOException while handling connection request: {}", e.getMessage(), e);
@@ -127,271 +166,4 @@ public class FxDataServer {
         logger.trace("handleConnectionRequest method finished.");
     }
 
-
-
-    /**
-     * Handles incoming messages from a client (OP_READ event).
-     * Reads data from the client's channel, decodes it, splits into potential
-     * commands, and passes each command to {@link #validateMessageAndTakeAction(SocketChannel, String)}.
-     * Handles client disconnection if read returns -1 or an IOException occurs.
-     *
-     * @param key The {@link SelectionKey} associated with the readable client channel.
-     */
-    private void handleClientMessage(SelectionKey key) {
-        logger.trace("handleClientMessage method called.");
-        try {
-            SocketChannel clientChannel = (SocketChannel) key.channel();
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
-            int bytesRead = clientChannel.read(buffer);
-
-            if (bytesRead == -1) {
-                shutDownClient(key);
-                logger.info("Client {} disconnected gracefully (read returned -1).", getClientAddressSafe(clientChannel));
-            } else if (bytesRead > 0) {
-                buffer.flip();
-                byte[] byteData = new byte[buffer.remaining()];
-                buffer.get(byteData);
-
-                String[] clientMessage = new String(byteData, StandardCharsets.UTF_8)
-                        .split("\n");
-
-                for (String message : clientMessage) {
-                    logger.debug("Received message from client {}: {}", getClientAddressSafe(clientChannel), message);
-                    validateMessageAndTakeAction(clientChannel, message);
-                }
-
-            }
-        } catch (IOException e) {
-            String clientAddr = getClientAddressSafe((SocketChannel)key.channel());
-            logger.warn("IOException while handling client message from {}: {}. Closing connection.", clientAddr, e.getMessage());
-            shutDownClient(key);
-        }
-        logger.trace("handleClientMessage method finished.");
-    }
-
-
-    /**
-     * Parses a received message string, identifies the command, and delegates
-     * processing to the appropriate handler method (handleConnect, handleSubscribe, etc.).
-     * Sends an error message back to the client if the command is unrecognized.
-     *
-     * @param clientChannel The channel from which the message was received.
-     * @param message       The raw message string received from the client.
-     */
-    private void validateMessageAndTakeAction(SocketChannel clientChannel, String message) {
-        logger.trace("validateMessageAndTakeAction method called for message: {}", message);
-
-        String[] messageParts = message.split("\\|");
-        String command = messageParts[0];
-
-        logger.debug("Processing command: {}", command);
-        switch (command) {
-            case "connect":
-                handleConnect(clientChannel, messageParts);
-                break;
-
-            case "disconnect":
-                shutDownClient(clientChannel.keyFor(selector));
-                break;
-
-            case "subscribe":
-                handleSubscribe(clientChannel, messageParts);
-                break;
-
-            case "unsubscribe":
-                handleUnsubscribe(clientChannel, messageParts);
-                break;
-
-            default:
-                logger.warn("Invalid command received: {}", command);
-                sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_COMMAND.getMessage());
-                break;
-        }
-        logger.trace("validateMessageAndTakeAction method finished.");
-    }
-
-
-
-    /**
-     * Handles the "subscribe" command. Validates arguments, checks authentication,
-     * checks if the currency pair is valid, and adds the client channel to the
-     * subscription set for that pair. Sends appropriate success/info/error messages.
-     */
-    private void handleSubscribe(SocketChannel clientChannel, String[] messageParts) {
-        logger.trace("handleSubscribe method called.");
-
-        // KULLANICI AUTHENTICATED OLMADI ISE.
-        if (!authService.isClientAuthenticated(clientChannel)) {
-            logger.warn("Subscribe attempt failed for {}: Not authenticated.", getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_NOT_CONNECTED.getMessage());
-            return;
-        }
-
-
-        if (messageParts.length != 2) {
-            logger.warn("Subscribe attempt failed for {}: Invalid message format.", getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
-            return;
-        }
-
-        String currencyPair = messageParts[1].trim().toUpperCase();
-
-
-        if (!currencyPairs.contains(currencyPair)) {
-            logger.warn("Subscribe attempt failed for {}: Invalid currency pair '{}'.", getClientAddressSafe(clientChannel), currencyPair);
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_CURRENCY_PAIR.getMessage(currencyPair));
-            return;
-        }
-
-        Set<SocketChannel> clients = subscriptions.get(currencyPair);
-        if (clients.contains(clientChannel)) {
-            logger.info("Client {} already subscribed to {}", getClientAddressSafe(clientChannel), currencyPair);
-            sendInfoMessageToClient(clientChannel, ServerResponse.INFO_ALREADY_SUBSCRIBED.getMessage(currencyPair));
-        } else {
-            logger.info("Client {} successfully subscribed to {}", getClientAddressSafe(clientChannel), currencyPair);
-            clients.add(clientChannel);
-            sendInfoMessageToClient(clientChannel, ServerResponse.SUCCESS_SUBSCRIBED.getMessage(currencyPair));
-        }
-        logger.trace("handleSubscribe method finished.");
-    }
-
-
-    /**
-     * Handles the "unsubscribe" command. Validates arguments, checks authentication,
-     * checks if the currency pair is valid, and removes the client channel from the
-     * subscription set for that pair. Sends appropriate success/info/error messages.
-     */
-    private void handleUnsubscribe(SocketChannel clientChannel, String[] messageParts) {
-        logger.trace("handleUnsubscribe method called.");
-
-        // handleSubscribe'daki MANTIK ILE AYNI EGER AUTHENTICATION ISLEMI YAPILMAMIS ISE MESSAGE YOLLA.
-        if (!authService.isClientAuthenticated(clientChannel)) {
-            logger.warn("Unsubscribe attempt failed for {}: Not connected.", getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_NOT_CONNECTED.getMessage());
-            return;
-        }
-
-
-        if (messageParts.length != 2) {
-            logger.warn("Unsubscribe attempt failed for {}: Invalid message format.", getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
-            return;
-        }
-
-        String currencyPair = messageParts[1].trim().toUpperCase();
-        if (!currencyPairs.contains(currencyPair)) {
-            logger.warn("Unsubscribe attempt failed for {}: Invalid currency pair '{}'.", getClientAddressSafe(clientChannel), currencyPair);
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_CURRENCY_PAIR.getMessage(currencyPair));
-            return;
-        }
-
-        Set<SocketChannel> clients = subscriptions.get(currencyPair);
-        if (clients.contains(clientChannel)) {
-            logger.info("Client {} successfully unsubscribed from {}", getClientAddressSafe(clientChannel), currencyPair);
-            clients.remove(clientChannel);
-            sendInfoMessageToClient(clientChannel, ServerResponse.SUCCESS_UNSUBSCRIBED.getMessage(currencyPair));
-        } else {
-            logger.info("Client {} was not subscribed to {}.", getClientAddressSafe(clientChannel), currencyPair);
-            sendInfoMessageToClient(clientChannel, ServerResponse.INFO_NOT_SUBSCRIBED.getMessage(currencyPair));
-        }
-        logger.trace("handleUnsubscribe method finished.");
-    }
-
-
-
-    /**
-     * Handles the "connect" command. Validates arguments, checks if the client is already
-     * authenticated or if the username has an existing session from another channel.
-     * Uses {@link AuthService} to validate credentials and creates a session if successful.
-     * Sends appropriate success/info/error messages.
-     */
-    private void handleConnect(SocketChannel clientChannel, String[] messageParts) {
-        logger.trace("handleConnect method called.");
-
-        if (messageParts.length != 3) {
-            logger.warn("Connect attempt failed for {}: Invalid message format.", getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_MESSAGE_FORMAT.getMessage());
-            return;
-        }
-
-        String username = messageParts[1].trim();
-        String password = messageParts[2].trim();
-
-        // AYNI IP ILE BIR DAHA CONNECT DENER ISE.
-        if (authService.isClientAuthenticated(clientChannel)) {
-            logger.warn("Authentication attempt failed for {}: Already authenticated.", getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.INFO_CLIENT_ALREADY_CONNECTED.getMessage());
-            return;
-        }
-
-        // FARKLI IP'DEN AYNI USERNAME VE PASSWORD GELIR ISE.
-        if (authService.isClientHasASession(username)) {
-            logger.warn("Authentication attempt failed for user '{}' from {}: User already has an active session.", username, getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_CLIENT_ALREADY_HAS_A_SESSION.getMessage());
-            return;
-        }
-
-        // USERNAME PASSWORD DOGRU ISE, CHANNELDAN GELEN USERNAME'I CHANNEL'A MÜHÜRLE (createSession ile).
-        // BÖYLECE BASKA BIR CHANNEL AYNI USERNAME ILE BAGLANAMACAK.
-        if (authService.authenticateUser(username, password)) {
-            authService.createSession(clientChannel,username);
-            sendInfoMessageToClient(clientChannel, ServerResponse.SUCCESS_CONNECTED.getMessage());
-            logger.info("Client {} successfully authenticated and logged in as user '{}'.", getClientAddressSafe(clientChannel), username);
-        } else {
-            logger.warn("Authentication attempt failed for user '{}' from {}: Invalid credentials.", username, getClientAddressSafe(clientChannel));
-            sendInfoMessageToClient(clientChannel, ServerResponse.ERROR_INVALID_CREDENTIALS.getMessage());
-        }
-        logger.trace("handleConnect method finished.");
-    }
-
-
-    /**
-     * Cleans up resources associated with a client connection.
-     * Removes the client from all subscription lists, disconnects the session
-     * in the {@link AuthService}, cancels the {@link SelectionKey}, and closes
-     * the {@link SocketChannel}.
-     *
-     * @param key The SelectionKey associated with the client to shut down.
-     */
-    private void shutDownClient(SelectionKey key) {
-        logger.trace("shutDownClient method called.");
-
-        try {
-            SocketChannel clientChannel = (SocketChannel) key.channel();
-            logger.info("Shutting down client: {}", getClientAddressSafe(clientChannel));
-
-            subscriptions.values()
-                    .forEach(clients -> clients.remove(clientChannel));
-            authService.disconnect(clientChannel);
-            key.cancel();
-            clientChannel.close();
-
-        } catch (IOException e) {
-            logger.error("IOException while closing client resources: {}", e.getMessage(), e);
-        }
-        logger.trace("shutDownClient method finished.");
-    }
-
-
-    private void sendInfoMessageToClient(SocketChannel clientChannel, String message) {
-        ByteBuffer buffer = ByteBuffer.wrap((message + "\r\n").getBytes(StandardCharsets.UTF_8));
-        try {
-            clientChannel.write(buffer);
-        } catch (IOException e) {
-            logger.error("IOException while sending message: {}", e.getMessage(), e);
-        }
-    }
-
-
-    private String getClientAddressSafe(SocketChannel clientChannel) {
-        try {
-            if (clientChannel != null && clientChannel.isOpen()) {
-                return clientChannel.getRemoteAddress().toString();
-            }
-        } catch (IOException e) {
-            logger.warn("IOException when try to get client address. {}",e.getMessage(),e);
-        }
-        return "unknown address";
-    }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package com.toyota.server;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental decoder that splits the byte stream of a client into newline terminated frames.
+ * <p>
+ * One decoder is kept per connection. Bytes of a command that is split across several
+ * TCP reads are kept between calls, so a frame is only delivered once its terminating
+ * {@code '\n'} has arrived. A trailing {@code '\r'} is stripped. Frames longer than
+ * {@link #MAX_FRAME_LENGTH} are discarded up to the next newline and reported as
+ * {@link Result#FRAME_TOO_LONG}.
+ * </p>
+ * <p>
+ * The decoder never allocates per read. Its frame array starts small and only grows
+ * (up to {@link #MAX_FRAME_LENGTH}, plus one byte for a {@code '\r'}) for unusually long commands.
+ * </p>
+ */
+public class LineFrameDecoder {
+
+    public static final int MAX_FRAME_LENGTH = 1024;
+    private static final int INITIAL_FRAME_CAPACITY = 64;
+
+    public enum Result {
+        /** A complete frame is available through {@link #frame()} and {@link #frameLength()}. */
+        FRAME,
+        /** A frame exceeded {@link #MAX_FRAME_LENGTH} and was discarded. */
+        FRAME_TOO_LONG,
+        /** The input is exhausted. Partial frame bytes are kept for the next read. */
+        NEED_MORE_DATA
+    }
+
+    private byte[] frame;
+    private int length;
+    private int frameLength;
+    private boolean discarding;
+
+    public LineFrameDecoder() {
+        this.frame = new byte[INITIAL_FRAME_CAPACITY];
+    }
+
+
+    /**
+     * Consumes bytes from {@code in} until a frame is complete or the input is exhausted.
+     * Call repeatedly until {@link Result#NEED_MORE_DATA} is returned.
+     * The previous frame is invalidated by each call.
+     *
+     * @param in A buffer in read mode. Its position is advanced past the consumed bytes.
+     * @return The decoding result.
+     */
+    public Result decode(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+
+            if (b == '\n') {
+                if (discarding) {
+                    discarding = false;
+                    length = 0;
+                    return Result.FRAME_TOO_LONG;
+                }
+                if (length > 0 && frame[length - 1] == '\r') {
+                    length--;
+                }
+                frameLength = length;
+                length = 0;             // FRAME BYTES STAY VALID UNTIL THE NEXT decode CALL.
+                return Result.FRAME;
+            }
+
+            if (discarding) {
+                continue;
+            }
+            if (length == MAX_FRAME_LENGTH + 1 || (length == MAX_FRAME_LENGTH && b != '\r')) {
+                discarding = true;      // ONE MORE BYTE IS KEPT FOR THE '\r' OF A "\r\n" TERMINATOR.
+                continue;
+            }
+            if (length == frame.length) {
+                frame = Arrays.copyOf(frame, Math.min(frame.length * 2, MAX_FRAME_LENGTH + 1));
+            }
+            frame[length++] = b;
+        }
+        return Result.NEED_MORE_DATA;
+    }
+
+    /**
+     * @return The array holding the last decoded frame, starting at index 0.
+     */
+    public byte[] frame() {
+        return frame;
+    }
+
+    /**
+     * @return The length of the last decoded frame, without the line terminator.
+     */
+    public int frameLength() {
+        return frameLength;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.toyota.server;
+
+/**
+ * Defines what happens when a client's outbound buffer cannot accept another message
+ * because the client is not reading fast enough.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The new message is discarded and the client stays connected.
+     * The client misses updates until its buffer drains.
+     */
+    DROP,
+
+    /**
+     * The client is disconnected and all of its pending messages are discarded.
+     */
+    DISCONNECT
+}
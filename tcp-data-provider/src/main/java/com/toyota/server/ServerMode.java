@@ -0,0 +1,19 @@
+package com.toyota.server;
+
+/**
+ * Defines how client connections are served.
+ */
+public enum ServerMode {
+
+    /**
+     * {@link FxDataServer}: a boss thread accepts clients and N selector-based {@link ClientReactor}s
+     * serve them with non-blocking I/O.
+     */
+    NIO,
+
+    /**
+     * {@link VirtualThreadServer}: every client gets a reader and a writer virtual thread that
+     * use plain blocking I/O.
+     */
+    VIRTUAL_THREADS
+}
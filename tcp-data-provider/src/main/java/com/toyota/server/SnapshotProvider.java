@@ -0,0 +1,23 @@
+package com.toyota.server;
+
+import java.util.BitSet;
+
+/**
+ * Sends the current state of currency pairs to a client right after it subscribed, so it does not
+ * have to wait up to one publish interval for the first tick.
+ * <p>
+ * Snapshots are flagged as such: text clients receive {@code SNAPSHOT|NAME|B:bid|A:ask|T:timestamp}
+ * lines, binary clients {@link BinaryFrame#TYPE_SNAPSHOT} frames.
+ * </p>
+ */
+public interface SnapshotProvider {
+
+    /**
+     * Asks for snapshots of the given pairs to be queued on the connection. Called by reactor threads
+     * after the subscriptions were added; implementations may deliver the snapshots asynchronously.
+     *
+     * @param pairIds The ids of the pairs. Must not be modified by the caller afterwards.
+     */
+    void requestSnapshot(ClientConnection connection, BitSet pairIds);
+
+}
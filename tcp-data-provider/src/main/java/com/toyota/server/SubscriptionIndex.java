@@ -0,0 +1,127 @@
+package com.toyota.server;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The subscriptions of one {@link ClientReactor}: pair id -> copy-on-write array of subscribed connections.
+ * <p>
+ * Modifications are serialized on the index. In NIO mode only the owning reactor thread modifies it,
+ * so the lock is never contended; in {@link VirtualThreadServer} mode the client threads of one shard
+ * share it. The publisher reads the current array of a pair with {@link #subscribers(int)} and
+ * iterates it without hashing or locking. Each connection also keeps
+ * a bitset of its subscribed pair ids, so a subscription check is a single bit test and a disconnect
+ * only visits the pairs the client actually subscribed to.
+ * </p>
+ * <p>
+ * Closed connections are not copied out of the arrays one by one. {@link #removeAll(ClientConnection)}
+ * only counts them, and a pair's array is compacted once at least half of it is closed connections.
+ * The publisher skips closed connections in the meantime, so a mass disconnect costs amortized
+ * constant time per subscription instead of one array copy each.
+ * </p>
+ */
+public class SubscriptionIndex {
+
+    private static final ClientConnection[] NO_SUBSCRIBERS = new ClientConnection[0];
+
+    private final AtomicReferenceArray<ClientConnection[]> subscribers;
+    private final int[] closedCounts;           // CLOSED CONNECTIONS STILL IN EACH ARRAY. GUARDED BY this.
+
+    public SubscriptionIndex(int pairCount) {
+        this.subscribers = new AtomicReferenceArray<>(pairCount);
+        this.closedCounts = new int[pairCount];
+        for (int pairId = 0; pairId < pairCount; pairId++) {
+            subscribers.set(pairId, NO_SUBSCRIBERS);
+        }
+    }
+
+
+    /**
+     * @return The connections subscribed to the pair. The array must not be modified and may
+     *         contain closed connections. Safe to call from any thread.
+     */
+    public ClientConnection[] subscribers(int pairId) {
+        return subscribers.get(pairId);
+    }
+
+    /**
+     * @return {@code true} if the connection is subscribed to the pair. Only called by the thread
+     *         that handles the connection's commands.
+     */
+    public boolean isSubscribed(ClientConnection connection, int pairId) {
+        return connection.getSubscribedPairs().get(pairId);
+    }
+
+    /**
+     * Subscribes the connection to the pair.
+     *
+     * @return {@code false} if the connection was already subscribed.
+     */
+    public synchronized boolean add(ClientConnection connection, int pairId) {
+        BitSet subscribedPairs = connection.getSubscribedPairs();
+        if (subscribedPairs.get(pairId)) {
+            return false;
+        }
+        subscribedPairs.set(pairId);
+
+        ClientConnection[] current = subscribers.get(pairId);
+        ClientConnection[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = connection;
+        subscribers.set(pairId, updated);
+        return true;
+    }
+
+    /**
+     * Unsubscribes a connection that stays open.
+     *
+     * @return {@code false} if the connection was not subscribed.
+     */
+    public synchronized boolean remove(ClientConnection connection, int pairId) {
+        BitSet subscribedPairs = connection.getSubscribedPairs();
+        if (!subscribedPairs.get(pairId)) {
+            return false;
+        }
+        subscribedPairs.clear(pairId);
+
+        ClientConnection[] current = subscribers.get(pairId);
+        ClientConnection[] updated = new ClientConnection[current.length];
+        int position = 0;
+        for (ClientConnection subscriber : current) {
+            if (subscriber != connection) {
+                updated[position++] = subscriber;
+            }
+        }
+        subscribers.set(pairId, Arrays.copyOf(updated, position));      // A CLOSED CONNECTION MAY ALREADY BE COMPACTED AWAY.
+        return true;
+    }
+
+    /**
+     * Drops all subscriptions of a connection that was already {@link ClientConnection#close() closed}.
+     */
+    public synchronized void removeAll(ClientConnection connection) {
+        BitSet subscribedPairs = connection.getSubscribedPairs();
+        for (int pairId = subscribedPairs.nextSetBit(0); pairId >= 0; pairId = subscribedPairs.nextSetBit(pairId + 1)) {
+            closedCounts[pairId]++;
+            if (closedCounts[pairId] * 2 >= subscribers.get(pairId).length) {
+                compact(pairId);
+            }
+        }
+        subscribedPairs.clear();
+    }
+
+
+    private void compact(int pairId) {
+        ClientConnection[] current = subscribers.get(pairId);
+        ClientConnection[] updated = new ClientConnection[current.length];
+        int position = 0;
+        for (ClientConnection subscriber : current) {
+            if (!subscriber.isClosed()) {       // MAY ALSO DROP CONNECTIONS CLOSED BY THE PUBLISHER BUT NOT YET COUNTED.
+                updated[position++] = subscriber;
+            }
+        }
+        subscribers.set(pairId, Arrays.copyOf(updated, position));
+        closedCounts[pairId] = 0;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.toyota.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed timing wheel: a ring of buckets, each holding the entries that are due in one tick.
+ * <p>
+ * Scheduling is a single list append and advancing the wheel only visits the buckets of the ticks
+ * that elapsed, so the cost does not depend on the number of scheduled entries. This lets a reactor
+ * track the idle deadlines of a very large number of connections without one scheduled task each.
+ * </p>
+ * <p>
+ * Deadlines are rounded up to the next tick, so an entry expires at most one tick late but never
+ * early. The wheel spans {@code bucketCount} ticks and longer delays are clamped to the span; such
+ * entries do expire early. The expiry handler is expected to check whether the entry is still of interest
+ * and reschedule it if its real deadline lies further ahead. Entries that are no longer of interest
+ * can also be cancelled, with the bucket {@link #schedule} returned.
+ * </p>
+ * <p>
+ * Not thread safe. Each reactor owns one wheel and only uses it on its own thread.
+ * </p>
+ *
+ * @param <T> The type of the scheduled entries.
+ */
+public class TimingWheel<T> {
+
+    /**
+     * Receives expired entries. Takes the time as a primitive so expiring does not allocate.
+     */
+    @FunctionalInterface
+    public interface ExpiryHandler<T> {
+        void expired(T entry, long nowNanos);
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<T>> buckets;
+    private List<T> spareBucket;
+
+    private final long startNanos;
+    private long currentTick;           // LAST TICK WHOSE BUCKET WAS EXPIRED.
+
+    /**
+     * @param tickNanos     The duration of one tick in nanoseconds.
+     * @param maxDelayNanos The longest delay that will be scheduled. Determines the number of buckets.
+     * @param nowNanos      The current {@link System#nanoTime()}.
+     */
+    public TimingWheel(long tickNanos, long maxDelayNanos, long nowNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickNanos);
+        }
+        int bucketCount = Integer.highestOneBit((int) Math.min(1 << 20, maxDelayNanos / tickNanos + 2) - 1) << 1;
+
+        this.tickNanos = tickNanos;
+        this.mask = bucketCount - 1;
+        this.buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.spareBucket = new ArrayList<>();
+        this.startNanos = nowNanos;
+        this.currentTick = 0;
+    }
+
+
+    /**
+     * Schedules an entry to expire after the given delay. Expired deadlines expire in the next tick,
+     * delays longer than the span of the wheel are clamped.
+     *
+     * @return The bucket of the entry, for {@link #cancel}.
+     */
+    public int schedule(T entry, long delayNanos, long nowNanos) {
+        long deadlineTick = (nowNanos - startNanos + delayNanos + tickNanos - 1) / tickNanos;      // ROUNDED UP.
+        long ticks = Math.max(1, Math.min(mask, deadlineTick - currentTick));
+        int bucket = (int) ((currentTick + ticks) & mask);
+        buckets.get(bucket).add(entry);
+        return bucket;
+    }
+
+    /**
+     * Removes an entry before it expires. Takes time linear in the number of entries of its bucket.
+     * An entry that already expired, or is expiring in the current {@link #advance}, is not found.
+     *
+     * @param bucket The bucket {@link #schedule} returned for the entry.
+     * @return Whether the entry was found.
+     */
+    public boolean cancel(T entry, int bucket) {
+        List<T> entries = buckets.get(bucket);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i) == entry) {
+                int last = entries.size() - 1;
+                entries.set(i, entries.get(last));          // THE ORDER WITHIN A TICK DOES NOT MATTER.
+                entries.remove(last);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expires the buckets of all ticks that elapsed until {@code nowNanos}. The handler receives each
+     * expired entry and the current time and may schedule entries again, including the expired one.
+     */
+    public void advance(long nowNanos, ExpiryHandler<T> expiryHandler) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        while (currentTick < targetTick) {
+            currentTick++;
+            int index = (int) (currentTick & mask);
+            List<T> expired = buckets.get(index);
+            if (expired.isEmpty()) {
+                continue;
+            }
+
+            buckets.set(index, spareBucket);       // ENTRIES RESCHEDULED BY THE HANDLER NEVER LAND IN THE LIST BEING ITERATED.
+            for (int i = 0; i < expired.size(); i++) {
+                expiryHandler.expired(expired.get(i), nowNanos);
+            }
+            expired.clear();
+            spareBucket = expired;
+        }
+    }
+
+    /**
+     * @return The duration of one tick in milliseconds, at least 1. Used as the selector timeout.
+     */
+    public long tickMillis() {
+        return Math.max(1, tickNanos / 1_000_000);
+    }
+
+}
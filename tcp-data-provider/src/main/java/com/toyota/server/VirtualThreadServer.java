@@ -0,0 +1,274 @@
+package com.toyota.server;
+
+import com.toyota.auth.AuthService;
+import com.toyota.entity.ServerResponse;
+import com.toyota.metrics.ServerMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An alternative to the {@link FxDataServer} that serves every client on virtual threads with
+ * blocking I/O, selected with {@code server.mode=VIRTUAL_THREADS}.
+ * <p>
+ * Each client gets a reader thread, which blocks on the socket and executes the commands with the
+ * same {@link ClientCommandHandler} and {@link AuthService} as the NIO reactors, and a writer thread,
+ * which drains the client's outbound queue whenever the publisher asks for a flush
+ * (see {@link BlockingClientConnection}). Virtual threads park instead of blocking a platform
+ * thread, so tens of thousands of clients cost memory, not threads.
+ * </p>
+ * <p>
+ * The clients are spread round-robin over the given subscription views like over the reactors in NIO
+ * mode, which keeps copy-on-write contention low when many clients subscribe at once. Heartbeats and
+ * the idle timeout are enforced by one platform thread that sweeps all connections once per tick.
+ * </p>
+ */
+public class VirtualThreadServer {
+
+    private static final Logger logger = LogManager.getLogger(VirtualThreadServer.class);
+    private static final int READ_BUFFER_SIZE = 1024;         // PER CLIENT. COMMANDS ARE SHORT.
+    private static final long MAX_SWEEP_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MIN_SWEEP_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int SERVER_PORT;
+    private final int SOCKET_SEND_BUFFER;
+    private final int MAX_PENDING_BYTES;
+    private final OverflowPolicy OVERFLOW_POLICY;
+    private final DeliveryMode DELIVERY_MODE;
+    private final long HEARTBEAT_INTERVAL_NANOS;     // 0 = NO PINGS.
+    private final long IDLE_TIMEOUT_NANOS;           // 0 = IDLE CLIENTS ARE NEVER CLOSED.
+
+    private final CurrencyPairRegistry currencyPairs;
+    private final ServerMetrics metrics;
+    private final List<ClientCommandHandler> commandHandlers;       // ONE PER SUBSCRIPTION VIEW.
+    private final Map<ClientConnection, ClientCommandHandler> connections;
+    private final ThreadFactory clientThreads;
+    private int nextHandler = 0;
+
+    /**
+     * Takes the same settings as {@link FxDataServer#FxDataServer}.
+     *
+     * @param subscriptionViews The subscription indexes the clients are spread over.
+     */
+    public VirtualThreadServer(int serverPort,
+                               int socketSendBuffer,
+                               int maxPendingBytes,
+                               OverflowPolicy overflowPolicy,
+                               DeliveryMode deliveryMode,
+                               int heartbeatIntervalSeconds,
+                               int idleTimeoutSeconds,
+                               CurrencyPairRegistry currencyPairs,
+                               List<SubscriptionIndex> subscriptionViews,
+                               SnapshotProvider snapshotProvider,
+                               AuthService authService,
+                               ServerMetrics metrics) {
+        this.SERVER_PORT = serverPort;
+        this.SOCKET_SEND_BUFFER = socketSendBuffer;
+        this.MAX_PENDING_BYTES = maxPendingBytes;
+        this.OVERFLOW_POLICY = overflowPolicy;
+        this.DELIVERY_MODE = deliveryMode;
+        this.HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(Math.max(0, heartbeatIntervalSeconds));
+        this.IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(Math.max(0, idleTimeoutSeconds));
+        this.currencyPairs = currencyPairs;
+        this.metrics = metrics;
+        this.connections = new ConcurrentHashMap<>();
+        this.clientThreads = Thread.ofVirtual().name("fx-client-", 0).factory();
+
+        this.commandHandlers = new ArrayList<>(subscriptionViews.size());
+        for (SubscriptionIndex subscriptions : subscriptionViews) {
+            commandHandlers.add(new ClientCommandHandler(
+                    authService, currencyPairs, subscriptions, snapshotProvider, metrics, this::closeClient
+            ));
+        }
+    }
+
+
+    /**
+     * Accepts clients with a blocking accept loop until the server socket fails, and starts two
+     * virtual threads per client. All clients are closed when the loop ends.
+     */
+    public void startServer() {
+        ScheduledExecutorService idleSweeper = startIdleSweeper();
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(SERVER_PORT));
+            logger.info("Serving clients on virtual threads (port {}).", SERVER_PORT);
+
+            while (serverChannel.isOpen()) {
+                SocketChannel clientChannel = serverChannel.accept();
+                try {
+                    startClient(clientChannel);
+                } catch (IOException e) {
+                    logger.error("IOException while handling connection request: {}", e.getMessage(), e);
+                    closeQuietly(clientChannel);
+                }
+            }
+
+        } catch (IOException e) {
+            logger.error("IOException during server socket setup or accept loop on port {}: {}", SERVER_PORT, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Unexpected exception during server socket setup or accept loop on port {}: {}", SERVER_PORT, e.getMessage(), e);
+        }
+
+        if (idleSweeper != null) {
+            idleSweeper.shutdownNow();
+        }
+        connections.keySet().forEach(this::closeClient);
+        logger.info("FX Data Server stopped.");
+    }
+
+
+    private void startClient(SocketChannel clientChannel) throws IOException {
+        if (SOCKET_SEND_BUFFER > 0) {
+            clientChannel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_SEND_BUFFER);
+        }
+        ClientCommandHandler commandHandler = commandHandlers.get(nextHandler);
+        nextHandler = (nextHandler + 1) % commandHandlers.size();
+
+        BlockingClientConnection connection = new BlockingClientConnection(
+                clientChannel,
+                MAX_PENDING_BYTES,
+                OVERFLOW_POLICY,
+                DELIVERY_MODE,
+                currencyPairs.size(),
+                this::closeClient,
+                metrics
+        );
+        connections.put(connection, commandHandler);
+        metrics.connectionOpened();
+        logger.info("Client connected: {}", commandHandler.getClientAddressSafe(clientChannel));
+
+        clientThreads.newThread(() -> readCommands(connection, commandHandler)).start();
+        clientThreads.newThread(() -> writeMessages(connection, commandHandler)).start();
+    }
+
+    /**
+     * The reader thread of a client: blocks on the socket and executes every received command.
+     */
+    private void readCommands(BlockingClientConnection connection, ClientCommandHandler commandHandler) {
+        SocketChannel clientChannel = connection.getChannel();
+        ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        ClientCommand command = new ClientCommand();
+        try {
+            while (!connection.isClosed()) {
+                readBuffer.clear();
+                if (clientChannel.read(readBuffer) == -1) {
+                    logger.info("Client {} disconnected gracefully (read returned -1).", commandHandler.getClientAddressSafe(clientChannel));
+                    break;
+                }
+                connection.setLastReadNanos(System.nanoTime());
+                readBuffer.flip();
+                commandHandler.handleInput(connection, readBuffer, command);
+            }
+        } catch (IOException e) {
+            if (!connection.isClosed()) {
+                logger.warn("IOException while handling client message from {}: {}. Closing connection.",
+                        commandHandler.getClientAddressSafe(clientChannel), e.getMessage());
+            }
+        } finally {
+            closeClient(connection);
+        }
+    }
+
+    /**
+     * The writer thread of a client: drains the outbound queue on every flush request.
+     */
+    private void writeMessages(BlockingClientConnection connection, ClientCommandHandler commandHandler) {
+        try {
+            connection.runWriter();
+        } catch (IOException e) {
+            if (!connection.isClosed()) {
+                logger.warn("IOException while writing to client {}: {}. Closing connection.",
+                        commandHandler.getClientAddressSafe(connection.getChannel()), e.getMessage());
+                metrics.writeFailed();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeClient(connection);
+        }
+    }
+
+    /**
+     * Closes a client exactly once, whichever of its threads, the idle sweeper, an overflow or a
+     * {@code disconnect} command gets here first. Closing the channel also wakes a blocked reader.
+     */
+    private void closeClient(ClientConnection connection) {
+        ClientCommandHandler commandHandler = connections.remove(connection);
+        if (commandHandler == null) {
+            return;
+        }
+        commandHandler.releaseClient(connection);
+        closeQuietly(connection.getChannel());
+    }
+
+
+    private ScheduledExecutorService startIdleSweeper() {
+        if (HEARTBEAT_INTERVAL_NANOS == 0 && IDLE_TIMEOUT_NANOS == 0) {
+            return null;
+        }
+        long minDelay = HEARTBEAT_INTERVAL_NANOS == 0 || IDLE_TIMEOUT_NANOS == 0
+                ? Math.max(HEARTBEAT_INTERVAL_NANOS, IDLE_TIMEOUT_NANOS)
+                : Math.min(HEARTBEAT_INTERVAL_NANOS, IDLE_TIMEOUT_NANOS);
+        long tick = Math.max(MIN_SWEEP_TICK_NANOS, Math.min(MAX_SWEEP_TICK_NANOS, minDelay / 8));
+
+        ScheduledExecutorService idleSweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-idle-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        idleSweeper.scheduleAtFixedRate(this::sweepIdleClients, tick, tick, TimeUnit.NANOSECONDS);
+        return idleSweeper;
+    }
+
+    /**
+     * Closes clients that stayed silent for the idle timeout and pings clients that stayed silent for
+     * the heartbeat interval, repeating the ping every interval like the reactors do.
+     */
+    private void sweepIdleClients() {
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<ClientConnection, ClientCommandHandler> entry : connections.entrySet()) {
+                BlockingClientConnection connection = (BlockingClientConnection) entry.getKey();
+                ClientCommandHandler commandHandler = entry.getValue();
+
+                long idleNanos = now - connection.getLastReadNanos();
+                if (IDLE_TIMEOUT_NANOS > 0 && idleNanos >= IDLE_TIMEOUT_NANOS) {
+                    logger.warn("Client {} sent nothing for {} ms. Closing idle connection.",
+                            commandHandler.getClientAddressSafe(connection.getChannel()), TimeUnit.NANOSECONDS.toMillis(idleNanos));
+                    closeClient(connection);
+                } else if (HEARTBEAT_INTERVAL_NANOS > 0
+                        && now - Math.max(connection.getLastReadNanos(), connection.getLastPingNanos()) >= HEARTBEAT_INTERVAL_NANOS) {
+                    logger.debug("Sending heartbeat to idle client {}.", commandHandler.getClientAddressSafe(connection.getChannel()));
+                    commandHandler.sendInfoMessageToClient(connection, ServerResponse.PING.getMessage());
+                    connection.setLastPingNanos(now);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected exception while checking idle clients: {}", e.getMessage(), e);      // KEEPS THE SWEEPER SCHEDULED.
+        }
+    }
+
+    private void closeQuietly(SocketChannel clientChannel) {
+        try {
+            clientChannel.close();
+        } catch (IOException e) {
+            logger.warn("IOException while closing client channel: {}", e.getMessage());
+        }
+    }
+
+}
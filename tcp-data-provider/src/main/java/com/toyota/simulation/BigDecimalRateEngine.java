@@ -0,0 +1,163 @@
+package com.toyota.simulation;
+
+import com.toyota.entity.Rate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The original simulation engine. Each step is calculated in {@link BigDecimal}
+ * and bid/ask values are published with 16 decimal places.
+ */
+public class BigDecimalRateEngine implements RateSimulationEngine {
+
+    private static final Logger logger = LogManager.getLogger(BigDecimalRateEngine.class);
+
+    private final BigDecimal MAXIMUM_RATE_CHANGE;
+    private final BigDecimal MINIMUM_RATE_CHANGE;
+
+    private final BigDecimal SPIKE_PERCENTAGE;
+    private final int SPIKE_INTERVAL;
+    private int spikeCounter = 0;
+
+    private final List<Rate> rates;
+
+
+    public BigDecimalRateEngine(
+            List<Rate> initial_rates,
+            int spikeInterval,
+            BigDecimal spikePercentage,
+            BigDecimal minimumRateChange,
+            BigDecimal maximumRateChange
+    ) {
+        this.rates = initial_rates;
+        this.SPIKE_INTERVAL = spikeInterval;
+        this.SPIKE_PERCENTAGE = spikePercentage;
+        this.MINIMUM_RATE_CHANGE = minimumRateChange;
+        this.MAXIMUM_RATE_CHANGE = maximumRateChange;
+    }
+
+    @Override
+    public int size() {
+        return rates.size();
+    }
+
+    @Override
+    public String getRateName(int index) {
+        return rates.get(index).getRateName();
+    }
+
+    @Override
+    public void nextCycle() {
+        spikeCounter++;
+    }
+
+    @Override
+    public void updateRate(int index) {
+        Rate rate = rates.get(index);
+
+        BigDecimal changePercentage = determineChangePercentage();
+
+        BigDecimal spread = rate
+                .getAsk()
+                .subtract(rate.getBid());  // SPREAD IS CONSTANT.
+
+        BigDecimal newBid;
+        BigDecimal newAsk;
+
+        newBid = rate
+                .getBid()
+                .multiply(BigDecimal.ONE.add(changePercentage));
+
+        newBid = applyRateBounds(
+                newBid,
+                rate.getMinLimit(),
+                rate.getMaxLimit()
+        );
+
+        newAsk = newBid.add(spread);
+
+
+        rate.setBid(newBid.setScale(16, RoundingMode.HALF_UP));
+        rate.setAsk(newAsk.setScale(16,RoundingMode.HALF_UP));
+
+        rate.setTimestamp(Instant.now());
+        logger.trace("Rate {} updated. New Bid: {}, New Ask: {}", rate.getRateName(), rate.getBid(), rate.getAsk());
+    }
+
+    @Override
+    public ByteBuffer encodeRate(int index) {
+        byte[] bytes = (formatRateMessage(rates.get(index)) + "\r\n").getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public long getScaledBid(int index) {
+        return toScaled(rates.get(index).getBid());
+    }
+
+    @Override
+    public long getScaledAsk(int index) {
+        return toScaled(rates.get(index).getAsk());
+    }
+
+    @Override
+    public long getTimestampNanos(int index) {
+        Instant timestamp = rates.get(index).getTimestamp();
+        return timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano();
+    }
+
+
+
+    private BigDecimal determineChangePercentage(){
+
+        BigDecimal changePercentage;
+
+        if (spikeCounter % SPIKE_INTERVAL == 0) {
+            changePercentage = SPIKE_PERCENTAGE;
+            logger.debug("Spike triggered! Applying spike percentage: {}", changePercentage);
+        } else {
+            changePercentage = MAXIMUM_RATE_CHANGE
+                    .subtract(MINIMUM_RATE_CHANGE)
+                    .multiply(BigDecimal.valueOf(Math.random()))
+                    .add(MINIMUM_RATE_CHANGE);
+        }
+
+        if(Math.random() < 0.5){
+            changePercentage = changePercentage.negate();
+        }
+
+        return changePercentage;
+    }
+
+
+    private BigDecimal applyRateBounds(BigDecimal bidValue, BigDecimal minLimit, BigDecimal maxLimit) {
+        if (bidValue.compareTo(minLimit) < 0) {
+            return minLimit;
+        } else if (bidValue.compareTo(maxLimit) > 0) {
+            return maxLimit;
+        }
+        return bidValue;
+    }
+
+    private static long toScaled(BigDecimal value) {
+        return value.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private String formatRateMessage(Rate rate) {
+        return String.format(
+                "%s|B:%s|A:%s|T:%s",
+                rate.getRateName(),
+                rate.getBid(),
+                rate.getAsk(),
+                rate.getTimestamp()
+        );
+    }
+
+}
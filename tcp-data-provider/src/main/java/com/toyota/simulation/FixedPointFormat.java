@@ -0,0 +1,134 @@
+package com.toyota.simulation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Renders fixed-point rates as protocol lines ({@code NAME|B:bid|A:ask|T:timestamp\r\n}) directly
+ * into a byte array, without {@link java.math.BigDecimal} or {@link String#format}.
+ * Shared by the engines that keep prices as scaled longs.
+ */
+final class FixedPointFormat {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+    private static final byte[] ASK_PREFIX = "|A:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIMESTAMP_PREFIX = "|T:".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_NUMBER_LENGTH = 21;        // SIGN + 19 DIGITS + POINT.
+    private static final int TIMESTAMP_LENGTH = 30;         // yyyy-MM-ddTHH:mm:ss.nnnnnnnnnZ
+
+    private FixedPointFormat() {
+    }
+
+
+    /**
+     * @return The scratch size needed for lines whose {@code NAME|B:} prefix is at most {@code longestPrefix} bytes.
+     */
+    static int maxLineLength(int longestPrefix) {
+        return longestPrefix + 2 * MAX_NUMBER_LENGTH
+                + ASK_PREFIX.length + TIMESTAMP_PREFIX.length + TIMESTAMP_LENGTH + 2;
+    }
+
+    /**
+     * Renders one rate line into {@code scratch} and returns a read-only copy of it.
+     *
+     * @param prefix The pair's {@code NAME|B:} bytes.
+     */
+    static ByteBuffer encodeRateLine(byte[] scratch, byte[] prefix, long scaledBid, long scaledAsk, long epochNanos) {
+        System.arraycopy(prefix, 0, scratch, 0, prefix.length);
+        int position = prefix.length;
+
+        position = writeDecimal(scratch, position, scaledBid);
+        position = writeBytes(scratch, position, ASK_PREFIX);
+        position = writeDecimal(scratch, position, scaledAsk);
+        position = writeBytes(scratch, position, TIMESTAMP_PREFIX);
+        position = writeTimestamp(scratch, position, epochNanos);
+        scratch[position++] = '\r';
+        scratch[position++] = '\n';
+
+        return ByteBuffer.wrap(Arrays.copyOf(scratch, position)).asReadOnlyBuffer();
+    }
+
+
+    private static int writeBytes(byte[] target, int position, byte[] source) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    /**
+     * Writes a scaled value as plain decimal text with exactly {@value RateSimulationEngine#PRICE_SCALE} fraction digits.
+     */
+    private static int writeDecimal(byte[] target, int position, long scaledValue) {
+        if (scaledValue < 0) {
+            target[position++] = '-';
+            scaledValue = -scaledValue;
+        }
+        long integerPart = scaledValue / POWERS_OF_TEN[RateSimulationEngine.PRICE_SCALE];
+        long fractionPart = scaledValue % POWERS_OF_TEN[RateSimulationEngine.PRICE_SCALE];
+
+        position = writeDigits(target, position, integerPart, digitCount(integerPart));
+        target[position++] = '.';
+        return writeDigits(target, position, fractionPart, RateSimulationEngine.PRICE_SCALE);
+    }
+
+    /**
+     * Writes epoch nanoseconds in the ISO-8601 form printed by {@link Instant#toString()}
+     * (always with nine fraction digits), so clients can keep using {@link Instant#parse}.
+     */
+    private static int writeTimestamp(byte[] target, int position, long epochNanos) {
+        long epochSecond = Math.floorDiv(epochNanos, 1_000_000_000L);
+        int nanos = (int) Math.floorMod(epochNanos, 1_000_000_000L);
+        long epochDay = Math.floorDiv(epochSecond, 86_400L);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86_400L);
+
+        // CIVIL DATE FROM DAYS SINCE EPOCH (HOWARD HINNANT'S civil_from_days).
+        long zeroDay = epochDay + 719_468L;
+        long era = Math.floorDiv(zeroDay, 146_097L);
+        long dayOfEra = zeroDay - era * 146_097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        position = writeDigits(target, position, year, 4);
+        target[position++] = '-';
+        position = writeDigits(target, position, month, 2);
+        target[position++] = '-';
+        position = writeDigits(target, position, day, 2);
+        target[position++] = 'T';
+        position = writeDigits(target, position, secondOfDay / 3_600, 2);
+        target[position++] = ':';
+        position = writeDigits(target, position, (secondOfDay / 60) % 60, 2);
+        target[position++] = ':';
+        position = writeDigits(target, position, secondOfDay % 60, 2);
+        target[position++] = '.';
+        position = writeDigits(target, position, nanos, 9);
+        target[position++] = 'Z';
+        return position;
+    }
+
+    /**
+     * Writes a non-negative value as exactly {@code digits} digits, padded with leading zeros.
+     */
+    private static int writeDigits(byte[] target, int position, long value, int digits) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.toyota.simulation;
+
+import com.toyota.entity.Rate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulation engine for large numbers of pairs that does not allocate while updating rates.
+ * <p>
+ * Bid, spread and limits of all pairs are kept as {@code long}s scaled by
+ * 10^{@value RateSimulationEngine#PRICE_SCALE} in parallel arrays (struct of arrays), and timestamps as epoch nanoseconds,
+ * taken once per {@link #nextCycle()}.
+ * Random changes come from {@link ThreadLocalRandom}. Only the multiplication by the change
+ * percentage uses a {@code double}, the result is rounded back to the scaled long.
+ * Decimal text is rendered only in {@link #encodeRate(int)}, directly into bytes by {@link FixedPointFormat}.
+ * </p>
+ * <p>
+ * The semantics match {@link BigDecimalRateEngine}: the bid is clamped to the pair's min/max limits,
+ * the ask follows the bid with the initial spread, and every pair spikes on the same cycle.
+ * Prices are published with {@value RateSimulationEngine#PRICE_SCALE} decimal places instead of 16.
+ * </p>
+ */
+public class FixedPointRateEngine implements RateSimulationEngine {
+
+    private static final Logger logger = LogManager.getLogger(FixedPointRateEngine.class);
+
+    private final double MAXIMUM_RATE_CHANGE;
+    private final double MINIMUM_RATE_CHANGE;
+
+    private final double SPIKE_PERCENTAGE;
+    private final int SPIKE_INTERVAL;
+    private int spikeCounter = 0;
+    private boolean spikeCycle;
+    private long cycleEpochNanos;
+
+    private final String[] rateNames;
+    private final byte[][] messagePrefixes;                 // "NAME|B:" PER PAIR.
+    private final long[] bids;
+    private final long[] spreads;
+    private final long[] minLimits;
+    private final long[] maxLimits;
+    private final long[] timestamps;
+
+    private final byte[] scratch;
+
+
+    public FixedPointRateEngine(
+            List<Rate> initial_rates,
+            int spikeInterval,
+            BigDecimal spikePercentage,
+            BigDecimal minimumRateChange,
+            BigDecimal maximumRateChange
+    ) {
+        int size = initial_rates.size();
+
+        this.SPIKE_INTERVAL = spikeInterval;
+        this.SPIKE_PERCENTAGE = spikePercentage.doubleValue();
+        this.MINIMUM_RATE_CHANGE = minimumRateChange.doubleValue();
+        this.MAXIMUM_RATE_CHANGE = maximumRateChange.doubleValue();
+
+        this.rateNames = new String[size];
+        this.messagePrefixes = new byte[size][];
+        this.bids = new long[size];
+        this.spreads = new long[size];
+        this.minLimits = new long[size];
+        this.maxLimits = new long[size];
+        this.timestamps = new long[size];
+
+        int longestPrefix = 0;
+        for (int i = 0; i < size; i++) {
+            Rate rate = initial_rates.get(i);
+            rateNames[i] = rate.getRateName();
+            messagePrefixes[i] = (rate.getRateName() + "|B:").getBytes(StandardCharsets.UTF_8);
+            bids[i] = toScaled(rate.getBid());
+            spreads[i] = toScaled(rate.getAsk()) - bids[i];
+            minLimits[i] = toScaled(rate.getMinLimit());
+            maxLimits[i] = toScaled(rate.getMaxLimit());
+            timestamps[i] = toEpochNanos(rate.getTimestamp());
+            longestPrefix = Math.max(longestPrefix, messagePrefixes[i].length);
+        }
+
+        this.scratch = new byte[FixedPointFormat.maxLineLength(longestPrefix)];
+    }
+
+    @Override
+    public int size() {
+        return rateNames.length;
+    }
+
+    @Override
+    public String getRateName(int index) {
+        return rateNames[index];
+    }
+
+    @Override
+    public void nextCycle() {
+        spikeCounter++;
+        spikeCycle = spikeCounter % SPIKE_INTERVAL == 0;
+        if (spikeCycle) {
+            logger.debug("Spike triggered! Applying spike percentage: {}", SPIKE_PERCENTAGE);
+        }
+        cycleEpochNanos = toEpochNanos(Instant.now());         // ONCE PER CYCLE, NOT ONCE PER PAIR.
+    }
+
+    @Override
+    public void updateRate(int index) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        double changePercentage = spikeCycle
+                ? SPIKE_PERCENTAGE
+                : MINIMUM_RATE_CHANGE + (MAXIMUM_RATE_CHANGE - MINIMUM_RATE_CHANGE) * random.nextDouble();
+
+        if (random.nextBoolean()) {
+            changePercentage = -changePercentage;
+        }
+
+        long bid = bids[index];
+        long newBid = bid + Math.round(bid * changePercentage);
+
+        if (newBid < minLimits[index]) {
+            newBid = minLimits[index];
+        } else if (newBid > maxLimits[index]) {
+            newBid = maxLimits[index];
+        }
+
+        bids[index] = newBid;                   // ASK IS bid + spread, SO THE SPREAD STAYS CONSTANT.
+        timestamps[index] = cycleEpochNanos;
+    }
+
+    @Override
+    public ByteBuffer encodeRate(int index) {
+        return FixedPointFormat.encodeRateLine(scratch, messagePrefixes[index], bids[index], bids[index] + spreads[index], timestamps[index]);
+    }
+
+
+
+    @Override
+    public long getScaledBid(int index) {
+        return bids[index];
+    }
+
+    @Override
+    public long getScaledAsk(int index) {
+        return bids[index] + spreads[index];
+    }
+
+    @Override
+    public long getTimestampNanos(int index) {
+        return timestamps[index];
+    }
+
+
+
+    private static long toScaled(BigDecimal value) {
+        return value.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.toyota.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The array loops of the {@link GbmRateEngine}, one call per batch of all pairs.
+ * {@link ScalarGbmKernel} runs everywhere; {@code VectorGbmKernel} uses the JDK Vector API. It is only
+ * compiled with the {@code vector-api} Maven profile, and the API is only available if the JVM was started
+ * with {@code --add-modules jdk.incubator.vector}.
+ */
+interface GbmKernel {
+
+    /**
+     * {@code z[i] = common + idiosyncraticLoading * eps[i]} for the first {@code n} elements.
+     */
+    void oneFactor(double[] eps, double common, double idiosyncraticLoading, double[] z, int n);
+
+    /**
+     * @return The dot product of {@code length} elements of {@code a}, starting at {@code aOffset}, and of {@code b}.
+     */
+    double dot(double[] a, int aOffset, double[] b, int length);
+
+    /**
+     * One geometric Brownian motion step of the first {@code n} prices:
+     * {@code next[i] = prices[i] * exp(drift * dt + sigma * sqrt(dt) * z[i])} with {@code dt = now - lastSeconds[i]}.
+     */
+    void step(double[] prices, double[] lastSeconds, double now, double[] z, double drift, double sigma, double[] next, int n);
+
+    String name();
+
+
+    /**
+     * @param preferVectorApi Use the Vector API if the JVM provides it.
+     */
+    static GbmKernel create(boolean preferVectorApi) {
+        Logger logger = LogManager.getLogger(GbmKernel.class);
+        if (preferVectorApi) {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                logger.info("JDK Vector API not available (start the JVM with --add-modules jdk.incubator.vector). Using scalar loops.");
+            } else {
+                try {
+                    return (GbmKernel) Class.forName("com.toyota.simulation.VectorGbmKernel").getDeclaredConstructor().newInstance();
+                } catch (ClassNotFoundException e) {
+                    logger.info("Built without the vector-api Maven profile, so no Vector API kernel. Using scalar loops.");
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    logger.warn("JDK Vector API could not be loaded, using scalar loops: {}", e.toString());
+                }
+            }
+        }
+        return new ScalarGbmKernel();
+    }
+
+}
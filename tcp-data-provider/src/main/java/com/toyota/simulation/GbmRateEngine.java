@@ -0,0 +1,327 @@
+package com.toyota.simulation;
+
+import com.toyota.config.CorrelationMatrix;
+import com.toyota.entity.Rate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulation engine that moves the pairs by correlated geometric Brownian motion, for realistic load
+ * with thousands of pairs.
+ * <p>
+ * The shocks of all pairs are drawn in one batch: every pair gets an independent standard normal
+ * {@code eps}, and {@code z = sqrt(rho) * F + sqrt(1 - rho) * eps} with one common factor {@code F}, so any
+ * two pairs are correlated by {@code rho} ({@code gbm.correlation}). The pairs of the optional correlation
+ * file instead get {@code z = L * eps}, with {@code L} the Cholesky factor of their matrix, and are
+ * independent of the other pairs. Each price then steps to
+ * {@code price * exp((drift - volatility^2 / 2) * dt + volatility * sqrt(dt) * z)}, where {@code dt} is the
+ * simulated time since the pair's last update. Drift and volatility are annual; {@code gbm.time.scale}
+ * simulated seconds pass per second.
+ * </p>
+ * <p>
+ * The batch is computed over primitive arrays by a {@link GbmKernel}, with the JDK Vector API if the JVM
+ * provides it. {@link #updateRate(int)} takes the pair's shock of the current batch and computes the
+ * next batch once a pair asks for its second shock, i.e. once per cycle if all pairs tick together.
+ * </p>
+ * <p>
+ * Like {@link FixedPointRateEngine}, prices are kept as {@code long}s with
+ * {@value RateSimulationEngine#PRICE_SCALE} decimal places, the bid is clamped to the pair's limits,
+ * the spread stays constant and every pair spikes on the same cycle.
+ * </p>
+ */
+public class GbmRateEngine implements RateSimulationEngine {
+
+    private static final Logger logger = LogManager.getLogger(GbmRateEngine.class);
+
+    private static final double SECONDS_PER_YEAR = 365 * 24 * 3600.0;
+    private static final double SCALE = Math.pow(10, PRICE_SCALE);
+
+    private final GbmKernel kernel;
+    private final double DRIFT;                             // PER SIMULATED SECOND, ITO CORRECTED.
+    private final double VOLATILITY;                        // PER SQUARE ROOT OF A SIMULATED SECOND.
+    private final double COMMON_LOADING;
+    private final double IDIOSYNCRATIC_LOADING;
+    private final double TIME_SCALE;
+    private final long startNanos;
+
+    private final double SPIKE_PERCENTAGE;
+    private final int SPIKE_INTERVAL;
+    private int spikeCounter = 0;
+    private boolean spikeCycle;
+    private long cycleEpochNanos;
+
+    private final int[] matrixPairs;                        // ENGINE INDEXES OF THE CORRELATION FILE'S PAIRS.
+    private final double[] cholesky;                        // ROW MAJOR, matrixPairs.length SQUARED.
+    private final double[] matrixShocks;
+
+    private final String[] rateNames;
+    private final byte[][] messagePrefixes;                 // "NAME|B:" PER PAIR.
+    private final double[] prices;
+    private final double[] nextPrices;
+    private final double[] lastUpdateSeconds;
+    private final double[] independentShocks;
+    private final double[] shocks;
+    private final boolean[] consumed;
+    private double batchSeconds;
+
+    private final long[] bids;
+    private final long[] spreads;
+    private final long[] minLimits;
+    private final long[] maxLimits;
+    private final long[] timestamps;
+
+    private final byte[] scratch;
+
+
+    /**
+     * @param volatility      Annual volatility, e.g. 0.1 for 10%.
+     * @param drift           Annual drift, e.g. 0.02 for 2%.
+     * @param correlation     Correlation of every two pairs that are not in the correlation matrix, in [0, 1).
+     * @param timeScale       Simulated seconds per second.
+     * @param matrix          Correlations of some pairs, or {@code null}.
+     * @param preferVectorApi Use the JDK Vector API if the JVM provides it.
+     */
+    public GbmRateEngine(
+            List<Rate> initial_rates,
+            int spikeInterval,
+            BigDecimal spikePercentage,
+            double volatility,
+            double drift,
+            double correlation,
+            double timeScale,
+            CorrelationMatrix matrix,
+            boolean preferVectorApi
+    ) {
+        if (volatility < 0 || timeScale <= 0) {
+            throw new IllegalArgumentException("GBM volatility must not be negative and the time scale must be positive.");
+        }
+        if (correlation < 0 || correlation >= 1) {
+            throw new IllegalArgumentException("GBM correlation must be in [0, 1), got " + correlation);
+        }
+        int size = initial_rates.size();
+
+        this.kernel = GbmKernel.create(preferVectorApi);
+        this.DRIFT = (drift - volatility * volatility / 2) / SECONDS_PER_YEAR;
+        this.VOLATILITY = volatility / Math.sqrt(SECONDS_PER_YEAR);
+        this.COMMON_LOADING = Math.sqrt(correlation);
+        this.IDIOSYNCRATIC_LOADING = Math.sqrt(1 - correlation);
+        this.TIME_SCALE = timeScale;
+        this.startNanos = System.nanoTime();
+
+        this.SPIKE_INTERVAL = spikeInterval;
+        this.SPIKE_PERCENTAGE = spikePercentage.doubleValue();
+
+        this.rateNames = new String[size];
+        this.messagePrefixes = new byte[size][];
+        this.prices = new double[size];
+        this.nextPrices = new double[size];
+        this.lastUpdateSeconds = new double[size];
+        this.independentShocks = new double[size];
+        this.shocks = new double[size];
+        this.consumed = new boolean[size];
+        this.bids = new long[size];
+        this.spreads = new long[size];
+        this.minLimits = new long[size];
+        this.maxLimits = new long[size];
+        this.timestamps = new long[size];
+
+        int longestPrefix = 0;
+        for (int i = 0; i < size; i++) {
+            Rate rate = initial_rates.get(i);
+            rateNames[i] = rate.getRateName();
+            messagePrefixes[i] = (rate.getRateName() + "|B:").getBytes(StandardCharsets.UTF_8);
+            bids[i] = toScaled(rate.getBid());
+            prices[i] = bids[i] / SCALE;
+            spreads[i] = toScaled(rate.getAsk()) - bids[i];
+            minLimits[i] = toScaled(rate.getMinLimit());
+            maxLimits[i] = toScaled(rate.getMaxLimit());
+            timestamps[i] = toEpochNanos(rate.getTimestamp());
+            longestPrefix = Math.max(longestPrefix, messagePrefixes[i].length);
+        }
+        Arrays.fill(consumed, true);            // THE FIRST UPDATE DRAWS THE FIRST BATCH.
+
+        this.scratch = new byte[FixedPointFormat.maxLineLength(longestPrefix)];
+
+        this.matrixPairs = matrix == null ? new int[0] : resolvePairs(matrix, rateNames);
+        this.cholesky = matrix == null ? new double[0] : cholesky(matrix.getMatrix());
+        this.matrixShocks = new double[matrixPairs.length];
+
+        logger.info("GBM engine: {} pairs ({} from the correlation matrix), volatility {}, drift {}, correlation {}, time scale {}x, {} kernel.",
+                size, matrixPairs.length, volatility, drift, correlation, timeScale, kernel.name());
+    }
+
+    @Override
+    public int size() {
+        return rateNames.length;
+    }
+
+    @Override
+    public String getRateName(int index) {
+        return rateNames[index];
+    }
+
+    @Override
+    public void nextCycle() {
+        spikeCounter++;
+        spikeCycle = spikeCounter % SPIKE_INTERVAL == 0;
+        if (spikeCycle) {
+            logger.debug("Spike triggered! Applying spike percentage: {}", SPIKE_PERCENTAGE);
+        }
+        cycleEpochNanos = toEpochNanos(Instant.now());         // ONCE PER CYCLE, NOT ONCE PER PAIR.
+    }
+
+    @Override
+    public void updateRate(int index) {
+        if (consumed[index]) {
+            nextBatch();
+        }
+        consumed[index] = true;
+
+        double price = nextPrices[index];
+        if (spikeCycle) {
+            price *= ThreadLocalRandom.current().nextBoolean() ? 1 + SPIKE_PERCENTAGE : 1 - SPIKE_PERCENTAGE;
+        }
+
+        long newBid = Math.round(price * SCALE);
+        if (newBid < minLimits[index]) {
+            newBid = minLimits[index];
+        } else if (newBid > maxLimits[index]) {
+            newBid = maxLimits[index];
+        }
+
+        bids[index] = newBid;                   // ASK IS bid + spread, SO THE SPREAD STAYS CONSTANT.
+        prices[index] = newBid / SCALE;
+        lastUpdateSeconds[index] = batchSeconds;
+        timestamps[index] = cycleEpochNanos;
+    }
+
+    /**
+     * Draws the shocks of all pairs and computes their next prices as of now.
+     */
+    private void nextBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = prices.length;
+
+        for (int i = 0; i < size; i++) {
+            independentShocks[i] = random.nextGaussian();
+        }
+        kernel.oneFactor(independentShocks, COMMON_LOADING * random.nextGaussian(), IDIOSYNCRATIC_LOADING, shocks, size);
+
+        int matrixSize = matrixPairs.length;
+        for (int k = 0; k < matrixSize; k++) {
+            matrixShocks[k] = independentShocks[matrixPairs[k]];
+        }
+        for (int k = 0; k < matrixSize; k++) {
+            shocks[matrixPairs[k]] = kernel.dot(cholesky, k * matrixSize, matrixShocks, k + 1);     // L IS LOWER TRIANGULAR.
+        }
+
+        batchSeconds = (System.nanoTime() - startNanos) / 1e9 * TIME_SCALE;
+        kernel.step(prices, lastUpdateSeconds, batchSeconds, shocks, DRIFT, VOLATILITY, nextPrices, size);
+        Arrays.fill(consumed, false);
+    }
+
+    @Override
+    public ByteBuffer encodeRate(int index) {
+        return FixedPointFormat.encodeRateLine(scratch, messagePrefixes[index], bids[index], bids[index] + spreads[index], timestamps[index]);
+    }
+
+
+
+    @Override
+    public long getScaledBid(int index) {
+        return bids[index];
+    }
+
+    @Override
+    public long getScaledAsk(int index) {
+        return bids[index] + spreads[index];
+    }
+
+    @Override
+    public long getTimestampNanos(int index) {
+        return timestamps[index];
+    }
+
+
+
+    private static int[] resolvePairs(CorrelationMatrix matrix, String[] rateNames) {
+        List<String> pairs = matrix.getPairs();
+        double[][] values = matrix.getMatrix();
+        if (pairs == null || values == null || values.length != pairs.size()) {
+            throw new IllegalArgumentException("Correlation matrix must have one row per listed pair.");
+        }
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < rateNames.length; i++) {
+            indexes.put(rateNames[i], i);
+        }
+        int[] resolved = new int[pairs.size()];
+        for (int k = 0; k < resolved.length; k++) {
+            Integer index = indexes.get(pairs.get(k));
+            if (index == null) {
+                throw new IllegalArgumentException("Correlation matrix lists an unknown pair: " + pairs.get(k));
+            }
+            if (pairs.indexOf(pairs.get(k)) != k) {
+                throw new IllegalArgumentException("Correlation matrix lists a pair twice: " + pairs.get(k));
+            }
+            resolved[k] = index;
+        }
+        return resolved;
+    }
+
+    /**
+     * @return The lower triangular {@code L} with {@code L * L^T = matrix}, row major.
+     */
+    private static double[] cholesky(double[][] matrix) {
+        int size = matrix.length;
+        for (int i = 0; i < size; i++) {
+            if (matrix[i].length != size || matrix[i][i] != 1) {
+                throw new IllegalArgumentException("Correlation matrix must be square with ones on the diagonal.");
+            }
+            for (int j = 0; j < i; j++) {
+                if (matrix[i][j] != matrix[j][i] || Math.abs(matrix[i][j]) > 1) {
+                    throw new IllegalArgumentException("Correlation matrix must be symmetric with values in [-1, 1].");
+                }
+            }
+        }
+
+        double[] lower = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = matrix[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i * size + k] * lower[j * size + k];
+                }
+                if (i == j) {
+                    if (sum <= 0) {
+                        throw new IllegalArgumentException("Correlation matrix is not positive definite.");
+                    }
+                    lower[i * size + i] = Math.sqrt(sum);
+                } else {
+                    lower[i * size + j] = sum / lower[j * size + j];
+                }
+            }
+        }
+        return lower;
+    }
+
+    private static long toScaled(BigDecimal value) {
+        return value.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.toyota.simulation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Simulates the bid/ask movements of all configured currency pairs.
+ * <p>
+ * Pairs are addressed by their index in the initial rate list. The publisher calls
+ * {@link #nextCycle()} once per publish cycle, then {@link #updateRate(int)} for every pair,
+ * and {@link #encodeRate(int)} only for pairs that have subscribers.
+ * Implementations are used by the single publisher thread and need not be thread safe.
+ * </p>
+ */
+public interface RateSimulationEngine {
+
+    /**
+     * Number of decimal places of the fixed-point values returned by
+     * {@link #getScaledBid(int)} and {@link #getScaledAsk(int)}.
+     */
+    int PRICE_SCALE = 8;
+
+    /**
+     * @return The number of simulated currency pairs.
+     */
+    int size();
+
+    /**
+     * @return The name of the pair at the given index, e.g. {@code TCP_USDTRY}.
+     */
+    String getRateName(int index);
+
+    /**
+     * Starts a new publish cycle. Spikes are triggered every {@code spike.interval} cycles.
+     */
+    void nextCycle();
+
+    /**
+     * Moves the bid of the pair by a random percentage, keeps it within the pair's
+     * min/max limits and keeps the spread constant.
+     */
+    void updateRate(int index);
+
+    /**
+     * Renders the current state of the pair as a protocol line
+     * ({@code NAME|B:bid|A:ask|T:timestamp\r\n}).
+     *
+     * @return A read-only buffer that may be shared by all subscribers.
+     */
+    ByteBuffer encodeRate(int index);
+
+    /**
+     * @return The current bid of the pair as a fixed-point value with {@link #PRICE_SCALE} decimals.
+     */
+    long getScaledBid(int index);
+
+    /**
+     * @return The current ask of the pair as a fixed-point value with {@link #PRICE_SCALE} decimals.
+     */
+    long getScaledAsk(int index);
+
+    /**
+     * @return The time of the pair's last update in nanoseconds since the epoch.
+     */
+    long getTimestampNanos(int index);
+
+}
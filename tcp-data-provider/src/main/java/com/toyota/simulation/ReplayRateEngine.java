@@ -0,0 +1,200 @@
+package com.toyota.simulation;
+
+import com.toyota.journal.TickJournalReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Plays back the ticks of a journal recorded by {@link com.toyota.journal.TickJournalWriter}
+ * instead of simulating new ones.
+ * <p>
+ * The publisher drives the replay: it asks for the offset of the next tick, stages it with
+ * {@link #stageNextTick()} once it is due and then publishes that pair as usual, so
+ * {@link #updateRate(int)} moves the pair to the recorded values. Replayed ticks keep their
+ * recorded timestamps. The offsets are divided by the replay speed; a speed of 0 replays as fast
+ * as possible.
+ * </p>
+ * <p>
+ * Before the first tick every pair holds its first recorded rate, so snapshots have something to
+ * send. Pairs without any recorded tick stay at 0.
+ * </p>
+ */
+public class ReplayRateEngine implements RateSimulationEngine, AutoCloseable {
+
+    private final TickJournalReader reader;
+    private final double speed;
+    private final String[] rateNames;
+    private final byte[][] linePrefixes;            // "NAME|B:" PER PAIR.
+    private final byte[] scratch;
+
+    private final long[] bids;
+    private final long[] asks;
+    private final long[] timestamps;
+
+    private final long firstTimestamp;
+    private boolean hasNext;
+    private int stagedIndex = -1;
+    private long stagedBid;
+    private long stagedAsk;
+    private long stagedTimestamp;
+    private long replayedTicks;
+
+    /**
+     * @param speed The replay speed as a multiple of the recorded pace, e.g. 10 for ten times faster.
+     *              0 replays as fast as possible.
+     */
+    public ReplayRateEngine(Path journal, double speed) throws IOException {
+        if (speed < 0 || Double.isNaN(speed) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Replay speed must be 0 or positive: " + speed);
+        }
+        this.speed = speed;
+        this.reader = new TickJournalReader(journal);
+        if (reader.getPriceScale() != PRICE_SCALE) {
+            reader.close();
+            throw new IOException("Unsupported price scale " + reader.getPriceScale() + " in journal " + journal);
+        }
+
+        List<String> names = reader.getPairNames();
+        this.rateNames = names.toArray(new String[0]);
+        this.linePrefixes = new byte[rateNames.length][];
+        int longestPrefix = 0;
+        for (int i = 0; i < rateNames.length; i++) {
+            linePrefixes[i] = (rateNames[i] + "|B:").getBytes(StandardCharsets.US_ASCII);
+            longestPrefix = Math.max(longestPrefix, linePrefixes[i].length);
+        }
+        this.scratch = new byte[FixedPointFormat.maxLineLength(longestPrefix)];
+
+        this.bids = new long[rateNames.length];
+        this.asks = new long[rateNames.length];
+        this.timestamps = new long[rateNames.length];
+        loadInitialRates(journal);
+
+        this.hasNext = reader.next();
+        this.firstTimestamp = hasNext ? reader.getEpochNanos() : 0;
+    }
+
+
+    /**
+     * @return {@code true} while the journal has ticks left.
+     */
+    public boolean hasNextTick() {
+        return hasNext;
+    }
+
+    /**
+     * @return The time of the next tick relative to the first one, divided by the replay speed.
+     *         Always 0 when replaying as fast as possible.
+     */
+    public long nextTickOffsetNanos() {
+        return speed == 0 ? 0 : (long) ((reader.getEpochNanos() - firstTimestamp) / speed);
+    }
+
+    /**
+     * Reads the next tick. Its values are applied by the following {@link #updateRate(int)} of the pair.
+     *
+     * @return The index of the pair that ticks.
+     */
+    public int stageNextTick() {
+        stagedIndex = reader.getPairId();
+        stagedBid = reader.getScaledBid();
+        stagedAsk = reader.getScaledAsk();
+        stagedTimestamp = reader.getEpochNanos();
+        replayedTicks++;
+        try {
+            hasNext = reader.next();
+        } catch (IOException e) {
+            hasNext = false;
+            throw new UncheckedIOException("Failed to read tick journal " + reader.getPath(), e);
+        }
+        return stagedIndex;
+    }
+
+    public long getReplayedTicks() {
+        return replayedTicks;
+    }
+
+    public boolean isMaxSpeed() {
+        return speed == 0;
+    }
+
+    @Override
+    public int size() {
+        return rateNames.length;
+    }
+
+    @Override
+    public String getRateName(int index) {
+        return rateNames[index];
+    }
+
+    /**
+     * Replayed ticks already contain their spikes.
+     */
+    @Override
+    public void nextCycle() {
+    }
+
+    @Override
+    public void updateRate(int index) {
+        if (index != stagedIndex) {
+            return;             // ONLY THE STAGED PAIR MOVES.
+        }
+        bids[index] = stagedBid;
+        asks[index] = stagedAsk;
+        timestamps[index] = stagedTimestamp;
+        stagedIndex = -1;
+    }
+
+    @Override
+    public ByteBuffer encodeRate(int index) {
+        return FixedPointFormat.encodeRateLine(scratch, linePrefixes[index], bids[index], asks[index], timestamps[index]);
+    }
+
+    @Override
+    public long getScaledBid(int index) {
+        return bids[index];
+    }
+
+    @Override
+    public long getScaledAsk(int index) {
+        return asks[index];
+    }
+
+    @Override
+    public long getTimestampNanos(int index) {
+        return timestamps[index];
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+
+    /**
+     * Scans the journal with a second reader until every pair was seen once.
+     */
+    private void loadInitialRates(Path journal) throws IOException {
+        boolean[] seen = new boolean[rateNames.length];
+        int remaining = rateNames.length;
+
+        try (TickJournalReader scanner = new TickJournalReader(journal)) {
+            while (remaining > 0 && scanner.next()) {
+                int index = scanner.getPairId();
+                if (!seen[index]) {
+                    seen[index] = true;
+                    remaining--;
+                    bids[index] = scanner.getScaledBid();
+                    asks[index] = scanner.getScaledAsk();
+                    timestamps[index] = scanner.getEpochNanos();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.toyota.simulation;
+
+/**
+ * Plain loops. The JIT may still auto-vectorize {@link #oneFactor}, but not the {@code exp} of {@link #step}.
+ */
+final class ScalarGbmKernel implements GbmKernel {
+
+    @Override
+    public void oneFactor(double[] eps, double common, double idiosyncraticLoading, double[] z, int n) {
+        for (int i = 0; i < n; i++) {
+            z[i] = common + idiosyncraticLoading * eps[i];
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void step(double[] prices, double[] lastSeconds, double now, double[] z, double drift, double sigma, double[] next, int n) {
+        for (int i = 0; i < n; i++) {
+            double dt = now - lastSeconds[i];
+            next[i] = prices[i] * Math.exp(drift * dt + sigma * Math.sqrt(dt) * z[i]);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+}
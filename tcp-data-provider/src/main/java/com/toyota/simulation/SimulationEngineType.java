@@ -0,0 +1,24 @@
+package com.toyota.simulation;
+
+/**
+ * Selects the {@link RateSimulationEngine} used by the publisher.
+ */
+public enum SimulationEngineType {
+
+    /**
+     * {@link BigDecimalRateEngine}. Every step is computed in {@code BigDecimal} with 16 decimal places.
+     */
+    BIG_DECIMAL,
+
+    /**
+     * {@link FixedPointRateEngine}. Prices are kept as scaled {@code long}s in primitive arrays.
+     * Meant for load tests with many pairs and short publish frequencies.
+     */
+    FIXED_POINT,
+
+    /**
+     * {@link GbmRateEngine}. Correlated geometric Brownian motion, computed in batches over primitive arrays.
+     * Meant for realistic load with thousands of pairs (see {@code simulation.synthetic.pairs}).
+     */
+    GBM
+}
@@ -0,0 +1,67 @@
+package com.toyota.simulation;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The loops of {@link ScalarGbmKernel} on the widest SIMD registers of the CPU, with the remaining
+ * elements of each array computed one by one. Only compiled with the {@code vector-api} Maven profile,
+ * and only loaded by {@link GbmKernel#create(boolean)}.
+ */
+final class VectorGbmKernel implements GbmKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void oneFactor(double[] eps, double common, double idiosyncraticLoading, double[] z, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, eps, i)
+                    .fma(idiosyncraticLoading, common)
+                    .intoArray(z, i);
+        }
+        for (; i < n; i++) {
+            z[i] = common + idiosyncraticLoading * eps[i];
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int length) {
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            sum = DoubleVector.fromArray(SPECIES, a, aOffset + i).fma(DoubleVector.fromArray(SPECIES, b, i), sum);
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[i];
+        }
+        return result;
+    }
+
+    @Override
+    public void step(double[] prices, double[] lastSeconds, double now, double[] z, double drift, double sigma, double[] next, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector dt = DoubleVector.broadcast(SPECIES, now).sub(DoubleVector.fromArray(SPECIES, lastSeconds, i));
+            DoubleVector exponent = dt.lanewise(VectorOperators.SQRT)
+                    .mul(DoubleVector.fromArray(SPECIES, z, i))
+                    .mul(sigma)
+                    .add(dt.mul(drift));
+            DoubleVector.fromArray(SPECIES, prices, i)
+                    .mul(exponent.lanewise(VectorOperators.EXP))
+                    .intoArray(next, i);
+        }
+        for (; i < n; i++) {
+            double dt = now - lastSeconds[i];
+            next[i] = prices[i] * Math.exp(drift * dt + sigma * Math.sqrt(dt) * z[i]);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "Vector API, " + SPECIES.length() + " doubles per vector";
+    }
+
+}
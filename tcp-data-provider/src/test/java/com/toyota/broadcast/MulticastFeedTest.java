@@ -0,0 +1,250 @@
+package com.toyota.broadcast;
+
+import com.toyota.auth.AuthService;
+import com.toyota.metrics.ServerMetrics;
+import com.toyota.server.BinaryFrame;
+import com.toyota.server.CurrencyPairRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Runs the multicast feed on the loopback interface: a {@link MulticastPublisher} and its
+ * {@link MulticastRecoveryServer}, and a receiver that follows the packet sequence the way the collector does.
+ */
+class MulticastFeedTest {
+
+    private static final String GROUP = "239.255.42.99";
+    private static final List<String> PAIRS = List.of("TCP_USDTRY", "TCP_EURUSD", "TCP_GBPUSD");
+    private static final int RETAINED_PACKETS = 4;
+    private static final int HEARTBEAT_MILLIS = 50;
+
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final CurrencyPairRegistry currencyPairs = new CurrencyPairRegistry(PAIRS);
+    private final List<MulticastPublisher> publishers = new ArrayList<>();
+
+    private NetworkInterface loopback;
+    private MulticastSocket receiver;
+
+
+    @BeforeEach
+    void joinGroup() throws IOException {
+        loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        receiver = new MulticastSocket(0);
+        receiver.setSoTimeout(5000);
+        receiver.joinGroup(new InetSocketAddress(InetAddress.getByName(GROUP), 0), loopback);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        receiver.close();
+        for (MulticastPublisher publisher : publishers) {
+            publisher.close();
+        }
+    }
+
+
+    @Test
+    void whenDatagramIsLost_ThenRetransmitFillsTheGap() throws Exception {
+        MulticastPublisher publisher = openPublisher(7);
+        int recoveryPort = startRecoveryServer(publisher);
+
+        publisher.publishTick(0, 1, 5, 3_412_345, 3_412_845, 1_000);
+        publisher.flush();
+        publisher.publishTick(1, 1, 5, 108_012, 108_015, 2_000);
+        publisher.flush();
+        publisher.publishTick(2, 1, 5, 126_001, 126_004, 3_000);
+        publisher.publishTick(0, 2, 5, 3_412_400, 3_412_900, 3_001);
+        publisher.flush();
+
+        Packet first = receive();
+        Assertions.assertEquals(7, first.feedId);
+        Assertions.assertEquals(1, first.sequence);
+        Assertions.assertEquals(List.of("TICK|0|1|3412345|3412845"), first.frames);
+        receive();                                          // PACKET 2 IS LOST.
+        Packet third = receive();
+        Assertions.assertEquals(3, third.sequence);
+        Assertions.assertEquals(List.of("TICK|2|1|126001|126004", "TICK|0|2|3412400|3412900"), third.frames);
+
+        List<String> recovered = recover(recoveryPort, "retransmit|2|2");
+        Assertions.assertEquals(List.of("TICK|1|1|108012|108015", "SUCCESS|RETRANSMIT|2|2"), recovered);
+    }
+
+    @Test
+    void whenFeedIsIdle_ThenHeartbeatRepeatsTheLatestSequenceWithoutFrames() throws Exception {
+        MulticastPublisher publisher = openPublisher(7);
+
+        publisher.publishTick(0, 1, 5, 1, 2, 3);
+        publisher.flush();
+        publisher.sendHeartbeatIfIdle();                    // NOT IDLE LONG ENOUGH YET.
+        Thread.sleep(HEARTBEAT_MILLIS * 2);
+        publisher.sendHeartbeatIfIdle();
+        publisher.publishTick(0, 2, 5, 4, 5, 6);
+        publisher.flush();
+
+        Assertions.assertEquals(1, receive().sequence);
+        Packet heartbeat = receive();
+        Assertions.assertEquals(1, heartbeat.sequence, "A heartbeat does not take a packet sequence of its own.");
+        Assertions.assertEquals(List.of(), heartbeat.frames);
+        Assertions.assertEquals(2, receive().sequence);
+    }
+
+    @Test
+    void whenPacketsAreNoLongerRetained_ThenRetransmitFails() throws Exception {
+        MulticastPublisher publisher = openPublisher(7);
+        int recoveryPort = startRecoveryServer(publisher);
+
+        for (int sequence = 1; sequence <= RETAINED_PACKETS + 2; sequence++) {
+            publisher.publishTick(0, sequence, 5, sequence, sequence + 1, sequence);
+            publisher.flush();
+        }
+
+        Assertions.assertEquals(List.of("ERROR|Packets not available: 1-2"), recover(recoveryPort, "retransmit|1|2"));
+        Assertions.assertEquals(List.of("ERROR|Packets not available: 7-7"), recover(recoveryPort, "retransmit|7|7"), "Not sent yet.");
+        Assertions.assertEquals(List.of("TICK|0|3|3|4", "TICK|0|4|4|5", "SUCCESS|RETRANSMIT|3|4"), recover(recoveryPort, "retransmit|3|4"));
+    }
+
+    @Test
+    void whenPublisherRestartsWithNewFeedId_ThenReceiverResumesFromASnapshot() throws Exception {
+        MulticastPublisher before = openPublisher(7);
+        before.publishTick(0, 1, 5, 1, 2, 3);
+        before.flush();
+        Assertions.assertEquals(7, receive().feedId);
+        before.close();
+
+        MulticastPublisher after = openPublisher(8);
+        int recoveryPort = startRecoveryServer(after);
+        after.publishTick(1, 1, 5, 108_012, 108_015, 2_000);
+        after.flush();
+        after.publishTick(1, 2, 5, 108_020, 108_022, 2_001);
+        after.flush();
+
+        Packet restarted = receive();
+        Assertions.assertEquals(8, restarted.feedId);
+        Assertions.assertEquals(1, restarted.sequence, "The packet sequence starts over with the feed.");
+
+        List<String> snapshot = recover(recoveryPort, "snapshot");
+        Assertions.assertEquals(List.of(
+                "PAIR|0|TCP_USDTRY", "PAIR|1|TCP_EURUSD", "PAIR|2|TCP_GBPUSD",
+                "SNAPSHOT|1|2|108020|108022",
+                "SUCCESS|SNAPSHOT|8|2"), snapshot);
+        Assertions.assertEquals(2, receive().sequence, "Covered by the snapshot, the receiver continues after it.");
+    }
+
+
+    private MulticastPublisher openPublisher(int feedId) throws IOException {
+        MulticastPublisher publisher = MulticastPublisher.open(GROUP, receiver.getLocalPort(), loopback.getName(), 1,
+                1400, RETAINED_PACKETS, HEARTBEAT_MILLIS, feedId, currencyPairs, metrics);
+        publishers.add(publisher);
+        return publisher;
+    }
+
+    private int startRecoveryServer(MulticastPublisher publisher) throws IOException {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        MulticastRecoveryServer server = new MulticastRecoveryServer(port, publisher, new AuthService(Map.of("user", "pass")), metrics);
+        Thread thread = new Thread(server::startServer, "recovery-" + port);
+        thread.setDaemon(true);                             // THE SERVER HAS NO STOP, IT ENDS WITH THE TEST JVM.
+        thread.start();
+        return port;
+    }
+
+    private Packet receive() throws IOException {
+        byte[] buffer = new byte[65507];
+        DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+        receiver.receive(datagram);
+
+        ByteBuffer packet = ByteBuffer.wrap(buffer, 0, datagram.getLength());
+        Packet result = new Packet(packet.getInt(), packet.getLong(), new ArrayList<>());
+        int frameCount = packet.getShort() & 0xFFFF;
+        for (int i = 0; i < frameCount; i++) {
+            Assertions.assertEquals(BinaryFrame.TICK_FRAME_LENGTH - 2, packet.getShort());
+            Assertions.assertEquals(BinaryFrame.TYPE_TICK, packet.get());
+            result.frames.add(price("TICK", packet.getInt(), packet.getLong(), packet.get(), packet.getLong(), packet.getLong(), packet.getLong()));
+        }
+        Assertions.assertFalse(packet.hasRemaining());
+        return result;
+    }
+
+    /**
+     * Sends one command over a new recovery connection, like the collector does.
+     *
+     * @return The frames up to and including the closing text response.
+     */
+    private static List<String> recover(int port, String command) throws Exception {
+        try (Socket socket = connect(port)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(("connect|user|pass\n" + command + "\ndisconnect\n").getBytes(StandardCharsets.UTF_8));
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            Assertions.assertEquals(List.of("SUCCESS|CONNECTED"), readFrames(input));
+            return readFrames(input);
+        }
+    }
+
+    private static Socket connect(int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket(InetAddress.getLoopbackAddress(), port);
+            } catch (ConnectException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(20);                           // THE SERVER THREAD MAY NOT BE LISTENING YET.
+            }
+        }
+    }
+
+    private static List<String> readFrames(DataInputStream input) throws IOException {
+        List<String> frames = new ArrayList<>();
+        while (true) {
+            int length = input.readUnsignedShort();
+            byte type = input.readByte();
+            if (type == BinaryFrame.TYPE_TEXT) {
+                byte[] text = new byte[length - 1];
+                input.readFully(text);
+                frames.add(new String(text, StandardCharsets.UTF_8));
+                return frames;
+            }
+            if (type == BinaryFrame.TYPE_PAIR) {
+                int pairId = input.readInt();
+                byte[] name = new byte[length - 5];
+                input.readFully(name);
+                frames.add("PAIR|" + pairId + "|" + new String(name, StandardCharsets.UTF_8));
+                continue;
+            }
+            frames.add(price(type == BinaryFrame.TYPE_SNAPSHOT ? "SNAPSHOT" : "TICK", input.readInt(), input.readLong(),
+                    input.readByte(), input.readLong(), input.readLong(), input.readLong()));
+        }
+    }
+
+    private static String price(String type, int pairId, long sequence, byte scale, long bid, long ask, long epochNanos) {
+        Assertions.assertEquals(5, scale);
+        return type + "|" + pairId + "|" + sequence + "|" + bid + "|" + ask;
+    }
+
+    private record Packet(int feedId, long sequence, List<String> frames) {
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.toyota.ring;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+
+/**
+ * Checks the writer against {@code tick-ring-v1.ring}, a ring file written by {@link #writeGoldenRing(Path)}.
+ * The forex data collector keeps a copy of the file and tests its reader against it, so the two sides of the
+ * format are pinned to the same bytes. A change of the format fails here first: write a new golden file with
+ * {@link #writeGoldenRing(Path)}, bump {@link TickRingWriter#VERSION}, and replace both copies.
+ */
+class TickRingWriterTest {
+
+    private static final String GOLDEN_RING = "/tick-ring-v1.ring";
+    private static final Path COLLECTOR_COPY = Paths.get("../forex-data-collector/src/test/resources/tick-ring-v1.ring");
+    private static final List<String> PAIRS = List.of("TCP_USDTRY", "TCP_EURUSD", "TCP_GBPUSD");
+    private static final int CAPACITY = 8;
+    private static final int SCALE = 5;
+    private static final long FEED_ID = 1_750_000_000_000L;
+    private static final long HEARTBEAT = 1_750_000_000_500L;
+
+    @TempDir
+    Path tempDir;
+
+
+    @Test
+    void whenGoldenRingIsWrittenAgain_ThenBytesAreIdentical() throws IOException {
+        Path path = tempDir.resolve("golden.ring");
+        writeGoldenRing(path);
+
+        Assertions.assertArrayEquals(goldenBytes(), Files.readAllBytes(path));
+    }
+
+    @Test
+    void whenRingIsCreated_ThenHeaderFollowsTheDocumentedLayout() throws IOException {
+        ByteBuffer ring = ByteBuffer.wrap(goldenBytes()).order(ByteOrder.LITTLE_ENDIAN);
+
+        Assertions.assertEquals(TickRingWriter.MAGIC, ring.getInt(0));
+        Assertions.assertEquals(TickRingWriter.VERSION, ring.getShort(4));
+        Assertions.assertEquals(SCALE, ring.get(6));
+        Assertions.assertEquals(CAPACITY, ring.getInt(TickRingWriter.CAPACITY_OFFSET));
+        Assertions.assertEquals(TickRingWriter.SLOT_SIZE, ring.getInt(TickRingWriter.SLOT_SIZE_OFFSET));
+        Assertions.assertEquals(PAIRS.size(), ring.getInt(TickRingWriter.PAIR_COUNT_OFFSET));
+        Assertions.assertEquals(FEED_ID, ring.getLong(TickRingWriter.FEED_ID_OFFSET));
+        Assertions.assertEquals(HEARTBEAT, ring.getLong(TickRingWriter.HEARTBEAT_OFFSET));
+        Assertions.assertEquals(11, ring.getLong(TickRingWriter.WRITE_SEQUENCE_OFFSET));
+        Assertions.assertEquals(256, TickRingWriter.dataOffset(PAIRS.size()));
+        Assertions.assertEquals(256 + CAPACITY * TickRingWriter.SLOT_SIZE, ring.capacity());
+
+        // RECORD 11 LIVES IN SLOT (11 - 1) % 8 = 2. RECORDS 1 TO 3 WERE OVERWRITTEN.
+        int slot = TickRingWriter.dataOffset(PAIRS.size()) + 2 * TickRingWriter.SLOT_SIZE;
+        Assertions.assertEquals(11, ring.getLong(slot + TickRingWriter.RECORD_SEQUENCE));
+        Assertions.assertEquals(2, ring.getInt(slot + TickRingWriter.RECORD_PAIR_ID));
+        Assertions.assertEquals(Long.MAX_VALUE, ring.getLong(slot + TickRingWriter.RECORD_TICK_SEQUENCE));
+        Assertions.assertEquals(-1, ring.getLong(slot + TickRingWriter.RECORD_BID));
+        Assertions.assertEquals(Long.MAX_VALUE, ring.getLong(slot + TickRingWriter.RECORD_ASK));
+        Assertions.assertEquals(-5, ring.getLong(slot + TickRingWriter.RECORD_EPOCH_NANOS));
+    }
+
+    @Test
+    void whenCollectorCopyIsPresent_ThenItIsIdentical() throws IOException {
+        Assumptions.assumeTrue(Files.exists(COLLECTOR_COPY), "Only checked in a full checkout.");
+
+        Assertions.assertArrayEquals(goldenBytes(), Files.readAllBytes(COLLECTOR_COPY), "Replace the collector's copy of the golden ring.");
+    }
+
+
+    /**
+     * Writes 11 records, so the ring wrapped around, and then replaces the clock based feed id and heartbeat.
+     */
+    static void writeGoldenRing(Path path) throws IOException {
+        try (TickRingWriter writer = TickRingWriter.create(path, CAPACITY, PAIRS, SCALE)) {
+            for (int i = 1; i <= 10; i++) {
+                writer.publish(i % PAIRS.size(), 100 + i, 3_412_300 + i, 3_412_800 + i, 1_750_000_000_000_000_000L + i);
+            }
+            writer.publish(2, Long.MAX_VALUE, -1, Long.MAX_VALUE, -5);
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(TickRingWriter.FEED_ID_OFFSET, FEED_ID)
+                .putLong(TickRingWriter.HEARTBEAT_OFFSET, HEARTBEAT);
+        Files.write(path, bytes);
+    }
+
+    private static byte[] goldenBytes() throws IOException {
+        try (InputStream golden = TickRingWriterTest.class.getResourceAsStream(GOLDEN_RING)) {
+            Assertions.assertNotNull(golden, GOLDEN_RING + " not found.");
+            return golden.readAllBytes();
+        }
+    }
+
+}
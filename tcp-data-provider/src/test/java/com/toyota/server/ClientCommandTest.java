@@ -0,0 +1,79 @@
+package com.toyota.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+
+class ClientCommandTest {
+
+    private final ClientCommand command = new ClientCommand();
+
+
+    @Test
+    void whenConnectIsParsed_ThenUserAndPasswordAreFields(){
+        parse("connect|user|pass");
+
+        Assertions.assertEquals(ClientCommand.Type.CONNECT, command.type());
+        Assertions.assertEquals(3, command.fieldCount());
+        Assertions.assertEquals("user", command.field(1));
+        Assertions.assertEquals("pass", command.field(2));
+    }
+
+    @Test
+    void whenSubscribeIsParsed_ThenPairIsTrimmedAndUpperCased(){
+        parse("subscribe| tcp_usdTry \t");
+
+        Assertions.assertEquals(ClientCommand.Type.SUBSCRIBE, command.type());
+        Assertions.assertEquals(2, command.fieldCount());
+        Assertions.assertEquals("tcp_usdTry", command.field(1));
+        Assertions.assertEquals("TCP_USDTRY", command.upperCaseField(1));
+    }
+
+    @Test
+    void whenTrailingFieldsAreEmpty_ThenTheyAreNotCounted(){
+        parse("subscribe|TCP_EURUSD||");
+
+        Assertions.assertEquals(2, command.fieldCount());
+        Assertions.assertEquals("subscribe|TCP_EURUSD||", command.toString());
+    }
+
+    @Test
+    void whenFrameIsBlank_ThenCommandIsEmpty(){
+        parse("  ");
+
+        Assertions.assertTrue(command.isEmpty());
+        Assertions.assertEquals(ClientCommand.Type.UNKNOWN, command.type());
+    }
+
+    @Test
+    void whenNameIsUnknownOrNotLowerCase_ThenTypeIsUnknown(){
+        parse("Subscribe|TCP_USDTRY");
+        Assertions.assertEquals(ClientCommand.Type.UNKNOWN, command.type());
+
+        parse("subscrib|TCP_USDTRY");
+        Assertions.assertEquals(ClientCommand.Type.UNKNOWN, command.type());
+
+        parse("ping");
+        Assertions.assertEquals(ClientCommand.Type.PING, command.type());
+        Assertions.assertFalse(command.isEmpty());
+    }
+
+    @Test
+    void whenFrameArrayIsLongerThanTheFrame_ThenOnlyTheGivenLengthIsParsed(){
+        byte[] frame = "unsubscribe|TCP_GBPUSD|garbage".getBytes(StandardCharsets.US_ASCII);
+        command.parse(frame, "unsubscribe|TCP_GBPUSD".length());
+
+        Assertions.assertEquals(ClientCommand.Type.UNSUBSCRIBE, command.type());
+        Assertions.assertEquals(2, command.fieldCount());
+        Assertions.assertEquals("TCP_GBPUSD", command.field(1));
+    }
+
+
+    private void parse(String frame) {
+        byte[] bytes = frame.getBytes(StandardCharsets.US_ASCII);
+        command.parse(bytes, bytes.length);
+    }
+
+}
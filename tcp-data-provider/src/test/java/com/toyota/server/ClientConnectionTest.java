@@ -0,0 +1,224 @@
+package com.toyota.server;
+
+import com.toyota.metrics.ServerMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * The connections are {@link BlockingClientConnection}s, so their key is {@code null}. They write to one end of a
+ * loopback socket pair, and {@link ClientConnection#drainBlocking()} is called directly instead of by a writer thread.
+ */
+class ClientConnectionTest {
+
+    private static final int PAIRS = 3;
+
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    private ServerSocketChannel server;
+    private SocketChannel channel;
+    private SocketChannel peer;
+
+
+    @BeforeEach
+    void openChannel() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        channel = SocketChannel.open(server.getLocalAddress());
+        peer = server.accept();
+    }
+
+    @AfterEach
+    void closeChannel() throws IOException {
+        peer.close();
+        channel.close();
+        server.close();
+    }
+
+
+    @Test
+    void whenTicksAreConflated_ThenOnlyTheLatestTickPerPairIsSentInArrivalOrder() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.CONFLATE);
+
+        Assertions.assertTrue(connection.enqueueTick(1, tick("B1")), "The first tick requests a flush.");
+        Assertions.assertFalse(connection.enqueueTick(0, tick("A1")));
+        Assertions.assertFalse(connection.enqueueTick(1, tick("B2")));
+        Assertions.assertFalse(connection.enqueueTick(2, tick("C1")));
+        Assertions.assertFalse(connection.enqueueTick(1, tick("B3")));
+        Assertions.assertEquals(2, connection.getConflatedTicks());
+
+        connection.drainBlocking();
+        Assertions.assertEquals("B3|A1|C1|", received(9));
+        Assertions.assertEquals(0, connection.getPendingBytes());
+    }
+
+    @Test
+    void whenMessagesAreQueuedBeforeTicks_ThenTheyAreSentFirst() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.CONFLATE);
+
+        Assertions.assertTrue(connection.enqueue(tick("S0")));
+        connection.enqueueTick(0, tick("A1"));
+        connection.enqueueTick(0, tick("A2"));
+        connection.enqueue(tick("S1"));
+
+        connection.drainBlocking();
+        Assertions.assertEquals("S0|S1|A2|", received(9));
+    }
+
+    @Test
+    void whenPairIsUnsubscribedWhilePending_ThenItsTickIsDiscarded() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.CONFLATE);
+
+        connection.enqueueTick(0, tick("A1"));
+        connection.enqueueTick(1, tick("B1"));
+        connection.getSubscribedPairs().clear(0);
+
+        connection.drainBlocking();
+        Assertions.assertEquals("B1|", received(3));
+    }
+
+    @Test
+    void whenDrainedTicksArriveAgain_ThenANewFlushIsRequested() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.CONFLATE);
+
+        Assertions.assertTrue(connection.enqueueTick(0, tick("A1")));
+        connection.requestFlush();
+        connection.drainBlocking();
+        Assertions.assertTrue(connection.enqueueTick(0, tick("A2")), "Not conflated with the tick already sent.");
+        connection.drainBlocking();
+
+        Assertions.assertEquals("A1|A2|", received(6));
+        Assertions.assertEquals(0, connection.getConflatedTicks());
+    }
+
+    @Test
+    void whenDeliveryModeIsQueue_ThenEveryTickIsSent() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.QUEUE);
+
+        Assertions.assertTrue(connection.enqueueTick(1, tick("B1")));
+        Assertions.assertFalse(connection.enqueueTick(1, tick("B2")));
+        Assertions.assertFalse(connection.enqueueTick(0, tick("A1")));
+
+        connection.drainBlocking();
+        Assertions.assertEquals("B1|B2|A1|", received(9));
+        Assertions.assertEquals(0, connection.getConflatedTicks());
+    }
+
+    @Test
+    void whenPairIsThrottled_ThenFirstTickPassesAndTheRestAreHeld() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.CONFLATE);
+        connection.setThrottleInterval(0, 100);
+        Assertions.assertTrue(connection.isThrottled(0));
+        Assertions.assertFalse(connection.isThrottled(1));
+
+        Assertions.assertEquals(ClientConnection.THROTTLE_FLUSH_REQUIRED, connection.enqueueThrottledTick(0, tick("A1"), 1_000));
+        connection.requestFlush();
+        Assertions.assertEquals(90, connection.enqueueThrottledTick(0, tick("A2"), 1_010), "Held until the interval ends.");
+        Assertions.assertEquals(0, connection.enqueueThrottledTick(0, tick("A3"), 1_020), "Replaces the held tick, the release is already scheduled.");
+        Assertions.assertEquals(1, connection.getThrottledTicks());
+
+        connection.drainBlocking();
+        Assertions.assertEquals("A1|", received(3));
+
+        Assertions.assertTrue(connection.releaseThrottledTick(0, 1_100));
+        Assertions.assertFalse(connection.releaseThrottledTick(0, 1_100), "Nothing held anymore.");
+        connection.requestFlush();
+        connection.drainBlocking();
+        Assertions.assertEquals("A3|", received(3));
+
+        Assertions.assertEquals(50, connection.enqueueThrottledTick(0, tick("A4"), 1_150), "The next interval started with the release.");
+        Assertions.assertTrue(connection.releaseThrottledTick(0, 1_200));
+        connection.requestFlush();
+        connection.drainBlocking();
+        Assertions.assertEquals(ClientConnection.THROTTLE_FLUSH_REQUIRED, connection.enqueueThrottledTick(0, tick("A5"), 1_400),
+                "A tick after a quiet interval passes right away.");
+        connection.drainBlocking();
+        Assertions.assertEquals("A4|A5|", received(6));
+    }
+
+    @Test
+    void whenFlushIsAlreadyRequested_ThenPassingTickReturnsZero(){
+        ClientConnection connection = subscribedConnection(DeliveryMode.QUEUE);
+        connection.setThrottleInterval(0, 100);
+        connection.setThrottleInterval(1, 100);
+
+        Assertions.assertEquals(ClientConnection.THROTTLE_FLUSH_REQUIRED, connection.enqueueThrottledTick(0, tick("A1"), 1_000));
+        Assertions.assertEquals(0, connection.enqueueThrottledTick(1, tick("B1"), 1_000), "Queued, but the flush is already requested.");
+        Assertions.assertEquals(6, connection.getPendingBytes());
+    }
+
+    @Test
+    void whenPairIsUnsubscribedWhileTickIsHeld_ThenTickIsDropped() throws IOException {
+        ClientConnection connection = subscribedConnection(DeliveryMode.QUEUE);
+        connection.setThrottleInterval(0, 100);
+
+        Assertions.assertEquals(ClientConnection.THROTTLE_FLUSH_REQUIRED, connection.enqueueThrottledTick(0, tick("A1"), 1_000));
+        Assertions.assertEquals(100, connection.enqueueThrottledTick(0, tick("A2"), 1_000));
+        connection.getSubscribedPairs().clear(0);
+
+        Assertions.assertFalse(connection.releaseThrottledTick(0, 1_100));
+        connection.enqueue(tick("S1"));
+        connection.drainBlocking();
+        Assertions.assertEquals("A1|S1|", received(6));
+    }
+
+    @Test
+    void whenThrottleIsRemoved_ThenPairIsNotThrottled(){
+        ClientConnection connection = subscribedConnection(DeliveryMode.QUEUE);
+        connection.setThrottleInterval(2, 0);
+        Assertions.assertFalse(connection.isThrottled(2));
+
+        connection.setThrottleInterval(2, 250);
+        connection.setThrottleInterval(1, 100);
+        connection.setThrottleInterval(2, 0);
+        Assertions.assertFalse(connection.isThrottled(2));
+        Assertions.assertTrue(connection.isThrottled(1));
+    }
+
+    @Test
+    void whenConnectionIsClosed_ThenTicksAreRejected(){
+        ClientConnection connection = subscribedConnection(DeliveryMode.CONFLATE);
+        connection.enqueueTick(0, tick("A1"));
+
+        connection.setThrottleInterval(1, 100);
+        connection.enqueueThrottledTick(1, tick("B1"), 1_000);
+        Assertions.assertEquals(100, connection.enqueueThrottledTick(1, tick("B2"), 1_000));
+
+        connection.close();
+        Assertions.assertFalse(connection.enqueueTick(0, tick("A2")));
+        Assertions.assertEquals(0, connection.enqueueThrottledTick(1, tick("B3"), 2_000));
+        Assertions.assertFalse(connection.releaseThrottledTick(1, 2_000), "The held tick was discarded.");
+        Assertions.assertEquals(0, connection.getPendingBytes());
+    }
+
+
+    private ClientConnection subscribedConnection(DeliveryMode deliveryMode) {
+        ClientConnection connection = new BlockingClientConnection(channel, 1024, OverflowPolicy.DROP, deliveryMode, PAIRS, closed -> {}, metrics);
+        connection.getSubscribedPairs().set(0, PAIRS);
+        return connection;
+    }
+
+    private static ByteBuffer tick(String text) {
+        return ByteBuffer.wrap((text + "|").getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    }
+
+    private String received(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (peer.read(buffer) < 0) {
+                break;
+            }
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.toyota.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+class LineFrameDecoderTest {
+
+    private final LineFrameDecoder decoder = new LineFrameDecoder();
+
+
+    @Test
+    void whenCommandIsSplitMidToken_ThenFrameIsDeliveredAfterTheNewline(){
+        ByteBuffer first = bytes("subscribe|TCP_US");
+        Assertions.assertEquals(LineFrameDecoder.Result.NEED_MORE_DATA, decoder.decode(first));
+        Assertions.assertFalse(first.hasRemaining());
+
+        ByteBuffer second = bytes("DTRY\n");
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(second));
+        Assertions.assertEquals("subscribe|TCP_USDTRY", frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.NEED_MORE_DATA, decoder.decode(second));
+    }
+
+    @Test
+    void whenSeveralCommandsArriveInOneRead_ThenEachIsDeliveredInOrder(){
+        ByteBuffer in = bytes("connect|user|pass\nsubscribe|TCP_EURUSD\n\nping\nunsub");
+
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(in));
+        Assertions.assertEquals("connect|user|pass", frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(in));
+        Assertions.assertEquals("subscribe|TCP_EURUSD", frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(in));
+        Assertions.assertEquals("", frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(in));
+        Assertions.assertEquals("ping", frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.NEED_MORE_DATA, decoder.decode(in), "An unterminated line is kept, not delivered.");
+
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(bytes("scribe|TCP_EURUSD\n")));
+        Assertions.assertEquals("unsubscribe|TCP_EURUSD", frame());
+    }
+
+    @Test
+    void whenLineEndsWithCarriageReturn_ThenItIsStripped(){
+        ByteBuffer in = bytes("ping\r\npong\r");
+
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(in));
+        Assertions.assertEquals("ping", frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.NEED_MORE_DATA, decoder.decode(in));
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(bytes("\n")), "The \\r\\n pair may be split across reads.");
+        Assertions.assertEquals("pong", frame());
+    }
+
+    @Test
+    void whenFrameExceedsTheLimit_ThenItIsDiscardedUpToTheNewline(){
+        String tooLong = "subscribe|" + "X".repeat(LineFrameDecoder.MAX_FRAME_LENGTH);
+        ByteBuffer in = bytes(tooLong.substring(0, 600));
+
+        Assertions.assertEquals(LineFrameDecoder.Result.NEED_MORE_DATA, decoder.decode(in));
+        in = bytes(tooLong.substring(600) + "\nping\n");
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME_TOO_LONG, decoder.decode(in));
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(in));
+        Assertions.assertEquals("ping", frame());
+    }
+
+    @Test
+    void whenFrameIsExactlyAtTheLimit_ThenItIsDelivered(){
+        String longest = "X".repeat(LineFrameDecoder.MAX_FRAME_LENGTH);
+
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME, decoder.decode(bytes(longest + "\r\n")));
+        Assertions.assertEquals(longest, frame());
+        Assertions.assertEquals(LineFrameDecoder.Result.FRAME_TOO_LONG, decoder.decode(bytes(longest + "\rX\n")),
+                "A '\\r' inside the frame still counts against the limit.");
+    }
+
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String frame() {
+        return new String(decoder.frame(), 0, decoder.frameLength(), StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.toyota.server;
+
+import com.toyota.auth.AuthService;
+import com.toyota.metrics.ServerMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * The connections share one loopback channel, which is only used for logging. Their key is {@code null},
+ * like in blocking mode; nothing is ever flushed.
+ */
+class SubscriptionIndexTest {
+
+    private static final int PAIRS = 3;
+
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final SubscriptionIndex index = new SubscriptionIndex(PAIRS);
+
+    private ServerSocketChannel server;
+    private SocketChannel channel;
+
+
+    @BeforeEach
+    void openChannel() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        channel = SocketChannel.open(server.getLocalAddress());
+    }
+
+    @AfterEach
+    void closeChannel() throws IOException {
+        channel.close();
+        server.close();
+    }
+
+
+    @Test
+    void whenConnectionSubscribesAndUnsubscribes_ThenArrayFollows(){
+        ClientConnection a = connection();
+
+        Assertions.assertTrue(index.add(a, 1));
+        Assertions.assertFalse(index.add(a, 1), "Already subscribed.");
+        Assertions.assertArrayEquals(new ClientConnection[]{a}, index.subscribers(1));
+        Assertions.assertTrue(index.isSubscribed(a, 1));
+        Assertions.assertFalse(index.isSubscribed(a, 0));
+
+        Assertions.assertTrue(index.remove(a, 1));
+        Assertions.assertFalse(index.remove(a, 1), "Not subscribed anymore.");
+        Assertions.assertEquals(0, index.subscribers(1).length);
+        Assertions.assertFalse(index.isSubscribed(a, 1));
+
+        Assertions.assertTrue(index.add(a, 1), "May subscribe again.");
+        Assertions.assertArrayEquals(new ClientConnection[]{a}, index.subscribers(1));
+    }
+
+    @Test
+    void whenLastSubscriberOfAPairLeaves_ThenPairHasNoSubscribers(){
+        ClientConnection a = connection();
+        ClientConnection b = connection();
+        index.add(a, 0);
+        index.add(b, 0);
+        index.add(b, 2);
+
+        index.remove(a, 0);
+        Assertions.assertArrayEquals(new ClientConnection[]{b}, index.subscribers(0));
+        index.remove(b, 0);
+        Assertions.assertEquals(0, index.subscribers(0).length);
+        Assertions.assertArrayEquals(new ClientConnection[]{b}, index.subscribers(2), "Other pairs are not touched.");
+    }
+
+    @Test
+    void whenClientIsReleased_ThenItIsRemovedFromEveryPair(){
+        ClientCommandHandler handler = new ClientCommandHandler(new AuthService(Map.of()),
+                new CurrencyPairRegistry(List.of("TCP_USDTRY", "TCP_EURUSD", "TCP_GBPUSD")), index, null, metrics, connection -> {});
+        ClientConnection a = connection();
+        ClientConnection b = connection();
+        for (int pairId = 0; pairId < PAIRS; pairId++) {
+            index.add(a, pairId);
+        }
+        index.add(b, 1);
+
+        handler.releaseClient(a);
+
+        Assertions.assertTrue(a.isClosed());
+        Assertions.assertTrue(a.getSubscribedPairs().isEmpty());
+        Assertions.assertEquals(0, index.subscribers(0).length);
+        Assertions.assertArrayEquals(new ClientConnection[]{b}, index.subscribers(1));
+        Assertions.assertEquals(0, index.subscribers(2).length);
+        Assertions.assertTrue(index.isSubscribed(b, 1));
+    }
+
+    @Test
+    void whenFewSubscribersAreClosed_ThenArrayIsOnlyCompactedOnceHalfOfItIsClosed(){
+        ClientConnection[] connections = new ClientConnection[4];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = connection();
+            index.add(connections[i], 0);
+        }
+
+        connections[0].close();
+        index.removeAll(connections[0]);
+        Assertions.assertEquals(4, index.subscribers(0).length, "One closed connection of four stays until compaction.");
+        Assertions.assertFalse(index.isSubscribed(connections[0], 0));
+
+        connections[1].close();
+        index.removeAll(connections[1]);
+        Assertions.assertArrayEquals(new ClientConnection[]{connections[2], connections[3]}, index.subscribers(0));
+    }
+
+    @Test
+    void whenIndexIsModifiedWhileReaderHoldsTheArray_ThenReaderKeepsAConsistentArray() throws Exception {
+        ClientConnection a = connection();
+        ClientConnection b = connection();
+        ClientConnection c = connection();
+        index.add(a, 0);
+        index.add(b, 0);
+
+        ClientConnection[] held = index.subscribers(0);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    index.add(c, 0);
+                    index.remove(c, 0);
+                }
+                index.add(c, 0);
+                index.remove(a, 0);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            ClientConnection[] current = index.subscribers(0);
+            for (ClientConnection subscriber : current) {
+                Assertions.assertNotNull(subscriber, "A published array is never partially filled.");
+            }
+        }
+        writer.join();
+        Assertions.assertNull(failure.get());
+
+        Assertions.assertArrayEquals(new ClientConnection[]{a, b}, held, "The held array is never modified.");
+        Assertions.assertArrayEquals(new ClientConnection[]{b, c}, index.subscribers(0));
+    }
+
+
+    private ClientConnection connection() {
+        return new ClientConnection(channel, null, 1024, OverflowPolicy.DROP, DeliveryMode.QUEUE, PAIRS, connection -> {}, metrics);
+    }
+
+}
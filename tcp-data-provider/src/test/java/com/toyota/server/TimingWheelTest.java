@@ -0,0 +1,138 @@
+package com.toyota.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Ticks of 10 ns and a 50 ns maximum delay give a wheel of 8 buckets that spans 7 ticks, starting at 0 ns.
+ */
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final int BUCKETS = 8;
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK, 50, 0);
+    private final List<String> expired = new ArrayList<>();
+    private final TimingWheel.ExpiryHandler<String> recorder = (entry, nowNanos) -> expired.add(entry + "@" + nowNanos);
+
+
+    @Test
+    void whenDeadlineIsOnATickBoundary_ThenEntryExpiresOnThatTick(){
+        wheel.schedule("a", 20, 0);
+
+        wheel.advance(19, recorder);
+        Assertions.assertEquals(List.of(), expired);
+        wheel.advance(20, recorder);
+        Assertions.assertEquals(List.of("a@20"), expired);
+    }
+
+    @Test
+    void whenDeadlineIsBetweenTicks_ThenEntryExpiresOnTheNextTickNeverEarly(){
+        wheel.schedule("a", 11, 0);
+        wheel.schedule("b", 1, 5);
+        wheel.schedule("now", 0, 0);
+
+        wheel.advance(10, recorder);
+        Assertions.assertEquals(List.of("b@10", "now@10"), expired);
+        wheel.advance(19, recorder);
+        Assertions.assertEquals(2, expired.size());
+        wheel.advance(20, recorder);
+        Assertions.assertEquals(List.of("b@10", "now@10", "a@20"), expired);
+    }
+
+    @Test
+    void whenWheelWrapsAround_ThenEntriesExpireInTheirOwnLap(){
+        wheel.advance(95, recorder);         // TICK 9, THE SECOND LAP.
+        wheel.schedule("a", 65, 95);         // TICK 16, BUCKET 0 OF THE THIRD LAP.
+        wheel.schedule("b", 5, 95);          // TICK 10, BUCKET 2.
+
+        wheel.advance(159, recorder);
+        Assertions.assertEquals(List.of("b@159"), expired);
+        wheel.advance(160, recorder);
+        Assertions.assertEquals(List.of("b@159", "a@160"), expired);
+    }
+
+    @Test
+    void whenEntryIsRescheduledOverManyLaps_ThenEveryExpiryIsOnTime(){
+        List<Long> expiries = new ArrayList<>();
+        TimingWheel.ExpiryHandler<String> rescheduling = (entry, nowNanos) -> {
+            expiries.add(nowNanos);
+            wheel.schedule(entry, 3 * TICK, nowNanos);
+        };
+        wheel.schedule("a", 3 * TICK, 0);
+
+        for (long now = 0; now <= 10 * BUCKETS * TICK; now += TICK) {
+            wheel.advance(now, rescheduling);
+        }
+        Assertions.assertEquals(10 * BUCKETS / 3, expiries.size());
+        for (int i = 0; i < expiries.size(); i++) {
+            Assertions.assertEquals((i + 1) * 3 * TICK, expiries.get(i));
+        }
+    }
+
+    @Test
+    void whenDelayExceedsTheSpan_ThenItIsClamped(){
+        wheel.schedule("far", 1_000, 0);
+
+        wheel.advance(69, recorder);
+        Assertions.assertEquals(List.of(), expired);
+        wheel.advance(70, recorder);
+        Assertions.assertEquals(List.of("far@70"), expired);
+    }
+
+    @Test
+    void whenHandlerReschedulesWithoutDelay_ThenEntryExpiresOnTheNextTick(){
+        List<String> expiries = new ArrayList<>();
+        wheel.schedule("a", TICK, 0);
+
+        wheel.advance(10, (entry, nowNanos) -> {
+            expiries.add(entry + "@" + nowNanos);
+            wheel.schedule(entry, 0, nowNanos);
+        });
+        Assertions.assertEquals(List.of("a@10"), expiries);
+        wheel.advance(20, recorder);
+        Assertions.assertEquals(List.of("a@20"), expired);
+    }
+
+    @Test
+    void whenEntryIsCancelled_ThenItNeverExpires(){
+        int bucketA = wheel.schedule("a", 20, 0);
+        int bucketB = wheel.schedule("b", 20, 0);
+        int bucketC = wheel.schedule("c", 20, 0);
+        Assertions.assertEquals(bucketA, bucketB);
+
+        Assertions.assertTrue(wheel.cancel("a", bucketA));
+        Assertions.assertFalse(wheel.cancel("a", bucketA));
+        Assertions.assertFalse(wheel.cancel("b", (bucketB + 1) % BUCKETS));
+
+        wheel.advance(20, recorder);
+        Assertions.assertEquals(List.of("c@20", "b@20"), expired);
+        Assertions.assertFalse(wheel.cancel("b", bucketB), "Already expired.");
+        Assertions.assertFalse(wheel.cancel("c", bucketC), "Already expired.");
+    }
+
+    @Test
+    void whenHandlerCancelsALaterEntry_ThenOnlyThatEntryIsRemoved(){
+        wheel.schedule("a", 10, 0);
+        int bucketB = wheel.schedule("b", 20, 0);
+        wheel.schedule("c", 20, 0);
+
+        wheel.advance(30, (entry, nowNanos) -> {
+            expired.add(entry + "@" + nowNanos);
+            if (entry.equals("a")) {
+                wheel.cancel("b", bucketB);
+            }
+        });
+        Assertions.assertEquals(List.of("a@30", "c@30"), expired);
+    }
+
+    @Test
+    void whenTickIsNotPositive_ThenConstructorThrows(){
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 50, 0));
+    }
+
+}